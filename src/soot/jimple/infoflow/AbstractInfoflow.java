@@ -1,5 +1,7 @@
 package soot.jimple.infoflow;
 
+import heros.solver.CountingThreadPoolExecutor;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -53,6 +55,7 @@ public abstract class AbstractInfoflow implements IInfoflow {
 	protected final String androidPath;
 	protected final boolean forceAndroidJar;
 	protected IInfoflowConfig sootConfig;
+	protected CountingThreadPoolExecutor executor = null;
 	
     /**
      * Creates a new instance of the abstract info flow problem
@@ -293,6 +296,11 @@ public abstract class AbstractInfoflow implements IInfoflow {
 		this.pathBuilderFactory = factory;
 	}
 	
+	@Override
+	public void setExecutor(CountingThreadPoolExecutor executor) {
+		this.executor = executor;
+	}
+	
 	/**
 	 * Constructs the callgraph
 	 */
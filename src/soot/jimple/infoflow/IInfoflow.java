@@ -10,6 +10,8 @@
  ******************************************************************************/
 package soot.jimple.infoflow;
 
+import heros.solver.CountingThreadPoolExecutor;
+
 import java.util.Collection;
 import java.util.List;
 
@@ -170,4 +172,14 @@ public interface IInfoflow {
 	 */
 	public void setPathBuilderFactory(IPathBuilderFactory factory);
 	
+	/**
+	 * Sets the executor on which the solvers and the path builders shall run
+	 * their tasks. The executor is shared across all subsequent analysis runs
+	 * and is never shut down by the data flow analysis, so that its worker
+	 * threads can be reused. The caller is responsible for shutting it down.
+	 * @param executor The executor to use, or null to create a fresh executor
+	 * for every analysis run
+	 */
+	public void setExecutor(CountingThreadPoolExecutor executor);
+	
 }
@@ -11,16 +11,17 @@ package soot.jimple.infoflow;
 
 import heros.solver.CountingThreadPoolExecutor;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,28 +39,43 @@ import soot.jimple.infoflow.aliasing.FlowSensitiveAliasStrategy;
 import soot.jimple.infoflow.aliasing.IAliasingStrategy;
 import soot.jimple.infoflow.aliasing.PtsBasedAliasStrategy;
 import soot.jimple.infoflow.cfg.BiDirICFGFactory;
+import soot.jimple.infoflow.cfg.DefaultBiDiICFGFactory;
 import soot.jimple.infoflow.codeOptimization.DeadCodeEliminator;
 import soot.jimple.infoflow.codeOptimization.ICodeOptimizer;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AbstractionAtSink;
 import soot.jimple.infoflow.data.AccessPathFactory;
+import soot.jimple.infoflow.data.BoundedMemoryManager;
 import soot.jimple.infoflow.data.FlowDroidMemoryManager;
 import soot.jimple.infoflow.data.pathBuilders.DefaultPathBuilderFactory;
 import soot.jimple.infoflow.data.pathBuilders.IAbstractionPathBuilder;
 import soot.jimple.infoflow.data.pathBuilders.IPathBuilderFactory;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
 import soot.jimple.infoflow.handlers.ResultsAvailableHandler;
+import soot.jimple.infoflow.handlers.StreamingResultsHandler;
 import soot.jimple.infoflow.handlers.TaintPropagationHandler;
 import soot.jimple.infoflow.problems.BackwardsInfoflowProblem;
 import soot.jimple.infoflow.problems.InfoflowProblem;
+import soot.jimple.infoflow.results.InfoflowPerformanceData;
 import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.results.InfoflowResults.TerminationReason;
 import soot.jimple.infoflow.results.ResultSinkInfo;
 import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.results.SinkResultPruner;
+import soot.jimple.infoflow.results.StreamingResultDispatcher;
 import soot.jimple.infoflow.solver.IMemoryManager;
 import soot.jimple.infoflow.solver.cfg.BackwardsInfoflowCFG;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.infoflow.solver.fastSolver.CompactJumpFunctions;
 import soot.jimple.infoflow.solver.fastSolver.InfoflowSolver;
+import soot.jimple.infoflow.solver.fastSolver.PersistentSummaryStore;
+import soot.jimple.infoflow.solver.fastSolver.SummarySpillStore;
+import soot.jimple.infoflow.solver.fastSolver.WorkStealingExecutor;
 import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.util.AnalysisBudget;
+import soot.jimple.infoflow.util.ParallelRange;
+import soot.jimple.infoflow.util.ParallelRange.IRangeVisitor;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.jimple.infoflow.util.SystemClassHandler;
 import soot.jimple.toolkits.callgraph.ReachableMethods;
@@ -70,16 +86,25 @@ import soot.options.Options;
  */
 public class Infoflow extends AbstractInfoflow {
 	
+	/**
+	 * The maximum number of methods to scan for sources and sinks without
+	 * splitting the range
+	 */
+	private static final int SCAN_BATCH_SIZE = 32;
+	
     private final Logger logger = LoggerFactory.getLogger(getClass());
     
 	private InfoflowResults results = null;
     private IInfoflowCFG iCfg;
     
     private Set<ResultsAvailableHandler> onResultsAvailable = new HashSet<ResultsAvailableHandler>();
+    private Set<StreamingResultsHandler> streamingResultsHandlers = new HashSet<StreamingResultsHandler>();
     private TaintPropagationHandler taintPropagationHandler = null;
     private TaintPropagationHandler backwardsPropagationHandler = null;
+    private SinkResultPruner sinkResultPruner = new SinkResultPruner();
     
     private long maxMemoryConsumption = -1;
+    private InfoflowPerformanceData performanceData = null;
 
 	/**
 	 * Creates a new instance of the InfoFlow class for analyzing plain Java code without any references to APKs or the Android SDK.
@@ -191,6 +216,7 @@ public class Infoflow extends AbstractInfoflow {
 		// Clear the data from previous runs
 		maxMemoryConsumption = -1;
 		results = null;
+		performanceData = new InfoflowPerformanceData();
 				
 		// Some configuration options do not really make sense in combination
 		if (config.getEnableStaticFieldTracking()
@@ -216,14 +242,37 @@ public class Infoflow extends AbstractInfoflow {
 		
         if (config.getCallgraphAlgorithm() != CallgraphAlgorithm.OnDemand)
         	logger.info("Callgraph has {} edges", Scene.v().getCallGraph().size());
+        if (icfgFactory instanceof DefaultBiDiICFGFactory)
+        	((DefaultBiDiICFGFactory) icfgFactory).setMaxThreadNum(config.getMaxThreadNum());
         iCfg = icfgFactory.buildBiDirICFG(config.getCallgraphAlgorithm(),
         		config.getEnableExceptionTracking());
 		        
+        // Use the shared executor if we have one, otherwise create a fresh
+        // one for this run
+        final boolean sharedExecutor = this.executor != null && !this.executor.isShutdown();
+        if (this.executor != null && !sharedExecutor)
+        	logger.warn("Shared executor has been shut down, creating a new one");
         int numThreads = Runtime.getRuntime().availableProcessors();
-		CountingThreadPoolExecutor executor = createExecutor(numThreads);
+		CountingThreadPoolExecutor executor = sharedExecutor ? this.executor
+				: createExecutor(numThreads);
+		
+		// The forward solver, the backward solver and the path builder all
+		// run on this executor. Its pending task counter serves as the
+		// quiescence barrier between the phases: the solvers return as soon as
+		// it drops to zero and the path builder then directly reuses the
+		// worker threads. We only shut the executor down once the path
+		// reconstruction is done.
 		
 		// Initialize the memory manager
 		IMemoryManager<Abstraction> memoryManager = new FlowDroidMemoryManager();
+		BoundedMemoryManager boundedMemoryManager = null;
+		if (config.getMemoryBudget() > 0) {
+			boundedMemoryManager = new BoundedMemoryManager(
+					config.getMemoryBudget() * 1024 * 1024, memoryManager);
+			memoryManager = boundedMemoryManager;
+		}
+		final List<SummarySpillStore<Unit, Abstraction, SootMethod>> spillStores =
+				new ArrayList<SummarySpillStore<Unit, Abstraction, SootMethod>>();
 		
 		// Initialize the data flow manager
 		InfoflowManager manager = new InfoflowManager(config, null, iCfg, sourcesSinks,
@@ -241,7 +290,13 @@ public class Infoflow extends AbstractInfoflow {
 				backSolver = new InfoflowSolver(backProblem, executor);
 				backSolver.setMemoryManager(memoryManager);
 				backSolver.setJumpPredecessors(!pathBuilderFactory.supportsPathReconstruction());
-//				backSolver.setEnableMergePointChecking(true);
+				backSolver.setBatchSize(config.getEdgeBatchSize());
+				backSolver.setShutdownExecutor(false);
+				if (config.getUseCompactJumpFunctions())
+					backSolver.setJumpFunctions(new CompactJumpFunctions<Unit, Abstraction>());
+				if (boundedMemoryManager != null)
+					registerMemoryBoundedSolver(boundedMemoryManager, backSolver, spillStores);
+				backSolver.setEnableMergePointChecking(config.getMergePointChecking());
 				
 				aliasingStrategy = new FlowSensitiveAliasStrategy(iCfg, backSolver);
 				break;
@@ -269,13 +324,54 @@ public class Infoflow extends AbstractInfoflow {
 		
 		forwardSolver.setMemoryManager(memoryManager);
 		forwardSolver.setJumpPredecessors(!pathBuilderFactory.supportsPathReconstruction());
-//		forwardSolver.setEnableMergePointChecking(true);
+		forwardSolver.setBatchSize(config.getEdgeBatchSize());
+		forwardSolver.setShutdownExecutor(false);
+		if (config.getUseCompactJumpFunctions())
+			forwardSolver.setJumpFunctions(new CompactJumpFunctions<Unit, Abstraction>());
+		if (boundedMemoryManager != null)
+			registerMemoryBoundedSolver(boundedMemoryManager, forwardSolver, spillStores);
+		forwardSolver.setEnableMergePointChecking(config.getMergePointChecking());
+		if (config.getSparsePropagation()) {
+			if (config.getEnableImplicitFlows() || aliasingStrategy.isInteractive()
+					|| taintPropagationHandler != null)
+				logger.warn("Sparse propagation is not supported with implicit flows, "
+						+ "interactive aliasing, or a taint propagation handler, "
+						+ "propagating taints through every statement");
+			else
+				forwardSolver.setSparsePropagation(true);
+		}
+		
+		// Reuse the library summaries from previous runs
+		PersistentSummaryStore persistentSummaryStore = null;
+		if (config.getSummaryStoreDirectory() != null) {
+			if (config.getEnableImplicitFlows() || aliasingStrategy.requiresAnalysisOnReturn())
+				logger.warn("Library summaries are not supported with implicit flows "
+						+ "or aliasing on return, analyzing all library methods");
+			else {
+				persistentSummaryStore = new PersistentSummaryStore(
+						new File(config.getSummaryStoreDirectory()), config, taintWrapper,
+						iCfg, sourcesSinks);
+				if (persistentSummaryStore.isEnabled())
+					forwardSolver.setPersistentSummaryStore(persistentSummaryStore);
+				else
+					persistentSummaryStore = null;
+			}
+		}
 		
 		forwardProblem.setTaintPropagationHandler(taintPropagationHandler);
 		forwardProblem.setTaintWrapper(taintWrapper);
 		if (nativeCallHandler != null)
 			forwardProblem.setNativeCallHandler(nativeCallHandler);
 		
+		// Report results while the solver is still running
+		StreamingResultDispatcher streamingDispatcher = null;
+		if (!streamingResultsHandlers.isEmpty()) {
+			streamingDispatcher = new StreamingResultDispatcher(iCfg,
+					streamingResultsHandlers, config.getIncrementalPathBuilding());
+			forwardProblem.getTaintPropagationResults().addResultAvailableHandler(
+					streamingDispatcher);
+		}
+		
 		if (backProblem != null) {
 			backProblem.setForwardSolver(forwardSolver);
 			backProblem.setTaintPropagationHandler(backwardsPropagationHandler);
@@ -293,11 +389,33 @@ public class Infoflow extends AbstractInfoflow {
 		
 		// We have to look through the complete program to find sources
 		// which are then taken as seeds.
-		int sinkCount = 0;
         logger.info("Looking for sources and sinks...");
+        long beforeSeedMethods = System.nanoTime();
+        List<SootMethod> seedMethods = getMethodsForSeeds(iCfg);
+        logger.info("Collected {} methods to scan in {} seconds", seedMethods.size(),
+        		(System.nanoTime() - beforeSeedMethods) / 1E9);
         
-        for (SootMethod sm : getMethodsForSeeds(iCfg))
-			sinkCount += scanMethodForSourcesSinks(sourcesSinks, forwardProblem, sm);
+        // Scan the methods in parallel. The source/sink manager and the
+        // seed registration in the problem must be thread-safe for this.
+        long beforeScan = System.nanoTime();
+        final AtomicInteger sourceStmtCount = new AtomicInteger();
+        final AtomicInteger sinkStmtCount = new AtomicInteger();
+        final InfoflowProblem scanProblem = forwardProblem;
+        final List<SootMethod> scanMethods = seedMethods;
+        ParallelRange.forEach(ParallelRange.getThreadCount(config.getMaxThreadNum()),
+        		scanMethods.size(), SCAN_BATCH_SIZE, new IRangeVisitor() {
+        	
+        	@Override
+        	public void visit(int index) {
+        		scanMethodForSourcesSinks(sourcesSinks, scanProblem,
+        				scanMethods.get(index), sourceStmtCount, sinkStmtCount);
+        	}
+        	
+        });
+        int sinkCount = sinkStmtCount.get();
+        logger.info("Scanned {} methods in {} seconds, found {} source and {} sink statements",
+        		seedMethods.size(), (System.nanoTime() - beforeScan) / 1E9,
+        		sourceStmtCount.get(), sinkCount);
         
 		// We optionally also allow additional seeds to be specified
 		if (additionalSeeds != null)
@@ -314,10 +432,14 @@ public class Infoflow extends AbstractInfoflow {
 		// Report on the sources and sinks we have found
 		if (!forwardProblem.hasInitialSeeds()) {
 			logger.error("No sources found, aborting analysis");
+			if (!sharedExecutor)
+				executor.shutdown();
 			return;
 		}
 		if (sinkCount == 0) {
 			logger.error("No sinks found, aborting analysis");
+			if (!sharedExecutor)
+				executor.shutdown();
 			return;
 		}
 		logger.info("Source lookup done, found {} sources and {} sinks.", forwardProblem.getInitialSeeds().size(),
@@ -329,29 +451,66 @@ public class Infoflow extends AbstractInfoflow {
 		if (nativeCallHandler != null)
 			nativeCallHandler.initialize(manager);
 		
-		forwardSolver.solve();
+		// Compute the static field summaries before the solver threads start
+		// querying them
+		if (config.getEnableStaticFieldTracking() && iCfg instanceof InfoflowCFG)
+			((InfoflowCFG) iCfg).computeStaticFieldSummaries(
+					ParallelRange.getThreadCount(config.getMaxThreadNum()));
+		
+		// Bound the taint propagation. Once the budget is used up, the
+		// solvers stop processing edges and we continue with what we have.
+		AnalysisBudget dataFlowBudget = new AnalysisBudget("taint propagation",
+				config.getDataFlowTimeout(), config.getMaxHeapUsage());
+		forwardSolver.setAnalysisBudget(dataFlowBudget);
+		if (backSolver != null)
+			backSolver.setAnalysisBudget(dataFlowBudget);
+		dataFlowBudget.start();
+		try {
+			forwardSolver.solve();
+		}
+		finally {
+			dataFlowBudget.stop();
+		}
+		performanceData.setDataFlowSeconds(dataFlowBudget.getElapsedTime() / 1E9);
+		if (dataFlowBudget.isExhausted())
+			logger.warn("Taint propagation was stopped ({}), results will be incomplete",
+					dataFlowBudget.getExhaustionReason());
 		maxMemoryConsumption = Math.max(maxMemoryConsumption, getUsedMemory());
 		
-		// Not really nice, but sometimes Heros returns before all
-		// executor tasks are actually done. This way, we give it a
-		// chance to terminate gracefully before moving on.
-		int terminateTries = 0;
-		while (terminateTries < 10) {
-			if (executor.getActiveCount() != 0 || !executor.isTerminated()) {
-				terminateTries++;
-				try {
-					Thread.sleep(500);
-				}
-				catch (InterruptedException e) {
-					logger.error("Could not wait for executor termination", e);
-				}
+		if (streamingDispatcher != null)
+			streamingDispatcher.shutdown();
+
+		// Report how much of the solver state had to be spilled
+		if (boundedMemoryManager != null) {
+			long spilledBytes = 0;
+			long reloadedEntries = 0;
+			for (SummarySpillStore<Unit, Abstraction, SootMethod> store : spillStores) {
+				spilledBytes += store.getSpilledBytes();
+				reloadedEntries += store.getReloadedEntryCount();
 			}
-			else
-				break;
+			logger.info("Memory budget exceeded {} times, spilled {} entries ({} MB) "
+					+ "to disk and reloaded {} entries", boundedMemoryManager.getEvictionRounds(),
+					boundedMemoryManager.getEvictedEntryCount(), spilledBytes / 1E6,
+					reloadedEntries);
 		}
-		if (executor.getActiveCount() != 0 || !executor.isTerminated())
-			logger.error("Executor did not terminate gracefully");
-
+		
+		// Store the library summaries for the next run. Summaries from an
+		// incomplete run may be missing some exits. This also applies to runs
+		// that stop propagating after the first flow has been found.
+		if (persistentSummaryStore != null && !dataFlowBudget.isExhausted()
+				&& !config.getStopAfterFirstFlow()) {
+			forwardSolver.exportSummaries(persistentSummaryStore);
+			logger.info("Applied {} stored library summaries, found {} new ones",
+					persistentSummaryStore.getAppliedSummaryCount(),
+					persistentSummaryStore.getExportedSummaryCount());
+			try {
+				persistentSummaryStore.save();
+			}
+			catch (IOException ex) {
+				logger.error("Could not store library summaries", ex);
+			}
+		}
+		
 		// Print taint wrapper statistics
 		if (taintWrapper != null) {
 			logger.info("Taint wrapper hits: " + taintWrapper.getWrapperHits());
@@ -361,23 +520,20 @@ public class Infoflow extends AbstractInfoflow {
 		Set<AbstractionAtSink> res = forwardProblem.getResults();
 		
 		// We need to prune access paths that are entailed by another one
-		for (Iterator<AbstractionAtSink> absAtSinkIt = res.iterator(); absAtSinkIt.hasNext(); ) {
-			AbstractionAtSink curAbs = absAtSinkIt.next();
-			for (AbstractionAtSink checkAbs : res)
-				if (checkAbs != curAbs
-						&& checkAbs.getSinkStmt() == curAbs.getSinkStmt()
-						&& checkAbs.getAbstraction().isImplicit() == curAbs.getAbstraction().isImplicit())
-					if (checkAbs.getAbstraction().getAccessPath().entails(
-							curAbs.getAbstraction().getAccessPath())) {
-						absAtSinkIt.remove();
-						break;
-					}
-		}
+		if (sinkResultPruner != null)
+			sinkResultPruner.prune(res);
 		
 		logger.info("IFDS problem with {} forward and {} backward edges solved, "
 				+ "processing {} results...", forwardSolver.propagationCount,
 				backSolver == null ? 0 : backSolver.propagationCount,
 				res == null ? 0 : res.size());
+		performanceData.setForwardPropagationCount(forwardSolver.propagationCount);
+		performanceData.setBackwardPropagationCount(backSolver == null ? 0
+				: backSolver.propagationCount);
+		performanceData.setResultsAtSinks(res == null ? 0 : res.size());
+		performanceData.setForwardJumpFunctionCount(forwardSolver.getJumpFunctionCount());
+		performanceData.setBackwardJumpFunctionCount(backSolver == null ? 0
+				: backSolver.getJumpFunctionCount());
 		
 		// Force a cleanup. Everything we need is reachable through the
 		// results set, the other abstractions can be killed now.
@@ -390,9 +546,19 @@ public class Infoflow extends AbstractInfoflow {
 		}
 		forwardSolver = null;
 		forwardProblem = null;
+		for (SummarySpillStore<Unit, Abstraction, SootMethod> store : spillStores)
+			store.close();
 		Runtime.getRuntime().gc();
 		
-		computeTaintPaths(res);
+		try {
+			computeTaintPaths(res, executor);
+		}
+		finally {
+			if (!sharedExecutor)
+				executor.shutdown();
+		}
+		if (dataFlowBudget.isExhausted())
+			results.addTerminationReason(getTerminationReason(dataFlowBudget, false));
 		
 		if (results == null || results.getResults().isEmpty())
 			logger.warn("No results found.");
@@ -411,6 +577,15 @@ public class Infoflow extends AbstractInfoflow {
 			}
 		}
 		
+		maxMemoryConsumption = Math.max(maxMemoryConsumption, getUsedMemory());
+		performanceData.setMaxMemoryConsumption(maxMemoryConsumption / (1024 * 1024));
+		if (results != null) {
+			results.setPerformanceData(performanceData);
+			if (!results.isComplete())
+				logger.warn("Analysis terminated early ({}), the results are incomplete. {}",
+						results.getTerminationReasons(), performanceData);
+		}
+		
 		for (ResultsAvailableHandler handler : onResultsAvailable)
 			handler.onResultsAvailable(iCfg, results);
 		
@@ -446,30 +621,93 @@ public class Infoflow extends AbstractInfoflow {
 	 * @return The generated executor
 	 */
 	private CountingThreadPoolExecutor createExecutor(int numThreads) {
-		return new CountingThreadPoolExecutor
-				(config.getMaxThreadNum() == -1 ? numThreads
-						: Math.min(config.getMaxThreadNum(), numThreads),
+		int threadCount = config.getMaxThreadNum() == -1 ? numThreads
+				: Math.min(config.getMaxThreadNum(), numThreads);
+		if (config.getUseWorkStealingScheduler())
+			return new WorkStealingExecutor(threadCount);
+		return new CountingThreadPoolExecutor(threadCount,
 				Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
 				new LinkedBlockingQueue<Runnable>());
 	}
 	
+	/**
+	 * Attaches a spill store to the given solver and registers it with the
+	 * memory manager, so that the solver can evict cold state when the memory
+	 * budget is exceeded
+	 * @param memoryManager The memory manager that enforces the budget
+	 * @param solver The solver to register
+	 * @param spillStores The list to which to add the new spill store
+	 */
+	private void registerMemoryBoundedSolver(BoundedMemoryManager memoryManager,
+			InfoflowSolver solver,
+			List<SummarySpillStore<Unit, Abstraction, SootMethod>> spillStores) {
+		SummarySpillStore<Unit, Abstraction, SootMethod> store =
+				new SummarySpillStore<Unit, Abstraction, SootMethod>();
+		solver.setSummarySpillStore(store);
+		memoryManager.registerSolver(solver);
+		spillStores.add(store);
+	}
+	
 	/**
 	 * Computes the path of tainted data between the source and the sink
 	 * @param res The data flow tracker results
+	 * @param executor The executor on which the data flow solvers have run.
+	 * Path builders created by a {@link DefaultPathBuilderFactory} continue
+	 * on this executor once it has become quiescent, but do not shut it down.
+	 * Other factories create path builders with their own executors.
 	 */
-	protected void computeTaintPaths(final Set<AbstractionAtSink> res) {
-		IAbstractionPathBuilder builder = this.pathBuilderFactory.createPathBuilder
-				(config.getMaxThreadNum(), iCfg);
-   		builder.computeTaintPaths(res);
+	protected void computeTaintPaths(final Set<AbstractionAtSink> res,
+			CountingThreadPoolExecutor executor) {
+		IAbstractionPathBuilder builder = executor != null && !executor.isShutdown()
+				&& this.pathBuilderFactory instanceof DefaultPathBuilderFactory
+				? ((DefaultPathBuilderFactory) this.pathBuilderFactory).createPathBuilder(
+						executor, iCfg)
+				: this.pathBuilderFactory.createPathBuilder(config.getMaxThreadNum(), iCfg);
+		AnalysisBudget pathBudget = new AnalysisBudget("path reconstruction",
+				config.getPathReconstructionTimeout(), config.getMaxHeapUsage());
+		builder.setAnalysisBudget(pathBudget);
+		pathBudget.start();
+		try {
+			builder.computeTaintPaths(res);
+		}
+		finally {
+			pathBudget.stop();
+		}
+		if (performanceData != null)
+			performanceData.setPathReconstructionSeconds(pathBudget.getElapsedTime() / 1E9);
+		
    		if (this.results == null)
    			this.results = builder.getResults();
    		else
    			this.results.addAll(builder.getResults());
+   		if (pathBudget.isExhausted())
+   			this.results.addTerminationReason(getTerminationReason(pathBudget, true));
     	builder.shutdown();
 	}
+	
+	/**
+	 * Gets the reason to report in the results for the given exhausted budget
+	 * @param budget The budget that has been used up
+	 * @param pathReconstruction True if the budget applies to the path
+	 * reconstruction, false if it applies to the taint propagation
+	 * @return The reason why the results are incomplete
+	 */
+	private static TerminationReason getTerminationReason(AnalysisBudget budget,
+			boolean pathReconstruction) {
+		switch (budget.getExhaustionReason()) {
+			case Timeout:
+				return pathReconstruction ? TerminationReason.PathReconstructionTimeout
+						: TerminationReason.DataFlowTimeout;
+			case OutOfMemory:
+				return pathReconstruction ? TerminationReason.PathReconstructionOutOfMemory
+						: TerminationReason.DataFlowOutOfMemory;
+			default:
+				return TerminationReason.Cancelled;
+		}
+	}
 
-	private Collection<SootMethod> getMethodsForSeeds(IInfoflowCFG icfg) {
-		List<SootMethod> seeds = new LinkedList<SootMethod>();
+	private List<SootMethod> getMethodsForSeeds(IInfoflowCFG icfg) {
+		List<SootMethod> seeds = new ArrayList<SootMethod>();
 		// If we have a callgraph, we retrieve the reachable methods. Otherwise,
 		// we have no choice but take all application methods as an approximation
 		if (Scene.v().hasCallGraph()) {
@@ -480,11 +718,9 @@ public class Infoflow extends AbstractInfoflow {
 				seeds.add(iter.next().method());
 		}
 		else {
-			long beforeSeedMethods = System.nanoTime();
 			Set<SootMethod> doneSet = new HashSet<SootMethod>();
 			for (SootMethod sm : Scene.v().getEntryPoints())
 				getMethodsForSeedsIncremental(sm, doneSet, seeds, icfg);
-			logger.info("Collecting seed methods took {} seconds", (System.nanoTime() - beforeSeedMethods) / 1E9);
 		}
 		return seeds;
 	}
@@ -505,25 +741,28 @@ public class Infoflow extends AbstractInfoflow {
 
 	/**
 	 * Scans the given method for sources and sinks contained in it. Sinks are
-	 * just counted, sources are added to the InfoflowProblem as seeds.
+	 * just counted, sources are added to the InfoflowProblem as seeds. This
+	 * method may be called concurrently for different methods.
 	 * @param sourcesSinks The SourceSinkManager to be used for identifying
 	 * sources and sinks
 	 * @param forwardProblem The InfoflowProblem in which to register the
 	 * sources as seeds
 	 * @param m The method to scan for sources and sinks
-	 * @return The number of sinks found in this method
+	 * @param sourceCount The counter to increment for every source statement
+	 * @param sinkCount The counter to increment for every sink statement
 	 */
-	private int scanMethodForSourcesSinks(
+	private void scanMethodForSourcesSinks(
 			final ISourceSinkManager sourcesSinks,
 			InfoflowProblem forwardProblem,
-			SootMethod m) {
-		int sinkCount = 0;
+			SootMethod m,
+			AtomicInteger sourceCount,
+			AtomicInteger sinkCount) {
 		if (m.hasActiveBody()) {
 			// Check whether this is a system class we need to ignore
 			final String className = m.getDeclaringClass().getName();
 			if (config.getIgnoreFlowsInSystemPackages()
 					&& SystemClassHandler.isClassInSystemPackage(className))
-				return sinkCount;
+				return;
 			
 			// Look for a source in the method. Also look for sinks. If we
 			// have no sink in the program, we don't need to perform any
@@ -533,16 +772,16 @@ public class Infoflow extends AbstractInfoflow {
 				Stmt s = (Stmt) u;
 				if (sourcesSinks.getSourceInfo(s, iCfg) != null) {
 					forwardProblem.addInitialSeeds(u, Collections.singleton(forwardProblem.zeroValue()));
+					sourceCount.incrementAndGet();
 					logger.debug("Source found: {}", u);
 				}
 				if (sourcesSinks.isSink(s, iCfg, null)) {
 		            logger.debug("Sink found: {}", u);
-					sinkCount++;
+					sinkCount.incrementAndGet();
 				}
 			}
 			
 		}
-		return sinkCount;
 	}
 	
 	@Override
@@ -566,6 +805,24 @@ public class Infoflow extends AbstractInfoflow {
 		this.onResultsAvailable.add(handler);
 	}
 	
+	/**
+	 * Adds a handler that is notified about results while the taint
+	 * propagation is still running
+	 * @param handler The handler to add
+	 */
+	public void addStreamingResultsHandler(StreamingResultsHandler handler) {
+		this.streamingResultsHandlers.add(handler);
+	}
+	
+	/**
+	 * Removes a handler that is notified about results while the taint
+	 * propagation is still running
+	 * @param handler The handler to remove
+	 */
+	public void removeStreamingResultsHandler(StreamingResultsHandler handler) {
+		this.streamingResultsHandlers.remove(handler);
+	}
+	
 	/**
 	 * Sets a handler which is invoked whenever a taint is propagated
 	 * @param handler The handler to be invoked when propagating taints
@@ -582,6 +839,15 @@ public class Infoflow extends AbstractInfoflow {
 		this.backwardsPropagationHandler = handler;
 	}
 	
+	/**
+	 * Sets the pruner that removes results whose access paths are entailed by
+	 * other results at the same sink
+	 * @param pruner The pruner to use, or null to keep all results
+	 */
+	public void setSinkResultPruner(SinkResultPruner pruner) {
+		this.sinkResultPruner = pruner;
+	}
+	
 	/**
 	 * Removes a handler that is called when information flow results are available
 	 * @param handler The handler to remove
@@ -81,6 +81,17 @@ public class InfoflowConfiguration {
 	private boolean ignoreFlowsInSystemPackages = true;
 	private int maxThreadNum = -1;
 	private boolean writeOutputFiles = false;
+	private boolean useWorkStealingScheduler = false;
+	private int edgeBatchSize = 1;
+	private boolean useCompactJumpFunctions = false;
+	private boolean mergePointChecking = false;
+	private boolean sparsePropagation = false;
+	private long memoryBudget = 0;
+	private String summaryStoreDirectory = null;
+	private boolean incrementalPathBuilding = false;
+	private long dataFlowTimeout = 0;
+	private long pathReconstructionTimeout = 0;
+	private long maxHeapUsage = 0;
 	
 	private boolean inspectSources = false;
 	private boolean inspectSinks = false;
@@ -103,6 +114,17 @@ public class InfoflowConfiguration {
 		this.enableTypeChecking = config.enableTypeChecking;
 		this.ignoreFlowsInSystemPackages = config.ignoreFlowsInSystemPackages;
 		this.maxThreadNum = config.maxThreadNum;
+		this.useWorkStealingScheduler = config.useWorkStealingScheduler;
+		this.edgeBatchSize = config.edgeBatchSize;
+		this.useCompactJumpFunctions = config.useCompactJumpFunctions;
+		this.mergePointChecking = config.mergePointChecking;
+		this.sparsePropagation = config.sparsePropagation;
+		this.memoryBudget = config.memoryBudget;
+		this.summaryStoreDirectory = config.summaryStoreDirectory;
+		this.incrementalPathBuilding = config.incrementalPathBuilding;
+		this.dataFlowTimeout = config.dataFlowTimeout;
+		this.pathReconstructionTimeout = config.pathReconstructionTimeout;
+		this.maxHeapUsage = config.maxHeapUsage;
 		this.inspectSources = config.inspectSources;
 		this.inspectSinks = config.inspectSinks;
 		this.callgraphAlgorithm = config.callgraphAlgorithm;
@@ -477,6 +499,242 @@ public class InfoflowConfiguration {
 		return this.maxThreadNum;
 	}
 	
+	/**
+	 * Sets whether the solvers shall use a work-stealing scheduler with one
+	 * task queue per worker thread instead of a single shared queue. Edges
+	 * are then routed to workers by the method that contains their target
+	 * statement. The path builder runs on the same executor as the solvers
+	 * and thus uses the same scheduler.
+	 * @param useWorkStealingScheduler True if the work-stealing scheduler
+	 * shall be used, otherwise false
+	 */
+	public void setUseWorkStealingScheduler(boolean useWorkStealingScheduler) {
+		this.useWorkStealingScheduler = useWorkStealingScheduler;
+	}
+	
+	/**
+	 * Gets whether the solvers shall use a work-stealing scheduler with one
+	 * task queue per worker thread instead of a single shared queue
+	 * @return True if the work-stealing scheduler shall be used, otherwise
+	 * false
+	 */
+	public boolean getUseWorkStealingScheduler() {
+		return this.useWorkStealingScheduler;
+	}
+	
+	/**
+	 * Sets the maximum number of path edges that the solvers shall process as
+	 * one unit of work. All new edges produced by a single flow function
+	 * application are then scheduled together instead of one by one.
+	 * @param edgeBatchSize The maximum number of edges per task. A value of 1
+	 * disables batching.
+	 */
+	public void setEdgeBatchSize(int edgeBatchSize) {
+		this.edgeBatchSize = edgeBatchSize;
+	}
+	
+	/**
+	 * Gets the maximum number of path edges that the solvers shall process as
+	 * one unit of work
+	 * @return The maximum number of edges per task. A value of 1 means that
+	 * batching is disabled.
+	 */
+	public int getEdgeBatchSize() {
+		return this.edgeBatchSize;
+	}
+	
+	/**
+	 * Sets whether the solvers shall store their jump functions in a compact
+	 * table of primitive ids instead of a map of path edge objects
+	 * @param useCompactJumpFunctions True if the compact jump function table
+	 * shall be used, otherwise false
+	 */
+	public void setUseCompactJumpFunctions(boolean useCompactJumpFunctions) {
+		this.useCompactJumpFunctions = useCompactJumpFunctions;
+	}
+	
+	/**
+	 * Gets whether the solvers shall store their jump functions in a compact
+	 * table of primitive ids instead of a map of path edge objects
+	 * @return True if the compact jump function table shall be used,
+	 * otherwise false
+	 */
+	public boolean getUseCompactJumpFunctions() {
+		return this.useCompactJumpFunctions;
+	}
+	
+	/**
+	 * Sets whether the solvers shall only record jump functions at merge
+	 * points and call/return boundaries. This reduces the size of the jump
+	 * function tables, but edges between two merge points may be processed
+	 * more than once.
+	 * @param mergePointChecking True if jump functions shall only be recorded
+	 * at merge points, false if they shall be recorded for every edge
+	 */
+	public void setMergePointChecking(boolean mergePointChecking) {
+		this.mergePointChecking = mergePointChecking;
+	}
+	
+	/**
+	 * Gets whether the solvers shall only record jump functions at merge
+	 * points and call/return boundaries
+	 * @return True if jump functions shall only be recorded at merge points,
+	 * false if they shall be recorded for every edge
+	 */
+	public boolean getMergePointChecking() {
+		return this.mergePointChecking;
+	}
+	
+	/**
+	 * Sets whether the forward solver shall move taints directly to the next
+	 * statements that read or write their base instead of propagating them
+	 * through every single statement. Sparse propagation is not supported
+	 * together with implicit flows, an interactive aliasing algorithm, or a
+	 * taint propagation handler, since the handler would not be notified
+	 * about the skipped statements. It is ignored in these cases.
+	 * @param sparsePropagation True if taints shall be propagated sparsely,
+	 * false if they shall be propagated through every statement
+	 */
+	public void setSparsePropagation(boolean sparsePropagation) {
+		this.sparsePropagation = sparsePropagation;
+	}
+	
+	/**
+	 * Gets whether the forward solver shall move taints directly to the next
+	 * statements that read or write their base
+	 * @return True if taints shall be propagated sparsely, false if they
+	 * shall be propagated through every statement
+	 */
+	public boolean getSparsePropagation() {
+		return this.sparsePropagation;
+	}
+	
+	/**
+	 * Sets the maximum amount of heap memory the data flow solvers may retain.
+	 * If this budget is exceeded, the solvers spill end summaries and incoming
+	 * edges of methods that have not been used recently to a local file.
+	 * @param memoryBudget The memory budget in megabytes. A value of zero or
+	 * less disables the budget.
+	 */
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+	
+	/**
+	 * Gets the maximum amount of heap memory the data flow solvers may retain
+	 * @return The memory budget in megabytes. A value of zero or less means
+	 * that there is no budget.
+	 */
+	public long getMemoryBudget() {
+		return this.memoryBudget;
+	}
+	
+	/**
+	 * Sets the directory in which FlowDroid keeps the end summaries of library
+	 * methods across runs. Summaries found in this directory are used instead
+	 * of analyzing the respective library methods again, and the summaries of
+	 * the current run are written back after the taint propagation.
+	 * @param summaryStoreDirectory The directory for the persistent summary
+	 * store, or null to disable the store
+	 */
+	public void setSummaryStoreDirectory(String summaryStoreDirectory) {
+		this.summaryStoreDirectory = summaryStoreDirectory;
+	}
+	
+	/**
+	 * Gets the directory in which FlowDroid keeps the end summaries of library
+	 * methods across runs
+	 * @return The directory for the persistent summary store, or null if the
+	 * store is disabled
+	 */
+	public String getSummaryStoreDirectory() {
+		return this.summaryStoreDirectory;
+	}
+	
+	/**
+	 * Sets whether the sources of the results shall already be looked up
+	 * while the taint propagation is still running. The source-to-sink
+	 * connections found in this way are reported to the streaming results
+	 * handlers. The final results are computed after the taint propagation
+	 * regardless of this option.
+	 * @param incrementalPathBuilding True if sources shall be looked up while
+	 * the taint propagation is still running, otherwise false
+	 */
+	public void setIncrementalPathBuilding(boolean incrementalPathBuilding) {
+		this.incrementalPathBuilding = incrementalPathBuilding;
+	}
+	
+	/**
+	 * Gets whether the sources of the results shall already be looked up
+	 * while the taint propagation is still running
+	 * @return True if sources shall be looked up while the taint propagation
+	 * is still running, otherwise false
+	 */
+	public boolean getIncrementalPathBuilding() {
+		return this.incrementalPathBuilding;
+	}
+	
+	/**
+	 * Sets the maximum wall-clock time the taint propagation may take. If
+	 * this time is exceeded, the solvers stop and the results found so far
+	 * are reported as incomplete.
+	 * @param dataFlowTimeout The timeout for the taint propagation in
+	 * seconds. A value of zero or less disables the timeout.
+	 */
+	public void setDataFlowTimeout(long dataFlowTimeout) {
+		this.dataFlowTimeout = dataFlowTimeout;
+	}
+	
+	/**
+	 * Gets the maximum wall-clock time the taint propagation may take
+	 * @return The timeout for the taint propagation in seconds. A value of
+	 * zero or less means that there is no timeout.
+	 */
+	public long getDataFlowTimeout() {
+		return this.dataFlowTimeout;
+	}
+	
+	/**
+	 * Sets the maximum wall-clock time the path reconstruction may take. If
+	 * this time is exceeded, the path builder stops and the paths found so far
+	 * are reported as incomplete results.
+	 * @param pathReconstructionTimeout The timeout for the path
+	 * reconstruction in seconds. A value of zero or less disables the timeout.
+	 */
+	public void setPathReconstructionTimeout(long pathReconstructionTimeout) {
+		this.pathReconstructionTimeout = pathReconstructionTimeout;
+	}
+	
+	/**
+	 * Gets the maximum wall-clock time the path reconstruction may take
+	 * @return The timeout for the path reconstruction in seconds. A value of
+	 * zero or less means that there is no timeout.
+	 */
+	public long getPathReconstructionTimeout() {
+		return this.pathReconstructionTimeout;
+	}
+	
+	/**
+	 * Sets the maximum amount of heap memory the analysis may use. In
+	 * contrast to the memory budget, which makes the solvers spill state to
+	 * disk, exceeding this limit stops the taint propagation or the path
+	 * reconstruction, and the results found so far are reported as incomplete.
+	 * @param maxHeapUsage The maximum heap usage in megabytes. A value of
+	 * zero or less disables the limit.
+	 */
+	public void setMaxHeapUsage(long maxHeapUsage) {
+		this.maxHeapUsage = maxHeapUsage;
+	}
+	
+	/**
+	 * Gets the maximum amount of heap memory the analysis may use
+	 * @return The maximum heap usage in megabytes. A value of zero or less
+	 * means that there is no limit.
+	 */
+	public long getMaxHeapUsage() {
+		return this.maxHeapUsage;
+	}
+	
 	/**
 	 * Gets whether FlowDroid shall write the Jimple files to disk after the
 	 * data flow analysis
@@ -542,6 +800,20 @@ public class InfoflowConfiguration {
 			logger.info("Recursive access path shortening is enabled");
 		else
 			logger.info("Recursive access path shortening is NOT enabled");
+		if (mergePointChecking)
+			logger.info("Jump functions are only recorded at merge points");
+		if (sparsePropagation)
+			logger.info("Using sparse taint propagation");
+		if (memoryBudget > 0)
+			logger.info("Using a solver memory budget of {} MB", memoryBudget);
+		if (summaryStoreDirectory != null)
+			logger.info("Using persistent library summaries from {}", summaryStoreDirectory);
+		if (dataFlowTimeout > 0)
+			logger.info("Taint propagation is limited to {} seconds", dataFlowTimeout);
+		if (pathReconstructionTimeout > 0)
+			logger.info("Path reconstruction is limited to {} seconds", pathReconstructionTimeout);
+		if (maxHeapUsage > 0)
+			logger.info("Analysis is limited to {} MB of heap memory", maxHeapUsage);
 	}
 	
 }
@@ -20,10 +20,12 @@ import soot.jimple.FieldRef;
 import soot.jimple.InstanceFieldRef;
 import soot.jimple.StaticFieldRef;
 import soot.jimple.Stmt;
+import soot.jimple.infoflow.InfoflowConfiguration;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.data.AccessPathFactory;
 import soot.jimple.infoflow.data.AccessPathFactory.BasePair;
+import soot.jimple.infoflow.data.FieldChain;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 import soot.jimple.infoflow.util.TypeUtils;
 import soot.jimple.toolkits.pointer.LocalMustAliasAnalysis;
@@ -174,7 +176,21 @@ public class Aliasing {
 					for (BasePair base : bases) {
 						if (base.getFields()[0] == referencedFields[fieldIdx]) {
 							// Build the access path against which we have
-							// actually matched
+							// actually matched. If it fits into the maximum
+							// access path length, we can assemble it from the
+							// shared field chains without copying any arrays.
+							final int cutLength = taintedAP.getFieldCount() + base.getFields().length;
+							if (cutLength <= InfoflowConfiguration.getAccessPathLength()) {
+								FieldChain cutChain = taintedAP.getFieldChain().getPrefix(fieldIdx);
+								cutChain = cutChain.append(base.getFields(), base.getTypes(),
+										0, base.getFields().length);
+								cutChain = cutChain.append(taintedAP.getFields(), taintedAP.getFieldTypes(),
+										fieldIdx, taintedAP.getFieldCount() - fieldIdx);
+								return AccessPathFactory.v().createAccessPath(taintedAP.getPlainValue(),
+										cutChain.getFields(), taintedAP.getBaseType(), cutChain.getTypes(),
+										taintedAP.getTaintSubFields(), false, false, taintedAP.getArrayTaintType());
+							}
+							
 							SootField[] cutFields = new SootField
 									[taintedAP.getFieldCount() + base.getFields().length];
 							Type[] cutFieldTypes = new Type[cutFields.length];
@@ -10,8 +10,10 @@ import org.slf4j.LoggerFactory;
 
 import soot.Scene;
 import soot.jimple.infoflow.InfoflowConfiguration.CallgraphAlgorithm;
+import soot.jimple.infoflow.solver.cfg.FrozenInterproceduralCFG;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.infoflow.util.ParallelRange;
 import soot.jimple.toolkits.ide.icfg.JimpleBasedInterproceduralCFG;
 import soot.jimple.toolkits.ide.icfg.OnTheFlyJimpleBasedICFG;
 
@@ -25,6 +27,41 @@ public class DefaultBiDiICFGFactory implements BiDirICFGFactory {
 	
     private final Logger logger = LoggerFactory.getLogger(getClass());
     
+    private boolean freezeICFG = false;
+    private int maxThreadNum = -1;
+    
+    /**
+     * Sets whether an immutable, array-based snapshot of the interprocedural
+     * CFG shall be taken once it has been built. The snapshot makes queries
+     * faster, but requires that neither the callgraph nor the method bodies
+     * change afterwards. Snapshots are not supported for on-demand callgraphs.
+     * @param freezeICFG True if a snapshot of the interprocedural CFG shall
+     * be taken, otherwise false
+     */
+    public void setFreezeICFG(boolean freezeICFG) {
+    	this.freezeICFG = freezeICFG;
+    }
+    
+    /**
+     * Gets whether an immutable, array-based snapshot of the interprocedural
+     * CFG shall be taken once it has been built
+     * @return True if a snapshot of the interprocedural CFG shall be taken,
+     * otherwise false
+     */
+    public boolean getFreezeICFG() {
+    	return this.freezeICFG;
+    }
+    
+    /**
+     * Sets the maximum number of threads to use for taking the snapshot of
+     * the interprocedural CFG
+     * @param maxThreadNum The maximum number of threads to use, or -1 to use
+     * one thread per available processor
+     */
+    public void setMaxThreadNum(int maxThreadNum) {
+    	this.maxThreadNum = maxThreadNum;
+    }
+    
     @Override
     public IInfoflowCFG buildBiDirICFG(CallgraphAlgorithm callgraphAlgorithm,
     		boolean enableExceptions) {
@@ -43,9 +80,15 @@ public class DefaultBiDiICFGFactory implements BiDirICFGFactory {
     		IInfoflowCFG cfg = new InfoflowCFG(new OnTheFlyJimpleBasedICFG(Scene.v().getEntryPoints()));
     		logger.info("CFG generation took {} seconds", (System.nanoTime() - beforeCFG) / 1E9);
 
+    		if (freezeICFG)
+    			logger.warn("Cannot take a snapshot of an on-demand interprocedural CFG");
     		return cfg;
     	}
     	
-        return new InfoflowCFG(new JimpleBasedInterproceduralCFG(enableExceptions));
+    	JimpleBasedInterproceduralCFG baseCFG = new JimpleBasedInterproceduralCFG(enableExceptions);
+    	if (!freezeICFG)
+    		return new InfoflowCFG(baseCFG);
+    	return new InfoflowCFG(new FrozenInterproceduralCFG(baseCFG,
+    			ParallelRange.getThreadCount(maxThreadNum)));
     }
 }
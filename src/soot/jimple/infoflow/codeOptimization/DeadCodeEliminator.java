@@ -2,7 +2,14 @@ package soot.jimple.infoflow.codeOptimization;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import soot.MethodOrMethodContext;
 import soot.Scene;
@@ -16,6 +23,7 @@ import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
 import soot.jimple.infoflow.source.ISourceSinkManager;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
 import soot.jimple.infoflow.util.SystemClassHandler;
+import soot.jimple.toolkits.callgraph.CallGraph;
 import soot.jimple.toolkits.scalar.ConditionalBranchFolder;
 import soot.jimple.toolkits.scalar.ConstantPropagatorAndFolder;
 import soot.jimple.toolkits.scalar.DeadAssignmentEliminator;
@@ -31,6 +39,8 @@ import soot.util.queue.QueueReader;
  */
 public class DeadCodeEliminator implements ICodeOptimizer {
 	
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	
 	private InfoflowConfiguration config;
 	
 	@Override
@@ -45,6 +55,9 @@ public class DeadCodeEliminator implements ICodeOptimizer {
 			ITaintPropagationWrapper taintWrapper) {
 		// Perform an intra-procedural constant propagation to prepare for the
 		// inter-procedural one
+		long beforePhase = System.nanoTime();
+		Set<SootMethod> dummyMains = new HashSet<SootMethod>(Scene.v().getEntryPoints());
+		List<Unit> deadCallSites = new ArrayList<Unit>();
 		for (QueueReader<MethodOrMethodContext> rdr =
 				Scene.v().getReachableMethods().listener(); rdr.hasNext(); ) {
 			MethodOrMethodContext sm = rdr.next();
@@ -52,23 +65,25 @@ public class DeadCodeEliminator implements ICodeOptimizer {
 				continue;
 			
 			// Exclude the dummy main method
-			if (Scene.v().getEntryPoints().contains(sm.method()))
+			if (dummyMains.contains(sm.method()))
 				continue;
 			
-			List<Unit> callSites = getCallsInMethod(sm.method());
+			Set<Unit> callSites = getCallsInMethod(sm.method());
 			
 			ConstantPropagatorAndFolder.v().transform(sm.method().getActiveBody());
 			DeadAssignmentEliminator.v().transform(sm.method().getActiveBody());
 			
-			// Remove the dead callgraph edges
-			List<Unit> newCallSites = getCallsInMethod(sm.method());
-			if (callSites != null)
-				for (Unit u : callSites)
-					if (newCallSites == null ||  !newCallSites.contains(u))
-						Scene.v().getCallGraph().removeAllEdgesOutOf(u);
+			collectDeadCallSites(sm.method(), callSites, deadCallSites);
 		}
 		
+		// Remove the dead callgraph edges
+		int removedCalls = removeCallEdges(deadCallSites);
+		logger.info("Intra-procedural constant propagation took {} seconds, "
+				+ "removed {} call sites", (System.nanoTime() - beforePhase) / 1E9,
+				removedCalls);
+		
 		// Perform an inter-procedural constant propagation and code cleanup
+		beforePhase = System.nanoTime();
 		InterproceduralConstantValuePropagator ipcvp =
 				new InterproceduralConstantValuePropagator(
 						new InfoflowCFG(),
@@ -78,9 +93,14 @@ public class DeadCodeEliminator implements ICodeOptimizer {
 		ipcvp.setRemoveSideEffectFreeMethods(config.getCodeEliminationMode()
 				== CodeEliminationMode.RemoveSideEffectFreeCode && !config.getEnableImplicitFlows());
 		ipcvp.setExcludeSystemClasses(config.getIgnoreFlowsInSystemPackages());
+		ipcvp.setMaxThreadNum(config.getMaxThreadNum());
 		ipcvp.transform();
+		logger.info("Inter-procedural constant propagation took {} seconds",
+				(System.nanoTime() - beforePhase) / 1E9);
 		
 		// Get rid of all dead code
+		beforePhase = System.nanoTime();
+		deadCallSites = new ArrayList<Unit>();
 		for (QueueReader<MethodOrMethodContext> rdr =
 				Scene.v().getReachableMethods().listener(); rdr.hasNext(); ) {
 			MethodOrMethodContext sm = rdr.next();
@@ -96,31 +116,60 @@ public class DeadCodeEliminator implements ICodeOptimizer {
 			
 			// Delete all dead code. We need to be careful and patch the cfg so
 			// that it does not retain edges for call statements we have deleted
-			List<Unit> callSites = getCallsInMethod(sm.method());
+			Set<Unit> callSites = getCallsInMethod(sm.method());
 			UnreachableCodeEliminator.v().transform(sm.method().getActiveBody());
-			List<Unit> newCallSites = getCallsInMethod(sm.method());
-			if (callSites != null)
-				for (Unit u : callSites)
-					if (newCallSites == null ||  !newCallSites.contains(u))
-						Scene.v().getCallGraph().removeAllEdgesOutOf(u);
+			collectDeadCallSites(sm.method(), callSites, deadCallSites);
 		}
+		removedCalls = removeCallEdges(deadCallSites);
+		logger.info("Dead code removal took {} seconds, removed {} call sites",
+				(System.nanoTime() - beforePhase) / 1E9, removedCalls);
+	}
+	
+	/**
+	 * Finds the call sites that are no longer contained in the body of the
+	 * given method
+	 * @param method The method that has been transformed
+	 * @param callSites The call sites in the method before the transformation
+	 * @param deadCallSites The list to which to add the call sites that have
+	 * been removed
+	 */
+	private void collectDeadCallSites(SootMethod method, Set<Unit> callSites,
+			List<Unit> deadCallSites) {
+		if (callSites.isEmpty())
+			return;
+		Set<Unit> newCallSites = getCallsInMethod(method);
+		for (Unit u : callSites)
+			if (!newCallSites.contains(u))
+				deadCallSites.add(u);
+	}
+	
+	/**
+	 * Removes all outgoing callgraph edges of the given call sites
+	 * @param deadCallSites The call sites that have been removed
+	 * @return The number of call sites that have been removed
+	 */
+	private int removeCallEdges(List<Unit> deadCallSites) {
+		CallGraph cg = Scene.v().getCallGraph();
+		for (Unit u : deadCallSites)
+			cg.removeAllEdgesOutOf(u);
+		return deadCallSites.size();
 	}
 	
 	/**
-	 * Gets a list of all units that invoke other methods in the given method
+	 * Gets the set of all units that invoke other methods in the given method.
+	 * The set is based on object identity.
 	 * @param method The method from which to get all invocations
-	 * @return The list of units calling other methods in the given method if
-	 * there is at least one such unit. Otherwise null.
+	 * @return The set of units calling other methods in the given method
 	 */
-	private List<Unit> getCallsInMethod(SootMethod method) {
-		List<Unit> callSites = null;
+	private Set<Unit> getCallsInMethod(SootMethod method) {
+		Set<Unit> callSites = null;
 		for (Unit u : method.getActiveBody().getUnits())
 			if (((Stmt) u).containsInvokeExpr()) {
 				if (callSites == null)
-					callSites = new ArrayList<Unit>();
+					callSites = Collections.newSetFromMap(new IdentityHashMap<Unit, Boolean>());
 				callSites.add(u);
 			}
-		return callSites;
+		return callSites == null ? Collections.<Unit>emptySet() : callSites;
 	}
 	
 }
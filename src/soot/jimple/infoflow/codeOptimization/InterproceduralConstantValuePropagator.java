@@ -1,15 +1,16 @@
 package soot.jimple.infoflow.codeOptimization;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,22 +32,17 @@ import soot.Trap;
 import soot.Type;
 import soot.Unit;
 import soot.Value;
-import soot.ValueBox;
 import soot.VoidType;
 import soot.dexpler.DalvikThrowAnalysis;
 import soot.javaToJimple.LocalGenerator;
-import soot.jimple.ArrayRef;
 import soot.jimple.AssignStmt;
 import soot.jimple.Constant;
-import soot.jimple.DefinitionStmt;
-import soot.jimple.FieldRef;
 import soot.jimple.IdentityStmt;
 import soot.jimple.IfStmt;
 import soot.jimple.IntConstant;
 import soot.jimple.InvokeExpr;
 import soot.jimple.InvokeStmt;
 import soot.jimple.Jimple;
-import soot.jimple.NewExpr;
 import soot.jimple.ParameterRef;
 import soot.jimple.ReturnStmt;
 import soot.jimple.Stmt;
@@ -57,6 +53,7 @@ import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 import soot.jimple.infoflow.source.ISourceSinkManager;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.infoflow.util.ParallelRange;
 import soot.jimple.infoflow.util.SystemClassHandler;
 import soot.jimple.internal.JAssignStmt;
 import soot.jimple.toolkits.callgraph.Edge;
@@ -78,13 +75,11 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 	private final ITaintPropagationWrapper taintWrapper;
 	private boolean removeSideEffectFreeMethods = true;
 	private boolean excludeSystemClasses = true;
+	private int maxThreadNum = -1;
 	
-	protected final Map<SootMethod, Boolean> methodSideEffects =
-			new ConcurrentHashMap<SootMethod, Boolean>();
-	protected final Map<SootMethod, Boolean> methodSinks =
-			new ConcurrentHashMap<SootMethod, Boolean>();
-	protected final Map<SootMethod, Boolean> methodFieldReads =
-			new ConcurrentHashMap<SootMethod, Boolean>();
+	protected MethodEffectSummaries effectSummaries = null;
+	protected final Map<SootMethod, boolean[]> propagatedParams =
+			new HashMap<SootMethod, boolean[]>();
 	
 	protected SootClass exceptionClass = null;
 	protected final Map<SootClass, SootMethod> exceptionThrowers =
@@ -144,45 +139,72 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 		this.excludeSystemClasses = excludeSystemClasses;
 	}
 	
+	/**
+	 * Sets the maximum number of threads to use for computing the method
+	 * effect summaries
+	 * @param maxThreadNum The maximum number of threads to use, or -1 to use
+	 * one thread per available processor
+	 */
+	public void setMaxThreadNum(int maxThreadNum) {
+		this.maxThreadNum = maxThreadNum;
+	}
+	
 	@Override
 	protected void internalTransform(String phaseName, Map<String, String> options) {
 		logger.info("Removing side-effect free methods is "
 				+ (removeSideEffectFreeMethods ? "enabled" : "disabled"));
 		
-		// Collect all application methods that take parameters or return values
+		// Collect all reachable methods with bodies
+		List<SootMethod> reachableMethods = new ArrayList<SootMethod>();
 		for (QueueReader<MethodOrMethodContext> rdr = Scene.v().getReachableMethods().listener();
 				rdr.hasNext(); ) {
-			MethodOrMethodContext mom = rdr.next();
-			SootMethod sm = mom.method();
-			if (sm == null || !sm.hasActiveBody())
-				continue;
+			SootMethod sm = rdr.next().method();
+			if (sm != null && sm.hasActiveBody())
+				reachableMethods.add(sm);
+		}
+		
+		// Compute the side effects of all methods once, so that we do not
+		// need to walk the callgraph for every query
+		effectSummaries = new MethodEffectSummaries(reachableMethods,
+				Scene.v().getCallGraph(), icfg, sourceSinkManager, taintWrapper,
+				ParallelRange.getThreadCount(maxThreadNum));
+		
+		// Propagate the constants until we reach a fixed point. Whenever a
+		// method has changed, its own return value and the arguments it passes
+		// to its callees may have become constant.
+		long beforePropagation = System.nanoTime();
+		Deque<SootMethod> workList = new ArrayDeque<SootMethod>();
+		Set<SootMethod> inWorkList = new HashSet<SootMethod>();
+		for (SootMethod sm : reachableMethods)
+			if (isPropagationCandidate(sm) && inWorkList.add(sm))
+				workList.add(sm);
+		int processedMethods = 0;
+		while (!workList.isEmpty()) {
+			SootMethod sm = workList.poll();
+			inWorkList.remove(sm);
+			processedMethods++;
 			
-			// If this callee is excluded, we do not propagate out of it
-			if (excludedMethods != null && excludedMethods.contains(sm))
-				continue;
-			if (excludeSystemClasses
-					&& SystemClassHandler.isClassInSystemPackage(sm.getDeclaringClass().getName()))
-				continue;
+			Set<SootMethod> changedMethods = new HashSet<SootMethod>();
+			if (sm.getParameterCount() > 0 && propagateConstantsIntoCallee(sm))
+				changedMethods.add(sm);
+			if (typeSupportsConstants(sm.getReturnType()))
+				propagateReturnValueIntoCallers(sm, changedMethods);
 			
-			if (sm.getReturnType() != VoidType.v() || sm.getParameterCount() > 0) {
-				if (sm.getParameterCount() > 0)
-					propagateConstantsIntoCallee(sm);
-				
-				if (typeSupportsConstants(sm.getReturnType()))
-					propagateReturnValueIntoCallers(sm);
+			for (SootMethod changed : changedMethods) {
+				if (isPropagationCandidate(changed) && inWorkList.add(changed))
+					workList.add(changed);
+				for (SootMethod callee : getCalleesOf(changed))
+					if (isPropagationCandidate(callee) && inWorkList.add(callee))
+						workList.add(callee);
 			}
 		}
+		logger.info("Constant propagation processed {} methods in {} seconds",
+				processedMethods, (System.nanoTime() - beforePropagation) / 1E9);
 		
 		// Check for calls we can remove altogether
 		if (removeSideEffectFreeMethods) {
 			int callEdgesRemoved = 0;
-			for (QueueReader<MethodOrMethodContext> rdr = Scene.v().getReachableMethods().listener();
-					rdr.hasNext(); ) {
-				MethodOrMethodContext mom = rdr.next();
-				SootMethod sm = mom.method();
-				if (sm == null || !sm.hasActiveBody())
-					continue;
-				
+			for (SootMethod sm : reachableMethods) {
 				// Do not touch excluded methods
 				if (excludedMethods != null && excludedMethods.contains(sm))
 					continue;
@@ -217,8 +239,8 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 						// call a sink, we can remove it altogether. No data can ever flow
 						// out of it.
 						boolean remove = callee.getReturnType() == VoidType.v()
-								&& !hasSideEffectsOrReadsThis(callee);
-						remove |= !hasSideEffectsOrCallsSink(callee);
+								&& !effectSummaries.hasSideEffectsOrReadsThis(callee);
+						remove |= !effectSummaries.hasSideEffectsOrCallsSink(callee);
 						
 						if (remove) {
 							Scene.v().getCallGraph().removeEdge(edge);
@@ -238,7 +260,7 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 						removeCallSite(s, sm);
 				}
 			}
-			System.out.println("Removed " + callEdgesRemoved + " call edges");
+			logger.info("Removed {} call edges", callEdgesRemoved);
 		}
 		
 		// If we introduced a new class, we have to reset the hierarchy
@@ -249,6 +271,42 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 		}
 	}
 	
+	/**
+	 * Checks whether constants shall be propagated into or out of the given
+	 * method
+	 * @param sm The method to check
+	 * @return True if constants shall be propagated into the given method
+	 * or out of it, otherwise false
+	 */
+	private boolean isPropagationCandidate(SootMethod sm) {
+		if (!sm.hasActiveBody())
+			return false;
+		
+		// If this callee is excluded, we do not propagate out of it
+		if (excludedMethods != null && excludedMethods.contains(sm))
+			return false;
+		if (excludeSystemClasses
+				&& SystemClassHandler.isClassInSystemPackage(sm.getDeclaringClass().getName()))
+			return false;
+		
+		return sm.getParameterCount() > 0 || typeSupportsConstants(sm.getReturnType());
+	}
+	
+	/**
+	 * Gets all methods that are called from the given method
+	 * @param sm The method whose callees to get
+	 * @return The set of methods that are called from the given method
+	 */
+	private Set<SootMethod> getCalleesOf(SootMethod sm) {
+		Set<SootMethod> callees = new HashSet<SootMethod>();
+		for (Unit u : sm.getActiveBody().getUnits())
+			if (((Stmt) u).containsInvokeExpr())
+				for (Iterator<Edge> edgeIt = Scene.v().getCallGraph().edgesOutOf(u);
+						edgeIt.hasNext(); )
+					callees.add(edgeIt.next().tgt());
+		return callees;
+	}
+	
 	/**
 	 * Gets the number of non-constant arguments to the given method call
 	 * @param s A call site
@@ -277,23 +335,17 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 		
 		// If this method is a source on its own, we must keep it
 		if (sourceSinkManager != null
-				&& sourceSinkManager.getSourceInfo((Stmt) callSite, icfg) != null) {
-			methodFieldReads.put(method, true);
+				&& sourceSinkManager.getSourceInfo((Stmt) callSite, icfg) != null)
 			return true;
-		}
 		
 		// If this method is a sink, we must keep it as well
 		if (sourceSinkManager != null
-				&& sourceSinkManager.isSink((Stmt) callSite, icfg, null)) {
-			methodSinks.put(method, true);
+				&& sourceSinkManager.isSink((Stmt) callSite, icfg, null))
 			return true;
-		}
 		
 		// If this method is wrapped, we need to keep it
-		if (taintWrapper != null && taintWrapper.supportsCallee(method)) {
-			methodSideEffects.put(method, true);
+		if (taintWrapper != null && taintWrapper.supportsCallee(method))
 			return true;
-		}
 		
 		return false;
 	}
@@ -344,8 +396,10 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 	 * Propagates the return value of the given method into all of its callers
 	 * if the value is constant
 	 * @param sm The method whose value to propagate
+	 * @param changedCallers The set to which to add all callers whose bodies
+	 * have been changed
 	 */
-	private void propagateReturnValueIntoCallers(SootMethod sm) {		
+	private void propagateReturnValueIntoCallers(SootMethod sm, Set<SootMethod> changedCallers) {		
 		// We need to make sure that all exit nodes agree on the same
 		// constant value
 		Constant value = null;
@@ -393,7 +447,8 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 					// If the call has no side effects, we can remove it altogether,
 					// otherwise we can just propagate the return value
 					Unit assignConst = Jimple.v().newAssignStmt(assign.getLeftOp(), value);
-					if (!hasSideEffectsOrCallsSink(sm)) {
+					changedCallers.add(caller);
+					if (!effectSummaries.hasSideEffectsOrCallsSink(sm)) {
 						// If this method threw an exception, we have to make up for it
 						fixExceptions(caller, callSite);
 						
@@ -504,225 +559,18 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 			}
 	}
 
-	/**
-	 * Checks whether the given method or one of its transitive callees has
-	 * side-effects or calls a sink method
-	 * @param method The method to check
-	 * @return True if the given method or one of its transitive callees has
-	 * side-effects or calls a sink method, otherwise false.
-	 */
-	private boolean hasSideEffectsOrCallsSink(SootMethod method) {
-		return hasSideEffectsOrCallsSink(method, new HashSet<SootMethod>());
-	}
-	
-	/**
-	 * Checks whether the given method or one of its transitive callees has
-	 * side-effects or calls a sink method
-	 * @param method The method to check
-	 * @param runList A set to receive all methods that have already been
-	 * processed
-	 * @param cache The cache in which to store the results
-	 * @return True if the given method or one of its transitive callees has
-	 * side-effects or calls a sink method, otherwise false.
-	 */
-	private boolean hasSideEffectsOrCallsSink(SootMethod method,
-			Set<SootMethod> runList) {		
-		// Without a body, we cannot say much
-		if (!method.hasActiveBody())
-			return false;
-		
-		// Do we already have an entry?
-		Boolean hasSideEffects = methodSideEffects.get(method);
-		if (hasSideEffects != null)
-			return hasSideEffects;
-		
-		Boolean hasSink = methodSinks.get(method);
-		if (hasSink != null)
-			return hasSink;
-		
-		// Do not process the same method twice
-		if (!runList.add(method))
-			return false;
-				
-		// If this is an Android stub method that just throws a stub exception,
-		// this will never happen in practice and can be removed
-		if (methodIsAndroidStub(method)) {
-			methodSideEffects.put(method, false);
-			return false;
-		}
-		
-		// Scan for references to this variable
-		for (Unit u : method.getActiveBody().getUnits()) {
-			if (u instanceof AssignStmt) {
-				AssignStmt assign = (AssignStmt) u;
-				if (assign.getLeftOp() instanceof FieldRef
-						|| assign.getLeftOp() instanceof ArrayRef) {
-					methodSideEffects.put(method, true);
-					return true;
-				}
-			}
-			
-			Stmt s = (Stmt) u;
-			
-			// If this method calls another method for which we have a taint
-			// wrapper, we need to conservatively assume that the taint wrapper
-			// can do anything
-			if (taintWrapper != null && taintWrapper.supportsCallee(s)) {
-				methodSideEffects.put(method, true);
-				return true;
-			}
-			
-			if (s.containsInvokeExpr()) {
-				// If this method calls a sink, we need to keep it
-				if (sourceSinkManager != null
-						&& sourceSinkManager.isSink((Stmt) u, icfg, null)) {
-					methodSinks.put(method, true);
-					return true;
-				}
-				
-				// Check the callees
-				for (Iterator<Edge> edgeIt = Scene.v().getCallGraph().edgesOutOf(u); edgeIt.hasNext(); ) {
-					Edge e = edgeIt.next();
-						if (hasSideEffectsOrCallsSink(e.getTgt().method(), runList))
-							return true;
-				}
-			}
-		}
-		
-		// Variable is not read
-		methodSideEffects.put(method, false);
-		return false;
-	}
-	
-	/**
-	 * Checks whether the given method or one of its transitive callees has
-	 * side-effects or calls a sink method
-	 * @param method The method to check
-	 * @return True if the given method or one of its transitive callees has
-	 * side-effects or calls a sink method, otherwise false.
-	 */
-	private boolean hasSideEffectsOrReadsThis(SootMethod method) {
-		return hasSideEffectsOrReadsThis(method, new HashSet<SootMethod>());
-	}
-	
-	/**
-	 * Checks whether the given method or one of its transitive callees has
-	 * side-effects or calls a sink method
-	 * @param method The method to check
-	 * @param runList A set to receive all methods that have already been
-	 * processed
-	 * @param cache The cache in which to store the results
-	 * @return True if the given method or one of its transitive callees has
-	 * side-effects or calls a sink method, otherwise false.
-	 */
-	private boolean hasSideEffectsOrReadsThis(SootMethod method,
-			Set<SootMethod> runList) {		
-		// Without a body, we cannot say much
-		if (!method.hasActiveBody())
-			return false;
-		
-		// Do we already have an entry?
-		Boolean hasSideEffects = methodSideEffects.get(method);
-		if (hasSideEffects != null)
-			return hasSideEffects;
-		
-		// Do not process the same method twice
-		if (!runList.add(method))
-			return false;
-		
-		// If this is an Android stub method that just throws a stub exception,
-		// this will never happen in practice and can be removed
-		if (methodIsAndroidStub(method)) {
-			methodSideEffects.put(method, false);
-			return false;
-		}
-		
-		// Scan for references to this variable
-		Local thisLocal = method.isStatic() ? null : method.getActiveBody().getThisLocal();
-		for (Unit u : method.getActiveBody().getUnits()) {
-			if (u instanceof AssignStmt) {
-				AssignStmt assign = (AssignStmt) u;
-				if (assign.getLeftOp() instanceof FieldRef
-						|| assign.getLeftOp() instanceof ArrayRef) {
-					methodSideEffects.put(method, true);
-					return true;
-				}
-			}
-			
-			Stmt s = (Stmt) u;
-			
-			// If this statement uses the "this" local, we have to
-			// conservatively assume that is can read data
-			if (thisLocal != null)
-				for (ValueBox vb : s.getUseBoxes())
-					if (vb.getValue() == thisLocal)
-						return true;
-			
-			if (s.containsInvokeExpr()) {
-				// Check the callees
-				for (Iterator<Edge> edgeIt = Scene.v().getCallGraph().edgesOutOf(u); edgeIt.hasNext(); ) {
-					Edge e = edgeIt.next();
-					if (hasSideEffectsOrReadsThis(e.getTgt().method(), runList))
-						return true;
-				}
-			}
-		}
-		
-		// Variable is not read
-		methodSideEffects.put(method, false);
-		return false;
-	}
-	
-	/**
-	 * Checks whether the given method is a library stub method
-	 * @param method The method to check
-	 * @return True if the given method is an Android library stub, false
-	 * otherwise
-	 */
-	private boolean methodIsAndroidStub(SootMethod method) {		
-		if (!(Options.v().src_prec() == Options.src_prec_apk
-				&& method.getDeclaringClass().isLibraryClass()
-				&& SystemClassHandler.isClassInSystemPackage(
-						method.getDeclaringClass().getName())))
-			return false;
-		
-		// Check whether there is only a single throw statement
-		for (Unit u : method.getActiveBody().getUnits()) {
-			if (u instanceof DefinitionStmt) {
-				DefinitionStmt defStmt = (DefinitionStmt) u;
-				if (!(defStmt.getRightOp() instanceof ThisRef)
-						&& !(defStmt.getRightOp() instanceof ParameterRef)
-						&& !(defStmt.getRightOp() instanceof NewExpr))
-					return false;
-			}
-			else if (u instanceof InvokeStmt) {
-				InvokeStmt stmt = (InvokeStmt) u;
-				
-				// Check for exception constructor invocations
-				SootMethod callee = stmt.getInvokeExpr().getMethod();
-				if (!callee.getSubSignature().equals("void <init>(java.lang.String)"))
-					// Check for super class constructor invocation
-					if (!(method.getDeclaringClass().hasSuperclass()
-							&& callee.getDeclaringClass() == method.getDeclaringClass().getSuperclass()
-							&& callee.getName().equals("<init>")))
-						return false;
-			}
-			else if (!(u instanceof ThrowStmt))
-				return false;
-		}
-		return true;
-	}
-
 	/**
 	 * Checks whether all call sites for a specific callee agree on the same
 	 * constant value for one or more arguments. If so, these constant values
 	 * are propagated into the callee.
 	 * @param sm The method for which to look for call sites.
+	 * @return True if at least one new constant has been propagated into the
+	 * given method, otherwise false
 	 */
-	private void propagateConstantsIntoCallee(SootMethod sm) {		
+	private boolean propagateConstantsIntoCallee(SootMethod sm) {		
 		Collection<Unit> callSites = icfg.getCallersOf(sm);
 		if (callSites.isEmpty())
-			return;
+			return false;
 		
 		boolean[] isConstant = new boolean[sm.getParameterCount()];
 		Constant[] values = new Constant[sm.getParameterCount()];
@@ -757,10 +605,19 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 		}
 		
 		if (hasCallSites) {
+			// We only need to propagate every parameter once
+			boolean[] done = propagatedParams.get(sm);
+			if (done == null) {
+				done = new boolean[sm.getParameterCount()];
+				propagatedParams.put(sm, done);
+			}
+			
 			// Get the constant parameters
 			List<Unit> inserted = null;
 			for (int i = 0; i < isConstant.length; i++) {
-				if (isConstant[i]) {
+				if (isConstant[i] && !done[i]) {
+					done[i] = true;
+					
 					// Propagate the constant into the callee
 					Local paramLocal = sm.getActiveBody().getParameterLocal(i);
 					Unit point = getFirstNonIdentityStmt(sm);
@@ -778,9 +635,10 @@ public class InterproceduralConstantValuePropagator extends SceneTransformer {
 				ConstantPropagatorAndFolder.v().transform(sm.getActiveBody());
 				for (Unit u : inserted)
 					sm.getActiveBody().getUnits().remove(u);
-				
+				return true;
 			}
 		}
+		return false;
 	}
 	
 	/**
@@ -0,0 +1,320 @@
+package soot.jimple.infoflow.codeOptimization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Local;
+import soot.SootMethod;
+import soot.Unit;
+import soot.ValueBox;
+import soot.jimple.ArrayRef;
+import soot.jimple.AssignStmt;
+import soot.jimple.DefinitionStmt;
+import soot.jimple.FieldRef;
+import soot.jimple.InvokeStmt;
+import soot.jimple.NewExpr;
+import soot.jimple.ParameterRef;
+import soot.jimple.Stmt;
+import soot.jimple.ThisRef;
+import soot.jimple.ThrowStmt;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.infoflow.util.ParallelRange;
+import soot.jimple.infoflow.util.ParallelRange.IRangeVisitor;
+import soot.jimple.infoflow.util.StronglyConnectedComponents;
+import soot.jimple.infoflow.util.StronglyConnectedComponents.IComponentVisitor;
+import soot.jimple.infoflow.util.SystemClassHandler;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.options.Options;
+
+/**
+ * Precomputed summaries of whether a method or one of its transitive callees
+ * has side effects, calls a sink, or reads its "this" object. The summaries
+ * are computed once for all reachable methods, bottom-up over the strongly
+ * connected components of the call graph. All methods in the same component
+ * share the same summary.
+ *
+ * The summaries are not updated when the code is changed afterwards. Since
+ * the constant propagation only removes calls and field accesses, they stay
+ * conservative.
+ */
+public class MethodEffectSummaries {
+
+	private static final Logger logger = LoggerFactory.getLogger(MethodEffectSummaries.class);
+
+	private static final int SIDE_EFFECTS = 1;
+	private static final int CALLS_SINK = 2;
+	private static final int READS_THIS = 4;
+
+	/**
+	 * The maximum number of methods to scan without splitting the range
+	 */
+	private static final int SCAN_BATCH_SIZE = 32;
+
+	private final IInfoflowCFG icfg;
+	private final ISourceSinkManager sourceSinkManager;
+	private final ITaintPropagationWrapper taintWrapper;
+
+	private final Map<SootMethod, Integer> methodIndices = new HashMap<SootMethod, Integer>();
+	private final SootMethod[] methods;
+	private final int[][] successors;
+	private final int[] directEffects;
+
+	private final StronglyConnectedComponents sccs;
+	private final int[] sccEffects;
+
+	/**
+	 * Computes the effect summaries for the given methods
+	 * @param reachableMethods The methods for which to compute summaries.
+	 * Methods without an active body are ignored.
+	 * @param callGraph The call graph that connects the methods
+	 * @param icfg The interprocedural control flow graph
+	 * @param sourceSinkManager The SourceSinkManager to be used for finding
+	 * calls to sinks
+	 * @param taintWrapper The taint wrapper. Calls to wrapped methods are
+	 * conservatively assumed to have side effects.
+	 * @param numThreads The number of threads to use
+	 */
+	public MethodEffectSummaries(Collection<SootMethod> reachableMethods,
+			final CallGraph callGraph,
+			IInfoflowCFG icfg,
+			ISourceSinkManager sourceSinkManager,
+			ITaintPropagationWrapper taintWrapper,
+			int numThreads) {
+		long beforeSummaries = System.nanoTime();
+		this.icfg = icfg;
+		this.sourceSinkManager = sourceSinkManager;
+		this.taintWrapper = taintWrapper;
+
+		List<SootMethod> methodList = new ArrayList<SootMethod>(reachableMethods.size());
+		for (SootMethod sm : reachableMethods)
+			if (sm.hasActiveBody() && !methodIndices.containsKey(sm)) {
+				methodIndices.put(sm, methodList.size());
+				methodList.add(sm);
+			}
+		this.methods = methodList.toArray(new SootMethod[methodList.size()]);
+		this.successors = new int[methods.length][];
+		this.directEffects = new int[methods.length];
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, numThreads));
+		try {
+			ParallelRange.forEach(pool, methods.length, SCAN_BATCH_SIZE, new IRangeVisitor() {
+
+				@Override
+				public void visit(int index) {
+					scanMethod(index, callGraph);
+				}
+
+			});
+
+			// Methods that are called at a sink call site count as sinks on
+			// their own
+			if (sourceSinkManager != null)
+				for (int i = 0; i < methods.length; i++)
+					if ((directEffects[i] & CALLS_SINK) != 0)
+						markSinkCallees(methods[i], callGraph);
+
+			this.sccs = new StronglyConnectedComponents(successors);
+			this.sccEffects = new int[sccs.getComponentCount()];
+			sccs.visitBottomUp(pool, new IComponentVisitor() {
+
+				@Override
+				public void visitComponent(int scc, int[] members, int[] calleeSccs) {
+					int effects = 0;
+					for (int member : members)
+						effects |= directEffects[member];
+					for (int callee : calleeSccs)
+						effects |= sccEffects[callee];
+					sccEffects[scc] = effects;
+				}
+
+			});
+
+			logger.info("Computed side effect summaries for {} methods in {} "
+					+ "components in {} seconds", methods.length, sccs.getComponentCount(),
+					(System.nanoTime() - beforeSummaries) / 1E9);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Scans the method with the given index for effects and outgoing call
+	 * edges
+	 * @param methodIdx The index of the method to scan
+	 * @param callGraph The call graph that connects the methods
+	 */
+	private void scanMethod(int methodIdx, CallGraph callGraph) {
+		SootMethod method = methods[methodIdx];
+
+		// If this is an Android stub method that just throws a stub exception,
+		// this will never happen in practice and can be removed
+		if (methodIsAndroidStub(method)) {
+			successors[methodIdx] = new int[0];
+			return;
+		}
+
+		// The taint wrapper may replace the method with anything
+		int effects = 0;
+		if (taintWrapper != null && taintWrapper.supportsCallee(method))
+			effects |= SIDE_EFFECTS;
+
+		Set<Integer> callees = new LinkedHashSet<Integer>();
+		Local thisLocal = method.isStatic() ? null : method.getActiveBody().getThisLocal();
+		for (Unit u : method.getActiveBody().getUnits()) {
+			if (u instanceof AssignStmt) {
+				AssignStmt assign = (AssignStmt) u;
+				if (assign.getLeftOp() instanceof FieldRef
+						|| assign.getLeftOp() instanceof ArrayRef)
+					effects |= SIDE_EFFECTS;
+			}
+
+			Stmt s = (Stmt) u;
+
+			// If this statement uses the "this" local, we have to
+			// conservatively assume that is can read data
+			if (thisLocal != null && (effects & READS_THIS) == 0)
+				for (ValueBox vb : s.getUseBoxes())
+					if (vb.getValue() == thisLocal) {
+						effects |= READS_THIS;
+						break;
+					}
+
+			// If this method calls another method for which we have a taint
+			// wrapper, we need to conservatively assume that the taint wrapper
+			// can do anything
+			if (taintWrapper != null && taintWrapper.supportsCallee(s))
+				effects |= SIDE_EFFECTS;
+
+			if (s.containsInvokeExpr()) {
+				// If this method calls a sink, we need to keep it
+				if (sourceSinkManager != null
+						&& sourceSinkManager.isSink(s, icfg, null))
+					effects |= CALLS_SINK;
+
+				for (Iterator<Edge> edgeIt = callGraph.edgesOutOf(u); edgeIt.hasNext(); ) {
+					Integer calleeIdx = methodIndices.get(edgeIt.next().getTgt().method());
+					if (calleeIdx != null)
+						callees.add(calleeIdx);
+				}
+			}
+		}
+
+		int[] succ = new int[callees.size()];
+		int i = 0;
+		for (Integer calleeIdx : callees)
+			succ[i++] = calleeIdx;
+		successors[methodIdx] = succ;
+		directEffects[methodIdx] = effects;
+	}
+
+	/**
+	 * Marks all methods that are called at a sink call site in the given
+	 * method as sinks
+	 * @param method The method that contains at least one call to a sink
+	 * @param callGraph The call graph that connects the methods
+	 */
+	private void markSinkCallees(SootMethod method, CallGraph callGraph) {
+		for (Unit u : method.getActiveBody().getUnits()) {
+			Stmt s = (Stmt) u;
+			if (!s.containsInvokeExpr() || !sourceSinkManager.isSink(s, icfg, null))
+				continue;
+			for (Iterator<Edge> edgeIt = callGraph.edgesOutOf(u); edgeIt.hasNext(); ) {
+				Integer calleeIdx = methodIndices.get(edgeIt.next().getTgt().method());
+				if (calleeIdx != null)
+					directEffects[calleeIdx] |= CALLS_SINK;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the given method is a library stub method
+	 * @param method The method to check
+	 * @return True if the given method is an Android library stub, false
+	 * otherwise
+	 */
+	private boolean methodIsAndroidStub(SootMethod method) {
+		if (!(Options.v().src_prec() == Options.src_prec_apk
+				&& method.getDeclaringClass().isLibraryClass()
+				&& SystemClassHandler.isClassInSystemPackage(
+						method.getDeclaringClass().getName())))
+			return false;
+
+		// Check whether there is only a single throw statement
+		for (Unit u : method.getActiveBody().getUnits()) {
+			if (u instanceof DefinitionStmt) {
+				DefinitionStmt defStmt = (DefinitionStmt) u;
+				if (!(defStmt.getRightOp() instanceof ThisRef)
+						&& !(defStmt.getRightOp() instanceof ParameterRef)
+						&& !(defStmt.getRightOp() instanceof NewExpr))
+					return false;
+			}
+			else if (u instanceof InvokeStmt) {
+				InvokeStmt stmt = (InvokeStmt) u;
+
+				// Check for exception constructor invocations
+				SootMethod callee = stmt.getInvokeExpr().getMethod();
+				if (!callee.getSubSignature().equals("void <init>(java.lang.String)"))
+					// Check for super class constructor invocation
+					if (!(method.getDeclaringClass().hasSuperclass()
+							&& callee.getDeclaringClass() == method.getDeclaringClass().getSuperclass()
+							&& callee.getName().equals("<init>")))
+						return false;
+			}
+			else if (!(u instanceof ThrowStmt))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the summarized effects of the given method
+	 * @param method The method for which to get the effects
+	 * @return The effects of the given method and its transitive callees, or
+	 * zero if there is no summary for the given method
+	 */
+	private int getEffects(SootMethod method) {
+		Integer methodIdx = methodIndices.get(method);
+		if (methodIdx == null)
+			return 0;
+		return sccEffects[sccs.getComponentOf(methodIdx)];
+	}
+
+	/**
+	 * Checks whether the given method or one of its transitive callees has
+	 * side-effects or calls a sink method
+	 * @param method The method to check
+	 * @return True if the given method or one of its transitive callees has
+	 * side-effects or calls a sink method, otherwise false. Methods without
+	 * an active body are assumed to be free of side effects.
+	 */
+	public boolean hasSideEffectsOrCallsSink(SootMethod method) {
+		return (getEffects(method) & (SIDE_EFFECTS | CALLS_SINK)) != 0;
+	}
+
+	/**
+	 * Checks whether the given method or one of its transitive callees has
+	 * side-effects or reads its "this" object
+	 * @param method The method to check
+	 * @return True if the given method or one of its transitive callees has
+	 * side-effects or reads its "this" object, otherwise false. Methods
+	 * without an active body are assumed to be free of side effects.
+	 */
+	public boolean hasSideEffectsOrReadsThis(SootMethod method) {
+		return (getEffects(method) & (SIDE_EFFECTS | READS_THIS)) != 0;
+	}
+
+}
@@ -45,45 +45,63 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	
 	private static boolean flowSensitiveAliasing = true;
 	
+	/**
+	 * taint is thrown by an exception (is set to false when it reaches the catch-Stmt)
+	 */
+	private static final int FLAG_EXCEPTION_THROWN = 1;
+	private static final int FLAG_IMPLICIT = 2;
+	/**
+	 * Only valid for inactive abstractions. Specifies whether an access paths
+	 * has been cut during alias analysis.
+	 */
+	private static final int FLAG_DEPENDS_ON_CUT_AP = 4;
+	
+	/**
+	 * Data that is only needed for a small fraction of all abstractions. It is
+	 * kept in a separate record that is only attached on demand, so that the
+	 * common case does not pay for the fields. On a 64-bit HotSpot VM with
+	 * compressed references, this together with the packed flags shrinks an
+	 * abstraction without side record from 64 to 48 bytes (12 byte header,
+	 * seven references and two ints, padded to eight bytes). An abstraction
+	 * with side record takes another 32 bytes for the record.
+	 */
+	private static class SideData {
+		
+		private Set<Abstraction> neighbors = null;
+		
+		// only used in path generation
+		private volatile Set<SourceContextAndPath> pathCache = null;
+		
+		private volatile AtomicBitSet pathFlags = null;
+		
+		/**
+		 * The postdominators we need to pass in order to leave the current conditional
+		 * branch. Do not use the synchronized Stack class here to avoid deadlocks.
+		 */
+		private List<UnitContainer> postdominators = null;
+		
+	}
+	
 	/**
 	 * the access path contains the currently tainted variable or field
 	 */
 	private AccessPath accessPath;
 	
 	private Abstraction predecessor = null;
-	private Set<Abstraction> neighbors = null;
 	private Stmt currentStmt = null;
 	private Stmt correspondingCallSite = null;
 	
 	private SourceContext sourceContext = null;
-
-	// only used in path generation
-	private Set<SourceContextAndPath> pathCache = null;
 	
 	/**
 	 * Unit/Stmt which activates the taint when the abstraction passes it
 	 */
 	private Unit activationUnit = null;
-	/**
-	 * taint is thrown by an exception (is set to false when it reaches the catch-Stmt)
-	 */
-	private boolean exceptionThrown = false;
-	private int hashCode = 0;
-
-	/**
-	 * The postdominators we need to pass in order to leave the current conditional
-	 * branch. Do not use the synchronized Stack class here to avoid deadlocks.
-	 */
-	private List<UnitContainer> postdominators = null;
-	private boolean isImplicit = false;
 	
-	/**
-	 * Only valid for inactive abstractions. Specifies whether an access paths
-	 * has been cut during alias analysis.
-	 */
-	private boolean dependsOnCutAP = false;
+	private int hashCode = 0;
+	private int flags = 0;
 	
-	private AtomicBitSet pathFlags = null;
+	private volatile SideData sideData = null;
 	
 	public Abstraction(AccessPath sourceVal,
 			Stmt sourceStmt,
@@ -102,10 +120,8 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 		this.sourceContext = sourceContext;
 		this.accessPath = apToTaint;
 		this.activationUnit = null;
-		this.exceptionThrown = exceptionThrown;
-		
-		this.neighbors = null;
-		this.isImplicit = isImplicit;
+		setFlag(FLAG_EXCEPTION_THROWN, exceptionThrown);
+		setFlag(FLAG_IMPLICIT, isImplicit);
 		this.currentStmt = sourceContext == null ? null : sourceContext.getStmt();
 	}
 
@@ -118,27 +134,77 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	protected Abstraction(AccessPath p, Abstraction original){
 		if (original == null) {
 			sourceContext = null;
-			exceptionThrown = false;
 			activationUnit = null;
-			isImplicit = false;
+			flags = 0;
 		}
 		else {
 			sourceContext = original.sourceContext;
-			exceptionThrown = original.exceptionThrown;
 			activationUnit = original.activationUnit;
 			assert activationUnit == null || flowSensitiveAliasing;
 			
-			postdominators = original.postdominators == null ? null
-					: new ArrayList<UnitContainer>(original.postdominators);
+			List<UnitContainer> originalPostdominators = original.getPostdominators();
+			if (originalPostdominators != null)
+				setPostdominators(new ArrayList<UnitContainer>(originalPostdominators));
 			
-			dependsOnCutAP = original.dependsOnCutAP;
-			isImplicit = original.isImplicit;
+			// The exception, implicit and cut-AP flags are copied as a whole
+			flags = original.flags;
 		}
 		accessPath = p;
-		neighbors = null;
 		currentStmt = null;
 	}
 	
+	/**
+	 * Gets whether the given flag is set on this abstraction
+	 * @param flag The flag to check
+	 * @return True if the given flag is set, otherwise false
+	 */
+	private boolean getFlag(int flag) {
+		return (flags & flag) != 0;
+	}
+	
+	/**
+	 * Sets or clears the given flag on this abstraction
+	 * @param flag The flag to modify
+	 * @param value True if the flag shall be set, false if it shall be cleared
+	 */
+	private void setFlag(int flag, boolean value) {
+		if (value)
+			flags |= flag;
+		else
+			flags &= ~flag;
+	}
+	
+	/**
+	 * Gets the side record of this abstraction, creating it if necessary
+	 * @return The side record of this abstraction
+	 */
+	private SideData getOrCreateSideData() {
+		SideData sd = sideData;
+		if (sd == null) {
+			synchronized (this) {
+				sd = sideData;
+				if (sd == null)
+					sideData = sd = new SideData();
+			}
+		}
+		return sd;
+	}
+	
+	private List<UnitContainer> getPostdominators() {
+		SideData sd = sideData;
+		return sd == null ? null : sd.postdominators;
+	}
+	
+	private void setPostdominators(List<UnitContainer> postdominators) {
+		if (postdominators == null) {
+			SideData sd = sideData;
+			if (sd != null)
+				sd.postdominators = null;
+		}
+		else
+			getOrCreateSideData().postdominators = postdominators;
+	}
+	
 	public final Abstraction deriveInactiveAbstraction(Unit activationUnit){
 		if (!flowSensitiveAliasing) {
 			assert this.isAbstractionActive();
@@ -153,9 +219,10 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 		if (a == null)
 			return null;
 		
-		a.postdominators = null;
+		a.setPostdominators(null);
 		a.activationUnit = activationUnit;
-		a.dependsOnCutAP |= a.getAccessPath().isCutOffApproximation();
+		if (a.getAccessPath().isCutOffApproximation())
+			a.setFlag(FLAG_DEPENDS_ON_CUT_AP, true);
 		return a;
 	}
 
@@ -167,15 +234,16 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 			boolean isImplicit){
 		// If the new abstraction looks exactly like the current one, there is
 		// no need to create a new object
-		if (this.accessPath.equals(p) && this.currentStmt == currentStmt
-				&& this.isImplicit == isImplicit)
+		if (this.currentStmt == currentStmt
+				&& getFlag(FLAG_IMPLICIT) == isImplicit
+				&& (this.accessPath == p || this.accessPath.equals(p)))
 			return this;
 		
 		Abstraction abs = deriveNewAbstractionMutable(p, currentStmt);
 		if (abs == null)
 			return null;
 		
-		abs.isImplicit = isImplicit;
+		abs.setFlag(FLAG_IMPLICIT, isImplicit);
 		return abs;
 	}
 	
@@ -195,9 +263,9 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 		abs.currentStmt = currentStmt;
 		
 		if (!abs.getAccessPath().isEmpty())
-			abs.postdominators = null;
-		if (!abs.isAbstractionActive())
-			abs.dependsOnCutAP = abs.dependsOnCutAP || p.isCutOffApproximation();
+			abs.setPostdominators(null);
+		if (!abs.isAbstractionActive() && p.isCutOffApproximation())
+			abs.setFlag(FLAG_DEPENDS_ON_CUT_AP, true);
 		
 		abs.sourceContext = null;
 		return abs;
@@ -215,7 +283,8 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 		
 		AccessPath newAP = accessPath.copyWithNewValue(taint, baseType, cutFirstField, true,
 				arrayTaintType);
-		if (this.getAccessPath().equals(newAP) && this.currentStmt == currentStmt)
+		if (this.currentStmt == currentStmt
+				&& (this.accessPath == newAP || this.accessPath.equals(newAP)))
 			return this;
 		return deriveNewAbstractionMutable(newAP, currentStmt);
 	}
@@ -227,12 +296,12 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	 * @return The newly derived abstraction
 	 */
 	public final Abstraction deriveNewAbstractionOnThrow(Stmt throwStmt){
-		assert !this.exceptionThrown;
+		assert !getFlag(FLAG_EXCEPTION_THROWN);
 		Abstraction abs = clone();
 		
 		abs.currentStmt = throwStmt;
 		abs.sourceContext = null;
-		abs.exceptionThrown = true;
+		abs.setFlag(FLAG_EXCEPTION_THROWN, true);
 		return abs;
 	}
 	
@@ -243,13 +312,13 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	 * @return The newly derived abstraction
 	 */
 	public final Abstraction deriveNewAbstractionOnCatch(Value taint){
-		assert this.exceptionThrown;
+		assert getFlag(FLAG_EXCEPTION_THROWN);
 		Abstraction abs = deriveNewAbstractionMutable(
 				AccessPathFactory.v().createAccessPath(taint, true), null);
 		if (abs == null)
 			return null;
 		
-		abs.exceptionThrown = false;
+		abs.setFlag(FLAG_EXCEPTION_THROWN, false);
 		return abs;
 	}
 		
@@ -260,33 +329,41 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	 * @return The path from the source to the current statement
 	 */
 	public Set<SourceContextAndPath> getPaths() {
+		SideData sd = sideData;
+		Set<SourceContextAndPath> pathCache = sd == null ? null : sd.pathCache;
 		return pathCache == null ? null : Collections.unmodifiableSet(pathCache);
 	}
 	
-	public Set<SourceContextAndPath> getOrMakePathCache() {
+	/**
+	 * Gets the path cache of this abstraction, creating it if necessary
+	 * @return The path cache of this abstraction
+	 */
+	private Set<SourceContextAndPath> getOrCreatePathCache() {
 		// We're optimistic about having a path cache. If we definitely have one,
 		// we return it. Otherwise, we need to lock and create one.
-		if (this.pathCache == null)
+		SideData sd = getOrCreateSideData();
+		Set<SourceContextAndPath> pathCache = sd.pathCache;
+		if (pathCache == null)
 			synchronized (this) {
-				if (this.pathCache == null)
-					this.pathCache = new ConcurrentHashSet<SourceContextAndPath>();
+				pathCache = sd.pathCache;
+				if (pathCache == null)
+					sd.pathCache = pathCache = new ConcurrentHashSet<SourceContextAndPath>();
 			}
-		return Collections.unmodifiableSet(pathCache);
+		return pathCache;
+	}
+	
+	public Set<SourceContextAndPath> getOrMakePathCache() {
+		return Collections.unmodifiableSet(getOrCreatePathCache());
 	}
 	
 	public boolean addPathElement(SourceContextAndPath scap) {
-		if (this.pathCache == null) {
-			synchronized (this) {
-				if (this.pathCache == null) {
-					this.pathCache = new ConcurrentHashSet<SourceContextAndPath>();
-				}
-			}
-		}
-		return this.pathCache.add(scap);
+		return getOrCreatePathCache().add(scap);
 	}
 	
 	public void clearPathCache() {
-		this.pathCache = null;
+		SideData sd = sideData;
+		if (sd != null)
+			sd.pathCache = null;
 	}
 	
 	public boolean isAbstractionActive() {
@@ -294,7 +371,7 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	}
 	
 	public boolean isImplicit() {
-		return isImplicit;
+		return getFlag(FLAG_IMPLICIT);
 	}
 	
 	@Override
@@ -325,13 +402,14 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	 * false
 	 */
 	public boolean getExceptionThrown() {
-		return this.exceptionThrown;
+		return getFlag(FLAG_EXCEPTION_THROWN);
 	}
 	
 	public final Abstraction deriveConditionalAbstractionEnter(UnitContainer postdom,
 			Stmt conditionalUnit) {
 		assert this.isAbstractionActive();
 		
+		List<UnitContainer> postdominators = getPostdominators();
 		if (postdominators != null && postdominators.contains(postdom))
 			return this;
 		
@@ -340,10 +418,11 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 		if (abs == null)
 			return null;
 		
-		if (abs.postdominators == null)
-			abs.postdominators = Collections.singletonList(postdom);
+		List<UnitContainer> absPostdominators = abs.getPostdominators();
+		if (absPostdominators == null)
+			abs.setPostdominators(Collections.singletonList(postdom));
 		else
-			abs.postdominators.add(0, postdom);
+			absPostdominators.add(0, postdom);
 		return abs;
 	}
 	
@@ -358,25 +437,27 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 		
 		// Postdominators are only kept intraprocedurally in order to not
 		// mess up the summary functions with caller-side information
-		abs.postdominators = null;
+		abs.setPostdominators(null);
 
 		return abs;
 	}
 	
 	public final Abstraction dropTopPostdominator() {
+		List<UnitContainer> postdominators = getPostdominators();
 		if (postdominators == null || postdominators.isEmpty())
 			return this;
 		
 		Abstraction abs = clone();
 		abs.sourceContext = null;
-		abs.postdominators.remove(0);
+		abs.getPostdominators().remove(0);
 		return abs;
 	}
 	
 	public UnitContainer getTopPostdominator() {
+		List<UnitContainer> postdominators = getPostdominators();
 		if (postdominators == null || postdominators.isEmpty())
 			return null;
-		return this.postdominators.get(0);
+		return postdominators.get(0);
 	}
 	
 	public boolean isTopPostdominator(Unit u) {
@@ -397,7 +478,6 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	public Abstraction clone() {
 		Abstraction abs = new Abstraction(accessPath, this);
 		abs.predecessor = this;
-		abs.neighbors = null;
 		abs.currentStmt = null;
 		
 		assert abs.equals(this);
@@ -447,16 +527,15 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 				return false;
 		} else if (!activationUnit.equals(other.activationUnit))
 			return false;
-		if (this.exceptionThrown != other.exceptionThrown)
+		// Compares the exception, implicit and cut-AP flags at once
+		if (this.flags != other.flags)
 			return false;
+		List<UnitContainer> postdominators = getPostdominators();
+		List<UnitContainer> otherPostdominators = other.getPostdominators();
 		if (postdominators == null) {
-			if (other.postdominators != null)
+			if (otherPostdominators != null)
 				return false;
-		} else if (!postdominators.equals(other.postdominators))
-			return false;
-		if(this.dependsOnCutAP != other.dependsOnCutAP)
-			return false;
-		if(this.isImplicit != other.isImplicit)
+		} else if (!postdominators.equals(otherPostdominators))
 			return false;
 		return true;
 	}
@@ -473,10 +552,11 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 		result = prime * result + ((sourceContext == null) ? 0 : sourceContext.hashCode());
 		result = prime * result + ((accessPath == null) ? 0 : accessPath.hashCode());
 		result = prime * result + ((activationUnit == null) ? 0 : activationUnit.hashCode());
-		result = prime * result + (exceptionThrown ? 1231 : 1237);
+		List<UnitContainer> postdominators = getPostdominators();
+		result = prime * result + (getFlag(FLAG_EXCEPTION_THROWN) ? 1231 : 1237);
 		result = prime * result + ((postdominators == null) ? 0 : postdominators.hashCode());
-		result = prime * result + (dependsOnCutAP ? 1231 : 1237);
-		result = prime * result + (isImplicit ? 1231 : 1237);
+		result = prime * result + (getFlag(FLAG_DEPENDS_ON_CUT_AP) ? 1231 : 1237);
+		result = prime * result + (getFlag(FLAG_IMPLICIT) ? 1231 : 1237);
 		this.hashCode = result;
 		
 		return this.hashCode;
@@ -507,7 +587,7 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	}
 	
 	public boolean dependsOnCutAP() {
-		return dependsOnCutAP;
+		return getFlag(FLAG_DEPENDS_ON_CUT_AP);
 	}
 	
 	@Override
@@ -516,7 +596,8 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	}
 	
 	public Set<Abstraction> getNeighbors() {
-		return this.neighbors;
+		SideData sd = sideData;
+		return sd == null ? null : sd.neighbors;
 	}
 	
 	public Stmt getCurrentStmt() {
@@ -536,8 +617,10 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 			return;
 		
 		synchronized (this) {
+			SideData sd = getOrCreateSideData();
+			Set<Abstraction> neighbors = sd.neighbors;
 			if (neighbors == null)
-				neighbors = Sets.newIdentityHashSet();
+				sd.neighbors = neighbors = Sets.newIdentityHashSet();
 			else if (InfoflowConfiguration.getMergeNeighbors()) {
 				// Check if we already have an identical neighbor
 				for (Abstraction nb : neighbors) {
@@ -550,7 +633,7 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 					}
 				}
 			}
-			this.neighbors.add(originalAbstraction);
+			neighbors.add(originalAbstraction);
 		}
 	}
 	
@@ -594,17 +677,21 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 	 * registered before, otherwise false
 	 */
 	public boolean registerPathFlag(int id, int maxSize) {
+		SideData sd = sideData;
+		AtomicBitSet pathFlags = sd == null ? null : sd.pathFlags;
 		if (pathFlags != null && id < pathFlags.size() && pathFlags.get(id))
 			return false;
 		
 		if (pathFlags == null) {
 			synchronized (this) {
-				if (pathFlags == null) {
+				sd = getOrCreateSideData();
+				if (sd.pathFlags == null) {
 					// Make sure that the field is set only after the constructor
 					// is done and the object is fully usable
 					AtomicBitSet pf = new AtomicBitSet(maxSize);
-					pathFlags = pf;
+					sd.pathFlags = pf;
 				}
+				pathFlags = sd.pathFlags;
 			}
 		}
 		return pathFlags.set(id);
@@ -616,7 +703,6 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction,
 		
 		Abstraction abs = clone();
 		abs.predecessor = null;
-		abs.neighbors = null;
 		abs.sourceContext = sourceContext;
 		abs.currentStmt = this.currentStmt;
 		return abs;
@@ -19,6 +19,7 @@ import soot.Value;
 import soot.jimple.ArrayRef;
 import soot.jimple.InstanceFieldRef;
 import soot.jimple.StaticFieldRef;
+import soot.jimple.infoflow.InfoflowConfiguration;
 
 /**
  * This class represents the taint, containing a base value and a list of fields
@@ -38,12 +39,12 @@ public class AccessPath implements Cloneable {
 	 */
 	private final Local value;
 	/**
-	 * list of fields, either they are based on a concrete @value or they indicate a static field
+	 * list of fields, either they are based on a concrete @value or they indicate a static field.
+	 * The chain is shared with all other access paths that have the same fields.
 	 */
-	private final SootField[] fields;
+	private final FieldChain fieldChain;
 	
 	private final Type baseType;
-	private final Type[] fieldTypes;
 	
 	private final boolean taintSubFields;
 	private final boolean cutOffApproximation;
@@ -61,22 +62,20 @@ public class AccessPath implements Cloneable {
 	
 	private AccessPath() {
 		this.value = null;
-		this.fields = null;
+		this.fieldChain = null;
 		this.baseType = null;
-		this.fieldTypes = null;
 		this.taintSubFields = true;
 		this.cutOffApproximation = false;
 		this.arrayTaintType = ArrayTaintType.ContentsAndLength;
 	}
 	
-	AccessPath(Local val, SootField[] appendingFields, Type valType,
-			Type[] appendingFieldTypes, boolean taintSubFields,
-			boolean isCutOffApproximation,
-			ArrayTaintType arrayTaintType) {		
+	AccessPath(Local val, FieldChain fieldChain, Type valType,
+			boolean taintSubFields, boolean isCutOffApproximation,
+			ArrayTaintType arrayTaintType) {
+		assert fieldChain == null || !fieldChain.isRoot();
 		this.value = val;
-		this.fields = appendingFields;
+		this.fieldChain = fieldChain;
 		this.baseType = valType;
-		this.fieldTypes = appendingFieldTypes;
 		this.taintSubFields = taintSubFields;
 		this.cutOffApproximation = isCutOffApproximation;
 		this.arrayTaintType = arrayTaintType;
@@ -101,47 +100,56 @@ public class AccessPath implements Cloneable {
 	}
 	
 	public SootField getLastField() {
-		if (fields == null || fields.length == 0)
+		if (fieldChain == null)
 			return null;
-		return fields[fields.length - 1];
+		return fieldChain.getLastField();
 	}
 	
 	public Type getLastFieldType() {
-		if (fieldTypes == null || fieldTypes.length == 0)
+		if (fieldChain == null)
 			return baseType;
-		return fieldTypes[fieldTypes.length - 1];
+		return fieldChain.getLastType();
 	}
 	
 	public SootField getFirstField(){
-		if (fields == null || fields.length == 0)
+		if (fieldChain == null)
 			return null;
-		return fields[0];
+		return fieldChain.getFirstField();
 	}
 
 	public boolean firstFieldMatches(SootField field) {
-		if (fields == null || fields.length == 0)
+		if (fieldChain == null)
 			return false;
-		if (field == fields[0])
+		if (field == getFirstField())
 			return true;
 		return false;
 	}
 	
 	public Type getFirstFieldType(){
-		if (fieldTypes == null || fieldTypes.length == 0)
+		if (fieldChain == null)
 			return null;
-		return fieldTypes[0];
+		return fieldChain.getFirstType();
 	}
 
 	public SootField[] getFields(){
-		return fields;
+		return fieldChain == null ? null : fieldChain.getFields();
 	}
 	
 	public Type[] getFieldTypes(){
-		return fieldTypes;
+		return fieldChain == null ? null : fieldChain.getTypes();
 	}
 	
 	public int getFieldCount() {
-		return fields == null ? 0 : fields.length;
+		return fieldChain == null ? 0 : fieldChain.length();
+	}
+	
+	/**
+	 * Gets the chain of fields in this access path
+	 * @return The chain of fields in this access path, or null if this access
+	 * path has no fields
+	 */
+	public FieldChain getFieldChain() {
+		return this.fieldChain;
 	}
 	
 	@Override
@@ -151,8 +159,7 @@ public class AccessPath implements Cloneable {
 		
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((fields == null) ? 0 : Arrays.hashCode(fields));
-		result = prime * result + ((fieldTypes == null) ? 0 : Arrays.hashCode(fieldTypes));
+		result = prime * result + ((fieldChain == null) ? 0 : fieldChain.hashCode());
 		result = prime * result + ((value == null) ? 0 : value.hashCode());
 		result = prime * result + ((baseType == null) ? 0 : baseType.hashCode());
 		result = prime * result + (this.taintSubFields ? 1 : 0);
@@ -171,15 +178,27 @@ public class AccessPath implements Cloneable {
 		
 		AccessPath other = (AccessPath) obj;
 		
+		// Access paths are interned by the factory, so structurally equal
+		// access paths are mostly identical anyway. Reject the common case
+		// of different access paths without comparing the field arrays.
+		if (this.hashCode() != other.hashCode())
+			return false;
+		
 		if (value == null) {
 			if (other.value != null)
 				return false;
 		} else if (!value.equals(other.value))
 			return false;
-		if (!Arrays.equals(fields, other.fields))
-			return false;
-		if (!Arrays.equals(fieldTypes, other.fieldTypes))
-			return false;
+		// Field chains are canonical within one trie, we only need to compare
+		// the arrays for chains from different tries
+		if (fieldChain != other.fieldChain) {
+			if (fieldChain == null || other.fieldChain == null)
+				return false;
+			if (!Arrays.equals(fieldChain.getFields(), other.fieldChain.getFields()))
+				return false;
+			if (!Arrays.equals(fieldChain.getTypes(), other.fieldChain.getTypes()))
+				return false;
+		}
 		
 		if (this.taintSubFields != other.taintSubFields)
 			return false;		
@@ -197,19 +216,19 @@ public class AccessPath implements Cloneable {
 	}
 	
 	public boolean isStaticFieldRef(){
-		return value == null && fields != null && fields.length > 0;
+		return value == null && fieldChain != null;
 	}
 	
 	public boolean isInstanceFieldRef(){
-		return value != null && fields != null && fields.length > 0;
+		return value != null && fieldChain != null;
 	}
 	
 	public boolean isFieldRef() {
-		return fields != null && fields.length > 0;
+		return fieldChain != null;
 	}
 	
 	public boolean isLocal(){
-		return value != null && value instanceof Local && (fields == null || fields.length == 0);
+		return value != null && value instanceof Local && fieldChain == null;
 	}
 	
 	@Override
@@ -217,6 +236,7 @@ public class AccessPath implements Cloneable {
 		String str = "";
 		if(value != null)
 			str += value.toString() +"(" + value.getType() +")";
+		final SootField[] fields = getFields();
 		if (fields != null)
 			for (int i = 0; i < fields.length; i++)
 				if (fields[i] != null) {
@@ -278,8 +298,8 @@ public class AccessPath implements Cloneable {
 				&& this.arrayTaintType == arrayTaintType)
 			return this;
 		
-		return AccessPathFactory.v().createAccessPath(val, fields, newType,
-				fieldTypes, this.taintSubFields,
+		return AccessPathFactory.v().createAccessPath(val, getFields(), newType,
+				getFieldTypes(), this.taintSubFields,
 				cutFirstField, reduceBases, arrayTaintType);
 	}
 	
@@ -289,7 +309,7 @@ public class AccessPath implements Cloneable {
 		if (this == emptyAccessPath)
 			return this;
 		
-		AccessPath a = new AccessPath(value, fields, baseType, fieldTypes,
+		AccessPath a = new AccessPath(value, fieldChain, baseType,
 				taintSubFields, cutOffApproximation, arrayTaintType);
 		assert a.equals(this);
 		return a;
@@ -300,7 +320,7 @@ public class AccessPath implements Cloneable {
 	}
 	
 	public boolean isEmpty() {
-		return value == null && (fields == null || fields.length == 0);
+		return value == null && fieldChain == null;
 	}
 
 	/**
@@ -325,14 +345,16 @@ public class AccessPath implements Cloneable {
 		if (this.value != null && !this.value.equals(a2.value))
 			return false;
 		
-		if (this.fields != null && a2.fields != null) {
+		if (this.fieldChain != null && a2.fieldChain != null) {
 			// If this access path is deeper than the other one, it cannot entail it
-			if (this.fields.length > a2.fields.length)
+			if (this.fieldChain.length() > a2.fieldChain.length())
 				return false;
 			
 			// Check the fields in detail
-			for (int i = 0; i < this.fields.length; i++)
-				if (!this.fields[i].equals(a2.fields[i]))
+			final SootField[] fields = this.fieldChain.getFields();
+			final SootField[] fields2 = a2.fieldChain.getFields();
+			for (int i = 0; i < fields.length; i++)
+				if (!fields[i].equals(fields2[i]))
 					return false;
 		}
 		return true;
@@ -345,7 +367,7 @@ public class AccessPath implements Cloneable {
 	 * @return The new access path
 	 */
 	public AccessPath merge(AccessPath ap) {
-		return appendFields(ap.fields, ap.fieldTypes, ap.taintSubFields);
+		return appendFields(ap.getFields(), ap.getFieldTypes(), ap.taintSubFields);
 	}
 	
 	/**
@@ -357,12 +379,26 @@ public class AccessPath implements Cloneable {
 	 * @return The new access path
 	 */
 	public AccessPath appendFields(SootField[] apFields, Type[] apFieldTypes, boolean taintSubFields) {
-		int offset = this.fields == null ? 0 : this.fields.length;
-		SootField[] fields = new SootField[offset + (apFields == null ? 0 : apFields.length)];
-		Type[] fieldTypes = new Type[offset + (apFields == null ? 0 : apFields.length)];
-		if (this.fields != null) {
-			System.arraycopy(this.fields, 0, fields, 0, this.fields.length);
-			System.arraycopy(this.fieldTypes, 0, fieldTypes, 0, this.fieldTypes.length);
+		int offset = getFieldCount();
+		int length = offset + (apFields == null ? 0 : apFields.length);
+		
+		// If the new access path does not exceed the maximum length, we can
+		// take the fields directly from the shared trie
+		if (length <= InfoflowConfiguration.getAccessPathLength()) {
+			FieldChain chain = AccessPathFactory.v().appendToFieldChain(fieldChain,
+					apFields, apFieldTypes);
+			return AccessPathFactory.v().createAccessPath(this.value,
+					chain == null ? null : chain.getFields(), baseType,
+					chain == null ? null : chain.getTypes(),
+					taintSubFields, false, true, arrayTaintType);
+		}
+		
+		// The access path will be cut anyway, so don't pollute the trie
+		SootField[] fields = new SootField[length];
+		Type[] fieldTypes = new Type[length];
+		if (this.fieldChain != null) {
+			System.arraycopy(this.fieldChain.getFields(), 0, fields, 0, offset);
+			System.arraycopy(this.fieldChain.getTypes(), 0, fieldTypes, 0, offset);
 		}
 		if (apFields != null && apFields.length > 0) {
 			System.arraycopy(apFields, 0, fields, offset, apFields.length);
@@ -379,24 +415,14 @@ public class AccessPath implements Cloneable {
 	 * @return A copy of this access path with the first field being dropped.
 	 */
 	public AccessPath dropFirstField() {
-		if (fields == null || fields.length == 0)
+		if (fieldChain == null)
 			return this;
 		
-		final SootField[] newFields;
-		final Type[] newTypes;
-		if (fields.length > 1) {
-			newFields = new SootField[fields.length - 1];
-			System.arraycopy(fields, 1, newFields, 0, fields.length - 1);
-
-			newTypes = new Type[fields.length - 1];
-			System.arraycopy(fieldTypes, 1, newTypes, 0, fields.length - 1);
-		}
-		else {
-			newFields = null;
-			newTypes = null;
-		}
-		return AccessPathFactory.v().createAccessPath(value, newFields, fieldTypes[0],
-				newTypes, taintSubFields, false, true, arrayTaintType);		
+		final FieldChain newChain = fieldChain.getWithoutFirstField();
+		return AccessPathFactory.v().createAccessPath(value,
+				newChain.isRoot() ? null : newChain.getFields(), getFirstFieldType(),
+				newChain.isRoot() ? null : newChain.getTypes(),
+				taintSubFields, false, true, arrayTaintType);
 	}
 	
 	/**
@@ -405,23 +431,12 @@ public class AccessPath implements Cloneable {
 	 * @return A copy of this access path with the last field being dropped.
 	 */
 	public AccessPath dropLastField() {
-		if (fields == null || fields.length == 0)
+		if (fieldChain == null)
 			return this;
 		
-		final SootField[] newFields;
-		final Type[] newTypes;
-		if (fields.length > 1) {
-			newFields = new SootField[fields.length - 1];
-			System.arraycopy(fields, 0, newFields, 0, fields.length - 1);
-
-			newTypes = new Type[fields.length - 1];
-			System.arraycopy(fieldTypes, 0, newTypes, 0, fields.length - 1);
-		}
-		else {
-			newFields = null;
-			newTypes = null;
-		}
-		return new AccessPath(value, newFields, baseType, newTypes,
+		final FieldChain parent = fieldChain.getParent();
+		return AccessPathFactory.v().internAccessPath(value,
+				parent.isRoot() ? null : parent, baseType,
 				taintSubFields, cutOffApproximation, arrayTaintType);
 	}
 	
@@ -3,6 +3,7 @@ package soot.jimple.infoflow.data;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import soot.ArrayType;
 import soot.Local;
@@ -20,6 +21,8 @@ import soot.jimple.infoflow.collect.MyConcurrentHashMap;
 import soot.jimple.infoflow.data.AccessPath.ArrayTaintType;
 import soot.jimple.infoflow.util.TypeUtils;
 
+import com.google.common.collect.MapMaker;
+
 public class AccessPathFactory {
 	
 	private static AccessPathFactory instance = new AccessPathFactory();
@@ -92,9 +95,120 @@ public class AccessPathFactory {
 		
 	}
 	
+	/**
+	 * Key for the access path tables. Since field chains are canonical, they
+	 * can be compared by reference.
+	 */
+	private static class AccessPathKey {
+		
+		private static final int FLAG_TAINT_SUB_FIELDS = 1;
+		private static final int FLAG_CUT_OFF_APPROXIMATION = 2;
+		private static final int FLAG_CUT_FIRST_FIELD = 4;
+		private static final int FLAG_REDUCE_BASES = 8;
+		private static final int FLAG_TYPE_TIGHTENING = 16;
+		private static final int FLAG_THIS_CHAIN_REDUCTION = 32;
+		private static final int FLAG_RECURSIVE_ACCESS_PATHS = 64;
+		
+		private final Local value;
+		private final Type baseType;
+		private final FieldChain fieldChain;
+		private final int flags;
+		private final int accessPathLength;
+		private final ArrayTaintType arrayTaintType;
+		private final int hashCode;
+		
+		public AccessPathKey(Local value, Type baseType, FieldChain fieldChain,
+				int flags, ArrayTaintType arrayTaintType) {
+			this(value, baseType, fieldChain, flags, 0, arrayTaintType);
+		}
+		
+		public AccessPathKey(Local value, Type baseType, FieldChain fieldChain,
+				int flags, int accessPathLength, ArrayTaintType arrayTaintType) {
+			this.value = value;
+			this.baseType = baseType;
+			this.fieldChain = fieldChain;
+			this.flags = flags;
+			this.accessPathLength = accessPathLength;
+			this.arrayTaintType = arrayTaintType;
+			
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((fieldChain == null) ? 0 : fieldChain.hashCode());
+			result = prime * result + ((value == null) ? 0 : value.hashCode());
+			result = prime * result + ((baseType == null) ? 0 : baseType.hashCode());
+			result = prime * result + flags;
+			result = prime * result + accessPathLength;
+			result = prime * result + ((arrayTaintType == null) ? 0 : arrayTaintType.hashCode());
+			this.hashCode = result;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			AccessPathKey other = (AccessPathKey) obj;
+			if (hashCode != other.hashCode)
+				return false;
+			if (flags != other.flags)
+				return false;
+			if (accessPathLength != other.accessPathLength)
+				return false;
+			if (fieldChain != other.fieldChain)
+				return false;
+			if (arrayTaintType != other.arrayTaintType)
+				return false;
+			if (value == null) {
+				if (other.value != null)
+					return false;
+			} else if (!value.equals(other.value))
+				return false;
+			if (baseType == null) {
+				if (other.baseType != null)
+					return false;
+			} else if (!baseType.equals(other.baseType))
+				return false;
+			return true;
+		}
+		
+	}
+	
 	private MyConcurrentHashMap<Type, Set<BasePair>> baseRegister
 			= new MyConcurrentHashMap<Type, Set<BasePair>>();
 	
+	/**
+	 * The root of the trie of field chains shared by all access paths
+	 */
+	private volatile FieldChain fieldChainRoot = new FieldChain();
+	
+	/**
+	 * Table of all access paths that are currently alive. Identical access
+	 * paths are always represented by the same instance.
+	 */
+	private ConcurrentMap<AccessPathKey, AccessPath> internTable = createTable();
+	
+	/**
+	 * Cache that maps the arguments of a call to createAccessPath() on a local
+	 * base to the resulting access path. This allows us to skip the field
+	 * normalization for access paths we have already constructed. Since the
+	 * normalization depends on the global access path settings, these settings
+	 * are part of the key. The recursive bases that the normalization
+	 * registers are only ever added until the base register is cleared, which
+	 * also clears this cache, so a cache hit never misses a registration.
+	 */
+	private ConcurrentMap<AccessPathKey, AccessPath> derivationCache = createTable();
+	
+	private static ConcurrentMap<AccessPathKey, AccessPath> createTable() {
+		return new MapMaker().concurrencyLevel(Runtime.getRuntime().availableProcessors())
+				.weakValues().<AccessPathKey, AccessPath>makeMap();
+	}
+	
 	public AccessPath createAccessPath(Value val, boolean taintSubFields){
 		return createAccessPath(val, (SootField[]) null, null, (Type[]) null, taintSubFields,
 				false, true, ArrayTaintType.ContentsAndLength);
@@ -120,6 +234,35 @@ public class AccessPathFactory {
 		assert (val == null && appendingFields != null && appendingFields.length > 0)
 		 	|| AccessPath.canContainValue(val);
 		
+		// If we have already constructed an access path from the very same
+		// arguments, we can directly return it
+		AccessPathKey derivationKey = null;
+		if (val instanceof Local
+				&& (appendingFields == null || (appendingFieldTypes != null
+						&& appendingFields.length <= InfoflowConfiguration.getAccessPathLength()))) {
+			int flags = (taintSubFields ? AccessPathKey.FLAG_TAINT_SUB_FIELDS : 0)
+					| (cutFirstField ? AccessPathKey.FLAG_CUT_FIRST_FIELD : 0)
+					| (reduceBases ? AccessPathKey.FLAG_REDUCE_BASES : 0)
+					| (InfoflowConfiguration.getUseTypeTightening()
+							? AccessPathKey.FLAG_TYPE_TIGHTENING : 0)
+					| (InfoflowConfiguration.getUseThisChainReduction()
+							? AccessPathKey.FLAG_THIS_CHAIN_REDUCTION : 0)
+					| (InfoflowConfiguration.getUseRecursiveAccessPaths()
+							? AccessPathKey.FLAG_RECURSIVE_ACCESS_PATHS : 0);
+			// If the input chain is not in the trie yet, we cannot have
+			// cached anything for it. We do not insert it just for the lookup.
+			FieldChain inputChain = appendingFields == null ? null
+					: findFieldChain(appendingFields, appendingFieldTypes);
+			if (appendingFields == null || appendingFields.length == 0
+					|| inputChain != null) {
+				derivationKey = new AccessPathKey((Local) val, valType, inputChain,
+						flags, InfoflowConfiguration.getAccessPathLength(), arrayTaintType);
+				AccessPath cachedAP = derivationCache.get(derivationKey);
+				if (cachedAP != null)
+					return cachedAP;
+			}
+		}
+		
 		// Initialize the field type information if necessary
 		if (appendingFields != null && appendingFieldTypes == null) {
 			appendingFieldTypes = new Type[appendingFields.length];
@@ -210,17 +353,25 @@ public class AccessPathFactory {
 			}
 			if (fields != null)
 				for (int i = 0; i < fields.length; i++) {
-					fieldTypes[i] = TypeUtils.getMorePreciseType(fieldTypes[i], fields[i].getType());
-					if (fieldTypes[i] == null)
+					Type fieldType = TypeUtils.getMorePreciseType(fieldTypes[i], fields[i].getType());
+					if (fieldType == null)
 						return null;
 					
 					// If we have a more precise base type in the next field, we
 					// take that
-					if (fields.length > i + 1 && !(fieldTypes[i] instanceof ArrayType))
-						fieldTypes[i] = TypeUtils.getMorePreciseType(fieldTypes[i],
+					if (fields.length > i + 1 && !(fieldType instanceof ArrayType))
+						fieldType = TypeUtils.getMorePreciseType(fieldType,
 								fields[i + 1].getDeclaringClass().getType());
-					if (fieldTypes[i] == null)
+					if (fieldType == null)
 						return null;
+					
+					// Never modify the caller's array, it may belong to an
+					// existing access path
+					if (fieldType != fieldTypes[i]) {
+						if (fieldTypes == appendingFieldTypes)
+							fieldTypes = fieldTypes.clone();
+						fieldTypes[i] = fieldType;
+					}
 				}
 		}
 		
@@ -322,6 +473,7 @@ public class AccessPathFactory {
 		
 		// Cut the fields at the maximum access path length. If this happens,
 		// we must always add a star
+		FieldChain fieldChain = null;
 		if (fields != null) {
 			int fieldNum = Math.min(InfoflowConfiguration.getAccessPathLength(), fields.length);
 			if (fields.length > fieldNum) {
@@ -332,20 +484,9 @@ public class AccessPathFactory {
 				cutOffApproximation = false || recursiveCutOff;
 			}
 			
-			if (fieldNum == 0) {
-				fields = null;
-				fieldTypes = null;
-			}
-			else {
-				SootField[] newFields = new SootField[fieldNum];
-				Type[] newFieldTypes = new Type[fieldNum];
-				
-				System.arraycopy(fields, 0, newFields, 0, fieldNum);
-				System.arraycopy(fieldTypes, 0, newFieldTypes, 0, fieldNum);
-				
-				fields = newFields;
-				fieldTypes = newFieldTypes;
-			}
+			// Look up the shared field chain. This implicitly cuts the
+			// fields without copying the arrays.
+			fieldChain = getFieldChain(fields, fieldTypes, 0, fieldNum);
 		}
 		else {
 			cutOffApproximation = false;
@@ -362,8 +503,89 @@ public class AccessPathFactory {
 				&& !TypeUtils.isObjectLikeType(value.getType()))
 					: "Type mismatch. Type was " + baseType + ", value was: " + (value == null ? null : value.getType());
 		
-		return new AccessPath(value, fields, baseType, fieldTypes, taintSubFields,
+		AccessPath ap = internAccessPath(value, fieldChain, baseType,
+				taintSubFields, cutOffApproximation, arrayTaintType);
+		if (derivationKey != null)
+			derivationCache.putIfAbsent(derivationKey, ap);
+		return ap;
+	}
+	
+	/**
+	 * Gets the shared field chain for the given fields
+	 * @param fields The fields in the chain
+	 * @param fieldTypes The types of the fields in the chain
+	 * @param offset The index of the first field to include in the chain
+	 * @param count The number of fields to include in the chain
+	 * @return The shared field chain for the given fields, or null if the
+	 * chain would be empty
+	 */
+	public FieldChain getFieldChain(SootField[] fields, Type[] fieldTypes,
+			int offset, int count) {
+		if (fields == null || count <= 0)
+			return null;
+		return fieldChainRoot.append(fields, fieldTypes, offset, count);
+	}
+	
+	/**
+	 * Gets the shared field chain for the given fields if it already exists.
+	 * This method never modifies the trie.
+	 * @param fields The fields in the chain
+	 * @param fieldTypes The types of the fields in the chain
+	 * @return The shared field chain for the given fields, or null if the
+	 * chain would be empty or has not been created yet
+	 */
+	private FieldChain findFieldChain(SootField[] fields, Type[] fieldTypes) {
+		if (fields.length == 0)
+			return null;
+		return fieldChainRoot.find(fields, fieldTypes, 0, fields.length);
+	}
+	
+	/**
+	 * Gets the shared field chain that consists of the given chain plus the
+	 * given fields
+	 * @param chain The chain to extend, or null for the empty chain
+	 * @param fields The fields to append
+	 * @param fieldTypes The types of the fields to append
+	 * @return The shared field chain that consists of the given chain plus the
+	 * given fields, or null if the resulting chain would be empty
+	 */
+	public FieldChain appendToFieldChain(FieldChain chain, SootField[] fields,
+			Type[] fieldTypes) {
+		if (fields == null || fields.length == 0)
+			return chain;
+		if (chain == null)
+			chain = fieldChainRoot;
+		return chain.append(fields, fieldTypes, 0, fields.length);
+	}
+	
+	/**
+	 * Gets the unique access path instance with the given contents. If no such
+	 * access path exists yet, a new one is created.
+	 * @param value The base value of the access path
+	 * @param fieldChain The shared chain of fields of the access path
+	 * @param baseType The type of the base value
+	 * @param taintSubFields True if all objects reachable through the access
+	 * path shall be tainted
+	 * @param cutOffApproximation True if the access path has been cut off by
+	 * the access path length limitation
+	 * @param arrayTaintType The way a tainted array shall be handled
+	 * @return The unique access path instance with the given contents
+	 */
+	AccessPath internAccessPath(Local value, FieldChain fieldChain, Type baseType,
+			boolean taintSubFields, boolean cutOffApproximation,
+			ArrayTaintType arrayTaintType) {
+		int flags = (taintSubFields ? AccessPathKey.FLAG_TAINT_SUB_FIELDS : 0)
+				| (cutOffApproximation ? AccessPathKey.FLAG_CUT_OFF_APPROXIMATION : 0);
+		AccessPathKey key = new AccessPathKey(value, baseType, fieldChain,
+				flags, arrayTaintType);
+		AccessPath ap = internTable.get(key);
+		if (ap != null)
+			return ap;
+		
+		ap = new AccessPath(value, fieldChain, baseType, taintSubFields,
 				cutOffApproximation, arrayTaintType);
+		AccessPath oldAP = internTable.putIfAbsent(key, ap);
+		return oldAP == null ? ap : oldAP;
 	}
 
 	private void registerBase(Type eiType, SootField[] base,
@@ -388,8 +610,24 @@ public class AccessPathFactory {
 		bases.add(new BasePair(base, baseTypes));
 	}
 	
+	/**
+	 * Clears the register of recursive bases. Since cached access paths rely
+	 * on their bases having been registered, this also clears the access path
+	 * caches and the trie of field chains.
+	 */
 	public void clearBaseRegister() {
 		baseRegister.clear();
+		internTable.clear();
+		derivationCache.clear();
+		fieldChainRoot = new FieldChain();
+	}
+	
+	/**
+	 * Gets the number of distinct access paths that are currently alive
+	 * @return The number of distinct access paths that are currently alive
+	 */
+	public int getInternedAccessPathCount() {
+		return internTable.size();
 	}
 	
 	public Collection<BasePair> getBaseForType(Type tp) {
@@ -0,0 +1,170 @@
+package soot.jimple.infoflow.data;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.infoflow.solver.IMemoryBoundedSolver;
+import soot.jimple.infoflow.solver.IMemoryManager;
+
+/**
+ * Memory manager that enforces a heap budget. Abstractions are first passed
+ * on to a delegate memory manager for deduplication. Every now and then, the
+ * manager checks how much memory was still in use after the last garbage
+ * collection. If this exceeds the budget, all registered solvers are asked to
+ * evict their cold state.
+ */
+public class BoundedMemoryManager implements IMemoryManager<Abstraction> {
+
+	private static final Logger logger = LoggerFactory.getLogger(BoundedMemoryManager.class);
+
+	/**
+	 * The number of memory objects to handle between two checks of the heap
+	 * usage. Must be a power of two.
+	 */
+	private static final int CHECK_INTERVAL = 16384;
+
+	private final IMemoryManager<Abstraction> delegate;
+	private final long heapBudget;
+	private final List<IMemoryBoundedSolver> solvers =
+			new CopyOnWriteArrayList<IMemoryBoundedSolver>();
+	private final List<MemoryPoolMXBean> heapPools =
+			new CopyOnWriteArrayList<MemoryPoolMXBean>();
+
+	// benign races
+	private int handledObjects = 0;
+
+	private final AtomicBoolean evicting = new AtomicBoolean(false);
+	private volatile long lastEvictionGcCount = -1;
+	private final AtomicLong evictionRounds = new AtomicLong(0);
+	private final AtomicLong evictedEntries = new AtomicLong(0);
+
+	/**
+	 * Creates a new instance of the {@link BoundedMemoryManager} class
+	 * @param heapBudget The maximum number of bytes that may be in use after a
+	 * garbage collection before the solvers are asked to evict state
+	 * @param delegate The memory manager to which to pass all abstractions
+	 * before the budget is checked, or null if no other memory manager shall
+	 * be used
+	 */
+	public BoundedMemoryManager(long heapBudget, IMemoryManager<Abstraction> delegate) {
+		this.heapBudget = heapBudget;
+		this.delegate = delegate;
+
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+				heapPools.add(pool);
+	}
+
+	/**
+	 * Registers a solver that shall be asked to evict its state when the heap
+	 * budget is exceeded
+	 * @param solver The solver to register
+	 */
+	public void registerSolver(IMemoryBoundedSolver solver) {
+		if (solver != null)
+			solvers.add(solver);
+	}
+
+	@Override
+	public Abstraction handleMemoryObject(Abstraction obj) {
+		if ((++handledObjects & (CHECK_INTERVAL - 1)) == 0)
+			checkBudget();
+		return delegate == null ? obj : delegate.handleMemoryObject(obj);
+	}
+
+	@Override
+	public Abstraction handleGeneratedMemoryObject(Abstraction input,
+			Abstraction output) {
+		return delegate == null ? output
+				: delegate.handleGeneratedMemoryObject(input, output);
+	}
+
+	/**
+	 * Gets the number of bytes that were still in use after the last garbage
+	 * collection
+	 * @return The number of bytes that are retained on the heap
+	 */
+	private long getRetainedHeap() {
+		// If the VM does not tell us about the state after the last collection,
+		// we have to fall back to the current usage which includes garbage
+		if (heapPools.isEmpty())
+			return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+
+		long used = 0;
+		for (MemoryPoolMXBean pool : heapPools) {
+			MemoryUsage usage = pool.getCollectionUsage();
+			if (usage != null)
+				used += usage.getUsed();
+		}
+		return used;
+	}
+
+	/**
+	 * Gets the total number of garbage collections so far
+	 * @return The total number of garbage collections
+	 */
+	private static long getGcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	/**
+	 * Checks whether the heap budget is exceeded and evicts solver state if
+	 * necessary
+	 */
+	private void checkBudget() {
+		// The retained heap only reflects our last eviction after the next
+		// garbage collection
+		if (getGcCount() == lastEvictionGcCount)
+			return;
+		if (getRetainedHeap() <= heapBudget)
+			return;
+
+		// Only one thread needs to do the eviction
+		if (!evicting.compareAndSet(false, true))
+			return;
+		try {
+			long evicted = 0;
+			for (IMemoryBoundedSolver solver : solvers)
+				evicted += solver.evictColdState();
+			lastEvictionGcCount = getGcCount();
+			evictionRounds.incrementAndGet();
+			evictedEntries.addAndGet(evicted);
+			logger.info("Heap budget of {} MB exceeded, evicted {} cold entries",
+					heapBudget / (1024 * 1024), evicted);
+		}
+		finally {
+			evicting.set(false);
+		}
+	}
+
+	/**
+	 * Gets the number of times the heap budget was exceeded and the solvers
+	 * were asked to evict their state
+	 * @return The number of eviction rounds
+	 */
+	public long getEvictionRounds() {
+		return evictionRounds.get();
+	}
+
+	/**
+	 * Gets the total number of entries the solvers have evicted
+	 * @return The total number of evicted entries
+	 */
+	public long getEvictedEntryCount() {
+		return evictedEntries.get();
+	}
+
+}
@@ -0,0 +1,325 @@
+package soot.jimple.infoflow.data;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.SootField;
+import soot.Type;
+
+/**
+ * Node in the trie of field chains that is shared by all access paths. Each
+ * node represents the sequence of fields (and their types) on the path from
+ * the root to the node. Access paths with the same fields, e.g. a.f.g and
+ * b.f.g, reference the same node, and appending or dropping the last field
+ * merely moves to a child or the parent node.
+ *
+ * Nodes are canonical within one trie, i.e., two chains with the same fields
+ * and types are represented by the same object.
+ *
+ * On a 64-bit HotSpot VM with compressed references, a node takes 56 bytes
+ * plus its child map if it has children and its field and type arrays once
+ * they are materialized. These costs are paid once per distinct chain. An
+ * access path used to own two arrays of 16 + 4n bytes each (rounded up to
+ * eight bytes) for n fields, i.e., 64 bytes for three fields, and now only
+ * holds a single reference to its node.
+ */
+public class FieldChain {
+
+	private final FieldChain parent;
+	private final SootField field;
+	private final Type type;
+	private final SootField firstField;
+	private final Type firstType;
+	private final int length;
+	private final int hashCode;
+
+	/**
+	 * The children of this node by their last field. The value is either a
+	 * single chain or, if the same field occurs with different types, an
+	 * array of chains. Lookups do not allocate, insertions are synchronized
+	 * on this node.
+	 */
+	private volatile ConcurrentMap<SootField, Object> children = null;
+
+	// Materialized on demand
+	private volatile SootField[] fields = null;
+	private volatile Type[] types = null;
+	private volatile FieldChain withoutFirstField = null;
+
+	/**
+	 * Creates the root node of a new trie
+	 */
+	FieldChain() {
+		this.parent = null;
+		this.field = null;
+		this.type = null;
+		this.firstField = null;
+		this.firstType = null;
+		this.length = 0;
+		this.hashCode = 1;
+	}
+
+	private FieldChain(FieldChain parent, SootField field, Type type) {
+		this.parent = parent;
+		this.field = field;
+		this.type = type;
+		this.length = parent.length + 1;
+		this.firstField = parent.length == 0 ? field : parent.firstField;
+		this.firstType = parent.length == 0 ? type : parent.firstType;
+
+		final int prime = 31;
+		int result = parent.hashCode;
+		result = prime * result + field.hashCode();
+		result = prime * result + type.hashCode();
+		this.hashCode = result;
+	}
+
+	/**
+	 * Gets the chain that consists of this chain plus the given field if it
+	 * already exists in the trie. This method never modifies the trie.
+	 * @param f The field to append
+	 * @param t The type of the field to append
+	 * @return The chain that consists of this chain plus the given field, or
+	 * null if no such chain has been created yet
+	 */
+	public FieldChain findChild(SootField f, Type t) {
+		ConcurrentMap<SootField, Object> c = children;
+		if (c == null)
+			return null;
+
+		Object entry = c.get(f);
+		if (entry == null)
+			return null;
+		if (entry instanceof FieldChain) {
+			FieldChain child = (FieldChain) entry;
+			return child.type.equals(t) ? child : null;
+		}
+		for (FieldChain child : (FieldChain[]) entry)
+			if (child.type.equals(t))
+				return child;
+		return null;
+	}
+
+	/**
+	 * Gets the chain that consists of this chain plus the given field,
+	 * creating it if necessary
+	 * @param f The field to append
+	 * @param t The type of the field to append
+	 * @return The chain that consists of this chain plus the given field
+	 */
+	public FieldChain getChild(SootField f, Type t) {
+		FieldChain child = findChild(f, t);
+		if (child != null)
+			return child;
+
+		synchronized (this) {
+			child = findChild(f, t);
+			if (child != null)
+				return child;
+
+			ConcurrentMap<SootField, Object> c = children;
+			if (c == null)
+				children = c = new ConcurrentHashMap<SootField, Object>(4);
+
+			child = new FieldChain(this, f, t);
+			Object entry = c.get(f);
+			if (entry == null)
+				c.put(f, child);
+			else if (entry instanceof FieldChain)
+				c.put(f, new FieldChain[] { (FieldChain) entry, child });
+			else {
+				FieldChain[] oldEntries = (FieldChain[]) entry;
+				FieldChain[] newEntries = Arrays.copyOf(oldEntries, oldEntries.length + 1);
+				newEntries[oldEntries.length] = child;
+				c.put(f, newEntries);
+			}
+			return child;
+		}
+	}
+
+	/**
+	 * Gets the chain that consists of this chain plus the given fields
+	 * @param f The fields to append
+	 * @param t The types of the fields to append
+	 * @param offset The index of the first field to append
+	 * @param count The number of fields to append
+	 * @return The chain that consists of this chain plus the given fields
+	 */
+	public FieldChain append(SootField[] f, Type[] t, int offset, int count) {
+		FieldChain chain = this;
+		for (int i = offset; i < offset + count; i++)
+			chain = chain.getChild(f[i], t[i]);
+		return chain;
+	}
+
+	/**
+	 * Gets the chain that consists of this chain plus the given fields if it
+	 * already exists in the trie. This method never modifies the trie.
+	 * @param f The fields to append
+	 * @param t The types of the fields to append
+	 * @param offset The index of the first field to append
+	 * @param count The number of fields to append
+	 * @return The chain that consists of this chain plus the given fields, or
+	 * null if no such chain has been created yet
+	 */
+	public FieldChain find(SootField[] f, Type[] t, int offset, int count) {
+		FieldChain chain = this;
+		for (int i = offset; i < offset + count && chain != null; i++)
+			chain = chain.findChild(f[i], t[i]);
+		return chain;
+	}
+
+	/**
+	 * Gets the chain that consists of this chain plus the given chain
+	 * @param other The chain to append
+	 * @return The chain that consists of this chain plus the given chain
+	 */
+	public FieldChain append(FieldChain other) {
+		if (other == null || other.length == 0)
+			return this;
+		return append(other.getFields(), other.getTypes(), 0, other.length);
+	}
+
+	/**
+	 * Gets the chain without the last field. For chains with only one field,
+	 * this is the root of the trie.
+	 * @return The chain without the last field
+	 */
+	public FieldChain getParent() {
+		return this.parent;
+	}
+
+	/**
+	 * Gets the chain without the first field. For chains with only one
+	 * field, this is the root of the trie. The result is computed once per
+	 * node and then cached.
+	 * @return The chain without the first field
+	 */
+	public FieldChain getWithoutFirstField() {
+		if (length == 0)
+			return this;
+		FieldChain chain = this.withoutFirstField;
+		if (chain == null) {
+			chain = length == 1 ? parent
+					: parent.getWithoutFirstField().getChild(field, type);
+			this.withoutFirstField = chain;
+		}
+		return chain;
+	}
+
+	/**
+	 * Gets the prefix of this chain with the given length
+	 * @param prefixLength The number of fields in the prefix
+	 * @return The prefix of this chain with the given length
+	 */
+	public FieldChain getPrefix(int prefixLength) {
+		FieldChain chain = this;
+		while (chain.length > prefixLength)
+			chain = chain.parent;
+		return chain;
+	}
+
+	/**
+	 * Gets whether this node is the root of the trie, i.e., the empty chain
+	 * @return True if this node is the root of the trie, otherwise false
+	 */
+	public boolean isRoot() {
+		return this.parent == null;
+	}
+
+	/**
+	 * Gets the last field in this chain
+	 * @return The last field in this chain
+	 */
+	public SootField getLastField() {
+		return this.field;
+	}
+
+	/**
+	 * Gets the type of the last field in this chain
+	 * @return The type of the last field in this chain
+	 */
+	public Type getLastType() {
+		return this.type;
+	}
+
+	/**
+	 * Gets the first field in this chain
+	 * @return The first field in this chain, or null for the empty chain
+	 */
+	public SootField getFirstField() {
+		return this.firstField;
+	}
+
+	/**
+	 * Gets the type of the first field in this chain
+	 * @return The type of the first field in this chain, or null for the
+	 * empty chain
+	 */
+	public Type getFirstType() {
+		return this.firstType;
+	}
+
+	/**
+	 * Gets the number of fields in this chain
+	 * @return The number of fields in this chain
+	 */
+	public int length() {
+		return this.length;
+	}
+
+	/**
+	 * Gets the fields in this chain. The array is shared among all users of
+	 * this chain and must not be modified.
+	 * @return The fields in this chain, or null for the empty chain
+	 */
+	public SootField[] getFields() {
+		SootField[] f = this.fields;
+		if (f == null && length > 0) {
+			f = new SootField[length];
+			FieldChain chain = this;
+			for (int i = length - 1; i >= 0; i--) {
+				f[i] = chain.field;
+				chain = chain.parent;
+			}
+			this.fields = f;
+		}
+		return f;
+	}
+
+	/**
+	 * Gets the types of the fields in this chain. The array is shared among
+	 * all users of this chain and must not be modified.
+	 * @return The types of the fields in this chain, or null for the empty
+	 * chain
+	 */
+	public Type[] getTypes() {
+		Type[] t = this.types;
+		if (t == null && length > 0) {
+			t = new Type[length];
+			FieldChain chain = this;
+			for (int i = length - 1; i >= 0; i--) {
+				t[i] = chain.type;
+				chain = chain.parent;
+			}
+			this.types = t;
+		}
+		return t;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public String toString() {
+		if (parent == null)
+			return "";
+		if (parent.parent == null)
+			return field.toString();
+		return parent.toString() + " " + field;
+	}
+
+}
@@ -11,13 +11,74 @@ import soot.jimple.infoflow.InfoflowConfiguration;
 
 /**
  * Extension of {@link SourceContext} that also allows a paths from the source
- * to the current statement to be stored
+ * to the current statement to be stored. The path and the call stack are
+ * persistent lists, i.e., all paths derived from the same prefix share the
+ * common tail instead of copying it.
  * 
  * @author Steven Arzt
  */
 public class SourceContextAndPath extends SourceContext implements Cloneable {
-	protected List<Abstraction> path = null;
-	protected List<Stmt> callStack = null;
+	
+	/**
+	 * Number of bits in the membership filter of a path
+	 */
+	private static final int FILTER_BITS = 256;
+	
+	/**
+	 * Immutable cons cell of a persistent list. The first element of the list
+	 * is the most recently added one.
+	 * 
+	 * @param <T> The type of the elements in the list
+	 */
+	private static final class Node<T> {
+		
+		private final T value;
+		private final Node<T> next;
+		private final int size;
+		private final int hashCode;
+		
+		private Node(T value, Node<T> next) {
+			this.value = value;
+			this.next = next;
+			this.size = next == null ? 1 : next.size + 1;
+			this.hashCode = 31 * (next == null ? 1 : next.hashCode)
+					+ (value == null ? 0 : value.hashCode());
+		}
+		
+		private static boolean listEquals(Node<?> n1, Node<?> n2) {
+			while (n1 != n2) {
+				if (n1 == null || n2 == null)
+					return false;
+				if (n1.size != n2.size || n1.hashCode != n2.hashCode)
+					return false;
+				if (n1.value == null ? n2.value != null : !n1.value.equals(n2.value))
+					return false;
+				n1 = n1.next;
+				n2 = n2.next;
+			}
+			return true;
+		}
+		
+		private List<T> toList() {
+			List<T> list = new ArrayList<T>(size);
+			for (Node<T> n = this; n != null; n = n.next)
+				list.add(n.value);
+			return list;
+		}
+		
+	}
+	
+	private Node<Abstraction> path = null;
+	private Node<Stmt> callStack = null;
+	
+	/**
+	 * Bloom filter over all abstractions on the path, their neighbors, and
+	 * their statement contexts. If an abstraction misses the filter, it
+	 * cannot close a loop and we can skip scanning the path. The array is
+	 * shared between paths and never modified after it has been published.
+	 */
+	private long[] pathFilter = null;
+	
 	private int hashCode = 0;
 	
 	public SourceContextAndPath(AccessPath value, Stmt stmt) {
@@ -29,19 +90,111 @@ public class SourceContextAndPath extends SourceContext implements Cloneable {
 	}
 	
 	public List<Abstraction> getAbstractionPath() {
-		return path;		
+		return path == null ? null : path.toList();
 	}
 	
 	public List<Stmt> getPath() {
 		if (path == null)
 			return Collections.<Stmt>emptyList();
-		List<Stmt> stmtPath = new ArrayList<Stmt>(this.path.size());
-		for (Abstraction abs : this.path)
-			if (abs.getCurrentStmt() != null)
-				stmtPath.add(abs.getCurrentStmt());
+		List<Stmt> stmtPath = new ArrayList<Stmt>(this.path.size);
+		for (Node<Abstraction> n = this.path; n != null; n = n.next)
+			if (n.value.getCurrentStmt() != null)
+				stmtPath.add(n.value.getCurrentStmt());
 		return stmtPath;
 	}
 	
+	/**
+	 * Computes the filter bit for the identity of the given abstraction
+	 */
+	private static int identityBit(Abstraction abs) {
+		int h = System.identityHashCode(abs);
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h & (FILTER_BITS - 1);
+	}
+	
+	/**
+	 * Computes the filter bit for the contents and statement context of the
+	 * given abstraction
+	 */
+	private static int contextBit(Abstraction abs) {
+		int h = abs.hashCode();
+		h = 31 * h + System.identityHashCode(abs.getCurrentStmt());
+		h = 31 * h + System.identityHashCode(abs.getCorrespondingCallSite());
+		h ^= (h >>> 16);
+		h *= 0xc2b2ae35;
+		h ^= (h >>> 16);
+		return h & (FILTER_BITS - 1);
+	}
+	
+	private static boolean testBit(long[] filter, int bit) {
+		return (filter[bit >>> 6] & (1L << bit)) != 0;
+	}
+	
+	private static void setBit(long[] filter, int bit) {
+		filter[bit >>> 6] |= 1L << bit;
+	}
+	
+	/**
+	 * Checks whether the given abstraction may close a loop on the current
+	 * path. False positives are possible, false negatives are not.
+	 * @param abs The abstraction to check
+	 * @return True if the path must be scanned for a loop, false if the given
+	 * abstraction definitely does not close a loop
+	 */
+	private boolean mayCloseLoop(Abstraction abs) {
+		if (pathFilter == null)
+			return path != null;
+		
+		// Covers identical abstractions and abstractions that are neighbors of
+		// an abstraction on the path
+		if (testBit(pathFilter, identityBit(abs)))
+			return true;
+		
+		// Covers abstractions that are equal to one on the path
+		if (testBit(pathFilter, contextBit(abs)))
+			return true;
+		
+		// Covers abstractions whose neighbors are on the path
+		if (abs.getNeighbors() != null)
+			for (Abstraction nb : abs.getNeighbors())
+				if (testBit(pathFilter, identityBit(nb)))
+					return true;
+		return false;
+	}
+	
+	/**
+	 * Scans the current path for an abstraction that would form a loop with
+	 * the given one
+	 * @param abs The abstraction to check
+	 * @return True if putting the given abstraction on the path would create
+	 * a loop, otherwise false
+	 */
+	private boolean closesLoop(Abstraction abs) {
+		for (Node<Abstraction> n = this.path; n != null; n = n.next) {
+			final Abstraction a = n.value;
+			if (a == abs)
+				return true;
+			
+			// Do not run into loops. If we come back to the same
+			// abstraction, we don't got on with a neighbor
+			if (a.getNeighbors() != null && a.getNeighbors().contains(abs))
+				return true;
+			if (abs.getNeighbors() != null && abs.getNeighbors().contains(a))
+				return true;
+			
+			// If this is exactly the same abstraction as one we have seen
+			// before, we skip it. Otherwise, we would run through loops
+			// infinitely.
+			if (a.equals(abs)
+					&& a.getCurrentStmt() == abs.getCurrentStmt()
+					&& a.getCorrespondingCallSite() == abs.getCorrespondingCallSite())
+				return true;
+		}
+		return false;
+	}
+	
 	/**
 	 * Extends the taint propagation path with the given abstraction
 	 * @param abs The abstraction to put on the taint propagation path
@@ -75,42 +228,31 @@ public class SourceContextAndPath extends SourceContext implements Cloneable {
 		if (abs.getCorrespondingCallSite() == null && !trackPath)
 			return this;
 		
-		// Do not add the very same abstraction over and over again
-		if (this.path != null)
-			for (Abstraction a : this.path) {
-				if (a == abs)
-					return null;
-				
-				// Do not run into loops. If we come back to the same
-				// abstraction, we don't got on with a neighbor
-				if (a.getNeighbors() != null && a.getNeighbors().contains(abs))
-					return null;
-				if (abs.getNeighbors() != null && abs.getNeighbors().contains(a))
-					return null;
-				
-				// If this is exactly the same abstraction as one we have seen
-				// before, we skip it. Otherwise, we would run through loops
-				// infinitely.
-				if (a.equals(abs)
-						&& a.getCurrentStmt() == abs.getCurrentStmt()
-						&& a.getCorrespondingCallSite() == abs.getCorrespondingCallSite())
-					return null;
-			}
+		// Do not add the very same abstraction over and over again. We only
+		// need to look at the path if the filter tells us that there might be
+		// a loop.
+		if (this.path != null && mayCloseLoop(abs) && closesLoop(abs))
+			return null;
 		
 		SourceContextAndPath scap = clone();
 		if (trackPath && abs.getCurrentStmt() != null) {
-			if (scap.path == null)
-				scap.path = new ArrayList<Abstraction>();
-			scap.path.add(0, abs);
+			scap.path = new Node<Abstraction>(abs, scap.path);
+			
+			// Record the new abstraction in the membership filter
+			long[] filter = scap.pathFilter == null ? new long[FILTER_BITS / 64]
+					: scap.pathFilter.clone();
+			setBit(filter, identityBit(abs));
+			setBit(filter, contextBit(abs));
+			if (abs.getNeighbors() != null)
+				for (Abstraction nb : abs.getNeighbors())
+					setBit(filter, identityBit(nb));
+			scap.pathFilter = filter;
 		}
 		
 		// Extend the call stack
 		if (abs.getCorrespondingCallSite() != null
-				&& abs.getCorrespondingCallSite() != abs.getCurrentStmt()) {
-			if (scap.callStack == null)
-				scap.callStack = new ArrayList<Stmt>();
-			scap.callStack.add(0, abs.getCorrespondingCallSite());
-		}
+				&& abs.getCorrespondingCallSite() != abs.getCurrentStmt())
+			scap.callStack = new Node<Stmt>(abs.getCorrespondingCallSite(), scap.callStack);
 		
 		return scap;
 	}
@@ -122,11 +264,13 @@ public class SourceContextAndPath extends SourceContext implements Cloneable {
 	 * element. If there is no call stack, null is returned.
 	 */
 	public Pair<SourceContextAndPath, Stmt> popTopCallStackItem() {
-		if (callStack == null || callStack.isEmpty())
+		if (callStack == null)
 			return null;
 		
 		SourceContextAndPath scap = clone();
-		return new Pair<>(scap, scap.callStack.remove(0));
+		Stmt topItem = scap.callStack.value;
+		scap.callStack = scap.callStack.next;
+		return new Pair<>(scap, topItem);
 	}
 	
 	@Override
@@ -141,14 +285,9 @@ public class SourceContextAndPath extends SourceContext implements Cloneable {
 			return false;
 		
 		if (!InfoflowConfiguration.getPathAgnosticResults()) {
-			if (this.callStack == null) {
-				if (scap.callStack != null)
-					return false;
-			}
-			else if (!this.callStack.equals(scap.callStack))
+			if (!Node.listEquals(this.callStack, scap.callStack))
 				return false;
-			
-			if (!this.path.equals(scap.path))
+			if (!Node.listEquals(this.path, scap.path))
 				return false;
 		}
 		
@@ -161,8 +300,8 @@ public class SourceContextAndPath extends SourceContext implements Cloneable {
 			return hashCode;
 		
 		synchronized(this) {
-			hashCode = (!InfoflowConfiguration.getPathAgnosticResults() ? 31 * (path == null ? 0 : path.hashCode()) : 0)
-					+ (!InfoflowConfiguration.getPathAgnosticResults() ? 31 * (callStack == null ? 0 : callStack.hashCode()) : 0)
+			hashCode = (!InfoflowConfiguration.getPathAgnosticResults() ? 31 * (path == null ? 0 : path.hashCode) : 0)
+					+ (!InfoflowConfiguration.getPathAgnosticResults() ? 31 * (callStack == null ? 0 : callStack.hashCode) : 0)
 					+ 31 * super.hashCode();
 		}
 		return hashCode;
@@ -170,16 +309,16 @@ public class SourceContextAndPath extends SourceContext implements Cloneable {
 	
 	@Override
 	public synchronized SourceContextAndPath clone() {
+		// The lists are immutable, so the new object can share them
 		final SourceContextAndPath scap = new SourceContextAndPath(getAccessPath(), getStmt(), getUserData());
-		if (path != null)
-			scap.path = new ArrayList<Abstraction>(this.path);
-		if (callStack != null)
-			scap.callStack = new ArrayList<Stmt>(callStack);
+		scap.path = this.path;
+		scap.callStack = this.callStack;
+		scap.pathFilter = this.pathFilter;
 		return scap;
 	}
 	
 	@Override
 	public String toString() {
-		return super.toString() + "\n\ton Path: " + path;
+		return super.toString() + "\n\ton Path: " + getAbstractionPath();
 	}	
 }
@@ -1,6 +1,12 @@
 package soot.jimple.infoflow.data.pathBuilders;
 
+import heros.solver.CountingThreadPoolExecutor;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.util.AnalysisBudget;
 
 /**
  * Abstract base class for all abstraction path builders
@@ -12,6 +18,7 @@ public abstract class AbstractAbstractionPathBuilder implements
 
 	protected final IInfoflowCFG icfg;
 	protected final boolean reconstructPaths;
+	protected AnalysisBudget analysisBudget = null;
 	
 	/**
 	 * Creates a new instance of the {@link AbstractAbstractionPathBuilder} class
@@ -24,5 +31,42 @@ public abstract class AbstractAbstractionPathBuilder implements
 		this.icfg = icfg;
 		this.reconstructPaths = reconstructPaths;
 	}
+	
+	@Override
+	public void setAnalysisBudget(AnalysisBudget budget) {
+		this.analysisBudget = budget;
+	}
+	
+	/**
+	 * Checks whether the time or memory budget for the path reconstruction is
+	 * used up
+	 * @return True if the path reconstruction shall stop, otherwise false
+	 */
+	protected boolean isBudgetExhausted() {
+		return analysisBudget != null && analysisBudget.isExhausted();
+	}
+	
+	/**
+	 * Gets the number of threads to use for the given thread limit
+	 * @param maxThreadNum The maximum number of threads to use, or -1 for no
+	 * limit
+	 * @return The number of threads to use
+	 */
+	private static int getThreadCount(int maxThreadNum) {
+        int numThreads = Runtime.getRuntime().availableProcessors();
+		return maxThreadNum == -1 ? numThreads : Math.min(maxThreadNum, numThreads);
+	}
+	
+	/**
+	 * Creates a new executor object for spawning worker threads
+	 * @param maxThreadNum The maximum number of threads to use, or -1 for no
+	 * limit
+	 * @return The generated executor
+	 */
+	protected static CountingThreadPoolExecutor createExecutor(int maxThreadNum) {
+		return new CountingThreadPoolExecutor
+				(getThreadCount(maxThreadNum), Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+	}
 
 }
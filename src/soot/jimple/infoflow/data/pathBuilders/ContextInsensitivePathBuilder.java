@@ -3,8 +3,6 @@ package soot.jimple.infoflow.data.pathBuilders;
 import heros.solver.CountingThreadPoolExecutor;
 
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +27,7 @@ public class ContextInsensitivePathBuilder extends AbstractAbstractionPathBuilde
 
     private final InfoflowResults results = new InfoflowResults();
 	private final CountingThreadPoolExecutor executor;
+	private final boolean shutdownExecutor;
 			
 	/**
 	 * Creates a new instance of the {@link ContextSensitivePathBuilder} class
@@ -39,20 +38,24 @@ public class ContextInsensitivePathBuilder extends AbstractAbstractionPathBuilde
 	public ContextInsensitivePathBuilder(IInfoflowCFG icfg, int maxThreadNum,
 			boolean reconstructPaths) {
 		super(icfg, reconstructPaths);
-        int numThreads = Runtime.getRuntime().availableProcessors();
-		this.executor = createExecutor(maxThreadNum == -1 ? numThreads
-				: Math.min(maxThreadNum, numThreads));
+		this.executor = createExecutor(maxThreadNum);
+		this.shutdownExecutor = true;
 	}
 	
 	/**
-	 * Creates a new executor object for spawning worker threads
-	 * @param numThreads The number of threads to use
-	 * @return The generated executor
+	 * Creates a new instance of the {@link ContextInsensitivePathBuilder} class
+	 * that runs on a shared executor. The executor is not shut down when the
+	 * path builder is shut down.
+	 * @param executor The executor on which to run the path reconstruction
+	 * tasks
+	 * @param reconstructPaths True if the exact propagation path between source
+	 * and sink shall be reconstructed.
 	 */
-	private CountingThreadPoolExecutor createExecutor(int numThreads) {
-		return new CountingThreadPoolExecutor
-				(numThreads, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>());
+	public ContextInsensitivePathBuilder(IInfoflowCFG icfg,
+			CountingThreadPoolExecutor executor, boolean reconstructPaths) {
+		super(icfg, reconstructPaths);
+		this.executor = executor;
+		this.shutdownExecutor = false;
 	}
 	
 	/**
@@ -69,6 +72,9 @@ public class ContextInsensitivePathBuilder extends AbstractAbstractionPathBuilde
 		
 		@Override
 		public void run() {
+			if (isBudgetExhausted())
+				return;
+			
 			final Set<SourceContextAndPath> paths = abstraction.getPaths();
 			final Abstraction pred = abstraction.getPredecessor();
 			
@@ -181,7 +187,8 @@ public class ContextInsensitivePathBuilder extends AbstractAbstractionPathBuilde
 	
 	@Override
 	public void shutdown() {
-    	executor.shutdown();		
+		if (shutdownExecutor)
+			executor.shutdown();
 	}
 
 	@Override
@@ -5,8 +5,6 @@ import heros.solver.CountingThreadPoolExecutor;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +25,7 @@ public class ContextInsensitiveSourceFinder extends AbstractAbstractionPathBuild
 
     private final InfoflowResults results = new InfoflowResults();
 	private final CountingThreadPoolExecutor executor;
+	private final boolean shutdownExecutor;
 	
 	private int lastTaskId = 0;
 	private int numTasks = 0;
@@ -38,20 +37,23 @@ public class ContextInsensitiveSourceFinder extends AbstractAbstractionPathBuild
 	 */
 	public ContextInsensitiveSourceFinder(IInfoflowCFG icfg, int maxThreadNum) {
 		super(icfg, false);
-        int numThreads = Runtime.getRuntime().availableProcessors();
-		this.executor = createExecutor(maxThreadNum == -1 ? numThreads
-				: Math.min(maxThreadNum, numThreads));
+		this.executor = createExecutor(maxThreadNum);
+		this.shutdownExecutor = true;
 	}
 	
 	/**
-	 * Creates a new executor object for spawning worker threads
-	 * @param numThreads The number of threads to use
-	 * @return The generated executor
+	 * Creates a new instance of the {@link ContextInsensitiveSourceFinder} class
+	 * that runs on a shared executor. The executor is not shut down when the
+	 * path builder is shut down.
+	 * @param icfg The interprocedural control flow graph
+	 * @param executor The executor on which to run the path reconstruction
+	 * tasks
 	 */
-	private CountingThreadPoolExecutor createExecutor(int numThreads) {
-		return new CountingThreadPoolExecutor
-				(numThreads, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>());
+	public ContextInsensitiveSourceFinder(IInfoflowCFG icfg,
+			CountingThreadPoolExecutor executor) {
+		super(icfg, false);
+		this.executor = executor;
+		this.shutdownExecutor = false;
 	}
 	
 	/**
@@ -73,6 +75,9 @@ public class ContextInsensitiveSourceFinder extends AbstractAbstractionPathBuild
 		@Override
 		public void run() {
 			while (!abstractionQueue.isEmpty()) {
+				if (isBudgetExhausted())
+					return;
+				
 				Abstraction abstraction = abstractionQueue.remove(0);
 				
 				if (abstraction.getSourceContext() != null) {
@@ -128,7 +133,8 @@ public class ContextInsensitiveSourceFinder extends AbstractAbstractionPathBuild
 	
 	@Override
 	public void shutdown() {
-    	executor.shutdown();		
+		if (shutdownExecutor)
+			executor.shutdown();
 	}
 
 	@Override
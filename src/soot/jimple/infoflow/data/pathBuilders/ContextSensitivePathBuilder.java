@@ -3,9 +3,12 @@ package soot.jimple.infoflow.data.pathBuilders;
 import heros.solver.CountingThreadPoolExecutor;
 import heros.solver.Pair;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +20,7 @@ import soot.jimple.infoflow.data.SourceContext;
 import soot.jimple.infoflow.data.SourceContextAndPath;
 import soot.jimple.infoflow.results.InfoflowResults;
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.solver.fastSolver.IMethodAffineTask;
 
 /**
  * Class for reconstructing abstraction paths from sinks to source. This builder
@@ -31,6 +35,10 @@ public class ContextSensitivePathBuilder extends AbstractAbstractionPathBuilder
 
     private final InfoflowResults results = new InfoflowResults();
 	private final CountingThreadPoolExecutor executor;
+	private final boolean shutdownExecutor;
+	
+	private long sinkTimeout = -1;
+	private final AtomicInteger abortedSinks = new AtomicInteger(0);
 			
 	/**
 	 * Creates a new instance of the {@link ContextSensitivePathBuilder} class
@@ -41,21 +49,120 @@ public class ContextSensitivePathBuilder extends AbstractAbstractionPathBuilder
 	 */
 	public ContextSensitivePathBuilder(IInfoflowCFG icfg, int maxThreadNum,
 			boolean reconstructPaths) {
+		this(icfg, createExecutor(maxThreadNum), true, reconstructPaths);
+	}
+	
+	/**
+	 * Creates a new instance of the {@link ContextSensitivePathBuilder} class
+	 * that runs on a shared executor. The executor is not shut down when the
+	 * path builder is shut down.
+	 * @param icfg The interprocedural control flow graph
+	 * @param executor The executor on which to run the path reconstruction
+	 * tasks
+	 * @param reconstructPaths True if the exact propagation path between source
+	 * and sink shall be reconstructed.
+	 */
+	public ContextSensitivePathBuilder(IInfoflowCFG icfg,
+			CountingThreadPoolExecutor executor, boolean reconstructPaths) {
+		this(icfg, executor, false, reconstructPaths);
+	}
+	
+	/**
+	 * Creates a new instance of the {@link ContextSensitivePathBuilder} class
+	 * @param icfg The interprocedural control flow graph
+	 * @param executor The executor on which to run the path reconstruction
+	 * tasks
+	 * @param shutdownExecutor True if the executor shall be shut down when
+	 * this path builder is shut down, false if it is shared with other
+	 * components
+	 * @param reconstructPaths True if the exact propagation path between source
+	 * and sink shall be reconstructed.
+	 */
+	public ContextSensitivePathBuilder(IInfoflowCFG icfg,
+			CountingThreadPoolExecutor executor, boolean shutdownExecutor,
+			boolean reconstructPaths) {
 		super(icfg, reconstructPaths);
-        int numThreads = Runtime.getRuntime().availableProcessors();
-		this.executor = createExecutor(maxThreadNum == -1 ? numThreads
-				: Math.min(maxThreadNum, numThreads));
+		this.executor = executor;
+		this.shutdownExecutor = shutdownExecutor;
 	}
 	
 	/**
-	 * Creates a new executor object for spawning worker threads
-	 * @param numThreads The number of threads to use
-	 * @return The generated executor
+	 * Scope that groups all path reconstruction tasks that were spawned for a
+	 * single abstraction at a sink. If the scope exceeds its time budget, all
+	 * of its remaining tasks are cancelled.
 	 */
-	private CountingThreadPoolExecutor createExecutor(int numThreads) {
-		return new CountingThreadPoolExecutor
-				(numThreads, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>());
+	protected static final class SinkScope {
+		
+		private final long timeout;
+		private final AtomicLong startTime = new AtomicLong(0);
+		private volatile boolean cancelled = false;
+		private volatile boolean tasksDropped = false;
+		
+		/**
+		 * Creates a new scope
+		 * @param timeout The time budget for this scope in nanoseconds, or -1
+		 * for no time budget
+		 */
+		public SinkScope(long timeout) {
+			this.timeout = timeout;
+		}
+		
+		/**
+		 * Starts the time budget of this scope if it has not been started yet.
+		 * This method is called whenever a task of the scope begins to run, so
+		 * that the time a task spends waiting in the executor queue before the
+		 * first task of the scope runs does not count against the budget.
+		 */
+		public void start() {
+			if (timeout >= 0 && startTime.get() == 0)
+				startTime.compareAndSet(0, System.nanoTime());
+		}
+		
+		/**
+		 * Checks whether this scope has been cancelled, either explicitly or
+		 * because its time budget is used up. A scope whose time budget has
+		 * not been started yet is never cancelled due to a timeout.
+		 * @return True if this scope has been cancelled, otherwise false
+		 */
+		public boolean isCancelled() {
+			if (cancelled)
+				return true;
+			if (timeout < 0)
+				return false;
+			
+			long start = startTime.get();
+			if (start == 0)
+				return false;
+			if (System.nanoTime() - start > timeout)
+				cancelled = true;
+			return cancelled;
+		}
+		
+		/**
+		 * Cancels all remaining tasks in this scope
+		 */
+		public void cancel() {
+			this.cancelled = true;
+		}
+		
+		/**
+		 * Records that a task of this scope has been dropped because the scope
+		 * was cancelled
+		 */
+		public void taskDropped() {
+			this.tasksDropped = true;
+		}
+		
+		/**
+		 * Gets whether at least one task of this scope has been dropped, i.e.,
+		 * whether the path reconstruction for this scope is incomplete
+		 * @return True if a task of this scope has been dropped, otherwise
+		 * false
+		 */
+		public boolean hasDroppedTasks() {
+			return tasksDropped;
+		}
+		
 	}
 	
 	/**
@@ -63,15 +170,33 @@ public class ContextSensitivePathBuilder extends AbstractAbstractionPathBuilder
 	 * 
 	 * @author Steven Arzt
 	 */
-	private class SourceFindingTask implements Runnable {
+	private class SourceFindingTask implements IMethodAffineTask {
 		private final Abstraction abstraction;
+		private final SinkScope scope;
 		
-		public SourceFindingTask(Abstraction abstraction) {
+		public SourceFindingTask(Abstraction abstraction, SinkScope scope) {
 			this.abstraction = abstraction;
+			this.scope = scope;
+		}
+		
+		@Override
+		public Object getAffinityKey() {
+			Stmt stmt = abstraction.getCurrentStmt();
+			return stmt == null ? null : icfg.getMethodOf(stmt);
 		}
 		
 		@Override
 		public void run() {
+			// Do not continue if the time budget of our sink or the global
+			// budget is used up
+			scope.start();
+			if (scope.isCancelled()) {
+				scope.taskDropped();
+				return;
+			}
+			if (isBudgetExhausted())
+				return;
+			
 			final Set<SourceContextAndPath> paths = abstraction.getPaths();
 			final Abstraction pred = abstraction.getPredecessor();
 			
@@ -80,14 +205,14 @@ public class ContextSensitivePathBuilder extends AbstractAbstractionPathBuilder
 					// Process the predecessor
 					if (processPredecessor(scap, pred))
 						// Schedule the predecessor
-						spawnSourceFindingTask(pred);
+						spawnSourceFindingTask(pred, scope);
 					
 					// Process the predecessor's neighbors
 					if (pred.getNeighbors() != null)
 						for (Abstraction neighbor : pred.getNeighbors())
 							if (processPredecessor(scap, neighbor))
 								// Schedule the predecessor
-								spawnSourceFindingTask(neighbor);
+								spawnSourceFindingTask(neighbor, scope);
 				}
 			}
 		}
@@ -176,16 +301,18 @@ public class ContextSensitivePathBuilder extends AbstractAbstractionPathBuilder
     	
     	// Start the propagation tasks
     	int curResIdx = 0;
+    	abortedSinks.set(0);
+    	List<SinkScope> scopes = new ArrayList<SinkScope>(res.size());
     	for (final AbstractionAtSink abs : res) {
     		logger.info("Building path " + ++curResIdx);
-   			buildPathForAbstraction(abs);
+   			scopes.add(buildPathForAbstraction(abs));
    			
    			// Also build paths for the neighbors of our result abstraction
    			if (abs.getAbstraction().getNeighbors() != null)
    				for (Abstraction neighbor : abs.getAbstraction().getNeighbors()) {
    					AbstractionAtSink neighborAtSink = new AbstractionAtSink(neighbor,
    							abs.getSinkStmt());
-   		   			buildPathForAbstraction(neighborAtSink);
+   		   			scopes.add(buildPathForAbstraction(neighborAtSink));
    				}
     	}
 
@@ -196,6 +323,14 @@ public class ContextSensitivePathBuilder extends AbstractAbstractionPathBuilder
 			ex.printStackTrace();
 		}
     	
+    	for (SinkScope scope : scopes)
+    		if (scope.hasDroppedTasks())
+    			abortedSinks.incrementAndGet();
+    	if (abortedSinks.get() > 0)
+    		logger.warn("Path reconstruction was aborted for {} of {} sinks because the "
+    				+ "time budget was exceeded, results may be incomplete",
+    				abortedSinks.get(), scopes.size());
+    	
     	logger.info("Path processing took {} seconds in total",
     			(System.nanoTime() - beforePathTracking) / 1E9);
 	}
@@ -203,28 +338,58 @@ public class ContextSensitivePathBuilder extends AbstractAbstractionPathBuilder
 	/**
 	 * Builds the path for the given abstraction that reached a sink
 	 * @param abs The abstraction that reached a sink
+	 * @return The scope in which the path reconstruction tasks for the given
+	 * abstraction run
 	 */
-	protected void buildPathForAbstraction(final AbstractionAtSink abs) {
+	protected SinkScope buildPathForAbstraction(final AbstractionAtSink abs) {
+		SinkScope scope = new SinkScope(sinkTimeout);
 		SourceContextAndPath scap = new SourceContextAndPath(
 				abs.getAbstraction().getAccessPath(), abs.getSinkStmt());
 		scap = scap.extendPath(abs.getAbstraction());
 		
 		if (abs.getAbstraction().addPathElement(scap))
 			if (!checkForSource(abs.getAbstraction(), scap))
-				spawnSourceFindingTask(abs.getAbstraction());
+				spawnSourceFindingTask(abs.getAbstraction(), scope);
+		return scope;
 	}
 	
 	/**
 	 * Schedules a new propagation task for execution
 	 * @param abs The abstraction for which to schedule a propagation task
+	 * @param scope The scope of the sink for which the task is run
+	 */
+	protected void spawnSourceFindingTask(Abstraction abs, SinkScope scope) {
+		if (scope.isCancelled())
+			scope.taskDropped();
+		else
+			executor.execute(new SourceFindingTask(abs, scope));
+	}
+	
+	/**
+	 * Sets the time budget for reconstructing the paths to a single sink. If
+	 * the budget is exceeded, the remaining tasks for this sink are cancelled
+	 * and the results found so far are kept.
+	 * @param timeout The time budget per sink, or a negative value for no
+	 * time budget
+	 * @param unit The unit of the timeout value
+	 */
+	public void setSinkTimeout(long timeout, TimeUnit unit) {
+		this.sinkTimeout = timeout < 0 ? -1 : unit.toNanos(timeout);
+	}
+	
+	/**
+	 * Gets the number of sinks for which the path reconstruction was aborted
+	 * in the last run because the time budget was exceeded
+	 * @return The number of sinks with incomplete path reconstruction
 	 */
-	protected void spawnSourceFindingTask(Abstraction abs) {
-		executor.execute(new SourceFindingTask(abs));
+	public int getAbortedSinkCount() {
+		return abortedSinks.get();
 	}
 	
 	@Override
 	public void shutdown() {
-    	executor.shutdown();		
+		if (shutdownExecutor)
+			executor.shutdown();
 	}
 
 	@Override
@@ -1,5 +1,9 @@
 package soot.jimple.infoflow.data.pathBuilders;
 
+import heros.solver.CountingThreadPoolExecutor;
+
+import java.util.concurrent.TimeUnit;
+
 import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 
 /**
@@ -10,6 +14,7 @@ import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
 public class DefaultPathBuilderFactory implements IPathBuilderFactory {
 	
 	private final boolean reconstructPaths;
+	private long sinkTimeout = -1;
 	
 	/**
 	 * Enumeration containing the supported path builders
@@ -73,8 +78,10 @@ public class DefaultPathBuilderFactory implements IPathBuilderFactory {
 			return new RecursivePathBuilder(icfg, maxThreadNum,
 					reconstructPaths);
 		case ContextSensitive :
-			return new ContextSensitivePathBuilder(icfg, maxThreadNum,
-					reconstructPaths);
+			ContextSensitivePathBuilder csBuilder = new ContextSensitivePathBuilder(
+					icfg, maxThreadNum, reconstructPaths);
+			csBuilder.setSinkTimeout(sinkTimeout, TimeUnit.SECONDS);
+			return csBuilder;
 		case ContextInsensitive :
 			return new ContextInsensitivePathBuilder(icfg, maxThreadNum,
 					reconstructPaths);
@@ -86,6 +93,47 @@ public class DefaultPathBuilderFactory implements IPathBuilderFactory {
 		throw new RuntimeException("Unsupported path building algorithm");
 	}
 
+	/**
+	 * Creates a new path builder that runs on the given shared executor. The
+	 * path builder does not shut down this executor.
+	 * @param executor The executor on which to run the path reconstruction
+	 * tasks
+	 * @param icfg The interprocedural CFG to use
+	 * @return The newly created path builder
+	 */
+	public IAbstractionPathBuilder createPathBuilder(CountingThreadPoolExecutor executor,
+			IInfoflowCFG icfg) {
+		switch (pathBuilder) {
+		case Recursive :
+			return new RecursivePathBuilder(icfg, executor, reconstructPaths);
+		case ContextSensitive :
+			ContextSensitivePathBuilder csBuilder = new ContextSensitivePathBuilder(
+					icfg, executor, reconstructPaths);
+			csBuilder.setSinkTimeout(sinkTimeout, TimeUnit.SECONDS);
+			return csBuilder;
+		case ContextInsensitive :
+			return new ContextInsensitivePathBuilder(icfg, executor, reconstructPaths);
+		case ContextInsensitiveSourceFinder :
+			return new ContextInsensitiveSourceFinder(icfg, executor);
+		case None:
+			return new EmptyPathBuilder();
+		}
+		throw new RuntimeException("Unsupported path building algorithm");
+	}
+	
+	/**
+	 * Sets the time budget for reconstructing the paths to a single sink. Each
+	 * abstraction at a sink is processed in its own scope, which is cancelled
+	 * once it exceeds this budget. The results found until then are kept. This
+	 * setting is only supported by the context-sensitive path builder and
+	 * applies to all path builders created afterwards.
+	 * @param sinkTimeout The time budget per sink in seconds, or a negative
+	 * value for no time budget
+	 */
+	public void setSinkTimeout(long sinkTimeout) {
+		this.sinkTimeout = sinkTimeout;
+	}
+	
 	@Override
 	public boolean supportsPathReconstruction() {
 		switch (pathBuilder) {
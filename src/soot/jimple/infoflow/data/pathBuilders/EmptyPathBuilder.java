@@ -4,6 +4,7 @@ import java.util.Set;
 
 import soot.jimple.infoflow.data.AbstractionAtSink;
 import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.util.AnalysisBudget;
 
 /**
  * An empty implementation of {@link IAbstractionPathBuilder} that always
@@ -22,6 +23,10 @@ public class EmptyPathBuilder implements IAbstractionPathBuilder {
 		return new InfoflowResults();
 	}
 
+	@Override
+	public void setAnalysisBudget(AnalysisBudget budget) {
+	}
+
 	@Override
 	public void shutdown() {
 	}
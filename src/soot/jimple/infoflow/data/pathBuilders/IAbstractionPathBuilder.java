@@ -4,6 +4,7 @@ import java.util.Set;
 
 import soot.jimple.infoflow.data.AbstractionAtSink;
 import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.util.AnalysisBudget;
 
 /**
  * Common interface for all path construction algorithms. These algorithms
@@ -25,6 +26,14 @@ public interface IAbstractionPathBuilder {
 	 */
 	public InfoflowResults getResults();
 
+	/**
+	 * Sets the time and memory budget for the path reconstruction. Once the
+	 * budget is used up, the path builder stops and only reports the results
+	 * it has found so far.
+	 * @param budget The budget, or null to build all paths
+	 */
+	public void setAnalysisBudget(AnalysisBudget budget);
+	
 	/**
 	 * Shuts down the path processing
 	 */
@@ -8,8 +8,6 @@ import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Set;
 import java.util.Stack;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +30,7 @@ public class RecursivePathBuilder extends AbstractAbstractionPathBuilder {
 
     private final InfoflowResults results = new InfoflowResults();
 	private final CountingThreadPoolExecutor executor;
+	private final boolean shutdownExecutor;
     
 	private static int lastTaskId = 0;
 
@@ -44,21 +43,25 @@ public class RecursivePathBuilder extends AbstractAbstractionPathBuilder {
     public RecursivePathBuilder(IInfoflowCFG icfg, int maxThreadNum,
     		boolean reconstructPaths) {
     	super(icfg, reconstructPaths);
-    	int numThreads = Runtime.getRuntime().availableProcessors();
-		this.executor = createExecutor(maxThreadNum == -1 ? numThreads
-				: Math.min(maxThreadNum, numThreads));
+		this.executor = createExecutor(maxThreadNum);
+		this.shutdownExecutor = true;
     }
-
+    
 	/**
-	 * Creates a new executor object for spawning worker threads
-	 * @param numThreads The number of threads to use
-	 * @return The generated executor
-	 */
-	private CountingThreadPoolExecutor createExecutor(int numThreads) {
-		return new CountingThreadPoolExecutor
-				(numThreads, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>());
-	}
+     * Creates a new instance of the {@link RecursivePathBuilder} class that
+     * runs on a shared executor. The executor is not shut down when the path
+     * builder is done.
+	 * @param executor The executor on which to run the path reconstruction
+	 * tasks
+	 * @param reconstructPaths True if the exact propagation path between source
+	 * and sink shall be reconstructed.
+     */
+    public RecursivePathBuilder(IInfoflowCFG icfg,
+    		CountingThreadPoolExecutor executor, boolean reconstructPaths) {
+    	super(icfg, reconstructPaths);
+		this.executor = executor;
+		this.shutdownExecutor = false;
+    }
 	
 	/**
 	 * Gets the path of statements from the source to the current statement
@@ -70,6 +73,9 @@ public class RecursivePathBuilder extends AbstractAbstractionPathBuilder {
 	 */
 	private Set<SourceContextAndPath> getPaths(int taskId, Abstraction curAbs,
 			Stack<Pair<Stmt, Set<Abstraction>>> callStack) {
+		if (isBudgetExhausted())
+			return Collections.emptySet();
+		
 		Set<SourceContextAndPath> cacheData = new HashSet<SourceContextAndPath>();
 		
 		Pair<Stmt, Set<Abstraction>> stackTop = callStack.isEmpty() ? null : callStack.peek();
@@ -152,6 +158,9 @@ public class RecursivePathBuilder extends AbstractAbstractionPathBuilder {
 				
 				@Override
 				public void run() {
+					if (isBudgetExhausted())
+						return;
+					
 					Stack<Pair<Stmt, Set<Abstraction>>> initialStack = new Stack<Pair<Stmt, Set<Abstraction>>>();
 					initialStack.push(new Pair<Stmt, Set<Abstraction>>(null,
 							Collections.newSetFromMap(new IdentityHashMap<Abstraction,Boolean>())));
@@ -176,7 +185,8 @@ public class RecursivePathBuilder extends AbstractAbstractionPathBuilder {
 			logger.error("Could not wait for path executor completion: {0}", ex.getMessage());
 			ex.printStackTrace();
 		}
-    	executor.shutdown();
+    	if (shutdownExecutor)
+    		executor.shutdown();
     	logger.debug("Path reconstruction done.");
 	}
 	
@@ -0,0 +1,38 @@
+package soot.jimple.infoflow.handlers;
+
+import soot.jimple.infoflow.results.ResultSinkInfo;
+import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Handler that is notified about information flow results while the taint
+ * propagation is still running. The results reported through this handler
+ * are preliminary. They have not been pruned yet, and the final results that
+ * are passed to the {@link ResultsAvailableHandler} may contain additional
+ * sources for the same sink.
+ *
+ * The callbacks are invoked from the worker threads of the data flow solver,
+ * so implementations must be thread-safe and should return quickly.
+ */
+public interface StreamingResultsHandler {
+
+	/**
+	 * Callback that is invoked when a tainted value has reached a sink
+	 * @param cfg The program graph
+	 * @param sink The sink that has been reached
+	 */
+	public void onSinkReached(IInfoflowCFG cfg, ResultSinkInfo sink);
+
+	/**
+	 * Callback that is invoked when a source for a sink that has been reached
+	 * was found. This callback is only invoked if incremental path building is
+	 * enabled in the data flow configuration. The same connection is reported
+	 * at most once.
+	 * @param cfg The program graph
+	 * @param sink The sink that has been reached
+	 * @param source The source from which the tainted value originates
+	 */
+	public void onSourceSinkConnection(IInfoflowCFG cfg, ResultSinkInfo sink,
+			ResultSourceInfo source);
+
+}
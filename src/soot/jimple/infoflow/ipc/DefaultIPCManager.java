@@ -10,9 +10,14 @@
  ******************************************************************************/
 package soot.jimple.infoflow.ipc;
 
+import heros.InterproceduralCFG;
+
 import java.util.List;
 
 import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.util.SignatureMatcher;
 
 /**
  * A {@link IIPCManager} working on lists of IPC methods
@@ -21,14 +26,14 @@ import soot.SootMethod;
  */
 public class DefaultIPCManager extends MethodBasedIPCManager {
 
-	private List<String> ipcMethods;
+	private SignatureMatcher ipcMatcher;
 	
 	/**
 	 * Creates a new instance of the {@link DefaultIPCManager} class
 	 * @param ipcMethods The list of methods to be treated as IPCs
 	 */
 	public DefaultIPCManager(List<String> ipcMethods) {
-		this.ipcMethods = ipcMethods;
+		this.ipcMatcher = new SignatureMatcher(ipcMethods);
 	}
 
 	
@@ -37,12 +42,18 @@ public class DefaultIPCManager extends MethodBasedIPCManager {
 	 * @param ipcMethods The list of methods to be treated as IPCs
 	 */
 	public void setSinks(List<String> ipcMethods){
-		this.ipcMethods = ipcMethods;
+		this.ipcMatcher = new SignatureMatcher(ipcMethods);
 	}
 	
 	@Override
 	public boolean isIPCMethod(SootMethod sMethod) {
-		return ipcMethods.contains(sMethod.toString());
+		return ipcMatcher.matches(sMethod);
+	}
+	
+	@Override
+	public boolean isIPC(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+		assert sCallSite != null;
+		return ipcMatcher.matchesCallee(sCallSite);
 	}
 
 	@Override
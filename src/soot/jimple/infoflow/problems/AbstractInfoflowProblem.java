@@ -183,7 +183,7 @@ public abstract class AbstractInfoflowProblem extends DefaultJimpleIFDSTabulatio
 	 * @param unit The unit to be considered as a seed
 	 * @param seeds The abstractions with which to start at the given seed
 	 */
-	public void addInitialSeeds(Unit unit, Set<Abstraction> seeds) {
+	public synchronized void addInitialSeeds(Unit unit, Set<Abstraction> seeds) {
 		if (this.initialSeeds.containsKey(unit))
 			this.initialSeeds.get(unit).addAll(seeds);
 		else
@@ -986,4 +986,13 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
    		return this.results.getResults();
 	}
     
+	/**
+	 * Gets the collection into which the results of the data flow analysis are
+	 * written while the taint propagation is running
+	 * @return The collection of taint propagation results
+	 */
+	public TaintPropagationResults getTaintPropagationResults() {
+		return this.results;
+	}
+    
 }
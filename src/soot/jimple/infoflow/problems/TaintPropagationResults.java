@@ -1,6 +1,8 @@
 package soot.jimple.infoflow.problems;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import soot.jimple.infoflow.InfoflowManager;
 import soot.jimple.infoflow.collect.MyConcurrentHashMap;
@@ -16,9 +18,26 @@ import soot.jimple.infoflow.util.SystemClassHandler;
  */
 public class TaintPropagationResults {
 	
+	/**
+	 * Handler that is notified whenever a new result is added to the
+	 * collection. Implementations must be thread-safe since results are added
+	 * by the worker threads of the solver.
+	 */
+	public interface OnTaintPropagationResultAdded {
+		
+		/**
+		 * Callback that is invoked when a new result is available
+		 * @param resultAbs The abstraction at the sink instruction
+		 */
+		public void onResultAvailable(AbstractionAtSink resultAbs);
+		
+	}
+	
 	protected final InfoflowManager manager;
 	protected final MyConcurrentHashMap<AbstractionAtSink, Abstraction> results =
 			new MyConcurrentHashMap<AbstractionAtSink, Abstraction>();
+	protected final List<OnTaintPropagationResultAdded> resultAddedHandlers =
+			new CopyOnWriteArrayList<OnTaintPropagationResultAdded>();
 
 	/**
 	 * Creates a new instance of the TaintPropagationResults class
@@ -51,6 +70,19 @@ public class TaintPropagationResults {
 				(resultAbs, resultAbs.getAbstraction());
 		if (newAbs != resultAbs.getAbstraction())
 			newAbs.addNeighbor(resultAbs.getAbstraction());
+		else
+			for (OnTaintPropagationResultAdded handler : resultAddedHandlers)
+				handler.onResultAvailable(resultAbs);
+	}
+	
+	/**
+	 * Adds a handler that is notified whenever a new result is added to this
+	 * collection. Results that only add another path to an existing result
+	 * are not reported again.
+	 * @param handler The handler to add
+	 */
+	public void addResultAvailableHandler(OnTaintPropagationResultAdded handler) {
+		this.resultAddedHandlers.add(handler);
 	}
 	
 	/**
@@ -0,0 +1,173 @@
+package soot.jimple.infoflow.results;
+
+/**
+ * Statistics on how far a data flow analysis got. This is mainly useful for
+ * runs that have been cut short by a time or memory budget.
+ */
+public class InfoflowPerformanceData {
+
+	private double dataFlowSeconds = -1;
+	private double pathReconstructionSeconds = -1;
+	private long forwardPropagationCount = -1;
+	private long backwardPropagationCount = -1;
+	private long forwardJumpFunctionCount = -1;
+	private long backwardJumpFunctionCount = -1;
+	private int resultsAtSinks = -1;
+	private long maxMemoryConsumption = -1;
+
+	/**
+	 * Gets the time spent in the taint propagation
+	 * @return The time spent in the taint propagation in seconds, or -1 if
+	 * the taint propagation has not been run
+	 */
+	public double getDataFlowSeconds() {
+		return dataFlowSeconds;
+	}
+
+	/**
+	 * Sets the time spent in the taint propagation
+	 * @param dataFlowSeconds The time spent in the taint propagation in
+	 * seconds
+	 */
+	public void setDataFlowSeconds(double dataFlowSeconds) {
+		this.dataFlowSeconds = dataFlowSeconds;
+	}
+
+	/**
+	 * Gets the time spent in the path reconstruction
+	 * @return The time spent in the path reconstruction in seconds, or -1 if
+	 * the path reconstruction has not been run
+	 */
+	public double getPathReconstructionSeconds() {
+		return pathReconstructionSeconds;
+	}
+
+	/**
+	 * Sets the time spent in the path reconstruction
+	 * @param pathReconstructionSeconds The time spent in the path
+	 * reconstruction in seconds
+	 */
+	public void setPathReconstructionSeconds(double pathReconstructionSeconds) {
+		this.pathReconstructionSeconds = pathReconstructionSeconds;
+	}
+
+	/**
+	 * Gets the number of edges the forward solver has propagated
+	 * @return The number of edges the forward solver has propagated, or -1
+	 * if this number is not known
+	 */
+	public long getForwardPropagationCount() {
+		return forwardPropagationCount;
+	}
+
+	/**
+	 * Sets the number of edges the forward solver has propagated
+	 * @param forwardPropagationCount The number of edges the forward solver
+	 * has propagated
+	 */
+	public void setForwardPropagationCount(long forwardPropagationCount) {
+		this.forwardPropagationCount = forwardPropagationCount;
+	}
+
+	/**
+	 * Gets the number of edges the backward solver has propagated
+	 * @return The number of edges the backward solver has propagated, or -1
+	 * if this number is not known
+	 */
+	public long getBackwardPropagationCount() {
+		return backwardPropagationCount;
+	}
+
+	/**
+	 * Sets the number of edges the backward solver has propagated
+	 * @param backwardPropagationCount The number of edges the backward solver
+	 * has propagated
+	 */
+	public void setBackwardPropagationCount(long backwardPropagationCount) {
+		this.backwardPropagationCount = backwardPropagationCount;
+	}
+
+	/**
+	 * Gets the number of jump functions the forward solver has recorded
+	 * @return The number of jump functions the forward solver has recorded,
+	 * or -1 if this number is not known
+	 */
+	public long getForwardJumpFunctionCount() {
+		return forwardJumpFunctionCount;
+	}
+
+	/**
+	 * Sets the number of jump functions the forward solver has recorded
+	 * @param forwardJumpFunctionCount The number of jump functions the
+	 * forward solver has recorded
+	 */
+	public void setForwardJumpFunctionCount(long forwardJumpFunctionCount) {
+		this.forwardJumpFunctionCount = forwardJumpFunctionCount;
+	}
+
+	/**
+	 * Gets the number of jump functions the backward solver has recorded
+	 * @return The number of jump functions the backward solver has recorded,
+	 * or -1 if this number is not known
+	 */
+	public long getBackwardJumpFunctionCount() {
+		return backwardJumpFunctionCount;
+	}
+
+	/**
+	 * Sets the number of jump functions the backward solver has recorded
+	 * @param backwardJumpFunctionCount The number of jump functions the
+	 * backward solver has recorded
+	 */
+	public void setBackwardJumpFunctionCount(long backwardJumpFunctionCount) {
+		this.backwardJumpFunctionCount = backwardJumpFunctionCount;
+	}
+
+	/**
+	 * Gets the number of abstractions that have reached a sink
+	 * @return The number of abstractions that have reached a sink, or -1 if
+	 * this number is not known
+	 */
+	public int getResultsAtSinks() {
+		return resultsAtSinks;
+	}
+
+	/**
+	 * Sets the number of abstractions that have reached a sink
+	 * @param resultsAtSinks The number of abstractions that have reached a
+	 * sink
+	 */
+	public void setResultsAtSinks(int resultsAtSinks) {
+		this.resultsAtSinks = resultsAtSinks;
+	}
+
+	/**
+	 * Gets the maximum memory consumption during the analysis
+	 * @return The maximum memory consumption in megabytes, or -1 if this
+	 * number is not known
+	 */
+	public long getMaxMemoryConsumption() {
+		return maxMemoryConsumption;
+	}
+
+	/**
+	 * Sets the maximum memory consumption during the analysis
+	 * @param maxMemoryConsumption The maximum memory consumption in megabytes
+	 */
+	public void setMaxMemoryConsumption(long maxMemoryConsumption) {
+		this.maxMemoryConsumption = maxMemoryConsumption;
+	}
+
+	@Override
+	public String toString() {
+		return "Taint propagation: " + dataFlowSeconds + " seconds, "
+				+ forwardPropagationCount + " forward and "
+				+ backwardPropagationCount + " backward edges, "
+				+ forwardJumpFunctionCount + " forward and "
+				+ backwardJumpFunctionCount + " backward jump functions, "
+				+ resultsAtSinks + " results at sinks; path reconstruction: "
+				+ pathReconstructionSeconds + " seconds; maximum memory consumption: "
+				+ maxMemoryConsumption + " MB";
+	}
+
+}
@@ -14,6 +14,8 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 
@@ -34,15 +36,91 @@ import soot.util.MultiMap;
  */
 public class InfoflowResults {
 	
+	/**
+	 * The reasons for which a data flow analysis may have terminated before
+	 * computing all results
+	 */
+	public enum TerminationReason {
+		/**
+		 * The time budget was exceeded during the taint propagation
+		 */
+		DataFlowTimeout,
+		/**
+		 * The memory budget was exceeded during the taint propagation
+		 */
+		DataFlowOutOfMemory,
+		/**
+		 * The time budget was exceeded during the path reconstruction
+		 */
+		PathReconstructionTimeout,
+		/**
+		 * The memory budget was exceeded during the path reconstruction
+		 */
+		PathReconstructionOutOfMemory,
+		/**
+		 * The analysis was cancelled explicitly
+		 */
+		Cancelled
+	}
+	
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 		
 	private final MultiMap<ResultSinkInfo, ResultSourceInfo> results =
 			new ConcurrentHashMultiMap<ResultSinkInfo, ResultSourceInfo>();
+	private final Set<TerminationReason> terminationReasons =
+			EnumSet.noneOf(TerminationReason.class);
+	private InfoflowPerformanceData performanceData = null;
 	
 	public InfoflowResults() {
 		
 	}
 	
+	/**
+	 * Gets whether the data flow analysis ran to completion. If it did not,
+	 * this object only contains the results that were found until the
+	 * analysis was stopped.
+	 * @return True if the analysis ran to completion, false if the results
+	 * are incomplete
+	 */
+	public synchronized boolean isComplete() {
+		return terminationReasons.isEmpty();
+	}
+	
+	/**
+	 * Gets the reasons why the data flow analysis did not run to completion
+	 * @return The reasons why the results are incomplete. If the analysis ran
+	 * to completion, the set is empty.
+	 */
+	public synchronized Set<TerminationReason> getTerminationReasons() {
+		return Collections.unmodifiableSet(EnumSet.copyOf(terminationReasons));
+	}
+	
+	/**
+	 * Marks the results as incomplete
+	 * @param reason The reason why the data flow analysis did not run to
+	 * completion
+	 */
+	public synchronized void addTerminationReason(TerminationReason reason) {
+		this.terminationReasons.add(reason);
+	}
+	
+	/**
+	 * Gets the statistics on how far the data flow analysis got
+	 * @return The statistics of the data flow analysis, or null if no
+	 * statistics are available
+	 */
+	public InfoflowPerformanceData getPerformanceData() {
+		return this.performanceData;
+	}
+	
+	/**
+	 * Sets the statistics on how far the data flow analysis got
+	 * @param performanceData The statistics of the data flow analysis
+	 */
+	public void setPerformanceData(InfoflowPerformanceData performanceData) {
+		this.performanceData = performanceData;
+	}
+	
 	/**
 	 * Gets the number of entries in this result object
 	 * @return The number of entries in this result object
@@ -150,7 +228,11 @@ public class InfoflowResults {
 	 * @param results The data structure from which to copy the results
 	 */
 	public void addAll(InfoflowResults results) {
-		if (results == null || results.isEmpty())
+		if (results == null)
+			return;
+		for (TerminationReason reason : results.getTerminationReasons())
+			addTerminationReason(reason);
+		if (results.isEmpty())
 			return;
 		
 		for (ResultSinkInfo sink : results.getResults().keySet())
@@ -0,0 +1,195 @@
+package soot.jimple.infoflow.results;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soot.SootField;
+import soot.Value;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AbstractionAtSink;
+import soot.jimple.infoflow.data.AccessPath;
+
+/**
+ * Removes all abstractions at sinks whose access path is entailed by the
+ * access path of another abstraction that reached the same sink. Instead of
+ * comparing all pairs of results, the results are grouped by sink statement,
+ * implicit flag, and base value. Within each group, the access paths are
+ * indexed by their fields, so that only the results whose fields are a prefix
+ * of the current result's fields need to be checked.
+ *
+ * The outcome is the same as the one of comparing all pairs in the iteration
+ * order of the result set: If two access paths entail each other, the one that
+ * comes first is removed.
+ */
+public class SinkResultPruner {
+
+	/**
+	 * Key for grouping the results that can entail each other
+	 */
+	private static class GroupKey {
+
+		private final Stmt sinkStmt;
+		private final boolean implicit;
+		private final Value base;
+
+		public GroupKey(AbstractionAtSink abs) {
+			this.sinkStmt = abs.getSinkStmt();
+			this.implicit = abs.getAbstraction().isImplicit();
+			this.base = abs.getAbstraction().getAccessPath().getPlainValue();
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + System.identityHashCode(sinkStmt);
+			result = prime * result + (implicit ? 1231 : 1237);
+			result = prime * result + ((base == null) ? 0 : base.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			GroupKey other = (GroupKey) obj;
+			if (sinkStmt != other.sinkStmt)
+				return false;
+			if (implicit != other.implicit)
+				return false;
+			if (base == null)
+				return other.base == null;
+			return base.equals(other.base);
+		}
+
+	}
+
+	/**
+	 * Index over the results in one group
+	 */
+	private static class Group {
+
+		private final Map<List<SootField>, List<AbstractionAtSink>> byFields =
+				new HashMap<List<SootField>, List<AbstractionAtSink>>();
+		private final List<AbstractionAtSink> members = new ArrayList<AbstractionAtSink>();
+
+		public void add(AbstractionAtSink abs) {
+			members.add(abs);
+			List<SootField> key = getFieldList(abs.getAbstraction().getAccessPath());
+			List<AbstractionAtSink> list = byFields.get(key);
+			if (list == null) {
+				list = new ArrayList<AbstractionAtSink>(2);
+				byFields.put(key, list);
+			}
+			list.add(abs);
+		}
+
+		/**
+		 * Checks whether another result in this group that has not been
+		 * removed yet entails the given result
+		 * @param abs The result to check
+		 * @param removed The results that have already been removed
+		 * @return True if the given result is entailed by another one,
+		 * otherwise false
+		 */
+		public boolean isEntailed(AbstractionAtSink abs,
+				Map<AbstractionAtSink, Boolean> removed) {
+			AccessPath ap = abs.getAbstraction().getAccessPath();
+			SootField[] fields = ap.getFields();
+
+			// An access path without fields is entailed by every other access
+			// path on the same base
+			if (fields == null || fields.length == 0)
+				return isEntailedBy(abs, members, removed);
+
+			// Otherwise, only access paths without fields or with a prefix of
+			// our fields are candidates
+			if (isEntailedBy(abs, byFields.get(Collections.<SootField>emptyList()), removed))
+				return true;
+			for (int i = 1; i <= fields.length; i++)
+				if (isEntailedBy(abs, byFields.get(Arrays.asList(fields).subList(0, i)), removed))
+					return true;
+			return false;
+		}
+
+		private boolean isEntailedBy(AbstractionAtSink abs,
+				List<AbstractionAtSink> candidates,
+				Map<AbstractionAtSink, Boolean> removed) {
+			if (candidates == null)
+				return false;
+			AccessPath ap = abs.getAbstraction().getAccessPath();
+			for (AbstractionAtSink candidate : candidates)
+				if (candidate != abs
+						&& !removed.containsKey(candidate)
+						&& candidate.getAbstraction().getAccessPath().entails(ap))
+					return true;
+			return false;
+		}
+
+	}
+
+	/**
+	 * Gets the fields of the given access path as a list
+	 * @param ap The access path
+	 * @return The fields of the given access path, or the empty list if the
+	 * access path has no fields
+	 */
+	private static List<SootField> getFieldList(AccessPath ap) {
+		SootField[] fields = ap.getFields();
+		if (fields == null || fields.length == 0)
+			return Collections.emptyList();
+		return Arrays.asList(fields);
+	}
+
+	/**
+	 * Removes all results whose access path is entailed by the access path of
+	 * another result at the same sink from the given set
+	 * @param results The set of results to prune. This set is modified in
+	 * place.
+	 * @return The number of results that have been removed
+	 */
+	public int prune(Set<AbstractionAtSink> results) {
+		if (results == null || results.size() < 2)
+			return 0;
+
+		// Take a snapshot so that we process the results in a fixed order
+		List<AbstractionAtSink> ordered = new ArrayList<AbstractionAtSink>(results);
+		Map<GroupKey, Group> groups = new HashMap<GroupKey, Group>();
+		List<Group> groupOfResult = new ArrayList<Group>(ordered.size());
+		for (AbstractionAtSink abs : ordered) {
+			GroupKey key = new GroupKey(abs);
+			Group group = groups.get(key);
+			if (group == null) {
+				group = new Group();
+				groups.put(key, group);
+			}
+			group.add(abs);
+			groupOfResult.add(group);
+		}
+
+		// Nothing can be pruned if every result is alone in its group
+		if (groups.size() == ordered.size())
+			return 0;
+
+		Map<AbstractionAtSink, Boolean> removed =
+				new IdentityHashMap<AbstractionAtSink, Boolean>();
+		for (int i = 0; i < ordered.size(); i++) {
+			AbstractionAtSink abs = ordered.get(i);
+			if (groupOfResult.get(i).isEntailed(abs, removed))
+				removed.put(abs, Boolean.TRUE);
+		}
+
+		for (AbstractionAtSink abs : removed.keySet())
+			results.remove(abs);
+		return removed.size();
+	}
+
+}
@@ -0,0 +1,158 @@
+package soot.jimple.infoflow.results;
+
+import heros.solver.CountingThreadPoolExecutor;
+import heros.solver.Pair;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.infoflow.collect.ConcurrentHashSet;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AbstractionAtSink;
+import soot.jimple.infoflow.data.SourceContext;
+import soot.jimple.infoflow.handlers.StreamingResultsHandler;
+import soot.jimple.infoflow.problems.TaintPropagationResults.OnTaintPropagationResultAdded;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Forwards the results of the taint propagation to a set of
+ * {@link StreamingResultsHandler} objects as soon as the solver finds them.
+ * If incremental path building is enabled, the sources of every new result
+ * are looked up on a separate thread while the solver keeps running.
+ *
+ * The incremental source lookup must not interfere with the path builder
+ * that computes the final results after the taint propagation. It therefore
+ * does not use the path caches and flags inside the abstractions, but walks
+ * the predecessor graph with its own visited set. Since the solver can still
+ * add neighbors to abstractions that have already been visited, the lookup
+ * may miss some sources. These are only contained in the final results.
+ */
+public class StreamingResultDispatcher implements OnTaintPropagationResultAdded {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final IInfoflowCFG icfg;
+	private final List<StreamingResultsHandler> handlers;
+	private final CountingThreadPoolExecutor executor;
+
+	private final Set<Pair<ResultSinkInfo, ResultSourceInfo>> reportedConnections =
+			new ConcurrentHashSet<Pair<ResultSinkInfo, ResultSourceInfo>>();
+
+	/**
+	 * Creates a new instance of the {@link StreamingResultDispatcher} class
+	 * @param icfg The interprocedural control flow graph
+	 * @param handlers The handlers to notify about new results
+	 * @param incrementalPathBuilding True if the sources of new results shall
+	 * be looked up while the taint propagation is still running, otherwise
+	 * false
+	 */
+	public StreamingResultDispatcher(IInfoflowCFG icfg,
+			Collection<StreamingResultsHandler> handlers,
+			boolean incrementalPathBuilding) {
+		this.icfg = icfg;
+		this.handlers = new ArrayList<StreamingResultsHandler>(handlers);
+		this.executor = incrementalPathBuilding ? new CountingThreadPoolExecutor(1, 1,
+				30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()) : null;
+	}
+
+	/**
+	 * Task that looks up the sources of a single result
+	 */
+	private class SourceLookupTask implements Runnable {
+
+		private final AbstractionAtSink resultAbs;
+		private final ResultSinkInfo sinkInfo;
+
+		public SourceLookupTask(AbstractionAtSink resultAbs, ResultSinkInfo sinkInfo) {
+			this.resultAbs = resultAbs;
+			this.sinkInfo = sinkInfo;
+		}
+
+		@Override
+		public void run() {
+			Map<Abstraction, Boolean> doneSet = new IdentityHashMap<Abstraction, Boolean>();
+			Deque<Abstraction> workList = new ArrayDeque<Abstraction>();
+			workList.add(resultAbs.getAbstraction());
+			doneSet.put(resultAbs.getAbstraction(), Boolean.TRUE);
+
+			while (!workList.isEmpty()) {
+				Abstraction abs = workList.poll();
+
+				SourceContext sourceContext = abs.getSourceContext();
+				if (sourceContext != null) {
+					ResultSourceInfo sourceInfo = new ResultSourceInfo(
+							sourceContext.getAccessPath(), sourceContext.getStmt(),
+							sourceContext.getUserData(), null, null);
+					if (reportedConnections.add(new Pair<ResultSinkInfo, ResultSourceInfo>(
+							sinkInfo, sourceInfo)))
+						for (StreamingResultsHandler handler : handlers)
+							handler.onSourceSinkConnection(icfg, sinkInfo, sourceInfo);
+				}
+
+				Abstraction pred = abs.getPredecessor();
+				if (pred != null && doneSet.put(pred, Boolean.TRUE) == null)
+					workList.add(pred);
+				for (Abstraction nb : getNeighbors(abs))
+					if (doneSet.put(nb, Boolean.TRUE) == null)
+						workList.add(nb);
+			}
+		}
+
+		/**
+		 * Gets a snapshot of the neighbors of the given abstraction. The
+		 * solver may add further neighbors concurrently.
+		 * @param abs The abstraction for which to get the neighbors
+		 * @return The current neighbors of the given abstraction
+		 */
+		private Collection<Abstraction> getNeighbors(Abstraction abs) {
+			synchronized (abs) {
+				Set<Abstraction> neighbors = abs.getNeighbors();
+				if (neighbors == null || neighbors.isEmpty())
+					return Collections.emptyList();
+				return new ArrayList<Abstraction>(neighbors);
+			}
+		}
+
+	}
+
+	@Override
+	public void onResultAvailable(AbstractionAtSink resultAbs) {
+		ResultSinkInfo sinkInfo = new ResultSinkInfo(
+				resultAbs.getAbstraction().getAccessPath(), resultAbs.getSinkStmt());
+		for (StreamingResultsHandler handler : handlers)
+			handler.onSinkReached(icfg, sinkInfo);
+		if (executor != null)
+			executor.execute(new SourceLookupTask(resultAbs, sinkInfo));
+	}
+
+	/**
+	 * Waits until all pending source lookups have been completed and shuts
+	 * down the executor
+	 */
+	public void shutdown() {
+		if (executor == null)
+			return;
+		try {
+			executor.awaitCompletion();
+		}
+		catch (InterruptedException ex) {
+			logger.error("Could not wait for incremental path building to complete", ex);
+		}
+		executor.shutdown();
+		logger.info("Incrementally found {} connections between sources and sinks",
+				reportedConnections.size());
+	}
+
+}
@@ -0,0 +1,17 @@
+package soot.jimple.infoflow.solver;
+
+/**
+ * Common interface of all solvers that can release parts of their internal
+ * state when the analysis runs low on memory
+ */
+public interface IMemoryBoundedSolver {
+	
+	/**
+	 * Tells the solver to move internal state that has not been used recently
+	 * out of the heap. The solver must be able to transparently restore this
+	 * state when it is needed again.
+	 * @return The number of entries that have been evicted
+	 */
+	public int evictColdState();
+	
+}
@@ -0,0 +1,618 @@
+package soot.jimple.infoflow.solver.cfg;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.MethodOrMethodContext;
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.infoflow.util.ParallelRange;
+import soot.jimple.infoflow.util.ParallelRange.IRangeVisitor;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+import soot.jimple.toolkits.ide.icfg.JimpleBasedInterproceduralCFG;
+import soot.toolkits.graph.DirectedGraph;
+
+/**
+ * Immutable snapshot of an interprocedural control flow graph. All units and
+ * methods are numbered densely, and the graph is stored in compressed sparse
+ * row form: the successors, predecessors and callees of a unit and the callers
+ * of a method are ranges in flat integer arrays. Call statements, exit
+ * statements, start points and return sites are kept in bitsets. Lookups
+ * therefore do not go through the caches of the original graph.
+ *
+ * The snapshot must only be taken once the callgraph and the method bodies no
+ * longer change. Units that are not part of the snapshot and methods that
+ * have been reported as changed are answered by the original graph.
+ * Queries that are not on the hot path of the solver are always delegated to
+ * the original graph.
+ */
+public class FrozenInterproceduralCFG implements BiDiInterproceduralCFG<Unit, SootMethod> {
+
+	private static final Logger logger = LoggerFactory.getLogger(FrozenInterproceduralCFG.class);
+
+	/**
+	 * The maximum number of methods to process without splitting the range
+	 */
+	private static final int BATCH_SIZE = 32;
+
+	private final BiDiInterproceduralCFG<Unit, SootMethod> source;
+
+	private final IdentityIndex unitIndex;
+	private final IdentityIndex methodIndex;
+	private final Unit[] units;
+	private final SootMethod[] methods;
+	private final int[] unitToMethod;
+
+	private final int[] succOffsets;
+	private final int[] succTargets;
+	private final int[] predOffsets;
+	private final int[] predTargets;
+	private final int[] calleeOffsets;
+	private final int[] calleeTargets;
+	private final int[] callerOffsets;
+	private final int[] callerTargets;
+	private final int[] startPointOffsets;
+	private final int[] startPointTargets;
+	private final int[] endPointOffsets;
+	private final int[] endPointTargets;
+
+	private final BitSet callStmts = new BitSet();
+	private final BitSet exitStmts = new BitSet();
+	private final BitSet startPoints = new BitSet();
+	private final BitSet returnSites = new BitSet();
+
+	/**
+	 * Methods whose bodies have changed after the snapshot was taken. Queries
+	 * for these methods are delegated to the original graph. The set is
+	 * copied on every change and never modified once it has been published,
+	 * so that lookups do not need a lock. It is null as long as no method has
+	 * changed.
+	 */
+	private volatile BitSet changedMethods = null;
+	private final Object changedMethodsLock = new Object();
+
+	/**
+	 * Open-addressing hash table that maps objects to dense indices based on
+	 * object identity. The table is filled once and then only read, so
+	 * concurrent lookups are safe.
+	 */
+	private static final class IdentityIndex {
+
+		private final Object[] keys;
+		private final int[] values;
+		private final int mask;
+
+		public IdentityIndex(int expectedSize) {
+			// Keep the load factor at or below 0.5
+			int capacity = Integer.highestOneBit(Math.max(expectedSize, 1)) * 4;
+			this.keys = new Object[capacity];
+			this.values = new int[capacity];
+			this.mask = capacity - 1;
+		}
+
+		private int getSlot(Object o) {
+			int h = System.identityHashCode(o);
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		public void put(Object o, int value) {
+			int slot = getSlot(o);
+			while (keys[slot] != null) {
+				if (keys[slot] == o) {
+					values[slot] = value;
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = o;
+			values[slot] = value;
+		}
+
+		/**
+		 * Gets the index of the given object
+		 * @param o The object to look up
+		 * @return The index of the given object, or -1 if the object is not
+		 * part of this table
+		 */
+		public int get(Object o) {
+			int slot = getSlot(o);
+			Object cur;
+			while ((cur = keys[slot]) != null) {
+				if (cur == o)
+					return values[slot];
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+	}
+
+	/**
+	 * Read-only list view on a range of one of the adjacency arrays
+	 */
+	private static final class RangeList<T> extends AbstractList<T> implements RandomAccess {
+
+		private final T[] elements;
+		private final int[] targets;
+		private final int from;
+		private final int size;
+
+		public RangeList(T[] elements, int[] targets, int from, int to) {
+			this.elements = elements;
+			this.targets = targets;
+			this.from = from;
+			this.size = to - from;
+		}
+
+		@Override
+		public T get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return elements[targets[from + index]];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+	/**
+	 * The intra-procedural graph of a single method, numbered locally
+	 */
+	private static final class MethodGraph {
+
+		private final Unit[] units;
+		private final int[][] succs;
+		private final int[][] preds;
+		private final boolean[] heads;
+		private final boolean[] tails;
+		private final boolean[] calls;
+		private final Collection<SootMethod>[] callees;
+
+		@SuppressWarnings("unchecked")
+		public MethodGraph(int size) {
+			this.units = new Unit[size];
+			this.succs = new int[size][];
+			this.preds = new int[size][];
+			this.heads = new boolean[size];
+			this.tails = new boolean[size];
+			this.calls = new boolean[size];
+			this.callees = new Collection[size];
+		}
+
+	}
+
+	/**
+	 * Takes a snapshot of the given interprocedural CFG for all reachable
+	 * methods
+	 * @param source The interprocedural CFG of which to take a snapshot
+	 * @param numThreads The number of threads to use for building the
+	 * snapshot
+	 */
+	public FrozenInterproceduralCFG(BiDiInterproceduralCFG<Unit, SootMethod> source,
+			int numThreads) {
+		long beforeSnapshot = System.nanoTime();
+		this.source = source;
+
+		// Collect the methods for which we have a body
+		final List<SootMethod> bodyMethods = new ArrayList<SootMethod>();
+		Map<SootMethod, Boolean> seen = new IdentityHashMap<SootMethod, Boolean>();
+		for (Iterator<MethodOrMethodContext> iter = Scene.v().getReachableMethods().listener();
+				iter.hasNext(); ) {
+			SootMethod sm = iter.next().method();
+			if (sm != null && sm.hasActiveBody() && seen.put(sm, Boolean.TRUE) == null)
+				bodyMethods.add(sm);
+		}
+
+		// Extract the intra-procedural graphs in parallel
+		final MethodGraph[] graphs = new MethodGraph[bodyMethods.size()];
+		final int[] unitBase = new int[graphs.length];
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, numThreads));
+		try {
+			ParallelRange.forEach(pool, graphs.length, BATCH_SIZE, new IRangeVisitor() {
+
+				@Override
+				public void visit(int index) {
+					graphs[index] = scanMethod(bodyMethods.get(index));
+				}
+
+			});
+
+			// Number the methods. Callees without a body are numbered after
+			// the methods with bodies.
+			List<SootMethod> methodList = new ArrayList<SootMethod>(bodyMethods);
+			for (MethodGraph graph : graphs)
+				for (Collection<SootMethod> callees : graph.callees)
+					if (callees != null)
+						for (SootMethod callee : callees)
+							if (seen.put(callee, Boolean.TRUE) == null)
+								methodList.add(callee);
+			this.methods = methodList.toArray(new SootMethod[methodList.size()]);
+			this.methodIndex = new IdentityIndex(methods.length);
+			for (int i = 0; i < methods.length; i++)
+				methodIndex.put(methods[i], i);
+
+			// Number the units and compute the offsets into the adjacency
+			// arrays
+			int unitCount = 0;
+			for (int i = 0; i < graphs.length; i++) {
+				unitBase[i] = unitCount;
+				unitCount += graphs[i].units.length;
+			}
+			this.units = new Unit[unitCount];
+			this.unitToMethod = new int[unitCount];
+			this.unitIndex = new IdentityIndex(unitCount);
+			this.succOffsets = new int[unitCount + 1];
+			this.predOffsets = new int[unitCount + 1];
+			this.calleeOffsets = new int[unitCount + 1];
+			for (int i = 0; i < graphs.length; i++) {
+				MethodGraph graph = graphs[i];
+				for (int j = 0; j < graph.units.length; j++) {
+					int idx = unitBase[i] + j;
+					units[idx] = graph.units[j];
+					unitToMethod[idx] = i;
+					unitIndex.put(graph.units[j], idx);
+					if (graph.calls[j])
+						callStmts.set(idx);
+					succOffsets[idx + 1] = succOffsets[idx] + graph.succs[j].length;
+					predOffsets[idx + 1] = predOffsets[idx] + graph.preds[j].length;
+					calleeOffsets[idx + 1] = calleeOffsets[idx]
+							+ (graph.callees[j] == null ? 0 : graph.callees[j].size());
+				}
+			}
+			this.succTargets = new int[succOffsets[unitCount]];
+			this.predTargets = new int[predOffsets[unitCount]];
+			this.calleeTargets = new int[calleeOffsets[unitCount]];
+
+			// Fill the adjacency arrays in parallel. Every method only writes
+			// to its own ranges.
+			ParallelRange.forEach(pool, graphs.length, BATCH_SIZE, new IRangeVisitor() {
+
+				@Override
+				public void visit(int index) {
+					fillMethod(graphs[index], unitBase[index]);
+				}
+
+			});
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		// Start points, end points and return sites
+		this.startPointOffsets = new int[methods.length + 1];
+		this.endPointOffsets = new int[methods.length + 1];
+		List<Integer> starts = new ArrayList<Integer>();
+		List<Integer> ends = new ArrayList<Integer>();
+		for (int i = 0; i < methods.length; i++) {
+			if (i < graphs.length) {
+				MethodGraph graph = graphs[i];
+				for (int j = 0; j < graph.units.length; j++) {
+					int idx = unitBase[i] + j;
+					if (graph.heads[j]) {
+						starts.add(idx);
+						startPoints.set(idx);
+					}
+					if (graph.tails[j]) {
+						ends.add(idx);
+						exitStmts.set(idx);
+					}
+				}
+			}
+			startPointOffsets[i + 1] = starts.size();
+			endPointOffsets[i + 1] = ends.size();
+		}
+		this.startPointTargets = toArray(starts);
+		this.endPointTargets = toArray(ends);
+		for (int idx = callStmts.nextSetBit(0); idx >= 0; idx = callStmts.nextSetBit(idx + 1))
+			for (int k = succOffsets[idx]; k < succOffsets[idx + 1]; k++)
+				returnSites.set(succTargets[k]);
+
+		// The callers are the inverse of the callees
+		this.callerOffsets = new int[methods.length + 1];
+		for (int k = 0; k < calleeTargets.length; k++)
+			callerOffsets[calleeTargets[k] + 1]++;
+		for (int i = 0; i < methods.length; i++)
+			callerOffsets[i + 1] += callerOffsets[i];
+		this.callerTargets = new int[calleeTargets.length];
+		int[] callerFill = new int[methods.length];
+		for (int idx = 0; idx < units.length; idx++)
+			for (int k = calleeOffsets[idx]; k < calleeOffsets[idx + 1]; k++) {
+				int callee = calleeTargets[k];
+				callerTargets[callerOffsets[callee] + callerFill[callee]++] = idx;
+			}
+
+		logger.info("Took a snapshot of the interprocedural CFG with {} units in {} methods "
+				+ "in {} seconds", units.length, methods.length,
+				(System.nanoTime() - beforeSnapshot) / 1E9);
+	}
+
+	/**
+	 * Extracts the intra-procedural graph of the given method from the
+	 * original interprocedural CFG
+	 * @param m The method whose graph to extract
+	 * @return The graph of the given method
+	 */
+	private MethodGraph scanMethod(SootMethod m) {
+		DirectedGraph<Unit> unitGraph = source.getOrCreateUnitGraph(m);
+		MethodGraph graph = new MethodGraph(unitGraph.size());
+		Map<Unit, Integer> localIndex = new IdentityHashMap<Unit, Integer>(unitGraph.size());
+		int i = 0;
+		for (Unit u : unitGraph) {
+			graph.units[i] = u;
+			localIndex.put(u, i);
+			i++;
+		}
+		for (Unit u : unitGraph.getHeads())
+			graph.heads[localIndex.get(u)] = true;
+		for (Unit u : unitGraph.getTails())
+			graph.tails[localIndex.get(u)] = true;
+
+		for (i = 0; i < graph.units.length; i++) {
+			Unit u = graph.units[i];
+			graph.succs[i] = toLocalIndices(unitGraph.getSuccsOf(u), localIndex);
+			graph.preds[i] = toLocalIndices(unitGraph.getPredsOf(u), localIndex);
+			if (source.isCallStmt(u)) {
+				graph.calls[i] = true;
+				graph.callees[i] = new ArrayList<SootMethod>(source.getCalleesOfCallAt(u));
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Converts the given units into their indices inside the same method
+	 * @param units The units to convert
+	 * @param localIndex The mapping from units to local indices
+	 * @return The local indices of the given units
+	 */
+	private int[] toLocalIndices(List<Unit> units, Map<Unit, Integer> localIndex) {
+		int[] indices = new int[units.size()];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = localIndex.get(units.get(i));
+		return indices;
+	}
+
+	/**
+	 * Fills the adjacency arrays for the units of the given method
+	 * @param graph The graph of the method
+	 * @param base The index of the first unit of the method
+	 */
+	private void fillMethod(MethodGraph graph, int base) {
+		for (int j = 0; j < graph.units.length; j++) {
+			int idx = base + j;
+			int[] succs = graph.succs[j];
+			for (int k = 0; k < succs.length; k++)
+				succTargets[succOffsets[idx] + k] = base + succs[k];
+			int[] preds = graph.preds[j];
+			for (int k = 0; k < preds.length; k++)
+				predTargets[predOffsets[idx] + k] = base + preds[k];
+			if (graph.calls[j]) {
+				int k = calleeOffsets[idx];
+				for (SootMethod callee : graph.callees[j])
+					calleeTargets[k++] = methodIndex.get(callee);
+			}
+		}
+	}
+
+	/**
+	 * Gets the original interprocedural CFG of which this is a snapshot
+	 * @return The original interprocedural CFG
+	 */
+	public BiDiInterproceduralCFG<Unit, SootMethod> getSource() {
+		return source;
+	}
+
+	/**
+	 * Notifies the snapshot that the body of the given method has changed.
+	 * All further queries on this method and its units are answered by the
+	 * original graph.
+	 * @param m The method that has changed
+	 */
+	public void notifyMethodChanged(SootMethod m) {
+		if (source instanceof JimpleBasedInterproceduralCFG)
+			((JimpleBasedInterproceduralCFG) source).initializeUnitToOwner(m);
+
+		int idx = methodIndex.get(m);
+		if (idx >= 0) {
+			synchronized (changedMethodsLock) {
+				BitSet newChanged = changedMethods == null ? new BitSet()
+						: (BitSet) changedMethods.clone();
+				newChanged.set(idx);
+				changedMethods = newChanged;
+			}
+		}
+	}
+
+	/**
+	 * Gets the index of the given unit in the snapshot
+	 * @param u The unit to look up
+	 * @return The index of the given unit, or -1 if the unit is not part of
+	 * the snapshot or its method has changed
+	 */
+	private int getUnitIndex(Unit u) {
+		int idx = unitIndex.get(u);
+		BitSet changed = changedMethods;
+		if (idx >= 0 && changed != null && changed.get(unitToMethod[idx]))
+			return -1;
+		return idx;
+	}
+
+	/**
+	 * Gets the index of the given method in the snapshot
+	 * @param m The method to look up
+	 * @return The index of the given method, or -1 if the method is not part
+	 * of the snapshot or has changed
+	 */
+	private int getMethodIndex(SootMethod m) {
+		int idx = methodIndex.get(m);
+		BitSet changed = changedMethods;
+		if (idx >= 0 && changed != null && changed.get(idx))
+			return -1;
+		return idx;
+	}
+
+	/**
+	 * Gets a read-only view on a range of units
+	 * @param offsets The offsets into the target array
+	 * @param targets The target array
+	 * @param idx The index of the range
+	 * @return The units in the given range
+	 */
+	private List<Unit> getUnits(int[] offsets, int[] targets, int idx) {
+		int from = offsets[idx];
+		int to = offsets[idx + 1];
+		if (from == to)
+			return Collections.emptyList();
+		return new RangeList<Unit>(units, targets, from, to);
+	}
+
+	@Override
+	public SootMethod getMethodOf(Unit u) {
+		int idx = getUnitIndex(u);
+		return idx < 0 ? source.getMethodOf(u) : methods[unitToMethod[idx]];
+	}
+
+	@Override
+	public List<Unit> getSuccsOf(Unit u) {
+		int idx = getUnitIndex(u);
+		return idx < 0 ? source.getSuccsOf(u) : getUnits(succOffsets, succTargets, idx);
+	}
+
+	@Override
+	public List<Unit> getPredsOf(Unit u) {
+		int idx = getUnitIndex(u);
+		return idx < 0 ? source.getPredsOf(u) : getUnits(predOffsets, predTargets, idx);
+	}
+
+	@Override
+	public List<Unit> getPredsOfCallAt(Unit u) {
+		int idx = getUnitIndex(u);
+		return idx < 0 ? source.getPredsOfCallAt(u) : getUnits(predOffsets, predTargets, idx);
+	}
+
+	@Override
+	public Collection<Unit> getReturnSitesOfCallAt(Unit u) {
+		int idx = getUnitIndex(u);
+		return idx < 0 ? source.getReturnSitesOfCallAt(u) : getUnits(succOffsets, succTargets, idx);
+	}
+
+	@Override
+	public boolean isCallStmt(Unit u) {
+		int idx = getUnitIndex(u);
+		return idx < 0 ? source.isCallStmt(u) : callStmts.get(idx);
+	}
+
+	@Override
+	public boolean isExitStmt(Unit u) {
+		int idx = getUnitIndex(u);
+		return idx < 0 ? source.isExitStmt(u) : exitStmts.get(idx);
+	}
+
+	@Override
+	public boolean isStartPoint(Unit u) {
+		int idx = getUnitIndex(u);
+		return idx < 0 ? source.isStartPoint(u) : startPoints.get(idx);
+	}
+
+	@Override
+	public boolean isReturnSite(Unit n) {
+		int idx = getUnitIndex(n);
+		return idx < 0 ? source.isReturnSite(n) : returnSites.get(idx);
+	}
+
+	@Override
+	public Collection<SootMethod> getCalleesOfCallAt(Unit u) {
+		int idx = getUnitIndex(u);
+		if (idx < 0)
+			return source.getCalleesOfCallAt(u);
+		int from = calleeOffsets[idx];
+		int to = calleeOffsets[idx + 1];
+		if (from == to)
+			return Collections.emptyList();
+		return new RangeList<SootMethod>(methods, calleeTargets, from, to);
+	}
+
+	@Override
+	public Collection<Unit> getCallersOf(SootMethod m) {
+		int idx = getMethodIndex(m);
+		return idx < 0 ? source.getCallersOf(m) : getUnits(callerOffsets, callerTargets, idx);
+	}
+
+	@Override
+	public Collection<Unit> getStartPointsOf(SootMethod m) {
+		// Methods without a body are answered by the original graph
+		int idx = getMethodIndex(m);
+		return idx < 0 || startPointOffsets[idx] == startPointOffsets[idx + 1]
+				? source.getStartPointsOf(m)
+				: getUnits(startPointOffsets, startPointTargets, idx);
+	}
+
+	@Override
+	public Collection<Unit> getEndPointsOf(SootMethod m) {
+		int idx = getMethodIndex(m);
+		return idx < 0 || endPointOffsets[idx] == endPointOffsets[idx + 1]
+				? source.getEndPointsOf(m)
+				: getUnits(endPointOffsets, endPointTargets, idx);
+	}
+
+	@Override
+	public boolean isFallThroughSuccessor(Unit u, Unit succ) {
+		return source.isFallThroughSuccessor(u, succ);
+	}
+
+	@Override
+	public boolean isBranchTarget(Unit u, Unit succ) {
+		return source.isBranchTarget(u, succ);
+	}
+
+	@Override
+	public Set<Unit> allNonCallStartNodes() {
+		return source.allNonCallStartNodes();
+	}
+
+	@Override
+	public Set<Unit> allNonCallEndNodes() {
+		return source.allNonCallEndNodes();
+	}
+
+	@Override
+	public Set<Unit> getCallsFromWithin(SootMethod m) {
+		return source.getCallsFromWithin(m);
+	}
+
+	@Override
+	public DirectedGraph<Unit> getOrCreateUnitGraph(SootMethod m) {
+		return source.getOrCreateUnitGraph(m);
+	}
+
+	@Override
+	public List<Value> getParameterRefs(SootMethod m) {
+		return source.getParameterRefs(m);
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] arr = new int[list.size()];
+		for (int i = 0; i < arr.length; i++)
+			arr[i] = list.get(i);
+		return arr;
+	}
+
+}
@@ -15,13 +15,16 @@ import heros.solver.IDESolver;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import soot.Local;
+import soot.MethodOrMethodContext;
 import soot.Scene;
 import soot.SootField;
 import soot.SootMethod;
@@ -32,14 +35,17 @@ import soot.jimple.AssignStmt;
 import soot.jimple.FieldRef;
 import soot.jimple.StaticFieldRef;
 import soot.jimple.Stmt;
+import soot.jimple.infoflow.util.ParallelRange;
 import soot.jimple.toolkits.callgraph.Edge;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 import soot.jimple.toolkits.ide.icfg.JimpleBasedInterproceduralCFG;
 import soot.toolkits.graph.DirectedGraph;
 import soot.toolkits.graph.MHGPostDominatorsFinder;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
 
 /**
  * Interprocedural control-flow graph for the infoflow solver
@@ -62,22 +68,95 @@ public class InfoflowCFG implements IInfoflowCFG {
 	protected final Map<SootMethod, Boolean> methodSideEffects =
 			new ConcurrentHashMap<SootMethod, Boolean>();
 	
+	private volatile StaticFieldSummaries staticFieldSummaries = null;
+	private final Object staticFieldSummariesLock = new Object();
+	private int staticFieldSummaryThreads = ParallelRange.getThreadCount(-1);
+	
 	protected final BiDiInterproceduralCFG<Unit, SootMethod> delegate; 
 	
-	protected final LoadingCache<Unit,UnitContainer> unitToPostdominator =
-			IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<Unit,UnitContainer>() {
-				@Override
-				public UnitContainer load(Unit unit) throws Exception {
-					SootMethod method = getMethodOf(unit);
-					DirectedGraph<Unit> graph = delegate.getOrCreateUnitGraph(method);
-					MHGPostDominatorsFinder<Unit> postdominatorFinder = new MHGPostDominatorsFinder<Unit>(graph);
-					Unit postdom = postdominatorFinder.getImmediateDominator(unit);
-					if (postdom == null)
-						return new UnitContainer(method);
-					else
-						return new UnitContainer(postdom);
+	/**
+	 * The default maximum number of units for which the immediate
+	 * postdominators are kept in the cache
+	 */
+	public static final long DEFAULT_POSTDOMINATOR_CACHE_SIZE = 1000000;
+	
+	/**
+	 * The immediate postdominators of all units in a single method. The units
+	 * are kept in an open-addressing identity hash table. The postdominator of
+	 * the unit in slot i is stored in slot i of a parallel array. Units with
+	 * the same postdominator share the same container.
+	 */
+	protected static class MethodPostdominators {
+		
+		private final Unit[] units;
+		private final UnitContainer[] postdominators;
+		private final int mask;
+		
+		public MethodPostdominators(SootMethod method, DirectedGraph<Unit> graph) {
+			// Keep the load factor at or below 0.5
+			int capacity = Integer.highestOneBit(Math.max(graph.size(), 1)) * 4;
+			this.units = new Unit[capacity];
+			this.postdominators = new UnitContainer[capacity];
+			this.mask = capacity - 1;
+			
+			MHGPostDominatorsFinder<Unit> postdominatorFinder = new MHGPostDominatorsFinder<Unit>(graph);
+			UnitContainer methodContainer = new UnitContainer(method);
+			Map<Unit, UnitContainer> containers = new IdentityHashMap<Unit, UnitContainer>();
+			for (Unit u : graph) {
+				Unit postdom = postdominatorFinder.getImmediateDominator(u);
+				UnitContainer container;
+				if (postdom == null)
+					container = methodContainer;
+				else {
+					container = containers.get(postdom);
+					if (container == null) {
+						container = new UnitContainer(postdom);
+						containers.put(postdom, container);
+					}
 				}
-			});
+				
+				int slot = getSlot(u);
+				while (units[slot] != null)
+					slot = (slot + 1) & mask;
+				units[slot] = u;
+				postdominators[slot] = container;
+			}
+		}
+		
+		private int getSlot(Unit u) {
+			int h = System.identityHashCode(u);
+			return (h ^ (h >>> 16)) & mask;
+		}
+		
+		/**
+		 * Gets the immediate postdominator of the given unit
+		 * @param u The unit for which to get the postdominator
+		 * @return The immediate postdominator of the given unit, or null if
+		 * the unit is not part of the method's graph
+		 */
+		public UnitContainer getPostdominatorOf(Unit u) {
+			int slot = getSlot(u);
+			Unit cur;
+			while ((cur = units[slot]) != null) {
+				if (cur == u)
+					return postdominators[slot];
+				slot = (slot + 1) & mask;
+			}
+			return null;
+		}
+		
+		/**
+		 * Gets the number of slots in this table
+		 * @return The number of slots in this table
+		 */
+		public int getCapacity() {
+			return units.length;
+		}
+		
+	}
+	
+	protected final LoadingCache<SootMethod,MethodPostdominators> methodToPostdominators;
+	private final AtomicLong postdominatorTreeCount = new AtomicLong(0);
 	
 	protected final LoadingCache<SootMethod,Local[]> methodToUsedLocals =
 			IDESolver.DEFAULT_CACHE_BUILDER.build( new CacheLoader<SootMethod,Local[]>() {
@@ -112,12 +191,65 @@ public class InfoflowCFG implements IInfoflowCFG {
 	}
 	
 	public InfoflowCFG(BiDiInterproceduralCFG<Unit, SootMethod> delegate) {
+		this(delegate, DEFAULT_POSTDOMINATOR_CACHE_SIZE);
+	}
+	
+	/**
+	 * Creates a new instance of the {@link InfoflowCFG} class
+	 * @param delegate The interprocedural CFG to which to delegate all
+	 * queries that are not specific to the data flow analysis
+	 * @param maxPostdominatorCacheSize The maximum number of units for which
+	 * the immediate postdominators are cached. If the postdominators of
+	 * another method are requested, the trees of the least recently used
+	 * methods are evicted.
+	 */
+	public InfoflowCFG(BiDiInterproceduralCFG<Unit, SootMethod> delegate,
+			long maxPostdominatorCacheSize) {
 		this.delegate = delegate;
+		this.methodToPostdominators = CacheBuilder.newBuilder()
+				.concurrencyLevel(Runtime.getRuntime().availableProcessors())
+				.maximumWeight(maxPostdominatorCacheSize)
+				.weigher(new Weigher<SootMethod, MethodPostdominators>() {
+					@Override
+					public int weigh(SootMethod key, MethodPostdominators value) {
+						// The table has twice as many slots as units
+						return value.getCapacity() / 2;
+					}
+				})
+				.build(new CacheLoader<SootMethod, MethodPostdominators>() {
+					@Override
+					public MethodPostdominators load(SootMethod method) throws Exception {
+						postdominatorTreeCount.incrementAndGet();
+						return new MethodPostdominators(method,
+								InfoflowCFG.this.delegate.getOrCreateUnitGraph(method));
+					}
+				});
 	}
 	
 	@Override
 	public UnitContainer getPostdominatorOf(Unit u) {
-		return unitToPostdominator.getUnchecked(u);
+		SootMethod method = getMethodOf(u);
+		UnitContainer postdom = methodToPostdominators.getUnchecked(method)
+				.getPostdominatorOf(u);
+		if (postdom == null) {
+			// The unit was not part of the graph when we computed the
+			// postdominators, so the body must have changed since then
+			methodToPostdominators.invalidate(method);
+			postdom = methodToPostdominators.getUnchecked(method).getPostdominatorOf(u);
+			if (postdom == null)
+				postdom = new UnitContainer(method);
+		}
+		return postdom;
+	}
+	
+	/**
+	 * Gets the number of postdominator trees that have been computed so far.
+	 * If this number is much larger than the number of methods for which
+	 * postdominators have been requested, the cache is too small.
+	 * @return The number of postdominator trees that have been computed
+	 */
+	public long getPostdominatorTreeCount() {
+		return postdominatorTreeCount.get();
 	}
 	
 	//delegate methods follow
@@ -222,13 +354,75 @@ public class InfoflowCFG implements IInfoflowCFG {
 		return delegate.isReturnSite(n);
 	}
 	
+	/**
+	 * Computes the summaries of static field accesses for all reachable
+	 * methods. This should be called before the solver starts, so that the
+	 * worker threads do not have to wait for the summaries to be built on
+	 * first use.
+	 * @param numThreads The number of threads to use for computing the
+	 * summaries
+	 */
+	public void computeStaticFieldSummaries(int numThreads) {
+		synchronized (staticFieldSummariesLock) {
+			staticFieldSummaryThreads = numThreads;
+			if (staticFieldSummaries == null)
+				staticFieldSummaries = buildStaticFieldSummaries(numThreads);
+		}
+	}
+	
+	/**
+	 * Builds the summaries of static field accesses for all reachable methods
+	 * @param numThreads The number of threads to use for computing the
+	 * summaries
+	 * @return The static field summaries, or null if there is no call graph
+	 * to compute them on
+	 */
+	private StaticFieldSummaries buildStaticFieldSummaries(int numThreads) {
+		if (!Scene.v().hasCallGraph())
+			return null;
+		
+		List<SootMethod> reachableMethods = new ArrayList<SootMethod>();
+		for (Iterator<MethodOrMethodContext> iter = Scene.v().getReachableMethods().listener();
+				iter.hasNext(); )
+			reachableMethods.add(iter.next().method());
+		return new StaticFieldSummaries(reachableMethods, Scene.v().getCallGraph(),
+				numThreads);
+	}
+	
+	/**
+	 * Gets the precomputed summaries of static field accesses. If they have
+	 * not been computed up front or have been invalidated since, they are
+	 * computed on first use.
+	 * @return The static field summaries, or null if there is no call graph
+	 * to compute them on
+	 */
+	protected StaticFieldSummaries getStaticFieldSummaries() {
+		StaticFieldSummaries summaries = staticFieldSummaries;
+		if (summaries == null) {
+			synchronized (staticFieldSummariesLock) {
+				summaries = staticFieldSummaries;
+				if (summaries == null) {
+					summaries = buildStaticFieldSummaries(staticFieldSummaryThreads);
+					staticFieldSummaries = summaries;
+				}
+			}
+		}
+		return summaries;
+	}
+	
 	@Override
 	public boolean isStaticFieldRead(SootMethod method, SootField variable) {
+		StaticFieldSummaries summaries = getStaticFieldSummaries();
+		if (summaries != null && summaries.hasSummary(method))
+			return summaries.isStaticFieldRead(method, variable);
 		return isStaticFieldUsed(method, variable, new HashSet<SootMethod>(), true);
 	}
 	
 	@Override
 	public boolean isStaticFieldUsed(SootMethod method, SootField variable) {
+		StaticFieldSummaries summaries = getStaticFieldSummaries();
+		if (summaries != null && summaries.hasSummary(method))
+			return summaries.isStaticFieldUsed(method, variable);
 		return isStaticFieldUsed(method, variable, new HashSet<SootMethod>(), false);
 	}
 	
@@ -373,6 +567,11 @@ public class InfoflowCFG implements IInfoflowCFG {
 	public void notifyMethodChanged(SootMethod m) {
 		if (delegate instanceof JimpleBasedInterproceduralCFG)
 			((JimpleBasedInterproceduralCFG) delegate).initializeUnitToOwner(m);
+		else if (delegate instanceof FrozenInterproceduralCFG)
+			((FrozenInterproceduralCFG) delegate).notifyMethodChanged(m);
+		
+		// The summaries may no longer be valid for the new body
+		staticFieldSummaries = null;
 	}
 	
 	@Override
@@ -0,0 +1,245 @@
+package soot.jimple.infoflow.solver.cfg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.SootField;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.AssignStmt;
+import soot.jimple.StaticFieldRef;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.util.ParallelRange;
+import soot.jimple.infoflow.util.ParallelRange.IRangeVisitor;
+import soot.jimple.infoflow.util.StronglyConnectedComponents;
+import soot.jimple.infoflow.util.StronglyConnectedComponents.IComponentVisitor;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+
+/**
+ * Precomputed summaries of the static fields that a method and its transitive
+ * callees read and write. The call graph is split into strongly connected
+ * components which are then summarized bottom-up, starting with the
+ * components that do not call any other component. All methods in the same
+ * component share the same summary. Components whose callees have all been
+ * summarized are processed in parallel.
+ *
+ * Methods without an active body are not part of the summaries and neither
+ * are their callees.
+ */
+public class StaticFieldSummaries {
+
+	private static final Logger logger = LoggerFactory.getLogger(StaticFieldSummaries.class);
+
+	/**
+	 * The maximum number of methods to scan without splitting the range
+	 */
+	private static final int SCAN_BATCH_SIZE = 32;
+
+	private final ConcurrentMap<SootField, Integer> fieldIndices =
+			new ConcurrentHashMap<SootField, Integer>();
+	private final AtomicInteger fieldCounter = new AtomicInteger(0);
+
+	private final Map<SootMethod, Integer> methodIndices = new HashMap<SootMethod, Integer>();
+	private final SootMethod[] methods;
+	private final int[][] successors;
+	private final BitSet[] directReads;
+	private final BitSet[] directWrites;
+
+	private final StronglyConnectedComponents sccs;
+	private final BitSet[] sccReads;
+	private final BitSet[] sccWrites;
+
+	/**
+	 * Computes the static field summaries for the given methods
+	 * @param reachableMethods The methods for which to compute summaries.
+	 * Methods without an active body are ignored.
+	 * @param callGraph The call graph that connects the methods
+	 * @param numThreads The number of threads to use
+	 */
+	public StaticFieldSummaries(Collection<SootMethod> reachableMethods,
+			final CallGraph callGraph, int numThreads) {
+		long beforeSummaries = System.nanoTime();
+
+		List<SootMethod> methodList = new ArrayList<SootMethod>(reachableMethods.size());
+		for (SootMethod sm : reachableMethods)
+			if (sm.hasActiveBody() && !methodIndices.containsKey(sm)) {
+				methodIndices.put(sm, methodList.size());
+				methodList.add(sm);
+			}
+		this.methods = methodList.toArray(new SootMethod[methodList.size()]);
+		this.successors = new int[methods.length][];
+		this.directReads = new BitSet[methods.length];
+		this.directWrites = new BitSet[methods.length];
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, numThreads));
+		try {
+			ParallelRange.forEach(pool, methods.length, SCAN_BATCH_SIZE, new IRangeVisitor() {
+
+				@Override
+				public void visit(int index) {
+					scanMethod(index, callGraph);
+				}
+
+			});
+
+			this.sccs = new StronglyConnectedComponents(successors);
+			this.sccReads = new BitSet[sccs.getComponentCount()];
+			this.sccWrites = new BitSet[sccs.getComponentCount()];
+			summarizeBottomUp(sccs, pool);
+
+			logger.info("Computed static field summaries for {} methods in {} "
+					+ "components in {} seconds", methods.length, sccs.getComponentCount(),
+					(System.nanoTime() - beforeSummaries) / 1E9);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Gets the index of the given static field, assigning a new one if
+	 * necessary
+	 * @param field The field for which to get the index
+	 * @return The index of the given field
+	 */
+	private int getFieldIndex(SootField field) {
+		Integer idx = fieldIndices.get(field);
+		if (idx == null) {
+			Integer newIdx = fieldCounter.getAndIncrement();
+			idx = fieldIndices.putIfAbsent(field, newIdx);
+			if (idx == null)
+				idx = newIdx;
+		}
+		return idx;
+	}
+
+	/**
+	 * Scans the method with the given index for static field accesses and
+	 * outgoing call edges
+	 * @param methodIdx The index of the method to scan
+	 * @param callGraph The call graph that connects the methods
+	 */
+	private void scanMethod(int methodIdx, CallGraph callGraph) {
+		SootMethod method = methods[methodIdx];
+		BitSet reads = new BitSet();
+		BitSet writes = new BitSet();
+		Set<Integer> callees = new LinkedHashSet<Integer>();
+
+		for (Unit u : method.getActiveBody().getUnits()) {
+			if (u instanceof AssignStmt) {
+				AssignStmt assign = (AssignStmt) u;
+				if (assign.getLeftOp() instanceof StaticFieldRef)
+					writes.set(getFieldIndex(((StaticFieldRef) assign.getLeftOp()).getField()));
+				if (assign.getRightOp() instanceof StaticFieldRef)
+					reads.set(getFieldIndex(((StaticFieldRef) assign.getRightOp()).getField()));
+			}
+
+			if (((Stmt) u).containsInvokeExpr())
+				for (Iterator<Edge> edgeIt = callGraph.edgesOutOf(u); edgeIt.hasNext(); ) {
+					Integer calleeIdx = methodIndices.get(edgeIt.next().getTgt().method());
+					if (calleeIdx != null)
+						callees.add(calleeIdx);
+				}
+		}
+
+		int[] succ = new int[callees.size()];
+		int i = 0;
+		for (Integer calleeIdx : callees)
+			succ[i++] = calleeIdx;
+		successors[methodIdx] = succ;
+		directReads[methodIdx] = reads;
+		directWrites[methodIdx] = writes;
+	}
+
+	/**
+	 * Summarizes the components of the call graph bottom-up. A component is
+	 * scheduled once all components it calls have been summarized.
+	 * @param sccs The strongly connected components of the call graph
+	 * @param pool The pool on which to run the summarization
+	 */
+	private void summarizeBottomUp(StronglyConnectedComponents sccs, ForkJoinPool pool) {
+		sccs.visitBottomUp(pool, new IComponentVisitor() {
+
+			@Override
+			public void visitComponent(int scc, int[] members, int[] calleeSccs) {
+				BitSet reads = new BitSet();
+				BitSet writes = new BitSet();
+				for (int member : members) {
+					reads.or(directReads[member]);
+					writes.or(directWrites[member]);
+				}
+				for (int callee : calleeSccs) {
+					reads.or(sccReads[callee]);
+					writes.or(sccWrites[callee]);
+				}
+				sccReads[scc] = reads;
+				sccWrites[scc] = writes;
+			}
+
+		});
+
+		// The direct accesses are no longer needed
+		for (int i = 0; i < methods.length; i++) {
+			directReads[i] = null;
+			directWrites[i] = null;
+		}
+	}
+
+	/**
+	 * Gets whether a summary has been computed for the given method
+	 * @param method The method to check
+	 * @return True if there is a summary for the given method, otherwise false
+	 */
+	public boolean hasSummary(SootMethod method) {
+		return methodIndices.containsKey(method);
+	}
+
+	/**
+	 * Checks whether the given method or one of its transitive callees reads
+	 * the given static field
+	 * @param method The method to check
+	 * @param variable The static field to check
+	 * @return True if the given static field is read, false if it is not read
+	 * or if there is no summary for the given method
+	 */
+	public boolean isStaticFieldRead(SootMethod method, SootField variable) {
+		Integer methodIdx = methodIndices.get(method);
+		Integer fieldIdx = fieldIndices.get(variable);
+		if (methodIdx == null || fieldIdx == null)
+			return false;
+		return sccReads[sccs.getComponentOf(methodIdx)].get(fieldIdx);
+	}
+
+	/**
+	 * Checks whether the given method or one of its transitive callees reads
+	 * or writes the given static field
+	 * @param method The method to check
+	 * @param variable The static field to check
+	 * @return True if the given static field is read or written, false if it
+	 * is not used or if there is no summary for the given method
+	 */
+	public boolean isStaticFieldUsed(SootMethod method, SootField variable) {
+		Integer methodIdx = methodIndices.get(method);
+		Integer fieldIdx = fieldIndices.get(variable);
+		if (methodIdx == null || fieldIdx == null)
+			return false;
+		int scc = sccs.getComponentOf(methodIdx);
+		return sccReads[scc].get(fieldIdx) || sccWrites[scc].get(fieldIdx);
+	}
+
+}
@@ -0,0 +1,224 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.SynchronizedBy;
+import heros.ThreadSafe;
+import heros.solver.PathEdge;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Memory-efficient implementation of the jump function table. Instead of
+ * keeping a {@link PathEdge} object for every jump function, this class
+ * assigns dense integer ids to all statements and (interned) abstractions and
+ * stores the edges in a striped open-addressing hash table of primitive keys.
+ * For each edge, the table only holds a packed long for the target statement
+ * and the source abstraction, an int for the target abstraction, and a
+ * reference to the registered target abstraction.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph
+ * @param <D> The type of data-flow facts
+ */
+@ThreadSafe
+public class CompactJumpFunctions<N,D> extends JumpFunctions<N,D> {
+
+	private static final int NUM_STRIPES = 64;
+	private static final int STRIPE_SHIFT = 6;
+	private static final int INITIAL_STRIPE_CAPACITY = 256;
+
+	@SynchronizedBy("thread safe data structure")
+	private volatile IdTable unitIds = new IdTable();
+
+	@SynchronizedBy("thread safe data structure")
+	private volatile IdTable factIds = new IdTable();
+
+	@SynchronizedBy("lock on the respective stripe")
+	private volatile Stripe[] stripes = createStripes();
+
+	/**
+	 * Table that assigns dense integer ids to objects. Equal objects receive
+	 * the same id. Ids start at one.
+	 */
+	private static class IdTable {
+
+		private final ConcurrentHashMap<Object, Integer> ids =
+				new ConcurrentHashMap<Object, Integer>();
+		private final AtomicInteger nextId = new AtomicInteger(0);
+
+		public int getId(Object o) {
+			Integer id = ids.get(o);
+			if (id == null) {
+				Integer newId = nextId.incrementAndGet();
+				id = ids.putIfAbsent(o, newId);
+				if (id == null)
+					id = newId;
+			}
+			return id;
+		}
+
+		public int size() {
+			return ids.size();
+		}
+
+	}
+
+	/**
+	 * One stripe of the edge table. Each stripe is an open-addressing hash
+	 * table with linear probing that is guarded by its own lock.
+	 */
+	private static class Stripe {
+
+		private long[] sourceKeys = new long[INITIAL_STRIPE_CAPACITY];
+		private int[] targetKeys = new int[INITIAL_STRIPE_CAPACITY];
+		private Object[] values = new Object[INITIAL_STRIPE_CAPACITY];
+		private int size = 0;
+
+		/**
+		 * Adds the given edge if it is not already present
+		 * @param sourceKey The packed target statement and source fact
+		 * @param targetKey The id of the target fact
+		 * @param hash The hash code of the edge
+		 * @param value The target fact to register
+		 * @return The previously registered target fact if the edge was
+		 * already present, otherwise null
+		 */
+		public synchronized Object putIfAbsent(long sourceKey, int targetKey,
+				int hash, Object value) {
+			int mask = sourceKeys.length - 1;
+			int idx = hash & mask;
+			while (sourceKeys[idx] != 0) {
+				if (sourceKeys[idx] == sourceKey && targetKeys[idx] == targetKey)
+					return values[idx];
+				idx = (idx + 1) & mask;
+			}
+
+			sourceKeys[idx] = sourceKey;
+			targetKeys[idx] = targetKey;
+			values[idx] = value;
+			if (++size * 4 > sourceKeys.length * 3)
+				grow();
+			return null;
+		}
+
+		private void grow() {
+			long[] oldSourceKeys = sourceKeys;
+			int[] oldTargetKeys = targetKeys;
+			Object[] oldValues = values;
+
+			int newCapacity = oldSourceKeys.length * 2;
+			sourceKeys = new long[newCapacity];
+			targetKeys = new int[newCapacity];
+			values = new Object[newCapacity];
+
+			int mask = newCapacity - 1;
+			for (int i = 0; i < oldSourceKeys.length; i++) {
+				if (oldSourceKeys[i] == 0)
+					continue;
+				// Use the same bits as the lookups in putIfAbsent()
+				int idx = slotHash(oldSourceKeys[i], oldTargetKeys[i]) & mask;
+				while (sourceKeys[idx] != 0)
+					idx = (idx + 1) & mask;
+				sourceKeys[idx] = oldSourceKeys[i];
+				targetKeys[idx] = oldTargetKeys[i];
+				values[idx] = oldValues[i];
+			}
+		}
+
+		public synchronized int size() {
+			return size;
+		}
+
+		public synchronized int capacity() {
+			return sourceKeys.length;
+		}
+
+	}
+
+	public CompactJumpFunctions() {
+	}
+
+	private static Stripe[] createStripes() {
+		Stripe[] stripes = new Stripe[NUM_STRIPES];
+		for (int i = 0; i < stripes.length; i++)
+			stripes[i] = new Stripe();
+		return stripes;
+	}
+
+	/**
+	 * Computes the hash code for the given edge key. The lowest bits select
+	 * the stripe, the remaining ones the slot inside the stripe.
+	 */
+	private static int hash(long sourceKey, int targetKey) {
+		long h = sourceKey * 0x9E3779B97F4A7C15L + targetKey;
+		h ^= (h >>> 29);
+		h *= 0xBF58476D1CE4E5B9L;
+		h ^= (h >>> 32);
+		return (int) h;
+	}
+
+	/**
+	 * Computes the hash code that selects the slot inside a stripe for the
+	 * given edge key. The bits that select the stripe are shifted out. This
+	 * must match the hash passed to {@link Stripe#putIfAbsent}.
+	 */
+	private static int slotHash(long sourceKey, int targetKey) {
+		return hash(sourceKey, targetKey) >>> STRIPE_SHIFT;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public D addFunction(PathEdge<N, D> edge) {
+		final IdTable unitIds = this.unitIds;
+		final IdTable factIds = this.factIds;
+		final Stripe[] stripes = this.stripes;
+
+		long sourceKey = ((long) unitIds.getId(edge.getTarget()) << 32)
+				| (factIds.getId(edge.factAtSource()) & 0xFFFFFFFFL);
+		int targetKey = factIds.getId(edge.factAtTarget());
+		int hash = hash(sourceKey, targetKey);
+
+		Stripe stripe = stripes[hash & (NUM_STRIPES - 1)];
+		return (D) stripe.putIfAbsent(sourceKey, targetKey, hash >>> STRIPE_SHIFT,
+				edge.factAtTarget());
+	}
+
+	/**
+	 * Gets the number of jump functions in this table
+	 * @return The number of jump functions in this table
+	 */
+	@Override
+	public long size() {
+		long size = 0;
+		for (Stripe stripe : stripes)
+			size += stripe.size();
+		return size;
+	}
+
+	/**
+	 * Gets an estimate of the number of bytes occupied by the edge table,
+	 * excluding the id tables and the abstractions themselves
+	 * @return The estimated size of the edge table in bytes
+	 */
+	public long getEdgeTableBytes() {
+		long bytes = 0;
+		for (Stripe stripe : stripes)
+			bytes += (long) stripe.capacity() * (8 + 4 + 4);
+		return bytes;
+	}
+
+	/**
+	 * Gets the number of distinct abstractions registered in this table
+	 * @return The number of distinct abstractions in this table
+	 */
+	public int getFactCount() {
+		return factIds.size();
+	}
+
+	@Override
+	public synchronized void clear() {
+		this.stripes = createStripes();
+		this.unitIds = new IdTable();
+		this.factIds = new IdTable();
+	}
+
+}
@@ -25,8 +25,10 @@ import heros.solver.CountingThreadPoolExecutor;
 import heros.solver.Pair;
 import heros.solver.PathEdge;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -34,6 +36,8 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,7 +46,9 @@ import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.infoflow.collect.ConcurrentHashSet;
 import soot.jimple.infoflow.collect.MyConcurrentHashMap;
+import soot.jimple.infoflow.solver.IMemoryBoundedSolver;
 import soot.jimple.infoflow.solver.IMemoryManager;
+import soot.jimple.infoflow.util.AnalysisBudget;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 
 import com.google.common.cache.CacheBuilder;
@@ -58,7 +64,8 @@ import com.google.common.cache.CacheBuilder;
  * @param <I> The type of inter-procedural control-flow graph being used.
  * @see IFDSTabulationProblem
  */
-public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiInterproceduralCFG<N, M>> {
+public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiInterproceduralCFG<N, M>>
+		implements IMemoryBoundedSolver {
 	
 	public static CacheBuilder<Object, Object> DEFAULT_CACHE_BUILDER = CacheBuilder.newBuilder().concurrencyLevel
 			(Runtime.getRuntime().availableProcessors()).initialCapacity(10000).softValues();
@@ -74,7 +81,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 	protected int numThreads;
 	
 	@SynchronizedBy("thread safe data structure, consistent locking when used")
-	protected final JumpFunctions<N,D> jumpFn;
+	protected JumpFunctions<N,D> jumpFn;
 	
 	@SynchronizedBy("thread safe data structure, only modified internally")
 	protected final I icfg;
@@ -115,9 +122,30 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 	@DontSynchronize("readOnly")
 	private boolean enableMergePointChecking = false;
 	
+	@SynchronizedBy("thread safe data structure")
+	private MergePointIndex<N,M> mergePoints = null;
+	
 	@DontSynchronize("readOnly")
 	private IMemoryManager<D> memoryManager = null;
 	
+	@DontSynchronize("readOnly")
+	private int batchSize = 1;
+	
+	@DontSynchronize("readOnly")
+	private boolean shutdownExecutor = true;
+	
+	@DontSynchronize("readOnly")
+	protected SummarySpillStore<N,D,M> summaryStore = null;
+	
+	@DontSynchronize("readOnly")
+	private AnalysisBudget analysisBudget = null;
+	
+	@DontSynchronize("only used if there is a summary store")
+	private final ReadWriteLock summaryLock = new ReentrantReadWriteLock();
+	
+	@SynchronizedBy("thread safe data structure")
+	private final Set<M> hotMethods = new ConcurrentHashSet<M>();
+	
 	/**
 	 * Creates a solver for the given problem, which caches flow functions and edge functions.
 	 * The solver must then be started by calling {@link #solve()}.
@@ -189,19 +217,24 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 		}
 		if(logger.isDebugEnabled())
 			printStats();
+		
+		// A shared executor stays alive for later analysis phases
+		if (!shutdownExecutor)
+			return;
 
 		//ask executor to shut down;
 		//this will cause new submissions to the executor to be rejected,
 		//but at this point all tasks should have completed anyway
 		executor.shutdown();
 		
-		// Wait for the executor to be really gone
-		while (!executor.isTerminated()) {
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+		// Wait for the executor to be really gone. All tasks have already
+		// completed, so this only waits for the worker threads to exit.
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.DAYS))
+				;
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while waiting for executor termination", e);
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -225,14 +258,49 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
      * @param edge the edge to process
      */
     protected void scheduleEdgeProcessing(PathEdge<N,D> edge){
-    	// If the executor has been killed, there is little point
-    	// in submitting new tasks
-    	if (executor.isTerminating())
+    	// If the executor has been killed or we have run out of budget,
+    	// there is little point in submitting new tasks
+    	if (executor.isTerminating() || isBudgetExhausted())
     		return;
     	
     	executor.execute(new PathEdgeProcessingTask(edge));
     	propagationCount++;
     }
+    
+    /**
+     * Dispatch the processing of a batch of edges that were all produced by
+     * the same flow function application. The batch is split into chunks of
+     * at most the configured batch size, each of which is processed as one
+     * unit of work.
+     * @param batch The edges to process, may be null
+     */
+    protected void scheduleEdgeBatch(List<PathEdge<N,D>> batch) {
+    	if (batch == null || batch.isEmpty())
+    		return;
+    	if (executor.isTerminating() || isBudgetExhausted())
+    		return;
+    	
+    	if (batch.size() == 1)
+    		executor.execute(new PathEdgeProcessingTask(batch.get(0)));
+    	else
+    		for (int i = 0; i < batch.size(); i += batchSize) {
+    			List<PathEdge<N,D>> chunk = batch.subList(i, Math.min(i + batchSize, batch.size()));
+    			if (chunk.size() == 1)
+    				executor.execute(new PathEdgeProcessingTask(chunk.get(0)));
+    			else
+    				executor.execute(new PathEdgeBatchProcessingTask(chunk));
+    		}
+    	propagationCount += batch.size();
+    }
+    
+    /**
+     * Creates a new batch for collecting the edges produced by a single flow
+     * function application
+     * @return The new batch, or null if batching is disabled
+     */
+    private List<PathEdge<N,D>> newEdgeBatch() {
+    	return batchSize > 1 ? new ArrayList<PathEdge<N,D>>() : null;
+    }
 	
 	/**
 	 * Lines 13-20 of the algorithm; processing a call site in the caller's context.
@@ -251,6 +319,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 		final D d2 = edge.factAtTarget();
 		assert d2 != null;
 		Collection<N> returnSiteNs = icfg.getReturnSitesOfCallAt(n);
+		final List<PathEdge<N,D>> batch = newEdgeBatch();
 		
 		//for each possible callee
 		Collection<M> callees = icfg.getCalleesOfCallAt(n);
@@ -267,11 +336,13 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 				if (d3 == null)
 					continue;
 				
-				//for each callee's start point(s)
-				for(N sP: startPointsOf) {
-					//create initial self-loop
-					propagate(d3, sP, d3, n, false, true); //line 15
-				}
+				//for each callee's start point(s), unless we already know the
+				//summary of the callee for this fact from somewhere else
+				if (!applyPrecomputedSummary(sCalledProcN, d3))
+					for(N sP: startPointsOf) {
+						//create initial self-loop
+						propagate(d3, sP, d3, n, false, true); //line 15
+					}
 				
 				//register the fact that <sp,d3> has an incoming edge from <n,d2>
 				//line 15.1 of Naeem/Lhotak/Rodriguez
@@ -303,7 +374,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 									d5p = d2;
 								else if (setJumpPredecessors)
 									d5p.setPredecessor(d3);
-								propagate(d1, retSiteN, d5p, n, false, true);
+								propagate(d1, retSiteN, d5p, n, false, true, batch);
 							}
 						}
 					}
@@ -317,9 +388,42 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 				if (memoryManager != null)
 					d3 = memoryManager.handleGeneratedMemoryObject(d2, d3);
 				if (d3 != null)
-					propagate(d1, returnSiteN, d3, n, false);
+					propagate(d1, returnSiteN, d3, n, false, false, batch);
 			}
 		}
+		scheduleEdgeBatch(batch);
+	}
+	
+	/**
+	 * Registers the precomputed summary for the given callee and fact as the
+	 * end summary of the callee if there is one
+	 * @param m The callee
+	 * @param d3 The fact at the start point of the callee
+	 * @return True if a precomputed summary has been applied and the callee
+	 * need not be analyzed for the given fact, otherwise false
+	 */
+	private boolean applyPrecomputedSummary(M m, D d3) {
+		if (d3 == zeroValue)
+			return false;
+		Set<Pair<N, D>> summary = getPrecomputedSummary(m, d3);
+		if (summary == null)
+			return false;
+		for (Pair<N, D> entry : summary)
+			addEndSummary(m, d3, entry.getO1(), entry.getO2());
+		return true;
+	}
+	
+	/**
+	 * Gets the end summary of the given callee for the given fact if it is
+	 * already known before the callee is analyzed, e.g. from a previous run.
+	 * The default implementation does not know any summaries.
+	 * @param m The callee
+	 * @param d3 The fact at the start point of the callee
+	 * @return The exit nodes and facts that the given fact reaches in the
+	 * given callee, or null if the callee must be analyzed as usual
+	 */
+	protected Set<Pair<N, D>> getPrecomputedSummary(M m, D d3) {
+		return null;
 	}
 	
 	/**
@@ -371,6 +475,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 		if (!addEndSummary(methodThatNeedsSummary, d1, n, d2))
 			return;
 		Map<N,Map<D, D>> inc = incoming(d1, methodThatNeedsSummary);
+		final List<PathEdge<N,D>> batch = newEdgeBatch();
 		
 		//for each incoming call edge already processed
 		//(see processCall(..))
@@ -403,11 +508,12 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 								d5p = predVal;
 							else if (setJumpPredecessors)
 								d5p.setPredecessor(d1);
-							propagate(d4, retSiteC, d5p, c, false, true);
+							propagate(d4, retSiteC, d5p, c, false, true, batch);
 						}
 					}
 				}
 			}
+		scheduleEdgeBatch(batch);
 		
 		//handling for unbalanced problems where we return out of a method with a fact for which we have no incoming flow
 		//note: we propagate that way only values that originate from ZERO, as conditionally generated values should only
@@ -461,6 +567,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 		final D d1 = edge.factAtSource();
 		final N n = edge.getTarget(); 
 		final D d2 = edge.factAtTarget();
+		final List<PathEdge<N,D>> batch = newEdgeBatch();
 		
 		for (N m : icfg.getSuccsOf(n)) {
 			FlowFunction<D> flowFunction = flowFunctions.getNormalFlowFunction(n,m);
@@ -468,10 +575,39 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 			for (D d3 : res) {
 				if (memoryManager != null)
 					d3 = memoryManager.handleGeneratedMemoryObject(d2, d3);
-				if (d3 != null)
-					propagate(d1, m, d3, null, false);
+				if (d3 == null)
+					continue;
+				
+				// If the successor cannot change the abstraction, we can move
+				// it directly to the next units that can
+				Collection<N> sparseTargets = getSparseTargets(m, d3);
+				if (sparseTargets == null)
+					propagate(d1, m, d3, null, false, false, batch);
+				else
+					for (N target : sparseTargets)
+						propagate(d1, target, d3, null, false, true, batch);
 			}
 		}
+		scheduleEdgeBatch(batch);
+	}
+	
+	/**
+	 * Gets the units to which the given abstraction can be moved directly
+	 * instead of being processed at the given unit. This is only allowed if
+	 * the normal flow function of the given unit and of all units on the way
+	 * to the returned ones is the identity for the given abstraction. The
+	 * default implementation always processes the abstraction at the given
+	 * unit. Subclasses can override this method to implement a sparse
+	 * propagation.
+	 * @param n The unit at which the abstraction has arrived through a
+	 * normal flow
+	 * @param d The abstraction
+	 * @return The units at which to continue processing the given
+	 * abstraction, or null if the abstraction must be processed at the given
+	 * unit
+	 */
+	protected Collection<N> getSparseTargets(N n, D d) {
+		return null;
 	}
 	
 	/**
@@ -520,6 +656,30 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 			/* deliberately exposed to clients */ N relatedCallSite,
 			/* deliberately exposed to clients */ boolean isUnbalancedReturn,
 			boolean forceRegister) {
+		propagate(sourceVal, target, targetVal, relatedCallSite, isUnbalancedReturn,
+				forceRegister, null);
+	}
+	
+	/**
+	 * Propagates the flow further down the exploded super graph. 
+	 * @param sourceVal the source value of the propagated summary edge
+	 * @param target the target statement
+	 * @param targetVal the target value at the target statement
+	 * @param relatedCallSite for call and return flows the related call statement, <code>null</code> otherwise
+	 *        (this value is not used within this implementation but may be useful for subclasses of {@link IFDSSolver}) 
+	 * @param isUnbalancedReturn <code>true</code> if this edge is propagating an unbalanced return
+	 *        (this value is not used within this implementation but may be useful for subclasses of {@link IFDSSolver})
+	 * @param forceRegister True if the jump function must always be registered with jumpFn .
+	 * 		  This can happen when externally injecting edges that don't come out of this
+	 * 		  solver.
+	 * @param batch The batch to which to add the edge if it is new. If this
+	 * 		  value is null, the edge is scheduled for processing immediately.
+	 */
+	private void propagate(D sourceVal, N target, D targetVal,
+			N relatedCallSite,
+			boolean isUnbalancedReturn,
+			boolean forceRegister,
+			List<PathEdge<N,D>> batch) {
 		// Let the memory manager run
 		if (memoryManager != null) {
 			sourceVal = memoryManager.handleMemoryObject(sourceVal);
@@ -535,7 +695,10 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 			}
 		}
 		else {
-			scheduleEdgeProcessing(edge);
+			if (batch == null)
+				scheduleEdgeProcessing(edge);
+			else
+				batch.add(edge);
 			if(targetVal!=zeroValue)
 				logger.trace("EDGE: <{},{}> -> <{},{}>", icfg.getMethodOf(target), sourceVal, target, targetVal);
 		}
@@ -548,50 +711,162 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 	 * false
 	 */
 	private boolean isMergePoint(N target) {
-		// Check whether there is more than one possibility to reach this unit
-		List<N> preds = icfg.getPredsOf(target);
-		int size = preds.size();
-		if (size > 1)
-			if (!icfg.getEndPointsOf(icfg.getMethodOf(target)).contains(target))
-				return true;
-		
-		// Special case: If this is the first unit in the method, there is an
-		// implicit second way (through method call)
-		if (size == 1) {
-			if (icfg.getStartPointsOf(icfg.getMethodOf(target)).contains(target))
-				if (!icfg.getEndPointsOf(icfg.getMethodOf(target)).contains(target))
-					return true;
-		}
-		
-		return false;
+		return mergePoints.isMergePoint(target);
 	}
 
 	protected Set<Pair<N, D>> endSummary(M m, D d3) {
-		Set<Pair<N, D>> map = endSummary.get(new Pair<M, D>(m, d3));
-		return map;
+		final Pair<M, D> key = new Pair<M, D>(m, d3);
+		if (summaryStore == null)
+			return endSummary.get(key);
+		
+		summaryLock.readLock().lock();
+		try {
+			hotMethods.add(m);
+			reloadEndSummary(key);
+			return endSummary.get(key);
+		}
+		finally {
+			summaryLock.readLock().unlock();
+		}
 	}
 
 	private boolean addEndSummary(M m, D d1, N eP, D d2) {
 		if (d1 == zeroValue)
 			return true;
 		
+		final Pair<M, D> key = new Pair<M, D>(m, d1);
+		if (summaryStore == null)
+			return addEndSummary(key, eP, d2);
+		
+		summaryLock.readLock().lock();
+		try {
+			hotMethods.add(m);
+			reloadEndSummary(key);
+			return addEndSummary(key, eP, d2);
+		}
+		finally {
+			summaryLock.readLock().unlock();
+		}
+	}
+	
+	private boolean addEndSummary(Pair<M, D> key, N eP, D d2) {
 		Set<Pair<N, D>> summaries = endSummary.putIfAbsentElseGet
-				(new Pair<M, D>(m, d1), new ConcurrentHashSet<Pair<N, D>>());
+				(key, new ConcurrentHashSet<Pair<N, D>>());
 		return summaries.add(new Pair<N, D>(eP, d2));
-	}	
+	}
 	
 	protected Map<N, Map<D, D>> incoming(D d1, M m) {
-		Map<N, Map<D, D>> map = incoming.get(new Pair<M, D>(m, d1));
-		return map;
+		final Pair<M, D> key = new Pair<M, D>(m, d1);
+		if (summaryStore == null)
+			return incoming.get(key);
+		
+		summaryLock.readLock().lock();
+		try {
+			hotMethods.add(m);
+			reloadIncoming(key);
+			return incoming.get(key);
+		}
+		finally {
+			summaryLock.readLock().unlock();
+		}
 	}
 	
 	protected boolean addIncoming(M m, D d3, N n, D d1, D d2) {
+		final Pair<M, D> key = new Pair<M, D>(m, d3);
+		if (summaryStore == null)
+			return addIncoming(key, n, d1, d2);
+		
+		summaryLock.readLock().lock();
+		try {
+			hotMethods.add(m);
+			reloadIncoming(key);
+			return addIncoming(key, n, d1, d2);
+		}
+		finally {
+			summaryLock.readLock().unlock();
+		}
+	}
+	
+	private boolean addIncoming(Pair<M, D> key, N n, D d1, D d2) {
 		MyConcurrentHashMap<N, Map<D, D>> summaries = incoming.putIfAbsentElseGet
-				(new Pair<M, D>(m, d3), new MyConcurrentHashMap<N, Map<D, D>>());
+				(key, new MyConcurrentHashMap<N, Map<D, D>>());
 		Map<D, D> set = summaries.putIfAbsentElseGet(n, new ConcurrentHashMap<D, D>());
 		return set.put(d1, d2) == null;
 	}
 	
+	/**
+	 * Moves the end summaries for the given key back from the summary store
+	 * into memory if they have been spilled
+	 * @param key The method and fact for which the summaries were computed
+	 */
+	private void reloadEndSummary(Pair<M, D> key) {
+		if (!summaryStore.hasEndSummary(key))
+			return;
+		List<Pair<N, D>> spilled = summaryStore.reloadEndSummary(key);
+		if (spilled != null)
+			endSummary.putIfAbsentElseGet(key, new ConcurrentHashSet<Pair<N, D>>())
+					.addAll(spilled);
+	}
+	
+	/**
+	 * Moves the incoming edges for the given key back from the summary store
+	 * into memory if they have been spilled
+	 * @param key The callee and the fact at its start point
+	 */
+	private void reloadIncoming(Pair<M, D> key) {
+		if (!summaryStore.hasIncoming(key))
+			return;
+		Map<N, Map<D, D>> spilled = summaryStore.reloadIncoming(key);
+		if (spilled != null) {
+			MyConcurrentHashMap<N, Map<D, D>> summaries = incoming.putIfAbsentElseGet
+					(key, new MyConcurrentHashMap<N, Map<D, D>>());
+			for (Entry<N, Map<D, D>> entry : spilled.entrySet())
+				summaries.putIfAbsentElseGet(entry.getKey(), new ConcurrentHashMap<D, D>())
+						.putAll(entry.getValue());
+		}
+	}
+	
+	/**
+	 * Spills all end summaries and incoming edges of methods that have not
+	 * been accessed since the last eviction to the summary store. If no
+	 * summary store has been set, this method does nothing.
+	 * @return The number of entries that have been evicted
+	 */
+	@Override
+	public int evictColdState() {
+		if (summaryStore == null)
+			return 0;
+		
+		int evicted = 0;
+		summaryLock.writeLock().lock();
+		try {
+			for (Iterator<Entry<Pair<M, D>, Set<Pair<N, D>>>> it = endSummary.entrySet().iterator();
+					it.hasNext(); ) {
+				Entry<Pair<M, D>, Set<Pair<N, D>>> entry = it.next();
+				if (!hotMethods.contains(entry.getKey().getO1())
+						&& summaryStore.spillEndSummary(entry.getKey(), entry.getValue())) {
+					it.remove();
+					evicted++;
+				}
+			}
+			for (Iterator<Entry<Pair<M, D>, MyConcurrentHashMap<N, Map<D, D>>>> it = incoming.entrySet().iterator();
+					it.hasNext(); ) {
+				Entry<Pair<M, D>, MyConcurrentHashMap<N, Map<D, D>>> entry = it.next();
+				if (!hotMethods.contains(entry.getKey().getO1())
+						&& summaryStore.spillIncoming(entry.getKey(), entry.getValue())) {
+					it.remove();
+					evicted++;
+				}
+			}
+			hotMethods.clear();
+		}
+		finally {
+			summaryLock.writeLock().unlock();
+		}
+		logger.debug("Evicted {} summary entries of {}", evicted, getDebugName());
+		return evicted;
+	}
+	
 	/**
 	 * Factory method for this solver's thread-pool executor.
 	 */
@@ -616,25 +891,21 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 		}
 	}
 	
-	private class PathEdgeProcessingTask implements Runnable {
+	private class PathEdgeProcessingTask implements IMethodAffineTask {
 		
 		private final PathEdge<N,D> edge;
 
 		public PathEdgeProcessingTask(PathEdge<N,D> edge) {
 			this.edge = edge;
 		}
+		
+		@Override
+		public Object getAffinityKey() {
+			return icfg.getMethodOf(edge.getTarget());
+		}
 
 		public void run() {
-			if(icfg.isCallStmt(edge.getTarget())) {
-				processCall(edge);
-			} else {
-				//note that some statements, such as "throw" may be
-				//both an exit statement and a "normal" statement
-				if(icfg.isExitStmt(edge.getTarget()))
-					processExit(edge);
-				if(!icfg.getSuccsOf(edge.getTarget()).isEmpty())
-					processNormalFlow(edge);
-			}
+			dispatchEdge(edge);
 		}
 
 		@Override
@@ -664,6 +935,70 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 		
 	}
 	
+	/**
+	 * Task that processes a batch of edges in one go
+	 */
+	private class PathEdgeBatchProcessingTask implements IMethodAffineTask {
+		
+		private final List<PathEdge<N,D>> edges;
+		
+		public PathEdgeBatchProcessingTask(List<PathEdge<N,D>> edges) {
+			this.edges = new ArrayList<PathEdge<N,D>>(edges);
+		}
+		
+		@Override
+		public Object getAffinityKey() {
+			return icfg.getMethodOf(edges.get(0).getTarget());
+		}
+		
+		public void run() {
+			for (PathEdge<N,D> edge : edges)
+				dispatchEdge(edge);
+		}
+		
+	}
+	
+	/**
+	 * Processes the given edge according to the type of its target statement
+	 * @param edge The edge to process
+	 */
+	private void dispatchEdge(PathEdge<N,D> edge) {
+		// Drop the remaining work once the budget is used up, so that the
+		// executor runs dry and the solver returns with partial results
+		if (isBudgetExhausted())
+			return;
+		
+		if(icfg.isCallStmt(edge.getTarget())) {
+			processCall(edge);
+		} else {
+			//note that some statements, such as "throw" may be
+			//both an exit statement and a "normal" statement
+			if(icfg.isExitStmt(edge.getTarget()))
+				processExit(edge);
+			if(!icfg.getSuccsOf(edge.getTarget()).isEmpty())
+				processNormalFlow(edge);
+		}
+	}
+	
+	/**
+	 * Checks whether the time or memory budget of this solver is used up
+	 * @return True if the solver shall stop processing edges, otherwise false
+	 */
+	protected boolean isBudgetExhausted() {
+		return analysisBudget != null && analysisBudget.isExhausted();
+	}
+	
+	/**
+	 * Sets the time and memory budget for this solver. Once the budget is
+	 * used up, the solver stops processing edges and returns with the facts
+	 * it has computed so far.
+	 * @param analysisBudget The budget, or null to let the solver run until
+	 * the fixpoint is reached
+	 */
+	public void setAnalysisBudget(AnalysisBudget analysisBudget) {
+		this.analysisBudget = analysisBudget;
+	}
+	
 	/**
 	 * Sets whether abstractions on method returns shall be connected to the
 	 * respective call abstractions to shortcut paths.
@@ -675,12 +1010,25 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 	}
 	
 	/**
-	 * Sets whether only abstractions at merge points shall be recorded to jumpFn.
+	 * Sets whether only abstractions at merge points and call/return
+	 * boundaries shall be recorded to jumpFn. All other edges are propagated
+	 * without checking whether they have already been seen. This method must
+	 * be called before the solver is started.
 	 * @param enableMergePointChecking True if only abstractions at merge points
 	 * shall be recorded to jumpFn, otherwise false.
+	 * @see MergePointIndex
 	 */
 	public void setEnableMergePointChecking(boolean enableMergePointChecking) {
 		this.enableMergePointChecking = enableMergePointChecking;
+		this.mergePoints = enableMergePointChecking ? new MergePointIndex<N,M>(icfg) : null;
+	}
+	
+	/**
+	 * Gets the number of jump functions this solver has recorded
+	 * @return The number of jump functions this solver has recorded
+	 */
+	public long getJumpFunctionCount() {
+		return jumpFn.size();
 	}
 	
 	/**
@@ -691,5 +1039,47 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D, N>,M,I extends BiDiI
 	public void setMemoryManager(IMemoryManager<D> memoryManager) {
 		this.memoryManager = memoryManager;
 	}
+	
+	/**
+	 * Sets whether this solver shall shut down its executor once the analysis
+	 * is complete. Executors that are shared across analysis runs must not be
+	 * shut down.
+	 * @param shutdownExecutor True if the executor shall be shut down after
+	 * the analysis, false if it shall be kept alive
+	 */
+	public void setShutdownExecutor(boolean shutdownExecutor) {
+		this.shutdownExecutor = shutdownExecutor;
+	}
+	
+	/**
+	 * Sets the table in which this solver shall record its jump functions. This
+	 * method must be called before the solver is started.
+	 * @param jumpFn The jump function table to use
+	 */
+	public void setJumpFunctions(JumpFunctions<N,D> jumpFn) {
+		this.jumpFn = jumpFn;
+	}
+	
+	/**
+	 * Sets the store to which end summaries and incoming edges shall be
+	 * spilled when the solver is asked to evict cold state. This method must
+	 * be called before the solver is started.
+	 * @param summaryStore The store for spilled summaries, or null to keep
+	 * all summaries in memory
+	 */
+	public void setSummarySpillStore(SummarySpillStore<N,D,M> summaryStore) {
+		this.summaryStore = summaryStore;
+	}
+	
+	/**
+	 * Sets the maximum number of edges that shall be processed as one unit of
+	 * work. All new edges produced by a single flow function application are
+	 * registered together and scheduled in chunks of this size.
+	 * @param batchSize The maximum number of edges per task. A value of 1
+	 * disables batching.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
 
 }
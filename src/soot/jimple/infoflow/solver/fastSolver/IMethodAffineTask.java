@@ -0,0 +1,20 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+/**
+ * Common interface for tasks that would like to be executed on the same worker
+ * as other tasks for the same method. Executors that support affinity-based
+ * scheduling such as the {@link WorkStealingExecutor} use the affinity key to
+ * route the task to a worker. Other executors simply ignore it.
+ */
+public interface IMethodAffineTask extends Runnable {
+
+	/**
+	 * Gets the key that decides on which worker this task shall preferably be
+	 * run. Tasks with equal keys are routed to the same worker. Normally, this
+	 * is the method that contains the target statement of the task.
+	 * @return The affinity key of this task, or null if the task may be run on
+	 * any worker
+	 */
+	public Object getAffinityKey();
+
+}
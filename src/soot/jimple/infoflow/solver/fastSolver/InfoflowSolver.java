@@ -16,11 +16,13 @@ import heros.solver.Pair;
 import heros.solver.PathEdge;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
 import soot.SootMethod;
 import soot.Unit;
+import soot.jimple.infoflow.collect.ConcurrentHashSet;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
 import soot.jimple.infoflow.solver.IFollowReturnsPastSeedsHandler;
@@ -39,6 +41,10 @@ public class InfoflowSolver extends IFDSSolver<Unit, Abstraction, SootMethod, Bi
 		implements IInfoflowSolver {
 	
 	private IFollowReturnsPastSeedsHandler followReturnsPastSeedsHandler = null;
+	private PersistentSummaryStore persistentSummaryStore = null;
+	private final Set<Pair<SootMethod, Abstraction>> analyzedContexts =
+			new ConcurrentHashSet<Pair<SootMethod, Abstraction>>();
+	private SparseDefUseIndex sparseIndex = null;
 	
 	public InfoflowSolver(AbstractInfoflowProblem problem, CountingThreadPoolExecutor executor) {
 		super(problem);
@@ -105,11 +111,44 @@ public class InfoflowSolver extends IFDSSolver<Unit, Abstraction, SootMethod, Bi
 			return flowFunction.computeTargets(d2);		
 	}
 	
+	@Override
+	protected Collection<Unit> getSparseTargets(Unit n, Abstraction d) {
+		if (sparseIndex == null)
+			return null;
+		
+		// Inactive abstractions wait for their activation unit, exceptions
+		// for their handler, and the zero abstraction generates new taints
+		// at sources. All of them must be processed at every unit.
+		if (d == zeroValue
+				|| !d.isAbstractionActive()
+				|| d.getExceptionThrown()
+				|| d.getTopPostdominator() != null)
+			return null;
+		return sparseIndex.getSparseTargets(n, d.getAccessPath());
+	}
+	
+	/**
+	 * Sets whether active taints shall only be processed at the statements
+	 * that can change them. All other statements are skipped using a def-use
+	 * index. This is only sound if implicit flows are disabled and the
+	 * aliasing strategy is not interactive. Note that a taint propagation
+	 * handler is not notified about the skipped statements. This method must
+	 * be called before the solver is started.
+	 * @param sparsePropagation True if taints shall be propagated sparsely,
+	 * false if they shall be propagated through every statement
+	 */
+	public void setSparsePropagation(boolean sparsePropagation) {
+		this.sparseIndex = sparsePropagation ? new SparseDefUseIndex(icfg) : null;
+	}
+	
 	@Override
 	public void cleanup() {
 		this.jumpFn.clear();
 		this.incoming.clear();
 		this.endSummary.clear();
+		this.analyzedContexts.clear();
+		if (this.summaryStore != null)
+			this.summaryStore.clear();
 	}
 	
 	@Override
@@ -134,6 +173,54 @@ public class InfoflowSolver extends IFDSSolver<Unit, Abstraction, SootMethod, Bi
 		}
 	}
 	
+	@Override
+	protected Set<Pair<Unit, Abstraction>> getPrecomputedSummary(SootMethod m,
+			Abstraction d3) {
+		if (persistentSummaryStore == null)
+			return null;
+		Set<Pair<Unit, Abstraction>> summary = persistentSummaryStore.getSummary(m, d3);
+		
+		// Only contexts that we have entered through a call site start at the
+		// start points of the callee and can be exported later on
+		if (summary == null)
+			analyzedContexts.add(new Pair<SootMethod, Abstraction>(m, d3));
+		return summary;
+	}
+	
+	/**
+	 * Sets the store from which this solver takes the summaries of library
+	 * methods that have been computed in previous runs
+	 * @param persistentSummaryStore The persistent summary store, or null if
+	 * all methods shall be analyzed
+	 */
+	public void setPersistentSummaryStore(PersistentSummaryStore persistentSummaryStore) {
+		this.persistentSummaryStore = persistentSummaryStore;
+	}
+	
+	/**
+	 * Adds all end summaries computed by this solver to the given persistent
+	 * summary store. Only the contexts that have been analyzed while the
+	 * persistent summary store of this solver was set are exported. This
+	 * method must only be called after the solver has finished and before it
+	 * is cleaned up.
+	 * @param store The store to which to add the summaries
+	 */
+	public void exportSummaries(PersistentSummaryStore store) {
+		// Spilled summaries would look like empty ones
+		if (summaryStore != null) {
+			logger.warn("Cannot export summaries from a solver with a memory budget");
+			return;
+		}
+		
+		// If there is no end summary for an analyzed context, the fact never
+		// leaves the method
+		for (Pair<SootMethod, Abstraction> key : analyzedContexts) {
+			Set<Pair<Unit, Abstraction>> summary = endSummary.get(key);
+			store.addSummary(key.getO1(), key.getO2(), summary == null
+					? Collections.<Pair<Unit, Abstraction>>emptySet() : summary);
+		}
+	}
+	
 	@Override
 	public void setFollowReturnsPastSeedsHandler(IFollowReturnsPastSeedsHandler handler) {
 		this.followReturnsPastSeedsHandler = handler;
@@ -42,6 +42,14 @@ public class JumpFunctions<N,D> {
 		return nonEmptyReverseLookup.putIfAbsent(edge, edge.factAtTarget());
 	}
 	
+	/**
+	 * Gets the number of jump functions in this table
+	 * @return The number of jump functions in this table
+	 */
+	public long size() {
+		return nonEmptyReverseLookup.size();
+	}
+	
 	/**
 	 * Removes all jump functions
 	 */
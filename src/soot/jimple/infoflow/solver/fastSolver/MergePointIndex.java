@@ -0,0 +1,205 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Index that tells the solver at which nodes jump functions need to be
+ * recorded. The merge points of a method are computed once when the method is
+ * first queried and are then stored in a bitset.
+ *
+ * A node is a merge point if
+ * <ul>
+ * <li>it has more than one predecessor and is not an exit node,</li>
+ * <li>it is a start point of its method,</li>
+ * <li>it is a return site, i.e., it is reached from a call, or</li>
+ * <li>it is the target of a back edge in a depth-first traversal of the
+ * method's control flow graph.</li>
+ * </ul>
+ * The last condition makes sure that every cycle in the control flow graph
+ * contains at least one merge point, even if the cycle can only be entered
+ * through a node that is an exit node. This is required for the solver to
+ * terminate.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph
+ * @param <M> The type of objects used to represent methods
+ */
+public class MergePointIndex<N,M> {
+
+	private final BiDiInterproceduralCFG<N, M> icfg;
+	private final ConcurrentHashMap<M, MethodMergePoints<N>> methodMergePoints =
+			new ConcurrentHashMap<M, MethodMergePoints<N>>();
+
+	/**
+	 * The merge points of a single method. Instances are immutable once they
+	 * have been constructed.
+	 */
+	private static class MethodMergePoints<N> {
+
+		private final Map<N, Integer> nodeIndices;
+		private final BitSet mergePoints;
+
+		public MethodMergePoints(Map<N, Integer> nodeIndices, BitSet mergePoints) {
+			this.nodeIndices = nodeIndices;
+			this.mergePoints = mergePoints;
+		}
+
+		/**
+		 * Checks whether the given node is a merge point
+		 * @param n The node to check
+		 * @return 1 if the given node is a merge point, 0 if it is not, and -1
+		 * if the node is not part of the method
+		 */
+		public int isMergePoint(N n) {
+			Integer idx = nodeIndices.get(n);
+			if (idx == null)
+				return -1;
+			return mergePoints.get(idx) ? 1 : 0;
+		}
+
+	}
+
+	/**
+	 * Creates a new merge point index for the given interprocedural control
+	 * flow graph
+	 * @param icfg The interprocedural control flow graph
+	 */
+	public MergePointIndex(BiDiInterproceduralCFG<N, M> icfg) {
+		this.icfg = icfg;
+	}
+
+	/**
+	 * Gets whether the given node is a merge point in the ICFG
+	 * @param n The node to check
+	 * @return True if the given node is a merge point, otherwise false. Nodes
+	 * that are not part of a known method are conservatively treated as merge
+	 * points.
+	 */
+	public boolean isMergePoint(N n) {
+		M m = icfg.getMethodOf(n);
+		if (m == null)
+			return true;
+
+		MethodMergePoints<N> mergePoints = methodMergePoints.get(m);
+		if (mergePoints == null) {
+			mergePoints = computeMergePoints(m);
+			MethodMergePoints<N> oldPoints = methodMergePoints.putIfAbsent(m, mergePoints);
+			if (oldPoints != null)
+				mergePoints = oldPoints;
+		}
+		return mergePoints.isMergePoint(n) != 0;
+	}
+
+	/**
+	 * Computes the merge points of the given method
+	 * @param m The method for which to compute the merge points
+	 * @return The merge points of the given method
+	 */
+	private MethodMergePoints<N> computeMergePoints(M m) {
+		// Number the nodes in the method
+		Map<N, Integer> nodeIndices = new IdentityHashMap<N, Integer>();
+		List<N> nodes = new ArrayList<N>();
+		for (N n : icfg.getOrCreateUnitGraph(m))
+			if (!nodeIndices.containsKey(n)) {
+				nodeIndices.put(n, nodes.size());
+				nodes.add(n);
+			}
+
+		Set<N> startPoints = toIdentitySet(icfg.getStartPointsOf(m));
+		Set<N> endPoints = toIdentitySet(icfg.getEndPointsOf(m));
+		BitSet mergePoints = new BitSet(nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			N n = nodes.get(i);
+			if (startPoints.contains(n)
+					|| icfg.isReturnSite(n)
+					|| (icfg.getPredsOf(n).size() > 1 && !endPoints.contains(n)))
+				mergePoints.set(i);
+		}
+
+		// Make sure that every cycle contains a merge point. We start the
+		// traversal at the start points and then pick up all nodes that are
+		// not reachable from there.
+		int[] state = new int[nodes.size()];
+		for (N sp : startPoints) {
+			Integer idx = nodeIndices.get(sp);
+			if (idx != null)
+				markBackEdgeTargets(idx, nodes, nodeIndices, state, mergePoints);
+		}
+		for (int i = 0; i < nodes.size(); i++)
+			markBackEdgeTargets(i, nodes, nodeIndices, state, mergePoints);
+
+		return new MethodMergePoints<N>(nodeIndices, mergePoints);
+	}
+
+	/**
+	 * Performs a depth-first traversal from the given node and marks the
+	 * targets of all back edges as merge points. The traversal uses an
+	 * explicit stack, so that large methods cannot overflow the Java stack.
+	 * @param root The index of the node at which to start the traversal
+	 * @param nodes The nodes of the method
+	 * @param nodeIndices The indices of the nodes of the method
+	 * @param state The traversal state of each node: 0 if the node has not
+	 * been visited yet, 1 if it is on the stack, and 2 if it is done
+	 * @param mergePoints The bitset in which to mark the merge points
+	 */
+	private void markBackEdgeTargets(int root, List<N> nodes,
+			Map<N, Integer> nodeIndices, int[] state, BitSet mergePoints) {
+		if (state[root] != 0)
+			return;
+
+		int[] stackNode = new int[nodes.size()];
+		int[] stackEdge = new int[nodes.size()];
+		List<List<N>> stackSuccs = new ArrayList<List<N>>();
+		int top = 0;
+		state[root] = 1;
+		stackNode[top] = root;
+		stackEdge[top] = 0;
+		stackSuccs.add(icfg.getSuccsOf(nodes.get(root)));
+		top++;
+
+		while (top > 0) {
+			List<N> succs = stackSuccs.get(top - 1);
+			if (stackEdge[top - 1] >= succs.size()) {
+				state[stackNode[top - 1]] = 2;
+				stackSuccs.remove(--top);
+				continue;
+			}
+
+			Integer succIdx = nodeIndices.get(succs.get(stackEdge[top - 1]++));
+			if (succIdx == null)
+				continue;
+			if (state[succIdx] == 1)
+				mergePoints.set(succIdx);
+			else if (state[succIdx] == 0) {
+				state[succIdx] = 1;
+				stackNode[top] = succIdx;
+				stackEdge[top] = 0;
+				stackSuccs.add(icfg.getSuccsOf(nodes.get(succIdx)));
+				top++;
+			}
+		}
+	}
+
+	/**
+	 * Copies the given nodes into a set based on object identity
+	 * @param nodes The nodes to copy
+	 * @return The set containing the given nodes
+	 */
+	private Set<N> toIdentitySet(Collection<N> nodes) {
+		if (nodes == null || nodes.isEmpty())
+			return Collections.emptySet();
+		Set<N> nodeSet = Collections.newSetFromMap(new IdentityHashMap<N, Boolean>());
+		nodeSet.addAll(nodes);
+		return nodeSet;
+	}
+
+}
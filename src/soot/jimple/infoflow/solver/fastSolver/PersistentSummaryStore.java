@@ -0,0 +1,755 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.solver.Pair;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Body;
+import soot.Local;
+import soot.Scene;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.ArrayRef;
+import soot.jimple.DefinitionStmt;
+import soot.jimple.DynamicInvokeExpr;
+import soot.jimple.FieldRef;
+import soot.jimple.InvokeExpr;
+import soot.jimple.SpecialInvokeExpr;
+import soot.jimple.StaticFieldRef;
+import soot.jimple.StaticInvokeExpr;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.InfoflowConfiguration;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPath.ArrayTaintType;
+import soot.jimple.infoflow.data.AccessPathFactory;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
+import soot.jimple.infoflow.util.SystemClassHandler;
+
+/**
+ * On-disk store for the end summaries of library methods that survives
+ * across data flow analyses. After a run, the end summaries of library
+ * methods are exported into the store. Later runs with the same analysis
+ * configuration use them as precomputed summaries instead of propagating the
+ * taints through the respective library methods again.
+ *
+ * The store file is named after a SHA-256 digest of all settings that
+ * influence the results, including the rules of the taint wrapper and the
+ * sources and sinks. The full description of these settings is also kept
+ * inside the file and is compared when the file is loaded. If the taint
+ * wrapper or the source and sink manager cannot describe their rules through
+ * {@link Object#toString()}, the store is disabled.
+ *
+ * A precomputed summary replaces the propagation inside the library method.
+ * Everything that the analysis would have done there apart from computing
+ * the exits is skipped, in particular alias queries, taint wrapper calls and
+ * the native call handler. A method is therefore only eligible if it and all
+ * methods it transitively calls
+ * <ul>
+ * <li>are in system packages and contain neither sources nor sinks,</li>
+ * <li>only contain calls whose targets cannot change with the application,
+ * i.e., static and special invocations as well as virtual invocations of
+ * final methods,</li>
+ * <li>do not write to instance fields or array elements, since such writes
+ * start alias queries,</li>
+ * <li>do not access static fields, and</li>
+ * <li>do not call native methods or methods that the taint wrapper
+ * supports.</li>
+ * </ul>
+ * The summaries are keyed by the method signature and a hash over the bodies
+ * of all these methods, so that summaries of bodies that have been modified
+ * (e.g., by constant propagation) are not reused. Only summaries that can be
+ * expressed through plain access paths on locals and static fields are
+ * stored. Summaries involving implicit flows, exceptions, or inactive
+ * aliases are recomputed in every run. The return flow into the caller is
+ * computed as usual, so that aliases in the caller are still found. Summaries
+ * are only applied at call sites, i.e., the callee always has an incoming
+ * edge and the handling of returns past the seeds is not affected.
+ *
+ * The store must not be used with aliasing strategies that require an alias
+ * analysis when returning from a callee, or with implicit flows. The caller
+ * is responsible for checking these conditions.
+ */
+public class PersistentSummaryStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersistentSummaryStore.class);
+
+	private static final int MAGIC = 0x46445355;
+	private static final int VERSION = 2;
+
+	private static final char SEPARATOR = '|';
+
+	/**
+	 * A single exit of a summary: the fact that leaves the method at the given
+	 * exit statement
+	 */
+	private static class ExitSummary {
+
+		private final int unitIndex;
+		private final String accessPath;
+
+		public ExitSummary(int unitIndex, String accessPath) {
+			this.unitIndex = unitIndex;
+			this.accessPath = accessPath;
+		}
+
+	}
+
+	/**
+	 * The data we need for mapping between a method and its stored summaries
+	 */
+	private static class MethodInfo {
+
+		private final String key;
+		private final Unit[] units;
+		private final Map<String, Local> locals;
+
+		private MethodInfo() {
+			this.key = null;
+			this.units = null;
+			this.locals = null;
+		}
+
+		public MethodInfo(String key, Body body) {
+			this.key = key;
+			this.units = body.getUnits().toArray(new Unit[body.getUnits().size()]);
+			this.locals = new HashMap<String, Local>();
+			for (Local l : body.getLocals())
+				locals.put(l.getName(), l);
+		}
+
+		public int indexOf(Unit u) {
+			for (int i = 0; i < units.length; i++)
+				if (units[i] == u)
+					return i;
+			return -1;
+		}
+
+	}
+
+	/**
+	 * Marker for methods that are not eligible for persistent summaries
+	 */
+	private static final MethodInfo NOT_ELIGIBLE = new MethodInfo();
+
+	private final File file;
+	private final String configKey;
+	private final IInfoflowCFG icfg;
+	private final ISourceSinkManager sourceSinkManager;
+	private final ITaintPropagationWrapper taintWrapper;
+
+	// Method key -> access path at the start point -> exits
+	private final Map<String, Map<String, List<ExitSummary>>> summaries =
+			new HashMap<String, Map<String, List<ExitSummary>>>();
+
+	private final ConcurrentMap<SootMethod, MethodInfo> methodInfos =
+			new ConcurrentHashMap<SootMethod, MethodInfo>();
+	private final ConcurrentMap<Pair<SootMethod, Abstraction>, Set<Pair<Unit, Abstraction>>> instantiated =
+			new ConcurrentHashMap<Pair<SootMethod, Abstraction>, Set<Pair<Unit, Abstraction>>>();
+
+	private final AtomicInteger appliedSummaries = new AtomicInteger();
+	private int loadedSummaries = 0;
+	private int exportedSummaries = 0;
+
+	/**
+	 * Creates a new persistent summary store and loads the summaries that
+	 * have been stored for the given configuration. If the configuration
+	 * cannot be described completely, the store is disabled.
+	 * @param directory The directory in which to keep the summaries
+	 * @param config The configuration of the current data flow analysis
+	 * @param taintWrapper The taint wrapper used by the current data flow
+	 * analysis, or null if no taint wrapper is used
+	 * @param icfg The interprocedural control flow graph
+	 * @param sourceSinkManager The manager for identifying sources and sinks
+	 */
+	public PersistentSummaryStore(File directory, InfoflowConfiguration config,
+			ITaintPropagationWrapper taintWrapper, IInfoflowCFG icfg,
+			ISourceSinkManager sourceSinkManager) {
+		this.configKey = getConfigurationKey(config, taintWrapper, sourceSinkManager);
+		this.file = configKey == null ? null
+				: new File(directory, "summaries-" + digest(configKey) + ".bin");
+		this.icfg = icfg;
+		this.sourceSinkManager = sourceSinkManager;
+		this.taintWrapper = taintWrapper;
+
+		if (configKey == null)
+			logger.warn("Library summaries are disabled, the taint wrapper or the "
+					+ "source and sink manager cannot describe their configuration");
+		else if (file.exists()) {
+			try {
+				load();
+			}
+			catch (IOException ex) {
+				logger.warn("Could not load library summaries from " + file, ex);
+				summaries.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets whether this store can be used in the current analysis
+	 * @return True if this store can be used, false if the configuration of
+	 * the current analysis could not be described
+	 */
+	public boolean isEnabled() {
+		return configKey != null;
+	}
+
+	/**
+	 * Builds a string that contains all configuration options which influence
+	 * the summaries of library methods
+	 * @param config The configuration of the current data flow analysis
+	 * @param taintWrapper The taint wrapper used by the current data flow
+	 * analysis, or null if no taint wrapper is used
+	 * @param sourceSinkManager The manager for identifying sources and sinks
+	 * @return The configuration key, or null if one of the components cannot
+	 * describe its configuration
+	 */
+	private static String getConfigurationKey(InfoflowConfiguration config,
+			ITaintPropagationWrapper taintWrapper, ISourceSinkManager sourceSinkManager) {
+		String wrapperDescription = describe(taintWrapper);
+		String sourceSinkDescription = describe(sourceSinkManager);
+		if (wrapperDescription == null || sourceSinkDescription == null)
+			return null;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("v").append(VERSION);
+		sb.append(";apl=").append(InfoflowConfiguration.getAccessPathLength());
+		sb.append(";recursiveAPs=").append(InfoflowConfiguration.getUseRecursiveAccessPaths());
+		sb.append(";thisChainReduction=").append(InfoflowConfiguration.getUseThisChainReduction());
+		sb.append(";typeTightening=").append(InfoflowConfiguration.getUseTypeTightening());
+		sb.append(";pathAgnostic=").append(InfoflowConfiguration.getPathAgnosticResults());
+		sb.append(";oneResultPerAP=").append(InfoflowConfiguration.getOneResultPerAccessPath());
+		sb.append(";mergeNeighbors=").append(InfoflowConfiguration.getMergeNeighbors());
+		sb.append(";stopAfterFirstFlow=").append(config.getStopAfterFirstFlow());
+		sb.append(";inspectSources=").append(config.getInspectSources());
+		sb.append(";inspectSinks=").append(config.getInspectSinks());
+		sb.append(";callgraph=").append(config.getCallgraphAlgorithm());
+		sb.append(";codeElimination=").append(config.getCodeEliminationMode());
+		sb.append(";staticFields=").append(config.getEnableStaticFieldTracking());
+		sb.append(";exceptions=").append(config.getEnableExceptionTracking());
+		sb.append(";implicitFlows=").append(config.getEnableImplicitFlows());
+		sb.append(";arraySize=").append(config.getEnableArraySizeTainting());
+		sb.append(";aliasing=").append(config.getAliasingAlgorithm());
+		sb.append(";flowSensitiveAliasing=").append(config.getFlowSensitiveAliasing());
+		sb.append(";typeChecking=").append(config.getEnableTypeChecking());
+		sb.append(";ignoreSystemFlows=").append(config.getIgnoreFlowsInSystemPackages());
+		sb.append(";taintWrapper=").append(wrapperDescription);
+		sb.append(";sourcesSinks=").append(sourceSinkDescription);
+		return sb.toString();
+	}
+
+	/**
+	 * Gets a description of the given analysis component that only depends
+	 * on its configuration
+	 * @param component The component to describe
+	 * @return The description of the given component, or null if the
+	 * component does not override {@link Object#toString()}
+	 */
+	private static String describe(Object component) {
+		if (component == null)
+			return "none";
+		try {
+			if (component.getClass().getMethod("toString").getDeclaringClass() == Object.class)
+				return null;
+		}
+		catch (NoSuchMethodException ex) {
+			return null;
+		}
+		return component.getClass().getName() + "[" + component.toString() + "]";
+	}
+
+	/**
+	 * Computes the SHA-256 digest of the given string
+	 * @param str The string for which to compute the digest
+	 * @return The digest as a hexadecimal string
+	 */
+	private static String digest(String str) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(
+					str.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(hash.length * 2);
+			for (byte b : hash)
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+						.append(Character.forDigit(b & 0xf, 16));
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException ex) {
+			// Every Java platform must support SHA-256
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/**
+	 * Writes a string of arbitrary length to the given stream
+	 * @param out The stream to write to
+	 * @param str The string to write
+	 * @throws IOException Thrown if the string could not be written
+	 */
+	private static void writeLongString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string that has been written with writeLongString()
+	 * @param in The stream to read from
+	 * @return The string
+	 * @throws IOException Thrown if the string could not be read
+	 */
+	private static String readLongString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			throw new IOException("Invalid string length " + length);
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Loads the summaries from the store file
+	 * @throws IOException Thrown if the file could not be read
+	 */
+	private void load() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION
+					|| !readLongString(in).equals(configKey)) {
+				logger.warn("Ignoring incompatible library summaries in {}", file);
+				return;
+			}
+			int methodCount = in.readInt();
+			for (int i = 0; i < methodCount; i++) {
+				String methodKey = in.readUTF();
+				int entryCount = in.readInt();
+				Map<String, List<ExitSummary>> entries =
+						new HashMap<String, List<ExitSummary>>(entryCount);
+				for (int j = 0; j < entryCount; j++) {
+					String entryAP = in.readUTF();
+					int exitCount = in.readInt();
+					List<ExitSummary> exits = new ArrayList<ExitSummary>(exitCount);
+					for (int k = 0; k < exitCount; k++)
+						exits.add(new ExitSummary(in.readInt(), in.readUTF()));
+					entries.put(entryAP, exits);
+				}
+				summaries.put(methodKey, entries);
+				loadedSummaries += entryCount;
+			}
+		}
+		finally {
+			in.close();
+		}
+		logger.info("Loaded {} summaries for {} library methods from {}",
+				loadedSummaries, summaries.size(), file);
+	}
+
+	/**
+	 * Writes all summaries to the store file. The data is first written to a
+	 * temporary file which then replaces the store file, so that concurrent
+	 * readers never see a partially written store.
+	 * @throws IOException Thrown if the file could not be written
+	 */
+	public void save() throws IOException {
+		if (!isEnabled())
+			return;
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.exists() && !dir.mkdirs())
+			throw new IOException("Could not create summary directory " + dir);
+
+		File tempFile = File.createTempFile("summaries", ".tmp", dir);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeLongString(out, configKey);
+			out.writeInt(summaries.size());
+			for (Map.Entry<String, Map<String, List<ExitSummary>>> method : summaries.entrySet()) {
+				out.writeUTF(method.getKey());
+				out.writeInt(method.getValue().size());
+				for (Map.Entry<String, List<ExitSummary>> entry : method.getValue().entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeInt(entry.getValue().size());
+					for (ExitSummary exit : entry.getValue()) {
+						out.writeInt(exit.unitIndex);
+						out.writeUTF(exit.accessPath);
+					}
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+
+		if (!tempFile.renameTo(file)) {
+			// Some platforms cannot rename onto an existing file
+			file.delete();
+			if (!tempFile.renameTo(file)) {
+				tempFile.delete();
+				throw new IOException("Could not replace summary file " + file);
+			}
+		}
+		logger.info("Stored {} new summaries for library methods in {}",
+				exportedSummaries, file);
+	}
+
+	/**
+	 * Gets the stored summary for the given callee and fact. This method is
+	 * thread-safe and is called by the solver during the taint propagation.
+	 * @param m The callee
+	 * @param d3 The fact at the start point of the callee
+	 * @return The exit statements and facts that the given fact reaches in
+	 * the given callee, or null if there is no stored summary
+	 */
+	public Set<Pair<Unit, Abstraction>> getSummary(SootMethod m, Abstraction d3) {
+		if (!isEnabled() || summaries.isEmpty() || !isRepresentable(d3))
+			return null;
+
+		Pair<SootMethod, Abstraction> cacheKey = new Pair<SootMethod, Abstraction>(m, d3);
+		Set<Pair<Unit, Abstraction>> summary = instantiated.get(cacheKey);
+		if (summary != null)
+			return summary;
+
+		MethodInfo info = getMethodInfo(m);
+		if (info == NOT_ELIGIBLE)
+			return null;
+		Map<String, List<ExitSummary>> entries = summaries.get(info.key);
+		if (entries == null)
+			return null;
+		List<ExitSummary> exits = entries.get(encodeAccessPath(d3.getAccessPath()));
+		if (exits == null)
+			return null;
+
+		summary = new HashSet<Pair<Unit, Abstraction>>(exits.size());
+		for (ExitSummary exit : exits) {
+			if (exit.unitIndex < 0 || exit.unitIndex >= info.units.length)
+				return null;
+			Unit exitUnit = info.units[exit.unitIndex];
+			AccessPath ap = decodeAccessPath(exit.accessPath, info);
+			if (ap == null)
+				return null;
+			Abstraction d4 = d3.deriveNewAbstraction(ap, (Stmt) exitUnit);
+			if (d4 == null)
+				return null;
+			summary.add(new Pair<Unit, Abstraction>(exitUnit, d4));
+		}
+
+		Set<Pair<Unit, Abstraction>> oldSummary = instantiated.putIfAbsent(cacheKey, summary);
+		if (oldSummary != null)
+			return oldSummary;
+		appliedSummaries.incrementAndGet();
+		return summary;
+	}
+
+	/**
+	 * Adds the end summary that the current run has computed for the given
+	 * method and fact to this store. This method must only be called once the
+	 * solver has finished.
+	 * @param m The method
+	 * @param d1 The fact at the start point of the method
+	 * @param endSummary The exit statements and facts that the given fact
+	 * reaches in the given method. An empty set denotes that the fact does
+	 * not leave the method.
+	 */
+	public void addSummary(SootMethod m, Abstraction d1,
+			Set<Pair<Unit, Abstraction>> endSummary) {
+		if (!isEnabled()
+				|| !isRepresentable(d1)
+				|| !SystemClassHandler.isClassInSystemPackage(m.getDeclaringClass().getName()))
+			return;
+		MethodInfo info = getMethodInfo(m);
+		if (info == NOT_ELIGIBLE)
+			return;
+
+		// Summaries that we cannot store completely are not stored at all
+		List<ExitSummary> exits = new ArrayList<ExitSummary>(endSummary.size());
+		for (Pair<Unit, Abstraction> exit : endSummary) {
+			if (!isRepresentable(exit.getO2()))
+				return;
+			int unitIndex = info.indexOf(exit.getO1());
+			if (unitIndex < 0)
+				return;
+			exits.add(new ExitSummary(unitIndex, encodeAccessPath(exit.getO2().getAccessPath())));
+		}
+
+		Map<String, List<ExitSummary>> entries = summaries.get(info.key);
+		if (entries == null) {
+			entries = new HashMap<String, List<ExitSummary>>();
+			summaries.put(info.key, entries);
+		}
+		if (entries.put(encodeAccessPath(d1.getAccessPath()), exits) == null)
+			exportedSummaries++;
+	}
+
+	/**
+	 * Gets the number of stored summaries that have been applied in the
+	 * current run
+	 * @return The number of applied summaries
+	 */
+	public int getAppliedSummaryCount() {
+		return appliedSummaries.get();
+	}
+
+	/**
+	 * Gets the number of summaries that have been added to this store in the
+	 * current run
+	 * @return The number of new summaries
+	 */
+	public int getExportedSummaryCount() {
+		return exportedSummaries;
+	}
+
+	/**
+	 * Checks whether the given abstraction can be stored in and restored from
+	 * the persistent store without losing information
+	 * @param abs The abstraction to check
+	 * @return True if the given abstraction can be stored, otherwise false
+	 */
+	private static boolean isRepresentable(Abstraction abs) {
+		if (abs == null
+				|| !abs.isAbstractionActive()
+				|| abs.isImplicit()
+				|| abs.getExceptionThrown()
+				|| abs.getTopPostdominator() != null
+				|| abs.dependsOnCutAP())
+			return false;
+		AccessPath ap = abs.getAccessPath();
+		return ap != null && !ap.isEmpty() && !ap.isCutOffApproximation();
+	}
+
+	/**
+	 * Gets the information for mapping between the given method and its
+	 * stored summaries
+	 * @param m The method
+	 * @return The information for the given method, or NOT_ELIGIBLE if no
+	 * summaries may be stored for the given method
+	 */
+	private MethodInfo getMethodInfo(SootMethod m) {
+		MethodInfo info = methodInfos.get(m);
+		if (info == null) {
+			String key = computeMethodKey(m);
+			info = key == null ? NOT_ELIGIBLE : new MethodInfo(key, m.getActiveBody());
+			MethodInfo oldInfo = methodInfos.putIfAbsent(m, info);
+			if (oldInfo != null)
+				info = oldInfo;
+		}
+		return info;
+	}
+
+	/**
+	 * Computes the key under which the summaries of the given method are
+	 * stored. The key consists of the method signature and a hash over the
+	 * bodies of all methods that are transitively called by the given method.
+	 * See the class documentation for the conditions under which a method is
+	 * eligible.
+	 * @param m The method
+	 * @return The key for the given method, or null if the method is not
+	 * eligible for persistent summaries
+	 */
+	private String computeMethodKey(SootMethod m) {
+		if (!m.hasActiveBody())
+			return null;
+
+		Set<SootMethod> doneSet = new HashSet<SootMethod>();
+		Deque<SootMethod> workList = new ArrayDeque<SootMethod>();
+		doneSet.add(m);
+		workList.add(m);
+		long hash = 0;
+		while (!workList.isEmpty()) {
+			SootMethod sm = workList.poll();
+			if (!SystemClassHandler.isClassInSystemPackage(sm.getDeclaringClass().getName()))
+				return null;
+
+			// The sum does not depend on the order in which we visit the methods
+			hash += mix(getBodyHash(sm));
+			if (!sm.hasActiveBody())
+				continue;
+
+			for (Unit u : sm.getActiveBody().getUnits()) {
+				Stmt s = (Stmt) u;
+				if (sourceSinkManager != null
+						&& (sourceSinkManager.getSourceInfo(s, icfg) != null
+								|| sourceSinkManager.isSink(s, icfg, null)))
+					return null;
+				if (hasSideEffects(s))
+					return null;
+				if (s.containsInvokeExpr()) {
+					if (!hasFixedTarget(s.getInvokeExpr()))
+						return null;
+					if (taintWrapper != null && taintWrapper.supportsCallee(s))
+						return null;
+					for (SootMethod callee : icfg.getCalleesOfCallAt(s)) {
+						if (callee.isNative())
+							return null;
+						if (doneSet.add(callee))
+							workList.add(callee);
+					}
+				}
+			}
+		}
+		return m.getSignature() + "#" + Long.toHexString(hash);
+	}
+
+	/**
+	 * Checks whether the given statement has effects that a precomputed
+	 * summary does not reproduce, i.e., whether it writes to the heap or
+	 * accesses a static field
+	 * @param s The statement to check
+	 * @return True if the given statement has effects beyond the taints on
+	 * its locals, otherwise false
+	 */
+	private static boolean hasSideEffects(Stmt s) {
+		if (s instanceof DefinitionStmt) {
+			Value leftOp = ((DefinitionStmt) s).getLeftOp();
+			if (leftOp instanceof FieldRef || leftOp instanceof ArrayRef)
+				return true;
+		}
+		return s.containsFieldRef() && s.getFieldRef() instanceof StaticFieldRef;
+	}
+
+	/**
+	 * Checks whether the target of the given invocation is the same in every
+	 * application
+	 * @param ie The invocation to check
+	 * @return True if the target of the invocation cannot be changed by
+	 * application code, otherwise false
+	 */
+	private static boolean hasFixedTarget(InvokeExpr ie) {
+		if (ie instanceof StaticInvokeExpr || ie instanceof SpecialInvokeExpr)
+			return true;
+		if (ie instanceof DynamicInvokeExpr)
+			return false;
+		SootMethod target = ie.getMethod();
+		return target.isFinal() || target.getDeclaringClass().isFinal();
+	}
+
+	/**
+	 * Computes a hash over the signature, the locals and the statements of the
+	 * given method
+	 * @param m The method
+	 * @return The hash of the given method
+	 */
+	private static long getBodyHash(SootMethod m) {
+		long hash = hash(0xcbf29ce484222325L, m.getSignature());
+		if (m.hasActiveBody()) {
+			Body body = m.getActiveBody();
+			for (Local l : body.getLocals())
+				hash = hash(hash, l.getName() + ":" + l.getType());
+			for (Unit u : body.getUnits())
+				hash = hash(hash, u.toString());
+		}
+		return hash;
+	}
+
+	/**
+	 * Adds the given string to the given FNV-1a hash
+	 * @param hash The hash so far
+	 * @param str The string to add
+	 * @return The new hash
+	 */
+	private static long hash(long hash, String str) {
+		for (int i = 0; i < str.length(); i++) {
+			hash ^= str.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		// Separate consecutive strings
+		hash ^= 0xff;
+		hash *= 0x100000001b3L;
+		return hash;
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Encodes the given access path as a string that does not depend on the
+	 * current Soot instance
+	 * @param ap The access path to encode
+	 * @return The string representation of the given access path
+	 */
+	private static String encodeAccessPath(AccessPath ap) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(ap.getTaintSubFields() ? 'T' : 'F');
+		sb.append(SEPARATOR).append(ap.getArrayTaintType().name());
+		sb.append(SEPARATOR);
+		if (!ap.isStaticFieldRef())
+			sb.append(ap.getPlainValue().getName());
+		SootField[] fields = ap.getFields();
+		if (fields != null)
+			for (SootField f : fields)
+				sb.append(SEPARATOR).append(f.getSignature());
+		return sb.toString();
+	}
+
+	/**
+	 * Restores an access path from the given string representation
+	 * @param encoded The string representation of the access path
+	 * @param info The method in which the access path is used
+	 * @return The access path, or null if it could not be restored
+	 */
+	private static AccessPath decodeAccessPath(String encoded, MethodInfo info) {
+		String[] parts = encoded.split("\\" + SEPARATOR, -1);
+		if (parts.length < 3)
+			return null;
+
+		boolean taintSubFields = parts[0].equals("T");
+		ArrayTaintType arrayTaintType = ArrayTaintType.valueOf(parts[1]);
+		Local base = null;
+		if (!parts[2].isEmpty()) {
+			base = info.locals.get(parts[2]);
+			if (base == null)
+				return null;
+		}
+
+		SootField[] fields = null;
+		if (parts.length > 3) {
+			fields = new SootField[parts.length - 3];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = Scene.v().grabField(parts[i + 3]);
+				if (fields[i] == null)
+					return null;
+			}
+		}
+		if (base == null && fields == null)
+			return null;
+
+		return AccessPathFactory.v().createAccessPath(base, fields, null, null,
+				taintSubFields, false, true, arrayTaintType);
+	}
+
+}
@@ -0,0 +1,314 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import soot.Local;
+import soot.RefLikeType;
+import soot.SootMethod;
+import soot.Unit;
+import soot.ValueBox;
+import soot.jimple.AssignStmt;
+import soot.jimple.InstanceFieldRef;
+import soot.jimple.StaticFieldRef;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Def-use index for a sparse taint propagation. For a given access path base,
+ * the index tells which statements can change a taint on that base. All other
+ * statements have an identity flow function for such taints and can be
+ * skipped. The index is built lazily for each method when it is first
+ * queried, and the jump targets are computed lazily for each base.
+ *
+ * A statement is relevant for a taint if
+ * <ul>
+ * <li>it is a call or exit statement,</li>
+ * <li>it reads or writes the base local or static field of the taint, or</li>
+ * <li>the taint has fields and the statement overwrites a local of reference
+ * type or writes an instance field, since this may kill the taint through a
+ * must-alias.</li>
+ * </ul>
+ * This only holds for active taints in an analysis without implicit flows
+ * and without an interactive aliasing strategy. The caller is responsible
+ * for checking these conditions.
+ */
+public class SparseDefUseIndex {
+
+	private final BiDiInterproceduralCFG<Unit, SootMethod> icfg;
+	private final ConcurrentHashMap<SootMethod, MethodIndex> methodIndices =
+			new ConcurrentHashMap<SootMethod, MethodIndex>();
+
+	/**
+	 * The base of an access path, i.e., a local or the first field of a
+	 * static field reference
+	 */
+	private static class BaseKey {
+
+		private final Object base;
+		private final boolean hasFields;
+
+		public BaseKey(Object base, boolean hasFields) {
+			this.base = base;
+			this.hasFields = hasFields;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(base) + (hasFields ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof BaseKey))
+				return false;
+			BaseKey other = (BaseKey) obj;
+			return base == other.base && hasFields == other.hasFields;
+		}
+
+	}
+
+	/**
+	 * The relevant statements for a single base inside a method together with
+	 * the lazily computed jump targets
+	 */
+	private static class BaseTargets {
+
+		private final BitSet relevant;
+		private final AtomicReferenceArray<List<Unit>> targets;
+
+		public BaseTargets(BitSet relevant, int unitCount) {
+			this.relevant = relevant;
+			this.targets = new AtomicReferenceArray<List<Unit>>(unitCount);
+		}
+
+	}
+
+	/**
+	 * The def-use information of a single method. The structure is immutable
+	 * except for the cache of jump targets, which is thread-safe.
+	 */
+	private static class MethodIndex {
+
+		private final Map<Unit, Integer> unitIndices;
+		private final Unit[] units;
+		private final int[][] successors;
+		private final BitSet alwaysRelevant;
+		private final BitSet killsFieldTaints;
+		private final Map<Object, BitSet> accesses;
+		private final ConcurrentHashMap<BaseKey, BaseTargets> baseTargets =
+				new ConcurrentHashMap<BaseKey, BaseTargets>();
+
+		public MethodIndex(Map<Unit, Integer> unitIndices, Unit[] units,
+				int[][] successors, BitSet alwaysRelevant, BitSet killsFieldTaints,
+				Map<Object, BitSet> accesses) {
+			this.unitIndices = unitIndices;
+			this.units = units;
+			this.successors = successors;
+			this.alwaysRelevant = alwaysRelevant;
+			this.killsFieldTaints = killsFieldTaints;
+			this.accesses = accesses;
+		}
+
+		/**
+		 * Gets the relevant statements and jump targets for the given base
+		 * @param key The base
+		 * @return The relevant statements and jump targets for the given
+		 * base
+		 */
+		public BaseTargets getBaseTargets(BaseKey key) {
+			BaseTargets targets = baseTargets.get(key);
+			if (targets != null)
+				return targets;
+
+			BitSet relevant = (BitSet) alwaysRelevant.clone();
+			BitSet baseAccesses = accesses.get(key.base);
+			if (baseAccesses != null)
+				relevant.or(baseAccesses);
+			if (key.hasFields)
+				relevant.or(killsFieldTaints);
+
+			targets = new BaseTargets(relevant, units.length);
+			BaseTargets oldTargets = baseTargets.putIfAbsent(key, targets);
+			return oldTargets == null ? targets : oldTargets;
+		}
+
+		/**
+		 * Computes the first relevant statements that can be reached from the
+		 * given irrelevant statement without passing through another relevant
+		 * statement
+		 * @param start The index of the irrelevant statement at which to start
+		 * @param relevant The relevant statements
+		 * @return The relevant statements reachable from the given one
+		 */
+		public List<Unit> computeTargets(int start, BitSet relevant) {
+			List<Unit> targets = new ArrayList<Unit>();
+			BitSet visited = new BitSet(units.length);
+			int[] stack = new int[units.length];
+			int top = 0;
+			visited.set(start);
+			stack[top++] = start;
+			while (top > 0) {
+				int cur = stack[--top];
+				for (int succ : successors[cur]) {
+					if (visited.get(succ))
+						continue;
+					visited.set(succ);
+					if (relevant.get(succ))
+						targets.add(units[succ]);
+					else
+						stack[top++] = succ;
+				}
+			}
+			return targets.isEmpty() ? Collections.<Unit>emptyList()
+					: Collections.unmodifiableList(targets);
+		}
+
+	}
+
+	/**
+	 * Creates a new def-use index on top of the given interprocedural control
+	 * flow graph
+	 * @param icfg The interprocedural control flow graph
+	 */
+	public SparseDefUseIndex(BiDiInterproceduralCFG<Unit, SootMethod> icfg) {
+		this.icfg = icfg;
+	}
+
+	/**
+	 * Gets the units to which a taint on the given access path can be moved
+	 * directly instead of being processed at the given unit
+	 * @param u The unit at which the taint has arrived
+	 * @param ap The access path of the taint
+	 * @return The next units at which the taint can change, or null if the
+	 * taint can change at the given unit or the unit is not known to the
+	 * index
+	 */
+	public Collection<Unit> getSparseTargets(Unit u, AccessPath ap) {
+		final BaseKey key;
+		if (ap.isStaticFieldRef())
+			key = new BaseKey(ap.getFirstField(), false);
+		else if (ap.isLocal() || ap.isInstanceFieldRef())
+			key = new BaseKey(ap.getPlainValue(), ap.isInstanceFieldRef());
+		else
+			return null;
+
+		SootMethod m = icfg.getMethodOf(u);
+		if (m == null)
+			return null;
+		MethodIndex methodIndex = getMethodIndex(m);
+		Integer unitIdx = methodIndex.unitIndices.get(u);
+		if (unitIdx == null)
+			return null;
+
+		BaseTargets baseTargets = methodIndex.getBaseTargets(key);
+		if (baseTargets.relevant.get(unitIdx))
+			return null;
+
+		List<Unit> targets = baseTargets.targets.get(unitIdx);
+		if (targets == null) {
+			targets = methodIndex.computeTargets(unitIdx, baseTargets.relevant);
+			baseTargets.targets.set(unitIdx, targets);
+		}
+		return targets;
+	}
+
+	/**
+	 * Gets the def-use index of the given method, building it if necessary
+	 * @param m The method for which to get the def-use index
+	 * @return The def-use index of the given method
+	 */
+	private MethodIndex getMethodIndex(SootMethod m) {
+		MethodIndex methodIndex = methodIndices.get(m);
+		if (methodIndex == null) {
+			methodIndex = buildMethodIndex(m);
+			MethodIndex oldIndex = methodIndices.putIfAbsent(m, methodIndex);
+			if (oldIndex != null)
+				methodIndex = oldIndex;
+		}
+		return methodIndex;
+	}
+
+	/**
+	 * Builds the def-use index of the given method
+	 * @param m The method for which to build the def-use index
+	 * @return The def-use index of the given method
+	 */
+	private MethodIndex buildMethodIndex(SootMethod m) {
+		Map<Unit, Integer> unitIndices = new IdentityHashMap<Unit, Integer>();
+		List<Unit> unitList = new ArrayList<Unit>();
+		for (Unit u : icfg.getOrCreateUnitGraph(m))
+			if (!unitIndices.containsKey(u)) {
+				unitIndices.put(u, unitList.size());
+				unitList.add(u);
+			}
+		Unit[] units = unitList.toArray(new Unit[unitList.size()]);
+
+		int[][] successors = new int[units.length][];
+		BitSet alwaysRelevant = new BitSet(units.length);
+		BitSet killsFieldTaints = new BitSet(units.length);
+		Map<Object, BitSet> accesses = new HashMap<Object, BitSet>();
+		for (int i = 0; i < units.length; i++) {
+			Unit u = units[i];
+
+			// Successors that are not part of the method are treated like
+			// relevant statements, i.e., we never jump past them
+			List<Unit> succs = icfg.getSuccsOf(u);
+			int[] succIndices = new int[succs.size()];
+			int succCount = 0;
+			for (Unit succ : succs) {
+				Integer succIdx = unitIndices.get(succ);
+				if (succIdx == null)
+					alwaysRelevant.set(i);
+				else
+					succIndices[succCount++] = succIdx;
+			}
+			successors[i] = succCount == succIndices.length ? succIndices
+					: Arrays.copyOf(succIndices, succCount);
+
+			if (!(u instanceof Stmt) || icfg.isCallStmt(u) || icfg.isExitStmt(u)) {
+				alwaysRelevant.set(i);
+				continue;
+			}
+
+			if (u instanceof AssignStmt) {
+				AssignStmt assignStmt = (AssignStmt) u;
+				if (assignStmt.getLeftOp() instanceof InstanceFieldRef
+						|| (assignStmt.getLeftOp() instanceof Local
+								&& assignStmt.getLeftOp().getType() instanceof RefLikeType))
+					killsFieldTaints.set(i);
+			}
+
+			for (ValueBox vb : u.getUseAndDefBoxes()) {
+				Object base = null;
+				if (vb.getValue() instanceof Local)
+					base = vb.getValue();
+				else if (vb.getValue() instanceof StaticFieldRef)
+					base = ((StaticFieldRef) vb.getValue()).getField();
+				if (base != null) {
+					BitSet baseAccesses = accesses.get(base);
+					if (baseAccesses == null) {
+						baseAccesses = new BitSet(units.length);
+						accesses.put(base, baseAccesses);
+					}
+					baseAccesses.set(i);
+				}
+			}
+		}
+		return new MethodIndex(unitIndices, units, successors, alwaysRelevant,
+				killsFieldTaints, accesses);
+	}
+
+}
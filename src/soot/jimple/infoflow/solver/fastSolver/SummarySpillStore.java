@@ -0,0 +1,568 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.solver.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Off-heap store for end summaries and incoming edges that the solver has
+ * evicted under memory pressure. The entries are written to a memory-mapped
+ * file as records of integer ids and are handed back to the solver when it
+ * accesses them again.
+ *
+ * Statements and facts cannot be serialized. They are instead replaced by
+ * ids from an identity-based table, so the store only moves the summary
+ * structures (maps, sets and pairs) out of the heap. The table counts how
+ * often each object is referenced by a spilled record. Once the last such
+ * record has been reloaded, the object is dropped from the table and its id
+ * is reused, so the store does not keep objects alive that the solver no
+ * longer needs.
+ *
+ * New records are appended to the file. Once the records that have been
+ * reloaded take up more space than the remaining ones and at least one
+ * segment, the remaining records are moved to the front of the file and the
+ * file is truncated. If no records are left, the file is truncated right
+ * away.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph
+ * @param <D> The type of data-flow facts
+ * @param <M> The type of methods
+ */
+public class SummarySpillStore<N,D,M> {
+
+	private static final Logger logger = LoggerFactory.getLogger(SummarySpillStore.class);
+
+	/**
+	 * The size of a single mapped region of the spill file
+	 */
+	private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * Reference to a record in the spill file, used for compacting the file
+	 */
+	private static class RecordRef<K> {
+
+		private final Map<K, Long> index;
+		private final K key;
+		private final long location;
+
+		public RecordRef(Map<K, Long> index, K key, long location) {
+			this.index = index;
+			this.key = key;
+			this.location = location;
+		}
+
+	}
+
+	private final int segmentSize;
+
+	private File file;
+	private RandomAccessFile raf = null;
+	private FileChannel channel = null;
+
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+	private long fileSize = 0;
+
+	private final Map<Object, Integer> objectIds = new IdentityHashMap<Object, Integer>();
+	private final List<Object> objects = new ArrayList<Object>();
+	private int[] refCounts = new int[64];
+	private int[] freeIds = new int[16];
+	private int freeIdCount = 0;
+
+	private long occupiedBytes = 0;
+	private long liveBytes = 0;
+
+	// Concurrent so that the solver can check for spilled entries without
+	// taking the lock on the store
+	private final Map<Pair<M,D>, Long> endSummaryIndex = new ConcurrentHashMap<Pair<M,D>, Long>();
+	private final Map<Pair<M,D>, Long> incomingIndex = new ConcurrentHashMap<Pair<M,D>, Long>();
+
+	private long spilledBytes = 0;
+	private long spilledEntries = 0;
+	private long reloadedEntries = 0;
+
+	/**
+	 * Creates a new spill store backed by a temporary file. The file is only
+	 * created once the first entry is spilled.
+	 */
+	public SummarySpillStore() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new spill store backed by the given file. The file is only
+	 * opened once the first entry is spilled. Existing contents of the file
+	 * are discarded.
+	 * @param file The file in which to store the evicted entries, or null to
+	 * use a temporary file
+	 */
+	public SummarySpillStore(File file) {
+		this(file, SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates a new spill store backed by the given file. The file is only
+	 * opened once the first entry is spilled. Existing contents of the file
+	 * are discarded.
+	 * @param file The file in which to store the evicted entries, or null to
+	 * use a temporary file
+	 * @param segmentSize The size of a single mapped region of the spill file
+	 * in bytes. The file grows and is compacted in steps of this size.
+	 */
+	public SummarySpillStore(File file, int segmentSize) {
+		if (segmentSize <= 0)
+			throw new IllegalArgumentException("Segment size must be positive");
+		this.file = file;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Opens the spill file if this has not happened yet
+	 * @throws IOException Thrown if the spill file could not be opened
+	 */
+	private void ensureOpen() throws IOException {
+		if (channel != null)
+			return;
+		if (file == null)
+			file = File.createTempFile("flowdroid-spill", ".bin");
+		file.deleteOnExit();
+		raf = new RandomAccessFile(file, "rw");
+		raf.setLength(0);
+		channel = raf.getChannel();
+	}
+
+	/**
+	 * Gets the id for the given object, assigning a new one if necessary, and
+	 * records one more reference to it from a spilled record
+	 * @param o The object for which to get the id
+	 * @return The id of the given object
+	 */
+	private int acquireId(Object o) {
+		Integer id = objectIds.get(o);
+		if (id == null) {
+			if (freeIdCount > 0) {
+				id = freeIds[--freeIdCount];
+				objects.set(id, o);
+			}
+			else {
+				id = objects.size();
+				objects.add(o);
+				if (id >= refCounts.length)
+					refCounts = Arrays.copyOf(refCounts, refCounts.length * 2);
+			}
+			objectIds.put(o, id);
+		}
+		refCounts[id]++;
+		return id;
+	}
+
+	/**
+	 * Releases one reference to the object with the given id. If this was the
+	 * last reference, the object is removed from the table and its id can be
+	 * reused.
+	 * @param id The id of the object to release
+	 */
+	private void releaseId(int id) {
+		if (--refCounts[id] > 0)
+			return;
+		objectIds.remove(objects.get(id));
+		objects.set(id, null);
+		if (freeIdCount == freeIds.length)
+			freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+		freeIds[freeIdCount++] = id;
+	}
+
+	/**
+	 * Releases one reference to each of the objects with the given ids
+	 * @param ids The ids of the objects to release
+	 */
+	private void releaseIds(int[] ids) {
+		for (int id : ids)
+			releaseId(id);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getObject(int id) {
+		return (T) objects.get(id);
+	}
+
+	/**
+	 * Gets a mapped buffer with at least the given number of bytes remaining
+	 * @param size The number of bytes to write
+	 * @return The buffer into which to write the record
+	 * @throws IOException Thrown if the spill file could not be extended
+	 */
+	private MappedByteBuffer getBufferForWrite(int size) throws IOException {
+		ensureOpen();
+		if (!segments.isEmpty()) {
+			MappedByteBuffer last = segments.get(segments.size() - 1);
+			if (last.remaining() >= size)
+				return last;
+		}
+		int mapSize = Math.max(segmentSize, size);
+		MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, fileSize, mapSize);
+		fileSize += mapSize;
+		segments.add(buffer);
+		return buffer;
+	}
+
+	/**
+	 * Writes the given ids as one record into the spill file
+	 * @param ids The ids to write
+	 * @return The location of the record in the spill file
+	 * @throws IOException Thrown if the record could not be written
+	 */
+	private long writeRecord(int[] ids) throws IOException {
+		int size = (ids.length + 1) * 4;
+		MappedByteBuffer buffer = getBufferForWrite(size);
+		long location = ((long) (segments.size() - 1) << 32) | buffer.position();
+		buffer.putInt(ids.length);
+		for (int id : ids)
+			buffer.putInt(id);
+		spilledBytes += size;
+		spilledEntries++;
+		occupiedBytes += size;
+		liveBytes += size;
+		return location;
+	}
+
+	/**
+	 * Reads the record at the given location from the spill file and marks
+	 * its space as free. The caller must remove the record from its index
+	 * first and release the ids once it has resolved them.
+	 * @param location The location of the record
+	 * @return The ids in the record
+	 */
+	private int[] readRecord(long location) {
+		MappedByteBuffer segment = segments.get((int) (location >>> 32));
+		int pos = (int) location;
+		int length = segment.getInt(pos);
+		int[] ids = new int[length];
+		for (int i = 0; i < length; i++)
+			ids[i] = segment.getInt(pos + (i + 1) * 4);
+		reloadedEntries++;
+		liveBytes -= (length + 1) * 4;
+		return ids;
+	}
+
+	/**
+	 * Reclaims the space of reloaded records if it has become large enough
+	 */
+	private void reclaimSpace() {
+		if (isEmpty())
+			truncateFile();
+		else if (occupiedBytes - liveBytes >= segmentSize
+				&& occupiedBytes - liveBytes > liveBytes)
+			compact();
+	}
+
+	/**
+	 * Moves all remaining records to the front of the spill file and truncates
+	 * the file behind the last record. The records are moved in the order of
+	 * their location, so a record is never overwritten before it has been
+	 * moved.
+	 */
+	private void compact() {
+		List<RecordRef<Pair<M,D>>> records = new ArrayList<RecordRef<Pair<M,D>>>(
+				endSummaryIndex.size() + incomingIndex.size());
+		for (Map.Entry<Pair<M,D>, Long> entry : endSummaryIndex.entrySet())
+			records.add(new RecordRef<Pair<M,D>>(endSummaryIndex, entry.getKey(), entry.getValue()));
+		for (Map.Entry<Pair<M,D>, Long> entry : incomingIndex.entrySet())
+			records.add(new RecordRef<Pair<M,D>>(incomingIndex, entry.getKey(), entry.getValue()));
+		Collections.sort(records, new Comparator<RecordRef<Pair<M,D>>>() {
+
+			@Override
+			public int compare(RecordRef<Pair<M,D>> o1, RecordRef<Pair<M,D>> o2) {
+				return Long.compare(o1.location, o2.location);
+			}
+
+		});
+
+		int segmentIdx = 0;
+		int pos = 0;
+		for (RecordRef<Pair<M,D>> record : records) {
+			MappedByteBuffer source = segments.get((int) (record.location >>> 32));
+			int sourcePos = (int) record.location;
+			int size = (source.getInt(sourcePos) + 1) * 4;
+
+			// The record always fits into its own segment at the latest
+			while (segments.get(segmentIdx).capacity() - pos < size) {
+				segmentIdx++;
+				pos = 0;
+			}
+			MappedByteBuffer target = segments.get(segmentIdx);
+			long location = ((long) segmentIdx << 32) | pos;
+			if (location != record.location) {
+				for (int i = 0; i < size; i += 4)
+					target.putInt(pos + i, source.getInt(sourcePos + i));
+				record.index.put(record.key, location);
+			}
+			pos += size;
+		}
+
+		// Drop the segments behind the last record
+		while (segments.size() > segmentIdx + 1) {
+			MappedByteBuffer segment = segments.remove(segments.size() - 1);
+			fileSize -= segment.capacity();
+		}
+		segments.get(segmentIdx).position(pos);
+		occupiedBytes = liveBytes;
+		try {
+			channel.truncate(fileSize);
+		}
+		catch (IOException ex) {
+			logger.warn("Could not truncate spill file", ex);
+		}
+	}
+
+	/**
+	 * Discards all records in the spill file and truncates it to zero length
+	 */
+	private void truncateFile() {
+		segments.clear();
+		fileSize = 0;
+		occupiedBytes = 0;
+		liveBytes = 0;
+		if (channel != null) {
+			try {
+				channel.truncate(0);
+			}
+			catch (IOException ex) {
+				logger.warn("Could not truncate spill file", ex);
+			}
+		}
+	}
+
+	/**
+	 * Spills the given end summaries to disk
+	 * @param key The method and fact for which the summaries were computed
+	 * @param summaries The end summaries to spill
+	 * @return True if the summaries were written, false if an error occurred
+	 * and the caller must keep them in memory
+	 */
+	public synchronized boolean spillEndSummary(Pair<M,D> key, Iterable<Pair<N,D>> summaries) {
+		if (endSummaryIndex.containsKey(key))
+			return false;
+
+		List<Integer> idList = new ArrayList<Integer>();
+		for (Pair<N,D> summary : summaries) {
+			idList.add(acquireId(summary.getO1()));
+			idList.add(acquireId(summary.getO2()));
+		}
+		int[] ids = toArray(idList);
+		try {
+			endSummaryIndex.put(key, writeRecord(ids));
+			return true;
+		}
+		catch (IOException ex) {
+			logger.error("Could not spill end summary to disk", ex);
+			releaseIds(ids);
+			return false;
+		}
+	}
+
+	/**
+	 * Spills the given incoming edges to disk
+	 * @param key The callee and the fact at its start point
+	 * @param incoming The incoming edges to spill
+	 * @return True if the edges were written, false if an error occurred and
+	 * the caller must keep them in memory
+	 */
+	public synchronized boolean spillIncoming(Pair<M,D> key, Map<N, Map<D, D>> incoming) {
+		if (incomingIndex.containsKey(key))
+			return false;
+
+		List<Integer> idList = new ArrayList<Integer>();
+		for (Map.Entry<N, Map<D, D>> callSiteEntry : incoming.entrySet()) {
+			N callSite = callSiteEntry.getKey();
+			for (Map.Entry<D, D> factEntry : callSiteEntry.getValue().entrySet()) {
+				idList.add(acquireId(callSite));
+				idList.add(acquireId(factEntry.getKey()));
+				idList.add(acquireId(factEntry.getValue()));
+			}
+		}
+		int[] ids = toArray(idList);
+		try {
+			incomingIndex.put(key, writeRecord(ids));
+			return true;
+		}
+		catch (IOException ex) {
+			logger.error("Could not spill incoming edges to disk", ex);
+			releaseIds(ids);
+			return false;
+		}
+	}
+
+	private static int[] toArray(List<Integer> ids) {
+		int[] arr = new int[ids.size()];
+		for (int i = 0; i < arr.length; i++)
+			arr[i] = ids.get(i);
+		return arr;
+	}
+
+	/**
+	 * Removes the spilled end summaries for the given key from this store
+	 * @param key The method and fact for which the summaries were computed
+	 * @return The spilled end summaries, or null if there are none
+	 */
+	public synchronized List<Pair<N,D>> reloadEndSummary(Pair<M,D> key) {
+		Long location = endSummaryIndex.remove(key);
+		if (location == null)
+			return null;
+
+		int[] ids = readRecord(location);
+		List<Pair<N,D>> summaries = new ArrayList<Pair<N,D>>(ids.length / 2);
+		for (int i = 0; i < ids.length; i += 2)
+			summaries.add(new Pair<N,D>(this.<N>getObject(ids[i]),
+					this.<D>getObject(ids[i + 1])));
+		releaseIds(ids);
+		reclaimSpace();
+		return summaries;
+	}
+
+	/**
+	 * Removes the spilled incoming edges for the given key from this store
+	 * @param key The callee and the fact at its start point
+	 * @return The spilled incoming edges, or null if there are none
+	 */
+	public synchronized Map<N, Map<D, D>> reloadIncoming(Pair<M,D> key) {
+		Long location = incomingIndex.remove(key);
+		if (location == null)
+			return null;
+
+		int[] ids = readRecord(location);
+		Map<N, Map<D, D>> incoming = new HashMap<N, Map<D, D>>();
+		for (int i = 0; i < ids.length; i += 3) {
+			N callSite = getObject(ids[i]);
+			Map<D, D> facts = incoming.get(callSite);
+			if (facts == null) {
+				facts = new HashMap<D, D>();
+				incoming.put(callSite, facts);
+			}
+			facts.put(this.<D>getObject(ids[i + 1]), this.<D>getObject(ids[i + 2]));
+		}
+		releaseIds(ids);
+		reclaimSpace();
+		return incoming;
+	}
+
+	/**
+	 * Checks whether end summaries for the given key have been spilled
+	 * @param key The method and fact for which the summaries were computed
+	 * @return True if there are spilled end summaries for the given key,
+	 * otherwise false
+	 */
+	public boolean hasEndSummary(Pair<M,D> key) {
+		return endSummaryIndex.containsKey(key);
+	}
+
+	/**
+	 * Checks whether incoming edges for the given key have been spilled
+	 * @param key The callee and the fact at its start point
+	 * @return True if there are spilled incoming edges for the given key,
+	 * otherwise false
+	 */
+	public boolean hasIncoming(Pair<M,D> key) {
+		return incomingIndex.containsKey(key);
+	}
+
+	/**
+	 * Gets whether this store currently holds any spilled entries
+	 * @return True if there is at least one spilled entry, otherwise false
+	 */
+	public boolean isEmpty() {
+		return endSummaryIndex.isEmpty() && incomingIndex.isEmpty();
+	}
+
+	/**
+	 * Gets the total number of bytes that have been written to the spill file
+	 * @return The total number of bytes that have been spilled
+	 */
+	public synchronized long getSpilledBytes() {
+		return this.spilledBytes;
+	}
+
+	/**
+	 * Gets the total number of entries that have been spilled
+	 * @return The total number of entries that have been spilled
+	 */
+	public synchronized long getSpilledEntryCount() {
+		return this.spilledEntries;
+	}
+
+	/**
+	 * Gets the total number of entries that have been loaded back from disk
+	 * @return The total number of entries that have been reloaded
+	 */
+	public synchronized long getReloadedEntryCount() {
+		return this.reloadedEntries;
+	}
+
+	/**
+	 * Gets the number of objects that are currently referenced by spilled
+	 * entries and thus kept alive by this store
+	 * @return The number of objects referenced by spilled entries
+	 */
+	public synchronized int getReferencedObjectCount() {
+		return objectIds.size();
+	}
+
+	/**
+	 * Gets the current size of the spill file
+	 * @return The current size of the spill file in bytes
+	 */
+	public synchronized long getFileSize() {
+		return this.fileSize;
+	}
+
+	/**
+	 * Removes all spilled entries from this store. The statistics are kept.
+	 */
+	public synchronized void clear() {
+		endSummaryIndex.clear();
+		incomingIndex.clear();
+		objectIds.clear();
+		objects.clear();
+		Arrays.fill(refCounts, 0);
+		freeIdCount = 0;
+		truncateFile();
+	}
+
+	/**
+	 * Closes this store and deletes the spill file
+	 */
+	public synchronized void close() {
+		clear();
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+			raf.close();
+		}
+		catch (IOException ex) {
+			logger.warn("Could not close spill file", ex);
+		}
+		channel = null;
+		raf = null;
+		if (!file.delete())
+			logger.debug("Could not delete spill file {}", file);
+	}
+
+}
@@ -0,0 +1,333 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.solver.CountingThreadPoolExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor that keeps one deque of tasks per worker thread instead of a single
+ * shared queue. Workers take their own tasks in LIFO order and steal the
+ * oldest tasks of other workers when they run out of work. Tasks that
+ * implement {@link IMethodAffineTask} are routed to a fixed worker based on
+ * their affinity key, so that all edges of one method are preferably
+ * processed on the same core.
+ *
+ * This class is a drop-in replacement for the {@link CountingThreadPoolExecutor}
+ * used by the solvers and path builders. It does not use the thread pool of
+ * its superclass at all, but provides its own completion detection: the
+ * number of pending tasks is tracked exactly and waiting threads are
+ * signaled as soon as it drops to zero.
+ */
+public class WorkStealingExecutor extends CountingThreadPoolExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(WorkStealingExecutor.class);
+
+	/**
+	 * The number of rounds an idle worker tries to steal work from the other
+	 * workers before going to sleep
+	 */
+	private static final int STEAL_ROUNDS = 2;
+
+	private final Worker[] workers;
+
+	private final AtomicLong pendingTasks = new AtomicLong(0);
+	private final AtomicInteger sleepingWorkers = new AtomicInteger(0);
+	private final AtomicInteger liveWorkers = new AtomicInteger(0);
+	private final AtomicInteger activeWorkers = new AtomicInteger(0);
+	private final AtomicInteger nextWorker = new AtomicInteger(0);
+
+	private final Object idleLock = new Object();
+	private final Object completionLock = new Object();
+
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Creates a new instance of the {@link WorkStealingExecutor} class
+	 * @param numThreads The number of worker threads to use
+	 */
+	public WorkStealingExecutor(int numThreads) {
+		super(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+		int threadCount = Math.max(1, numThreads);
+		this.workers = new Worker[threadCount];
+		for (int i = 0; i < threadCount; i++)
+			this.workers[i] = new Worker(i);
+		for (Worker worker : workers) {
+			liveWorkers.incrementAndGet();
+			worker.start();
+		}
+	}
+
+	/**
+	 * Worker thread that owns a single task deque
+	 */
+	private class Worker extends Thread {
+
+		private final int index;
+		private final ConcurrentLinkedDeque<Runnable> deque =
+				new ConcurrentLinkedDeque<Runnable>();
+
+		public Worker(int index) {
+			super("WorkStealingExecutor-worker-" + index);
+			this.index = index;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Runnable task = deque.pollFirst();
+					if (task == null)
+						task = steal(this);
+					if (task == null) {
+						if (shutdown && !hasQueuedTasks())
+							return;
+						awaitWork();
+						continue;
+					}
+					runTask(task);
+				}
+			}
+			finally {
+				if (liveWorkers.decrementAndGet() == 0)
+					synchronized (completionLock) {
+						completionLock.notifyAll();
+					}
+			}
+		}
+
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (command == null)
+			throw new NullPointerException();
+		if (shutdown)
+			throw new RejectedExecutionException("Executor has been shut down");
+
+		pendingTasks.incrementAndGet();
+		selectWorker(command).deque.addFirst(command);
+
+		// Wake up a sleeping worker if there is one. The worker re-checks the
+		// deques while holding the lock, so we cannot miss it.
+		if (sleepingWorkers.get() > 0)
+			synchronized (idleLock) {
+				idleLock.notify();
+			}
+	}
+
+	/**
+	 * Selects the worker that shall receive the given task
+	 * @param command The task to schedule
+	 * @return The worker that shall run the task
+	 */
+	private Worker selectWorker(Runnable command) {
+		// Method-affine tasks are routed by their key
+		if (command instanceof IMethodAffineTask) {
+			Object key = ((IMethodAffineTask) command).getAffinityKey();
+			if (key != null) {
+				int h = key.hashCode();
+				h ^= (h >>> 16);
+				return workers[(h & 0x7fffffff) % workers.length];
+			}
+		}
+
+		// Tasks spawned by one of our own workers stay local
+		Thread current = Thread.currentThread();
+		if (current instanceof Worker) {
+			Worker worker = (Worker) current;
+			if (worker.index < workers.length && workers[worker.index] == worker)
+				return worker;
+		}
+
+		// Everything else is distributed round-robin
+		return workers[(nextWorker.getAndIncrement() & 0x7fffffff) % workers.length];
+	}
+
+	/**
+	 * Tries to steal a task from another worker
+	 * @param thief The worker that looks for work
+	 * @return The stolen task if there was one, otherwise null
+	 */
+	private Runnable steal(Worker thief) {
+		if (workers.length == 1)
+			return null;
+		for (int round = 0; round < STEAL_ROUNDS; round++) {
+			int start = ThreadLocalRandom.current().nextInt(workers.length);
+			for (int i = 0; i < workers.length; i++) {
+				Worker victim = workers[(start + i) % workers.length];
+				if (victim == thief)
+					continue;
+				Runnable task = victim.deque.pollLast();
+				if (task != null)
+					return task;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether there are any tasks left in any of the worker deques
+	 * @return True if there is at least one queued task, otherwise false
+	 */
+	private boolean hasQueuedTasks() {
+		for (Worker worker : workers)
+			if (!worker.deque.isEmpty())
+				return true;
+		return false;
+	}
+
+	/**
+	 * Puts the current worker to sleep until new work arrives or the executor
+	 * is shut down
+	 */
+	private void awaitWork() {
+		synchronized (idleLock) {
+			sleepingWorkers.incrementAndGet();
+			try {
+				if (!hasQueuedTasks() && !shutdown)
+					idleLock.wait();
+			}
+			catch (InterruptedException ex) {
+				// Just check for new work again
+			}
+			finally {
+				sleepingWorkers.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Runs the given task and updates the completion counter
+	 * @param task The task to run
+	 */
+	private void runTask(Runnable task) {
+		activeWorkers.incrementAndGet();
+		try {
+			task.run();
+		}
+		catch (Throwable t) {
+			exception = t;
+			logger.error("Worker thread execution failed: " + t.getMessage(), t);
+			shutdownNow();
+		}
+		finally {
+			activeWorkers.decrementAndGet();
+			if (pendingTasks.decrementAndGet() == 0)
+				synchronized (completionLock) {
+					completionLock.notifyAll();
+				}
+		}
+	}
+
+	@Override
+	public void awaitCompletion() throws InterruptedException {
+		synchronized (completionLock) {
+			while (pendingTasks.get() > 0 && exception == null)
+				completionLock.wait();
+		}
+	}
+
+	@Override
+	public void awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (completionLock) {
+			while (pendingTasks.get() > 0 && exception == null) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					return;
+				TimeUnit.NANOSECONDS.timedWait(completionLock, remaining);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of tasks that have been submitted, but not yet completed
+	 * @return The number of pending tasks
+	 */
+	public long getPendingTaskCount() {
+		return pendingTasks.get();
+	}
+
+	@Override
+	public int getActiveCount() {
+		return activeWorkers.get();
+	}
+
+	@Override
+	public int getPoolSize() {
+		return liveWorkers.get();
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		synchronized (idleLock) {
+			idleLock.notifyAll();
+		}
+		super.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+		List<Runnable> remaining = new ArrayList<Runnable>();
+		for (Worker worker : workers) {
+			Runnable task;
+			while ((task = worker.deque.pollFirst()) != null) {
+				remaining.add(task);
+				pendingTasks.decrementAndGet();
+			}
+		}
+		synchronized (idleLock) {
+			idleLock.notifyAll();
+		}
+		synchronized (completionLock) {
+			completionLock.notifyAll();
+		}
+		super.shutdownNow();
+		return remaining;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminating() {
+		return shutdown && liveWorkers.get() > 0;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && liveWorkers.get() == 0;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (completionLock) {
+			while (!isTerminated()) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(completionLock, remaining);
+			}
+		}
+		return true;
+	}
+
+}
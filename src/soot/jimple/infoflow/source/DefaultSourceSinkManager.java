@@ -15,6 +15,7 @@ import heros.InterproceduralCFG;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.TreeSet;
 
 import soot.SootMethod;
 import soot.Unit;
@@ -28,6 +29,7 @@ import soot.jimple.ReturnStmt;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.data.AccessPathFactory;
+import soot.jimple.infoflow.util.SignatureMatcher;
 
 /**
  * A {@link ISourceSinkManager} working on lists of source and sink methods
@@ -42,6 +44,13 @@ public class DefaultSourceSinkManager implements ISourceSinkManager  {
 	private Collection<String> returnTaintMethods;
 	private Collection<String> parameterTaintMethods;
 	
+	private boolean matchOverridingMethods = false;
+	
+	private SignatureMatcher sourceMatcher;
+	private SignatureMatcher sinkMatcher;
+	private SignatureMatcher returnTaintMatcher;
+	private SignatureMatcher parameterTaintMatcher;
+	
 	/**
 	 * Creates a new instance of the {@link DefaultSourceSinkManager} class
 	 * 
@@ -73,6 +82,17 @@ public class DefaultSourceSinkManager implements ISourceSinkManager  {
 		this.sinks = sinks;
 		this.parameterTaintMethods = (parameterTaintMethods != null) ? parameterTaintMethods : new HashSet<String>();
 		this.returnTaintMethods = (returnTaintMethods != null) ? returnTaintMethods : new HashSet<String>();
+		compileMatchers();
+	}
+	
+	/**
+	 * Compiles the lists of methods into matchers for fast lookups
+	 */
+	private void compileMatchers() {
+		this.sourceMatcher = new SignatureMatcher(sources, matchOverridingMethods);
+		this.sinkMatcher = new SignatureMatcher(sinks, matchOverridingMethods);
+		this.returnTaintMatcher = new SignatureMatcher(returnTaintMethods, matchOverridingMethods);
+		this.parameterTaintMatcher = new SignatureMatcher(parameterTaintMethods, matchOverridingMethods);
 	}
 
 	/**
@@ -83,6 +103,7 @@ public class DefaultSourceSinkManager implements ISourceSinkManager  {
 	 */
 	public void setSources(List<String> sources) {
 		this.sources = sources;
+		this.sourceMatcher = new SignatureMatcher(sources, matchOverridingMethods);
 	}
 
 	/**
@@ -93,15 +114,14 @@ public class DefaultSourceSinkManager implements ISourceSinkManager  {
 	 */
 	public void setSinks(List<String> sinks) {
 		this.sinks = sinks;
+		this.sinkMatcher = new SignatureMatcher(sinks, matchOverridingMethods);
 	}
 	
 	@Override
 	public SourceInfo getSourceInfo(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
-		SootMethod callee = sCallSite.containsInvokeExpr() ?
-				sCallSite.getInvokeExpr().getMethod() : null;
-		
 		AccessPath targetAP = null;
-		if (callee != null && sources.contains(callee.toString())) {
+		if (sourceMatcher.matchesCallee(sCallSite)) {
+			SootMethod callee = sCallSite.getInvokeExpr().getMethod();
 			if (callee.getReturnType() != null 
 					&& sCallSite instanceof DefinitionStmt) {
 				// Taint the return value
@@ -120,7 +140,7 @@ public class DefaultSourceSinkManager implements ISourceSinkManager  {
 			if (istmt.getRightOp() instanceof ParameterRef) {
 				ParameterRef pref = (ParameterRef) istmt.getRightOp();
 				SootMethod currentMethod = cfg.getMethodOf(istmt);
-				if (parameterTaintMethods.contains(currentMethod.toString()))
+				if (parameterTaintMatcher.matches(currentMethod))
 					targetAP = AccessPathFactory.v().createAccessPath(currentMethod.getActiveBody()
 							.getParameterLocal(pref.getIndex()), true);
 			}
@@ -138,15 +158,12 @@ public class DefaultSourceSinkManager implements ISourceSinkManager  {
 			AccessPath ap) {
 		// Check whether values returned by the current method are to be
 		// considered as sinks
-		if (this.returnTaintMethods != null
-				&& sCallSite instanceof ReturnStmt
-				&& this.returnTaintMethods.contains(cfg.getMethodOf(sCallSite).getSignature()))
+		if (sCallSite instanceof ReturnStmt
+				&& returnTaintMatcher.matches(cfg.getMethodOf(sCallSite)))
 			return true;
 		
 		// Check whether the callee is a sink
-		if (this.sinks != null
-				&& sCallSite.containsInvokeExpr()
-				&& this.sinks.contains(sCallSite.getInvokeExpr().getMethod().getSignature())) {
+		if (sinkMatcher.matchesCallee(sCallSite)) {
 			// If we don't have an access path, we can only over-approximate
 			if (ap == null)
 				return true;
@@ -178,6 +195,8 @@ public class DefaultSourceSinkManager implements ISourceSinkManager  {
 	 */
 	public void setParameterTaintMethods(List<String> parameterTaintMethods) {
 		this.parameterTaintMethods = parameterTaintMethods;
+		this.parameterTaintMatcher = new SignatureMatcher(parameterTaintMethods,
+				matchOverridingMethods);
 	}
 
 	/**
@@ -190,6 +209,43 @@ public class DefaultSourceSinkManager implements ISourceSinkManager  {
 	 */
 	public void setReturnTaintMethods(List<String> returnTaintMethods) {
 		this.returnTaintMethods = returnTaintMethods;
+		this.returnTaintMatcher = new SignatureMatcher(returnTaintMethods,
+				matchOverridingMethods);
+	}
+	
+	/**
+	 * Sets whether methods that override or implement one of the configured
+	 * methods shall be treated like the configured methods
+	 * 
+	 * @param matchOverridingMethods
+	 *            True if overriding methods shall be matched as well, false
+	 *            if the method signatures must match exactly
+	 */
+	public void setMatchOverridingMethods(boolean matchOverridingMethods) {
+		this.matchOverridingMethods = matchOverridingMethods;
+		compileMatchers();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("sources=").append(sorted(sources));
+		sb.append(";sinks=").append(sorted(sinks));
+		sb.append(";parameterTaints=").append(sorted(parameterTaintMethods));
+		sb.append(";returnTaints=").append(sorted(returnTaintMethods));
+		sb.append(";matchOverriding=").append(matchOverridingMethods);
+		return sb.toString();
+	}
+	
+	/**
+	 * Copies the given method signatures into a sorted set
+	 * @param methods The method signatures, or null
+	 * @return The sorted method signatures
+	 */
+	private static Collection<String> sorted(Collection<String> methods) {
+		if (methods == null)
+			return new TreeSet<String>();
+		return new TreeSet<String>(methods);
 	}
 	
 }
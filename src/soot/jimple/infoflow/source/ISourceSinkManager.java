@@ -16,7 +16,9 @@ import soot.Unit;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.data.AccessPath;
 /**
- * the SourceSinkManager can tell if a statement contains a source or a sink
+ * the SourceSinkManager can tell if a statement contains a source or a sink.
+ * Methods are scanned for sources and sinks in parallel, so implementations
+ * must be thread-safe.
  */
 public interface ISourceSinkManager {
 
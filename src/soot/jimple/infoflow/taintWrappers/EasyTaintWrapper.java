@@ -16,6 +16,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -23,6 +24,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,14 +41,15 @@ import soot.jimple.DefinitionStmt;
 import soot.jimple.InstanceInvokeExpr;
 import soot.jimple.InvokeExpr;
 import soot.jimple.Stmt;
+import soot.jimple.infoflow.InfoflowManager;
 import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.data.AccessPathFactory;
+import soot.jimple.infoflow.util.ParallelRange;
+import soot.jimple.infoflow.util.ParallelRange.IRangeVisitor;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.collect.MapMaker;
 
 /**
  * A list of methods is passed which contains signatures of instance methods
@@ -57,20 +63,23 @@ import com.google.common.cache.LoadingCache;
  */
 public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable {
 	private final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	/**
+	 * The maximum number of classes to compile rules for without splitting
+	 * the range
+	 */
+	private static final int RULE_BATCH_SIZE = 64;
+
 	private final Map<String, Set<String>> classList;
 	private final Map<String, Set<String>> excludeList;
 	private final Map<String, Set<String>> killList;
 	private final Set<String> includeList;
 	
-	private LoadingCache<SootMethod, MethodWrapType> methodWrapCache = CacheBuilder.newBuilder().build
-			(new CacheLoader<SootMethod, MethodWrapType>() {
-
-				@Override
-				public MethodWrapType load(SootMethod arg0) throws Exception {
-					return getMethodWrapType(arg0.getSubSignature(), arg0.getDeclaringClass());
-				}
-				
-			});
+	private final ConcurrentMap<SootMethod, MethodRule> methodRules =
+			new ConcurrentHashMap<SootMethod, MethodRule>();
+	private final ConcurrentMap<Stmt, MethodRule> stmtRules =
+			new MapMaker().weakKeys().concurrencyLevel(
+					Runtime.getRuntime().availableProcessors()).makeMap();
 	
 	private boolean aggressiveMode = false;
 	private boolean alwaysModelEqualsHashCode = true;
@@ -99,6 +108,32 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 		NotRegistered
 	}
 	
+	/**
+	 * The taint wrapping rule for a single method, compiled from the
+	 * configuration and the class hierarchy
+	 */
+	private static class MethodRule {
+		
+		private final SootMethod method;
+		private final MethodWrapType wrapType;
+		private final boolean includePrefixMatch;
+		private final boolean equalsHashCode;
+		private final boolean stringGetChars;
+		private final boolean classHasWrappedMethods;
+		
+		public MethodRule(SootMethod method, MethodWrapType wrapType,
+				boolean includePrefixMatch, boolean equalsHashCode,
+				boolean stringGetChars, boolean classHasWrappedMethods) {
+			this.method = method;
+			this.wrapType = wrapType;
+			this.includePrefixMatch = includePrefixMatch;
+			this.equalsHashCode = equalsHashCode;
+			this.stringGetChars = stringGetChars;
+			this.classHasWrappedMethods = classHasWrappedMethods;
+		}
+		
+	}
+	
 	/**
 	 * Creates a new instanceof the {@link EasyTaintWrapper} class. This
 	 * constructor assumes that all classes are included and get wrapped.
@@ -175,13 +210,120 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 		this(taintWrapper.classList, taintWrapper.excludeList, taintWrapper.killList, taintWrapper.includeList);
 	}
 		
+	@Override
+	public void initialize(InfoflowManager manager) {
+		super.initialize(manager);
+		compileRules();
+	}
+	
+	/**
+	 * Compiles the wrapper configuration into rules for all methods in the
+	 * current Scene. Methods that are added to the Scene afterwards are
+	 * compiled on demand.
+	 */
+	private void compileRules() {
+		long beforeCompile = System.nanoTime();
+		invalidateRules();
+		
+		// Make sure that the hierarchy exists before we access it concurrently
+		Scene.v().getActiveHierarchy();
+		
+		final List<SootClass> classes = new ArrayList<SootClass>(Scene.v().getClasses());
+		int numThreads = ParallelRange.getThreadCount(manager == null ? -1
+				: manager.getConfig().getMaxThreadNum());
+		ParallelRange.forEach(numThreads, classes.size(), RULE_BATCH_SIZE, new IRangeVisitor() {
+			
+			@Override
+			public void visit(int index) {
+				for (SootMethod sm : classes.get(index).getMethods()) {
+					try {
+						methodRules.put(sm, compileRule(sm));
+					}
+					catch (RuntimeException ex) {
+						// Leave this method to the lazy lookup which will
+						// report the problem if the method is ever called
+						logger.debug("Could not compile wrapper rule for {}", sm, ex);
+					}
+				}
+			}
+			
+		});
+		logger.info("Compiled taint wrapper rules for {} methods in {} seconds",
+				methodRules.size(), (System.nanoTime() - beforeCompile) / 1E9);
+	}
+	
+	/**
+	 * Discards all compiled rules. This must be called whenever the wrapper
+	 * configuration changes.
+	 */
+	private void invalidateRules() {
+		methodRules.clear();
+		stmtRules.clear();
+	}
+	
+	/**
+	 * Compiles the taint wrapping rule for the given method
+	 * @param method The method for which to compile the rule
+	 * @return The rule for the given method
+	 */
+	private MethodRule compileRule(SootMethod method) {
+		final String subSig = method.getSubSignature();
+		final SootClass declaringClass = method.getDeclaringClass();
+		
+		boolean includePrefixMatch = false;
+		for (String supportedClass : this.includeList)
+			if (declaringClass.getName().startsWith(supportedClass)) {
+				includePrefixMatch = true;
+				break;
+			}
+		
+		return new MethodRule(method,
+				getMethodWrapType(subSig, declaringClass),
+				includePrefixMatch,
+				subSig.equals("boolean equals(java.lang.Object)") || subSig.equals("int hashCode()"),
+				declaringClass.getName().equals("java.lang.String")
+						&& subSig.equals("void getChars(int,int,char[],int)"),
+				hasWrappedMethodsForClass(declaringClass, true, true, true));
+	}
+	
+	/**
+	 * Gets the compiled rule for the given method
+	 * @param method The method for which to get the rule
+	 * @return The rule for the given method
+	 */
+	private MethodRule getRule(SootMethod method) {
+		MethodRule rule = methodRules.get(method);
+		if (rule == null) {
+			rule = compileRule(method);
+			MethodRule oldRule = methodRules.putIfAbsent(method, rule);
+			if (oldRule != null)
+				rule = oldRule;
+		}
+		return rule;
+	}
+	
+	/**
+	 * Gets the compiled rule for the method called at the given statement
+	 * @param stmt The call statement
+	 * @return The rule for the method called at the given statement
+	 */
+	private MethodRule getRule(Stmt stmt) {
+		MethodRule rule = stmtRules.get(stmt);
+		if (rule == null) {
+			rule = getRule(stmt.getInvokeExpr().getMethod());
+			stmtRules.put(stmt, rule);
+		}
+		return rule;
+	}
+	
 	@Override
 	public Set<AccessPath> getTaintsForMethodInternal(Stmt stmt, AccessPath taintedPath) {
 		if (!stmt.containsInvokeExpr())
 			return Collections.emptySet();
 		
 		final Set<AccessPath> taints = new HashSet<AccessPath>();
-		final SootMethod method = stmt.getInvokeExpr().getMethod();
+		final MethodRule rule = getRule(stmt);
+		final SootMethod method = rule.method;
 		
 		// If the callee is a phantom class or has no body, we pass on the taint
 		if (method.isPhantom() || !method.hasActiveBody()) {
@@ -198,30 +340,20 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 			return Collections.singleton(taintedPath);
 		
 		// Do we handle equals() and hashCode() separately?
-		final String subSig = stmt.getInvokeExpr().getMethodRef().getSubSignature().getString();
-		boolean taintEqualsHashCode = alwaysModelEqualsHashCode
-				&& (subSig.equals("boolean equals(java.lang.Object)") || subSig.equals("int hashCode()"));
+		boolean taintEqualsHashCode = alwaysModelEqualsHashCode && rule.equalsHashCode;
 		
 		// We need to handle some API calls explicitly as they do not really fit
 		// the model of our rules
-		if (!taintedPath.isEmpty()
-				&& method.getDeclaringClass().getName().equals("java.lang.String")
-				&& subSig.equals("void getChars(int,int,char[],int)"))
+		if (!taintedPath.isEmpty() && rule.stringGetChars)
 			return handleStringGetChars(stmt.getInvokeExpr(), taintedPath);
 		
 		// If this is not one of the supported classes, we skip it
-		boolean isSupported = includeList == null || includeList.isEmpty();
-		if (!isSupported)
-			for (String supportedClass : this.includeList)
-				if (method.getDeclaringClass().getName().startsWith(supportedClass)) {
-					isSupported = true;
-					break;
-				}
+		boolean isSupported = includeList == null || includeList.isEmpty()
+				|| rule.includePrefixMatch;
 		if (!isSupported && !aggressiveMode && !taintEqualsHashCode)
 			return taints;
 		
-		// Check for a cached wrap type
-		final MethodWrapType wrapType = methodWrapCache.getUnchecked(method);
+		final MethodWrapType wrapType = rule.wrapType;
 		
 		if (stmt.getInvokeExpr() instanceof InstanceInvokeExpr) {
 			InstanceInvokeExpr iiExpr = (InstanceInvokeExpr) stmt.getInvokeExpr();			
@@ -423,10 +555,10 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 	
 	@Override
 	public boolean isExclusiveInternal(Stmt stmt, AccessPath taintedPath) {
-		SootMethod method = stmt.getInvokeExpr().getMethod();
+		final MethodRule rule = getRule(stmt);
 		
 		// Do we have an entry for at least one entry in the given class?
-		if (hasWrappedMethodsForClass(method.getDeclaringClass(), true, true, true))
+		if (rule.classHasWrappedMethods)
 			return true;
 
 		// In aggressive mode, we always taint the return value if the base
@@ -437,8 +569,7 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 				return true;
 		}
 		
-		final MethodWrapType wrapType = methodWrapCache.getUnchecked(method);
-		return wrapType != MethodWrapType.NotRegistered;
+		return rule.wrapType != MethodWrapType.NotRegistered;
 	}
 	
 	/**
@@ -472,6 +603,7 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 	 */
 	public void setAlwaysModelEqualsHashCode(boolean alwaysModelEqualsHashCode) {
 		this.alwaysModelEqualsHashCode = alwaysModelEqualsHashCode;
+		invalidateRules();
 	}
 	
 	/**
@@ -492,6 +624,7 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 	 */
 	public void addIncludePrefix(String prefix) {
 		this.includeList.add(prefix);
+		invalidateRules();
 	}
 	
 	/**
@@ -506,6 +639,7 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 			this.classList.put(className, methods);
 		}
 		methods.add(subSignature);
+		invalidateRules();
 	}
 	
 	@Override
@@ -513,22 +647,57 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 		return new EasyTaintWrapper(this);
 	}
 
+	@Override
+	public String toString() {
+		// The rules are sorted, so that equal configurations always yield the
+		// same string
+		StringBuilder sb = new StringBuilder();
+		sb.append("aggressive=").append(aggressiveMode);
+		sb.append(";equalsHashCode=").append(alwaysModelEqualsHashCode);
+		sb.append(";methods=").append(sortRules(classList));
+		sb.append(";excludes=").append(sortRules(excludeList));
+		sb.append(";kills=").append(sortRules(killList));
+		sb.append(";includes=").append(new TreeSet<String>(includeList));
+		return sb.toString();
+	}
+	
+	/**
+	 * Copies the given rules into sorted collections
+	 * @param rules The rules, as a mapping from class names to sets of
+	 * subsignatures
+	 * @return The sorted rules
+	 */
+	private static Map<String, Set<String>> sortRules(Map<String, Set<String>> rules) {
+		Map<String, Set<String>> sorted = new TreeMap<String, Set<String>>();
+		for (Map.Entry<String, Set<String>> entry : rules.entrySet())
+			sorted.put(entry.getKey(), new TreeSet<String>(entry.getValue()));
+		return sorted;
+	}
+
 	@Override
 	public boolean supportsCallee(SootMethod method) {
 		// Be conservative in aggressive mode
 		if (aggressiveMode)
 			return true;
 		
+		return isSupported(getRule(method));
+	}
+	
+	/**
+	 * Checks whether this taint wrapper can model the method with the given
+	 * rule
+	 * @param rule The rule of the method to check
+	 * @return True if this taint wrapper can model the method, otherwise false
+	 */
+	private boolean isSupported(MethodRule rule) {
+		// Be conservative in aggressive mode
+		if (aggressiveMode)
+			return true;
+		
 		// Check for special models
-		final String subSig = method.getSubSignature();
-		if (alwaysModelEqualsHashCode
-				&& (subSig.equals("boolean equals(java.lang.Object)") || subSig.equals("int hashCode()")))
+		if (alwaysModelEqualsHashCode && rule.equalsHashCode)
 			return true;
-
-		for (String supportedClass : this.includeList)
-			if (method.getDeclaringClass().getName().startsWith(supportedClass))
-				return true;
-		return false;
+		return rule.includePrefixMatch;
 	}
 	
 	@Override
@@ -537,17 +706,13 @@ public class EasyTaintWrapper extends AbstractTaintWrapper implements Cloneable
 		if (!callSite.containsInvokeExpr())
 			return false;
 
-		SootMethod method = callSite.getInvokeExpr().getMethod();
-		if (!supportsCallee(method))
+		final MethodRule rule = getRule(callSite);
+		if (!isSupported(rule))
 			return false;
 				
 		// We need a method that can create a taint
-		if (!aggressiveMode) {
-			// Check for a cached wrap type
-			final MethodWrapType wrapType = methodWrapCache.getUnchecked(method);
-			if (wrapType != MethodWrapType.CreateTaint)
-				return false;
-		}
+		if (!aggressiveMode && rule.wrapType != MethodWrapType.CreateTaint)
+			return false;
 		
 		// We need at least one non-constant argument or a tainted base
 		if (callSite.getInvokeExpr() instanceof InstanceInvokeExpr)
@@ -0,0 +1,203 @@
+package soot.jimple.infoflow.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wall-clock and heap budget for one phase of the data flow analysis. Once
+ * the budget has been started, a watchdog thread periodically checks the
+ * elapsed time and the heap usage. The components of the analysis poll
+ * {@link #isExhausted()} on their task paths and stop scheduling new work
+ * when the budget is used up, so that the analysis winds down gracefully
+ * with partial results instead of being killed.
+ */
+public class AnalysisBudget {
+
+	private static final Logger logger = LoggerFactory.getLogger(AnalysisBudget.class);
+
+	/**
+	 * The time between two checks of the watchdog thread in milliseconds
+	 */
+	private static final long CHECK_INTERVAL = 100;
+
+	/**
+	 * The reasons for which a budget can be exhausted
+	 */
+	public enum ExhaustionReason {
+		/**
+		 * The wall-clock time budget has been used up
+		 */
+		Timeout,
+		/**
+		 * The heap usage has exceeded the memory budget
+		 */
+		OutOfMemory,
+		/**
+		 * The budget has been cancelled explicitly
+		 */
+		Cancelled
+	}
+
+	private final String name;
+	private final long timeout;
+	private final long maxHeap;
+	private final List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+
+	private volatile ExhaustionReason exhaustionReason = null;
+	private volatile long startTime = -1;
+	private Thread watchdog = null;
+
+	/**
+	 * Creates a new instance of the {@link AnalysisBudget} class
+	 * @param name The name of the analysis phase to which this budget applies
+	 * @param timeout The wall-clock time budget in seconds. A value of zero or
+	 * less means that there is no time limit.
+	 * @param maxHeap The maximum heap usage in megabytes. A value of zero or
+	 * less means that there is no memory limit.
+	 */
+	public AnalysisBudget(String name, long timeout, long maxHeap) {
+		this.name = name;
+		this.timeout = timeout > 0 ? timeout * 1000L * 1000L * 1000L : -1;
+		this.maxHeap = maxHeap > 0 ? maxHeap * 1024L * 1024L : -1;
+
+		if (this.maxHeap > 0)
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+				if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+					heapPools.add(pool);
+	}
+
+	/**
+	 * Gets whether this budget imposes any limit at all
+	 * @return True if there is a time or memory limit, otherwise false
+	 */
+	public boolean isLimited() {
+		return timeout > 0 || maxHeap > 0;
+	}
+
+	/**
+	 * Starts measuring the time and the heap usage
+	 */
+	public synchronized void start() {
+		startTime = System.nanoTime();
+		if (!isLimited() || watchdog != null)
+			return;
+
+		// Do not even start if we are already over budget
+		checkBudget();
+
+		watchdog = new Thread("FlowDroid budget watchdog (" + name + ")") {
+
+			@Override
+			public void run() {
+				while (!isInterrupted() && !isExhausted()) {
+					checkBudget();
+					try {
+						Thread.sleep(CHECK_INTERVAL);
+					}
+					catch (InterruptedException ex) {
+						return;
+					}
+				}
+			}
+
+		};
+		watchdog.setDaemon(true);
+		watchdog.start();
+	}
+
+	/**
+	 * Stops the watchdog thread. The exhaustion state is retained.
+	 */
+	public synchronized void stop() {
+		if (watchdog != null) {
+			watchdog.interrupt();
+			watchdog = null;
+		}
+	}
+
+	/**
+	 * Checks whether the time or memory limit has been exceeded
+	 */
+	private void checkBudget() {
+		if (timeout > 0 && getElapsedTime() > timeout)
+			exhaust(ExhaustionReason.Timeout);
+		else if (maxHeap > 0 && getRetainedHeap() > maxHeap)
+			exhaust(ExhaustionReason.OutOfMemory);
+	}
+
+	/**
+	 * Gets the number of bytes that were still in use after the last garbage
+	 * collection
+	 * @return The number of bytes that are retained on the heap
+	 */
+	private long getRetainedHeap() {
+		// If the VM does not tell us about the state after the last collection,
+		// we have to fall back to the current usage which includes garbage
+		if (heapPools.isEmpty())
+			return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+
+		long used = 0;
+		for (MemoryPoolMXBean pool : heapPools) {
+			MemoryUsage usage = pool.getCollectionUsage();
+			if (usage != null)
+				used += usage.getUsed();
+		}
+		return used;
+	}
+
+	/**
+	 * Marks this budget as exhausted. Only the first reason is recorded.
+	 * @param reason The reason why the budget is exhausted
+	 */
+	public synchronized void exhaust(ExhaustionReason reason) {
+		if (exhaustionReason != null)
+			return;
+		exhaustionReason = reason;
+		logger.warn("Budget for {} exhausted after {} seconds: {}", name,
+				getElapsedTime() / 1E9, reason);
+	}
+
+	/**
+	 * Cancels the analysis phase to which this budget applies
+	 */
+	public void cancel() {
+		exhaust(ExhaustionReason.Cancelled);
+	}
+
+	/**
+	 * Gets whether this budget has been used up. This method is cheap and can
+	 * be called on every task.
+	 * @return True if the budget has been used up and the analysis phase
+	 * shall stop, otherwise false
+	 */
+	public boolean isExhausted() {
+		return exhaustionReason != null;
+	}
+
+	/**
+	 * Gets the reason why this budget has been used up
+	 * @return The reason why this budget has been used up, or null if the
+	 * budget is not exhausted
+	 */
+	public ExhaustionReason getExhaustionReason() {
+		return exhaustionReason;
+	}
+
+	/**
+	 * Gets the time that has passed since this budget was started
+	 * @return The elapsed time in nanoseconds, or zero if the budget has not
+	 * been started yet
+	 */
+	public long getElapsedTime() {
+		long start = startTime;
+		return start < 0 ? 0 : System.nanoTime() - start;
+	}
+
+}
@@ -0,0 +1,110 @@
+package soot.jimple.infoflow.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Helper for processing the indices of a range in parallel. The range is
+ * split recursively until the parts are small enough to be processed
+ * sequentially. The parts are then processed on a fork/join pool.
+ */
+public class ParallelRange {
+
+	/**
+	 * Callback for processing a single index of the range
+	 */
+	public interface IRangeVisitor {
+
+		/**
+		 * Processes the given index. Different indices may be processed
+		 * concurrently.
+		 * @param index The index to process
+		 */
+		public void visit(int index);
+
+	}
+
+	/**
+	 * Task that processes a range of indices, splitting it if it is larger
+	 * than the batch size
+	 */
+	private static class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 3618271937412750331L;
+
+		private final IRangeVisitor visitor;
+		private final int batchSize;
+		private final int from;
+		private final int to;
+
+		public RangeTask(IRangeVisitor visitor, int batchSize, int from, int to) {
+			this.visitor = visitor;
+			this.batchSize = batchSize;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= batchSize) {
+				for (int i = from; i < to; i++)
+					visitor.visit(i);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeTask(visitor, batchSize, from, mid),
+					new RangeTask(visitor, batchSize, mid, to));
+		}
+
+	}
+
+	private ParallelRange() {
+	}
+
+	/**
+	 * Gets the number of threads to use for a parallel computation
+	 * @param maxThreadNum The maximum number of threads as configured by the
+	 * user, or -1 to use one thread per available processor
+	 * @return The number of threads to use
+	 */
+	public static int getThreadCount(int maxThreadNum) {
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		return maxThreadNum > 0 ? Math.min(maxThreadNum, numThreads) : numThreads;
+	}
+
+	/**
+	 * Processes all indices from zero to size-1 on the given pool. This
+	 * method blocks until all indices have been processed.
+	 * @param pool The pool on which to process the indices
+	 * @param size The number of indices to process
+	 * @param batchSize The maximum number of indices to process without
+	 * splitting the range
+	 * @param visitor The visitor to call for each index
+	 */
+	public static void forEach(ForkJoinPool pool, int size, int batchSize,
+			IRangeVisitor visitor) {
+		pool.invoke(new RangeTask(visitor, Math.max(1, batchSize), 0, size));
+	}
+
+	/**
+	 * Processes all indices from zero to size-1 on a new pool with the given
+	 * number of threads. This method blocks until all indices have been
+	 * processed.
+	 * @param numThreads The number of threads to use
+	 * @param size The number of indices to process
+	 * @param batchSize The maximum number of indices to process without
+	 * splitting the range
+	 * @param visitor The visitor to call for each index
+	 */
+	public static void forEach(int numThreads, int size, int batchSize,
+			IRangeVisitor visitor) {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, numThreads));
+		try {
+			forEach(pool, size, batchSize, visitor);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+}
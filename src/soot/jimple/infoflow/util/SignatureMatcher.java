@@ -0,0 +1,175 @@
+package soot.jimple.infoflow.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.SootClass;
+import soot.SootMethod;
+import soot.jimple.Stmt;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Matches methods and call sites against a fixed list of method signatures.
+ * The signatures are compiled into a table from sub-signatures to class names
+ * once. The verdicts for methods and statements are then cached by identity,
+ * so that repeated queries for the same method or call site neither build
+ * signature strings nor resolve method references again.
+ *
+ * The caches only hold weak references to the methods and statements. When
+ * Soot is reset, the verdicts for the old Scene are therefore collected
+ * together with it.
+ */
+public class SignatureMatcher {
+
+	private final Map<String, Set<String>> classesBySubSignature =
+			new HashMap<String, Set<String>>();
+	private final boolean matchOverridingMethods;
+
+	private final ConcurrentMap<SootMethod, Boolean> methodVerdicts =
+			new MapMaker().weakKeys().concurrencyLevel(
+					Runtime.getRuntime().availableProcessors()).makeMap();
+	private final ConcurrentMap<Stmt, Boolean> stmtVerdicts =
+			new MapMaker().weakKeys().concurrencyLevel(
+					Runtime.getRuntime().availableProcessors()).makeMap();
+
+	/**
+	 * Creates a new instance of the {@link SignatureMatcher} class that only
+	 * matches methods whose signature is in the given list
+	 * @param signatures The signatures of the methods to match, or null to
+	 * match no methods at all
+	 */
+	public SignatureMatcher(Collection<String> signatures) {
+		this(signatures, false);
+	}
+
+	/**
+	 * Creates a new instance of the {@link SignatureMatcher} class
+	 * @param signatures The signatures of the methods to match, or null to
+	 * match no methods at all
+	 * @param matchOverridingMethods True if methods that override or implement
+	 * one of the given methods shall be matched as well, false if the
+	 * signature must match exactly
+	 */
+	public SignatureMatcher(Collection<String> signatures,
+			boolean matchOverridingMethods) {
+		this.matchOverridingMethods = matchOverridingMethods;
+		if (signatures != null)
+			for (String sig : signatures)
+				addSignature(sig);
+	}
+
+	/**
+	 * Adds the given signature to the table of signatures to match. Strings
+	 * that are no valid method signatures are ignored since they cannot match
+	 * any method anyway.
+	 * @param sig The signature to add
+	 */
+	private void addSignature(String sig) {
+		if (sig == null)
+			return;
+		sig = sig.trim();
+		int sepIdx = sig.indexOf(": ");
+		if (!sig.startsWith("<") || !sig.endsWith(">") || sepIdx < 0)
+			return;
+
+		String className = sig.substring(1, sepIdx);
+		String subSignature = sig.substring(sepIdx + 2, sig.length() - 1);
+		Set<String> classes = classesBySubSignature.get(subSignature);
+		if (classes == null) {
+			classes = new HashSet<String>();
+			classesBySubSignature.put(subSignature, classes);
+		}
+		classes.add(className);
+	}
+
+	/**
+	 * Gets whether this matcher does not contain any signatures
+	 * @return True if this matcher can never match any method, otherwise false
+	 */
+	public boolean isEmpty() {
+		return classesBySubSignature.isEmpty();
+	}
+
+	/**
+	 * Checks whether the given method matches one of the signatures
+	 * @param method The method to check
+	 * @return True if the given method matches one of the signatures,
+	 * otherwise false
+	 */
+	public boolean matches(SootMethod method) {
+		if (method == null || isEmpty())
+			return false;
+
+		Boolean verdict = methodVerdicts.get(method);
+		if (verdict == null) {
+			verdict = computeMatch(method);
+			methodVerdicts.put(method, verdict);
+		}
+		return verdict;
+	}
+
+	/**
+	 * Checks whether the given statement calls a method that matches one of
+	 * the signatures
+	 * @param stmt The statement to check
+	 * @return True if the given statement contains a call to a method that
+	 * matches one of the signatures, otherwise false
+	 */
+	public boolean matchesCallee(Stmt stmt) {
+		if (stmt == null || isEmpty())
+			return false;
+
+		Boolean verdict = stmtVerdicts.get(stmt);
+		if (verdict == null) {
+			verdict = stmt.containsInvokeExpr()
+					&& matches(stmt.getInvokeExpr().getMethod());
+			stmtVerdicts.put(stmt, verdict);
+		}
+		return verdict;
+	}
+
+	private boolean computeMatch(SootMethod method) {
+		Set<String> classes = classesBySubSignature.get(method.getSubSignature());
+		if (classes == null)
+			return false;
+		if (classes.contains(method.getDeclaringClass().getName()))
+			return true;
+		if (!matchOverridingMethods)
+			return false;
+
+		// Check whether the method overrides or implements one of the
+		// methods we are looking for
+		return declaresMatch(method.getDeclaringClass(), classes,
+				new HashSet<SootClass>());
+	}
+
+	/**
+	 * Checks whether one of the given class names is the given class or one of
+	 * its transitive superclasses or interfaces
+	 * @param sc The class at which to start the search
+	 * @param classes The class names to look for
+	 * @param doneSet The set of classes that have already been checked
+	 * @return True if the given class or one of its supertypes is contained in
+	 * the given set of class names, otherwise false
+	 */
+	private boolean declaresMatch(SootClass sc, Set<String> classes,
+			Set<SootClass> doneSet) {
+		if (sc == null || !doneSet.add(sc))
+			return false;
+		if (classes.contains(sc.getName()))
+			return true;
+		if (sc.hasSuperclass()
+				&& declaresMatch(sc.getSuperclass(), classes, doneSet))
+			return true;
+		for (SootClass intf : sc.getInterfaces())
+			if (declaresMatch(intf, classes, doneSet))
+				return true;
+		return false;
+	}
+
+}
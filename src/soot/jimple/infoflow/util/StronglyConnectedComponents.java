@@ -0,0 +1,224 @@
+package soot.jimple.infoflow.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The strongly connected components of a directed graph whose nodes are
+ * numbered from zero to n-1, e.g., the methods in a call graph. The components
+ * can be visited bottom-up, i.e., a component is only visited after all
+ * components it has edges to.
+ */
+public class StronglyConnectedComponents {
+
+	/**
+	 * Callback for visiting the components of the graph bottom-up
+	 */
+	public interface IComponentVisitor {
+
+		/**
+		 * Visits a single component. All successor components have already
+		 * been visited when this method is called. Components that do not
+		 * depend on each other may be visited concurrently.
+		 * @param component The index of the component
+		 * @param members The nodes in the component
+		 * @param successors The indices of the components to which this
+		 * component has edges, excluding the component itself
+		 */
+		public void visitComponent(int component, int[] members, int[] successors);
+
+	}
+
+	private final int[] componentOf;
+	private final List<int[]> components;
+	private final int[][] componentSuccessors;
+
+	/**
+	 * Computes the strongly connected components of the given graph
+	 * @param successors The successors of each node in the graph
+	 */
+	public StronglyConnectedComponents(int[][] successors) {
+		this.componentOf = new int[successors.length];
+		this.components = computeComponents(successors);
+
+		this.componentSuccessors = new int[components.size()][];
+		for (int comp = 0; comp < components.size(); comp++) {
+			Set<Integer> succs = new LinkedHashSet<Integer>();
+			for (int member : components.get(comp))
+				for (int succ : successors[member])
+					if (componentOf[succ] != comp)
+						succs.add(componentOf[succ]);
+
+			int[] succArr = new int[succs.size()];
+			int i = 0;
+			for (Integer succ : succs)
+				succArr[i++] = succ;
+			componentSuccessors[comp] = succArr;
+		}
+	}
+
+	/**
+	 * Computes the strongly connected components of the graph using Tarjan's
+	 * algorithm. The recursion is replaced by an explicit stack, so that deep
+	 * call chains cannot overflow the Java stack.
+	 * @param successors The successors of each node in the graph
+	 * @return The strongly connected components in reverse topological order,
+	 * i.e., every component comes after all components it has edges to
+	 */
+	private List<int[]> computeComponents(int[][] successors) {
+		final int n = successors.length;
+		final int[] index = new int[n];
+		final int[] lowLink = new int[n];
+		final boolean[] onStack = new boolean[n];
+		final int[] sccStack = new int[n];
+		final int[] callStackNode = new int[n];
+		final int[] callStackEdge = new int[n];
+		for (int i = 0; i < n; i++)
+			index[i] = -1;
+
+		List<int[]> sccs = new ArrayList<int[]>();
+		int nextIndex = 0;
+		int sccTop = 0;
+		for (int root = 0; root < n; root++) {
+			if (index[root] >= 0)
+				continue;
+
+			int callTop = 0;
+			index[root] = lowLink[root] = nextIndex++;
+			sccStack[sccTop++] = root;
+			onStack[root] = true;
+			callStackNode[callTop] = root;
+			callStackEdge[callTop++] = 0;
+
+			while (callTop > 0) {
+				int v = callStackNode[callTop - 1];
+				int[] succ = successors[v];
+				if (callStackEdge[callTop - 1] < succ.length) {
+					int w = succ[callStackEdge[callTop - 1]++];
+					if (index[w] < 0) {
+						index[w] = lowLink[w] = nextIndex++;
+						sccStack[sccTop++] = w;
+						onStack[w] = true;
+						callStackNode[callTop] = w;
+						callStackEdge[callTop++] = 0;
+					}
+					else if (onStack[w])
+						lowLink[v] = Math.min(lowLink[v], index[w]);
+					continue;
+				}
+
+				// All successors of v are done
+				callTop--;
+				if (lowLink[v] == index[v]) {
+					int sccIdx = sccs.size();
+					int start = sccTop;
+					do {
+						start--;
+						onStack[sccStack[start]] = false;
+						componentOf[sccStack[start]] = sccIdx;
+					} while (sccStack[start] != v);
+					int[] members = new int[sccTop - start];
+					System.arraycopy(sccStack, start, members, 0, members.length);
+					sccTop = start;
+					sccs.add(members);
+				}
+				if (callTop > 0) {
+					int u = callStackNode[callTop - 1];
+					lowLink[u] = Math.min(lowLink[u], lowLink[v]);
+				}
+			}
+		}
+		return sccs;
+	}
+
+	/**
+	 * Gets the number of strongly connected components in the graph
+	 * @return The number of strongly connected components in the graph
+	 */
+	public int getComponentCount() {
+		return components.size();
+	}
+
+	/**
+	 * Gets the component that contains the given node
+	 * @param node The node for which to get the component
+	 * @return The index of the component that contains the given node
+	 */
+	public int getComponentOf(int node) {
+		return componentOf[node];
+	}
+
+	/**
+	 * Visits all components bottom-up. A component is scheduled on the given
+	 * pool once all components it has edges to have been visited. This
+	 * method blocks until all components have been visited.
+	 * @param pool The pool on which to run the visitor
+	 * @param visitor The visitor to call for each component
+	 */
+	public void visitBottomUp(final ForkJoinPool pool, final IComponentVisitor visitor) {
+		final int componentCount = components.size();
+		final List<List<Integer>> predecessors = new ArrayList<List<Integer>>(componentCount);
+		final AtomicIntegerArray pending = new AtomicIntegerArray(componentCount);
+		for (int i = 0; i < componentCount; i++)
+			predecessors.add(new ArrayList<Integer>());
+		for (int comp = 0; comp < componentCount; comp++) {
+			for (int succ : componentSuccessors[comp])
+				predecessors.get(succ).add(comp);
+			pending.set(comp, componentSuccessors[comp].length);
+		}
+
+		final CountDownLatch done = new CountDownLatch(componentCount);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		class VisitTask implements Runnable {
+
+			private final int comp;
+
+			public VisitTask(int comp) {
+				this.comp = comp;
+			}
+
+			@Override
+			public void run() {
+				try {
+					visitor.visitComponent(comp, components.get(comp),
+							componentSuccessors[comp]);
+
+					// Release the predecessors that only waited for us
+					for (int pred : predecessors.get(comp))
+						if (pending.decrementAndGet(pred) == 0)
+							pool.execute(new VisitTask(pred));
+				}
+				catch (Throwable t) {
+					failure.compareAndSet(null, t);
+					// Make sure that we do not wait forever
+					while (done.getCount() > 0)
+						done.countDown();
+					return;
+				}
+				done.countDown();
+			}
+
+		}
+
+		for (int comp = 0; comp < componentCount; comp++)
+			if (pending.get(comp) == 0)
+				pool.execute(new VisitTask(comp));
+
+		try {
+			done.await();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while visiting the graph components", e);
+		}
+		if (failure.get() != null)
+			throw new RuntimeException("Could not visit the graph components", failure.get());
+	}
+
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.results.InfoflowResults.TerminationReason;
+
+/**
+ * Checks that time and memory budgets stop the analysis gracefully and that
+ * the results are flagged accordingly
+ */
+public class AnalysisBudgetTests extends JUnitTests {
+
+	private static final String ENTRY_POINT =
+			"<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>";
+
+	@Test(timeout = 300000)
+	public void generousBudgetCompletes() {
+		soot.G.reset();
+		Infoflow infoflow = (Infoflow) initInfoflow();
+		infoflow.getConfig().setDataFlowTimeout(600);
+		infoflow.getConfig().setPathReconstructionTimeout(600);
+		infoflow.computeInfoflow(appPath, libPath,
+				Collections.singletonList(ENTRY_POINT), sources, sinks);
+		checkInfoflow(infoflow, 1);
+
+		InfoflowResults results = infoflow.getResults();
+		assertTrue(results.isComplete());
+		assertNotNull(results.getPerformanceData());
+		assertTrue(results.getPerformanceData().getForwardPropagationCount() > 0);
+		assertTrue(results.getPerformanceData().getResultsAtSinks() > 0);
+	}
+
+	@Test(timeout = 300000)
+	public void exceededHeapBudgetFlagsResults() {
+		soot.G.reset();
+		Infoflow infoflow = (Infoflow) initInfoflow();
+
+		// The Soot scene alone is larger than this, so the path reconstruction
+		// cannot even start
+		infoflow.getConfig().setMaxHeapUsage(1);
+		infoflow.computeInfoflow(appPath, libPath,
+				Collections.singletonList(ENTRY_POINT), sources, sinks);
+
+		InfoflowResults results = infoflow.getResults();
+		assertNotNull(results);
+		assertFalse(results.isComplete());
+		assertTrue(results.getTerminationReasons().contains(
+				TerminationReason.PathReconstructionOutOfMemory));
+		assertNotNull(results.getPerformanceData());
+	}
+
+}
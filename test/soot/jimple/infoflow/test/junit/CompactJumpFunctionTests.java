@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import heros.solver.PathEdge;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.solver.fastSolver.CompactJumpFunctions;
+
+/**
+ * Compares the default jump function table with the compact one on some of
+ * the existing test cases. Both tables must produce the same results, the
+ * memory consumption of both variants is logged for comparison.
+ */
+public class CompactJumpFunctionTests extends JUnitTests {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final String[] ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.ListTestCode: void linkedList()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void iteratorTest()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void subListTest()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void testForWrapper()>"
+	};
+
+	@Test(timeout = 600000)
+	public void compareMemoryConsumption() {
+		IAnalysisVariants variants = new IAnalysisVariants() {
+
+			@Override
+			public Infoflow createInfoflow(boolean compact) {
+				Infoflow infoflow = (Infoflow) initInfoflow();
+				infoflow.getConfig().setUseCompactJumpFunctions(compact);
+				return infoflow;
+			}
+
+		};
+
+		long defaultMemory = 0;
+		long compactMemory = 0;
+		for (String entryPoint : ENTRY_POINTS) {
+			Infoflow[] flows = compareResults(entryPoint, variants);
+			logger.info("{}: default {} MB, compact {} MB", entryPoint,
+					flows[0].getMaxMemoryConsumption() / 1E6,
+					flows[1].getMaxMemoryConsumption() / 1E6);
+			defaultMemory += flows[0].getMaxMemoryConsumption();
+			compactMemory += flows[1].getMaxMemoryConsumption();
+		}
+		logger.info("Total: default {} MB, compact {} MB", defaultMemory / 1E6,
+				compactMemory / 1E6);
+	}
+
+	@Test
+	public void reAddAfterResize() {
+		// Enough edges to resize every stripe several times
+		final int edgeCount = 200000;
+		CompactJumpFunctions<Integer, String> jumpFn = new CompactJumpFunctions<Integer, String>();
+		String[] targetFacts = new String[edgeCount];
+		for (int i = 0; i < edgeCount; i++) {
+			targetFacts[i] = "t" + (i % 1000);
+			assertNull(jumpFn.addFunction(new PathEdge<Integer, String>(
+					"s" + (i / 1000), i % 5000, targetFacts[i])));
+		}
+		assertEquals(edgeCount, jumpFn.size());
+
+		// Every edge must be found again and return the registered fact
+		for (int i = 0; i < edgeCount; i++)
+			assertSame(targetFacts[i], jumpFn.addFunction(new PathEdge<Integer, String>(
+					"s" + (i / 1000), i % 5000, "t" + (i % 1000))));
+		assertEquals(edgeCount, jumpFn.size());
+	}
+
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.cfg.DefaultBiDiICFGFactory;
+import soot.jimple.infoflow.config.ConfigForTest;
+import soot.jimple.infoflow.data.pathBuilders.DefaultPathBuilderFactory;
+
+/**
+ * Runs some test cases on the original interprocedural CFG and on a frozen
+ * snapshot of it. Both variants must produce the same results. The test cases
+ * use the flow-sensitive alias analysis, so the snapshot is also queried
+ * through the backwards CFG.
+ */
+public class FrozenICFGTests extends JUnitTests {
+
+	private static final String[] ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>",
+		"<soot.jimple.infoflow.test.StringTestCode: void methodStringConcat1()>"
+	};
+
+	@Test(timeout = 600000)
+	public void compareFrozenICFG() {
+		IAnalysisVariants variants = new IAnalysisVariants() {
+
+			@Override
+			public Infoflow createInfoflow(boolean freeze) {
+				DefaultBiDiICFGFactory factory = new DefaultBiDiICFGFactory();
+				factory.setFreezeICFG(freeze);
+				Infoflow infoflow = new Infoflow("", false, factory,
+						new DefaultPathBuilderFactory());
+				infoflow.setSootConfig(new ConfigForTest());
+				return infoflow;
+			}
+
+		};
+
+		for (String entryPoint : ENTRY_POINTS) {
+			Infoflow[] flows = compareResults(entryPoint, variants);
+			checkInfoflow(flows[1], 1);
+		}
+	}
+
+}
@@ -18,7 +18,10 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -27,6 +30,8 @@ import soot.jimple.infoflow.IInfoflow;
 import soot.jimple.infoflow.Infoflow;
 import soot.jimple.infoflow.config.ConfigForTest;
 import soot.jimple.infoflow.results.InfoflowResults;
+import soot.jimple.infoflow.results.ResultSinkInfo;
+import soot.jimple.infoflow.results.ResultSourceInfo;
 import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
 
 /**
@@ -89,6 +94,23 @@ public abstract class JUnitTests {
 		sinks.add(sinkDouble);
 	}
 
+	/**
+	 * The two variants of the data flow analysis that are compared by
+	 * compareResults()
+	 */
+	public interface IAnalysisVariants {
+
+		/**
+		 * Creates and configures the data flow analysis for one of the
+		 * variants
+		 * @param variant False for the baseline, true for the variant under
+		 * test
+		 * @return The configured analysis
+		 */
+		public Infoflow createInfoflow(boolean variant);
+
+	}
+
 	@Before
 	public void resetSootAndStream() throws IOException {
 		soot.G.reset();
@@ -131,6 +153,45 @@ public abstract class JUnitTests {
 		}
 	}
 
+	/**
+	 * Gets the connections between sources and sinks found by the given
+	 * analysis. The connections are represented as strings, so that they can
+	 * be compared between analysis runs on different Soot instances.
+	 * @param infoflow The analysis
+	 * @return The source-to-sink connections found by the given analysis
+	 */
+	public static Set<String> getResultPairs(IInfoflow infoflow) {
+		Set<String> pairs = new HashSet<String>();
+		if (!infoflow.isResultAvailable())
+			return pairs;
+		InfoflowResults results = infoflow.getResults();
+		for (ResultSinkInfo sinkInfo : results.getResults().keySet())
+			for (ResultSourceInfo sourceInfo : results.getResults().get(sinkInfo))
+				pairs.add(sourceInfo + " -> " + sinkInfo);
+		return pairs;
+	}
+
+	/**
+	 * Runs the data flow analysis on the given entry point once for the
+	 * baseline and once for the variant under test, and checks that both runs
+	 * find the same connections between sources and sinks
+	 * @param entryPoint The entry point to analyze
+	 * @param variants The two variants of the analysis to compare
+	 * @return The analysis of the baseline at index 0 and the analysis of the
+	 * variant under test at index 1
+	 */
+	protected Infoflow[] compareResults(String entryPoint, IAnalysisVariants variants) {
+		Infoflow[] flows = new Infoflow[2];
+		for (int i = 0; i < flows.length; i++) {
+			soot.G.reset();
+			flows[i] = variants.createInfoflow(i == 1);
+			flows[i].computeInfoflow(appPath, libPath,
+					Collections.singletonList(entryPoint), sources, sinks);
+		}
+		assertEquals(entryPoint, getResultPairs(flows[0]), getResultPairs(flows[1]));
+		return flows;
+	}
+
 	protected IInfoflow initInfoflow() {
 		return initInfoflow(false);
 	}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.results.InfoflowPerformanceData;
+
+/**
+ * Compares the solvers with and without merge point checking on some of the
+ * existing test cases. Both variants must produce the same results, and
+ * merge point checking must not record more jump functions than the default
+ * solver. The number of jump functions and the memory consumption of both
+ * variants are logged for comparison.
+ */
+public class MergePointCheckingTests extends JUnitTests {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final String[] ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.ListTestCode: void linkedList()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void iteratorTest()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>",
+		"<soot.jimple.infoflow.test.StringTestCode: void methodStringConcat1()>"
+	};
+
+	/**
+	 * Gets the total number of jump functions recorded by the given analysis
+	 * @param infoflow The analysis
+	 * @return The total number of jump functions recorded by the forward and
+	 * the backward solver, or zero if the analysis has no results
+	 */
+	private long getJumpFunctionCount(Infoflow infoflow) {
+		if (!infoflow.isResultAvailable())
+			return 0;
+		InfoflowPerformanceData data = infoflow.getResults().getPerformanceData();
+		return data.getForwardJumpFunctionCount() + data.getBackwardJumpFunctionCount();
+	}
+
+	@Test(timeout = 600000)
+	public void compareJumpFunctions() {
+		IAnalysisVariants variants = new IAnalysisVariants() {
+
+			@Override
+			public Infoflow createInfoflow(boolean mergePointChecking) {
+				Infoflow infoflow = (Infoflow) initInfoflow();
+				infoflow.getConfig().setMergePointChecking(mergePointChecking);
+				return infoflow;
+			}
+
+		};
+
+		long defaultJumpFunctions = 0;
+		long mergeJumpFunctions = 0;
+		long defaultMemory = 0;
+		long mergeMemory = 0;
+		for (String entryPoint : ENTRY_POINTS) {
+			Infoflow[] flows = compareResults(entryPoint, variants);
+			Infoflow defaultFlow = flows[0];
+			Infoflow mergeFlow = flows[1];
+
+			long defaultCount = getJumpFunctionCount(defaultFlow);
+			long mergeCount = getJumpFunctionCount(mergeFlow);
+			assertTrue(mergeCount <= defaultCount);
+
+			logger.info("{}: default {} jump functions, {} MB, merge points {} jump functions, {} MB",
+					entryPoint, defaultCount, defaultFlow.getMaxMemoryConsumption() / 1E6,
+					mergeCount, mergeFlow.getMaxMemoryConsumption() / 1E6);
+			defaultJumpFunctions += defaultCount;
+			mergeJumpFunctions += mergeCount;
+			defaultMemory += defaultFlow.getMaxMemoryConsumption();
+			mergeMemory += mergeFlow.getMaxMemoryConsumption();
+		}
+		logger.info("Total: default {} jump functions, {} MB, merge points {} jump functions, {} MB",
+				defaultJumpFunctions, defaultMemory / 1E6, mergeJumpFunctions, mergeMemory / 1E6);
+	}
+
+}
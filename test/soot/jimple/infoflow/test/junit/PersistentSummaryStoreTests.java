@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+
+/**
+ * Runs some test cases twice with the same persistent summary store. The
+ * first run starts with an empty store, the second one reuses the library
+ * summaries of the first one and must find the same results. Some of the test
+ * cases involve aliasing.
+ */
+public class PersistentSummaryStoreTests extends JUnitTests {
+
+	private static final String[] ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.StringTestCode: void methodStringConcat1()>",
+		"<soot.jimple.infoflow.test.StringTestCode: void methodStringLowerCase()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void multiAliasTest()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void testAliases()>"
+	};
+
+	/**
+	 * Creates a new empty directory for the summary store
+	 * @return The new directory
+	 * @throws IOException Thrown if the directory could not be created
+	 */
+	private File createStoreDirectory() throws IOException {
+		File dir = File.createTempFile("flowdroid-summaries", "");
+		assertTrue(dir.delete());
+		assertTrue(dir.mkdirs());
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	@Test(timeout = 600000)
+	public void reuseSummariesAcrossRuns() throws IOException {
+		for (String entryPoint : ENTRY_POINTS) {
+			final File storeDir = createStoreDirectory();
+			try {
+				// The baseline runs on the empty store and thus analyzes all
+				// library methods. It fills the store for the second run.
+				compareResults(entryPoint, new IAnalysisVariants() {
+
+					@Override
+					public Infoflow createInfoflow(boolean warm) {
+						if (warm)
+							assertEquals(1, storeDir.listFiles().length);
+						Infoflow infoflow = (Infoflow) initInfoflow();
+						infoflow.getConfig().setSummaryStoreDirectory(storeDir.getAbsolutePath());
+						return infoflow;
+					}
+
+				});
+			}
+			finally {
+				for (File f : storeDir.listFiles())
+					f.delete();
+				storeDir.delete();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowConfiguration.CallgraphAlgorithm;
+import soot.jimple.infoflow.cfg.BiDirICFGFactory;
+import soot.jimple.infoflow.config.ConfigForTest;
+import soot.jimple.infoflow.data.pathBuilders.DefaultPathBuilderFactory;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+import soot.jimple.infoflow.solver.cfg.InfoflowCFG;
+import soot.jimple.toolkits.ide.icfg.JimpleBasedInterproceduralCFG;
+
+/**
+ * Runs some of the implicit flow test cases with and without the method-level
+ * postdominator cache. Both variants must produce the same results, and the
+ * cache must never compute more postdominator trees than the uncached
+ * variant.
+ */
+public class PostdominatorCacheTests extends JUnitTests {
+
+	private static final String[] ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.ImplicitFlowTestCode: void simpleTest()>",
+		"<soot.jimple.infoflow.test.ImplicitFlowTestCode: void switchTest()>",
+		"<soot.jimple.infoflow.test.ImplicitFlowTestCode: void callTest()>",
+		"<soot.jimple.infoflow.test.ImplicitFlowTestCode: void recursionTest2()>",
+		"<soot.jimple.infoflow.test.ImplicitFlowTestCode: void fieldTest()>",
+		"<soot.jimple.infoflow.test.ImplicitFlowTestCode: void conditionalExceptionTest()>",
+		"<soot.jimple.infoflow.test.ImplicitFlowTestCode: void hierarchicalCallSetTest()>"
+	};
+
+	/**
+	 * Factory that creates interprocedural CFGs with a fixed postdominator
+	 * cache size and remembers the last one it has created
+	 */
+	private static class CacheSizeICFGFactory implements BiDirICFGFactory {
+
+		private final long cacheSize;
+		private InfoflowCFG lastCFG = null;
+
+		public CacheSizeICFGFactory(long cacheSize) {
+			this.cacheSize = cacheSize;
+		}
+
+		@Override
+		public IInfoflowCFG buildBiDirICFG(CallgraphAlgorithm callgraphAlgorithm,
+				boolean enableExceptions) {
+			lastCFG = new InfoflowCFG(new JimpleBasedInterproceduralCFG(enableExceptions),
+					cacheSize);
+			return lastCFG;
+		}
+
+	}
+
+	@Test(timeout = 600000)
+	public void comparePostdominatorCache() {
+		final CacheSizeICFGFactory[] factories = new CacheSizeICFGFactory[2];
+		IAnalysisVariants variants = new IAnalysisVariants() {
+
+			@Override
+			public Infoflow createInfoflow(boolean cached) {
+				// A cache size of zero computes a new tree for every query,
+				// just like the old per-unit lookup
+				CacheSizeICFGFactory factory = new CacheSizeICFGFactory(cached
+						? InfoflowCFG.DEFAULT_POSTDOMINATOR_CACHE_SIZE : 0);
+				factories[cached ? 1 : 0] = factory;
+
+				Infoflow infoflow = new Infoflow("", false, factory,
+						new DefaultPathBuilderFactory());
+				infoflow.setSootConfig(new ConfigForTest());
+				infoflow.getConfig().setEnableImplicitFlows(true);
+				infoflow.getConfig().setInspectSinks(false);
+				return infoflow;
+			}
+
+		};
+
+		for (String entryPoint : ENTRY_POINTS) {
+			compareResults(entryPoint, variants);
+			assertTrue(factories[1].lastCFG.getPostdominatorTreeCount()
+					<= factories[0].lastCFG.getPostdominatorTreeCount());
+		}
+	}
+
+}
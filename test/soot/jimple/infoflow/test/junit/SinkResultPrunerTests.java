@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.data.AbstractionAtSink;
+import soot.jimple.infoflow.results.SinkResultPruner;
+
+/**
+ * Checks that the indexed pruning of results at sinks removes exactly the
+ * same results as comparing all pairs of results on some of the existing
+ * test cases.
+ */
+public class SinkResultPrunerTests extends JUnitTests {
+
+	private static final String[] ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.HeapTestCode: void simpleTest()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void argumentTest()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void doubleAliasTest()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void linkedList()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void iteratorTest()>"
+	};
+
+	/**
+	 * Removes all entailed results by comparing all pairs in the given order
+	 * @param results The results to prune
+	 * @param order The order in which to process the results
+	 */
+	private static void pruneNaive(Set<AbstractionAtSink> results,
+			Iterable<AbstractionAtSink> order) {
+		for (Iterator<AbstractionAtSink> curIt = order.iterator(); curIt.hasNext(); ) {
+			AbstractionAtSink curAbs = curIt.next();
+			for (AbstractionAtSink checkAbs : order)
+				if (checkAbs != curAbs
+						&& results.contains(checkAbs)
+						&& checkAbs.getSinkStmt() == curAbs.getSinkStmt()
+						&& checkAbs.getAbstraction().isImplicit() == curAbs.getAbstraction().isImplicit())
+					if (checkAbs.getAbstraction().getAccessPath().entails(
+							curAbs.getAbstraction().getAccessPath())) {
+						results.remove(curAbs);
+						break;
+					}
+		}
+	}
+
+	/**
+	 * Pruner that uses the original pairwise comparison
+	 */
+	private static class PairwisePruner extends SinkResultPruner {
+
+		@Override
+		public int prune(Set<AbstractionAtSink> results) {
+			int oldSize = results.size();
+			pruneNaive(results, new ArrayList<AbstractionAtSink>(results));
+			return oldSize - results.size();
+		}
+
+	}
+
+	/**
+	 * Pruner that compares its results with the ones of the original
+	 * pairwise comparison
+	 */
+	private static class CheckingPruner extends SinkResultPruner {
+
+		private int checkedResults = 0;
+
+		@Override
+		public int prune(Set<AbstractionAtSink> results) {
+			Set<AbstractionAtSink> expected = new HashSet<AbstractionAtSink>(results);
+			Set<AbstractionAtSink> actual = new HashSet<AbstractionAtSink>(results);
+			pruneNaive(expected, new ArrayList<AbstractionAtSink>(results));
+
+			int removed = super.prune(actual);
+			assertEquals(expected, actual);
+			assertEquals(results.size() - actual.size(), removed);
+			checkedResults += results.size();
+
+			return super.prune(results);
+		}
+
+	}
+
+	@Test(timeout = 600000)
+	public void compareWithPairwisePruning() {
+		final CheckingPruner checkingPruner = new CheckingPruner();
+		IAnalysisVariants variants = new IAnalysisVariants() {
+
+			@Override
+			public Infoflow createInfoflow(boolean indexed) {
+				Infoflow infoflow = (Infoflow) initInfoflow();
+				infoflow.setSinkResultPruner(indexed ? checkingPruner : new PairwisePruner());
+				return infoflow;
+			}
+
+		};
+
+		for (String entryPoint : ENTRY_POINTS)
+			compareResults(entryPoint, variants);
+		assertTrue(checkingPruner.checkedResults > 0);
+	}
+
+	@Test(timeout = 300000)
+	public void unprunedResultsAreSuperset() {
+		soot.G.reset();
+		Infoflow pruned = (Infoflow) initInfoflow();
+		pruned.computeInfoflow(appPath, libPath,
+				Collections.singletonList(ENTRY_POINTS[1]), sources, sinks);
+		checkInfoflow(pruned, 1);
+
+		soot.G.reset();
+		Infoflow unpruned = (Infoflow) initInfoflow();
+		unpruned.setSinkResultPruner(null);
+		unpruned.computeInfoflow(appPath, libPath,
+				Collections.singletonList(ENTRY_POINTS[1]), sources, sinks);
+		checkInfoflow(unpruned, 1);
+		assertTrue(unpruned.getResults().size() >= pruned.getResults().size());
+	}
+
+}
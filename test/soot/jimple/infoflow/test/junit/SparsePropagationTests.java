@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+
+/**
+ * Compares the dense and the sparse taint propagation on some of the existing
+ * test cases. Both variants must produce the same results, and the sparse
+ * variant must propagate fewer edges in the forward solver.
+ */
+public class SparsePropagationTests extends JUnitTests {
+
+	private static final String[] ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>",
+		"<soot.jimple.infoflow.test.StringTestCode: void methodStringConcat1()>"
+	};
+
+	private static final String[] NEGATIVE_ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.HeapTestCode: void simpleTest()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void argumentTest()>"
+	};
+
+	/**
+	 * Creates the analysis with dense or sparse propagation
+	 */
+	private final IAnalysisVariants variants = new IAnalysisVariants() {
+
+		@Override
+		public Infoflow createInfoflow(boolean sparse) {
+			Infoflow infoflow = (Infoflow) initInfoflow();
+			infoflow.getConfig().setSparsePropagation(sparse);
+			return infoflow;
+		}
+
+	};
+
+	/**
+	 * Gets the number of edges propagated by the forward solver
+	 * @param infoflow The analysis
+	 * @return The number of edges propagated by the forward solver, or zero
+	 * if the analysis has no results
+	 */
+	private long getPropagationCount(Infoflow infoflow) {
+		if (!infoflow.isResultAvailable())
+			return 0;
+		return infoflow.getResults().getPerformanceData().getForwardPropagationCount();
+	}
+
+	@Test(timeout = 600000)
+	public void compareSparsePropagation() {
+		long denseEdges = 0;
+		long sparseEdges = 0;
+		for (String entryPoint : ENTRY_POINTS) {
+			Infoflow[] flows = compareResults(entryPoint, variants);
+			checkInfoflow(flows[1], 1);
+
+			long denseCount = getPropagationCount(flows[0]);
+			long sparseCount = getPropagationCount(flows[1]);
+			assertTrue(sparseCount <= denseCount);
+			denseEdges += denseCount;
+			sparseEdges += sparseCount;
+		}
+		assertTrue(sparseEdges < denseEdges);
+	}
+
+	@Test(timeout = 300000)
+	public void sparsePropagationNegative() {
+		for (String entryPoint : NEGATIVE_ENTRY_POINTS) {
+			Infoflow[] flows = compareResults(entryPoint, variants);
+			negativeCheckInfoflow(flows[1]);
+		}
+	}
+
+}
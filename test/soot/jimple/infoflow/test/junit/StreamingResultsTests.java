@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.handlers.StreamingResultsHandler;
+import soot.jimple.infoflow.results.ResultSinkInfo;
+import soot.jimple.infoflow.results.ResultSourceInfo;
+import soot.jimple.infoflow.solver.cfg.IInfoflowCFG;
+
+/**
+ * Checks that the results reported while the taint propagation is still
+ * running are consistent with the final results
+ */
+public class StreamingResultsTests extends JUnitTests {
+
+	private static final String[] ENTRY_POINTS = new String[] {
+		"<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>",
+		"<soot.jimple.infoflow.test.HeapTestCode: void methodTest1()>",
+		"<soot.jimple.infoflow.test.ListTestCode: void concreteWriteReadPos0Test()>"
+	};
+
+	/**
+	 * Handler that records all streamed results
+	 */
+	private static class RecordingHandler implements StreamingResultsHandler {
+
+		private final List<ResultSinkInfo> sinks = new CopyOnWriteArrayList<ResultSinkInfo>();
+		private final List<ResultSourceInfo> sources = new CopyOnWriteArrayList<ResultSourceInfo>();
+		private final List<ResultSinkInfo> connectedSinks = new CopyOnWriteArrayList<ResultSinkInfo>();
+
+		@Override
+		public void onSinkReached(IInfoflowCFG cfg, ResultSinkInfo sink) {
+			sinks.add(sink);
+		}
+
+		@Override
+		public void onSourceSinkConnection(IInfoflowCFG cfg, ResultSinkInfo sink,
+				ResultSourceInfo source) {
+			connectedSinks.add(sink);
+			sources.add(source);
+		}
+
+	}
+
+	@Test(timeout = 600000)
+	public void streamedResultsMatchFinalResults() {
+		for (String entryPoint : ENTRY_POINTS) {
+			soot.G.reset();
+
+			RecordingHandler handler = new RecordingHandler();
+			Infoflow infoflow = (Infoflow) initInfoflow();
+			infoflow.getConfig().setIncrementalPathBuilding(true);
+			infoflow.addStreamingResultsHandler(handler);
+			infoflow.computeInfoflow(appPath, libPath,
+					Collections.singletonList(entryPoint), sources, sinks);
+			checkInfoflow(infoflow, 1);
+
+			// Every streamed connection must also be part of the final results
+			assertFalse(handler.sinks.isEmpty());
+			assertFalse(handler.sources.isEmpty());
+			for (int i = 0; i < handler.sources.size(); i++)
+				assertTrue(infoflow.getResults().isPathBetween(
+						handler.connectedSinks.get(i).getSink(),
+						handler.sources.get(i).getSource()));
+		}
+	}
+
+}
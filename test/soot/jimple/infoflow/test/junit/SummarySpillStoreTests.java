@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import heros.solver.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.solver.fastSolver.SummarySpillStore;
+
+/**
+ * Checks that the summary spill store only keeps the distinct objects of the
+ * evicted structures and releases its own resources again once the entries
+ * are reloaded
+ */
+public class SummarySpillStoreTests {
+
+	private static final int METHOD_COUNT = 500;
+	private static final int CALL_SITE_COUNT = 20;
+	private static final int FACT_COUNT = 50;
+
+	/**
+	 * Creates the incoming edges for a single callee. The call sites and
+	 * facts are taken from the given pools, so only the maps themselves are
+	 * specific to the callee.
+	 */
+	private static Map<String, Map<Object, Object>> createIncoming(String[] callSites,
+			Object[] facts) {
+		Map<String, Map<Object, Object>> incoming = new HashMap<String, Map<Object, Object>>();
+		for (String callSite : callSites) {
+			Map<Object, Object> factMap = new HashMap<Object, Object>();
+			for (int i = 0; i < facts.length; i++)
+				factMap.put(facts[i], facts[(i + 1) % facts.length]);
+			incoming.put(callSite, factMap);
+		}
+		return incoming;
+	}
+
+	private static String[] createCallSites() {
+		String[] callSites = new String[CALL_SITE_COUNT];
+		for (int i = 0; i < callSites.length; i++)
+			callSites[i] = "callSite" + i;
+		return callSites;
+	}
+
+	private static Object[] createFacts() {
+		Object[] facts = new Object[FACT_COUNT];
+		for (int i = 0; i < facts.length; i++)
+			facts[i] = new Object();
+		return facts;
+	}
+
+	@Test(timeout=300000)
+	public void evictionKeepsOnlyDistinctObjects() {
+		String[] callSites = createCallSites();
+		Object[] facts = createFacts();
+		SummarySpillStore<String, Object, String> store =
+				new SummarySpillStore<String, Object, String>();
+		try {
+			assertTrue(store.isEmpty());
+			assertEquals(0, store.getFileSize());
+
+			List<Pair<String, Object>> keys = new ArrayList<Pair<String, Object>>();
+			for (int i = 0; i < METHOD_COUNT; i++) {
+				Pair<String, Object> key = new Pair<String, Object>("method" + i, facts[0]);
+				keys.add(key);
+				assertTrue(store.spillIncoming(key, createIncoming(callSites, facts)));
+			}
+
+			// The 500,000 map entries are now in the file. The store itself
+			// only keeps the 70 distinct objects they refer to.
+			assertFalse(store.isEmpty());
+			assertEquals(METHOD_COUNT, store.getSpilledEntryCount());
+			assertTrue(store.getFileSize() > 0);
+			assertEquals(CALL_SITE_COUNT + FACT_COUNT, store.getReferencedObjectCount());
+
+			// Everything must come back unchanged
+			for (Pair<String, Object> key : keys) {
+				Map<String, Map<Object, Object>> incoming = store.reloadIncoming(key);
+				assertNotNull(incoming);
+				assertEquals(createIncoming(callSites, facts), incoming);
+			}
+			assertTrue(store.isEmpty());
+			assertEquals(0, store.getReferencedObjectCount());
+		}
+		finally {
+			store.close();
+		}
+	}
+
+	@Test(timeout=300000)
+	public void reloadReleasesObjectsAndFileSpace() {
+		String[] callSites = createCallSites();
+		Object[] facts = createFacts();
+		SummarySpillStore<String, Object, String> store =
+				new SummarySpillStore<String, Object, String>(null, 64 * 1024);
+		try {
+			List<Pair<String, Object>> keys = new ArrayList<Pair<String, Object>>();
+			for (int i = 0; i < METHOD_COUNT; i++) {
+				Pair<String, Object> key = new Pair<String, Object>("method" + i, facts[0]);
+				keys.add(key);
+				assertTrue(store.spillIncoming(key, createIncoming(callSites, facts)));
+			}
+			long fullSize = store.getFileSize();
+			assertTrue(fullSize > 0);
+
+			// Reloading most of the entries must compact the file
+			for (int i = 0; i < METHOD_COUNT - 10; i++)
+				assertNotNull(store.reloadIncoming(keys.get(i)));
+			assertTrue(store.getFileSize() < fullSize / 10);
+			assertEquals(CALL_SITE_COUNT + FACT_COUNT, store.getReferencedObjectCount());
+
+			// The remaining entries must have survived the compaction
+			for (int i = METHOD_COUNT - 10; i < METHOD_COUNT; i++)
+				assertEquals(createIncoming(callSites, facts), store.reloadIncoming(keys.get(i)));
+
+			// Once everything is reloaded, the store must not hold on to
+			// anything anymore
+			assertTrue(store.isEmpty());
+			assertEquals(0, store.getReferencedObjectCount());
+			assertEquals(0, store.getFileSize());
+		}
+		finally {
+			store.close();
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ package soot.jimple.infoflow.test.securibench;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static soot.jimple.infoflow.test.junit.JUnitTests.getResultPairs;
 
 import java.io.File;
 import java.io.IOException;
@@ -30,6 +31,7 @@ import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
 import soot.jimple.infoflow.results.InfoflowResults;
 import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
+import soot.jimple.infoflow.test.junit.JUnitTests.IAnalysisVariants;
 
 public abstract class JUnitTests {
 
@@ -157,6 +159,26 @@ public abstract class JUnitTests {
 			}
 	  }
     
+    /**
+     * Runs the data flow analysis once for the baseline and once for the
+     * variant under test, and checks that both runs find the same connections
+     * between sources and sinks. The variants must set up the entry point
+     * creator through initInfoflow().
+     * @param variants The two variants of the analysis to compare
+     * @return The analysis of the baseline at index 0 and the analysis of the
+     * variant under test at index 1
+     */
+    protected Infoflow[] compareResults(IAnalysisVariants variants) {
+		Infoflow[] flows = new Infoflow[2];
+		for (int i = 0; i < flows.length; i++) {
+			soot.G.reset();
+			flows[i] = variants.createInfoflow(i == 1);
+			flows[i].computeInfoflow(appPath, libPath, entryPointCreator, sources, sinks);
+		}
+		assertEquals(getResultPairs(flows[0]), getResultPairs(flows[1]));
+		return flows;
+    }
+    
     protected Infoflow initInfoflow(List<String> entryPoints) {
     	List<String> substClasses = new LinkedList<String>();
     	substClasses.add("soot.jimple.infoflow.test.securibench.supportClasses.DummyHttpRequest");